@@ -0,0 +1,290 @@
+package org.greenplum.pxf.api;
+
+/**
+ * Represents a batch of rows stored by column. Every column is backed by a
+ * vector of primitive values, or by a vector of objects for types that do not
+ * have a primitive representation, and an optional null mask. Vectors are not
+ * copied, so resolvers can expose the vectors of the underlying reader (for
+ * example the ORC column vectors) without creating an object per value.
+ * <p>
+ * Values of text columns stored in a bytes vector must be UTF-8 encoded,
+ * values of BYTEA columns are stored as is.
+ * <p>
+ * A vector marked as repeating holds a single value (at index 0) that is
+ * used for every row in the batch.
+ */
+public class ColumnBatch {
+
+    /**
+     * The physical representation of a column vector.
+     */
+    public enum VectorType {
+        /**
+         * All the values of the column are null
+         */
+        NULL,
+        /**
+         * BOOLEAN, SMALLINT, INTEGER and BIGINT values stored in a long[]
+         */
+        LONG,
+        /**
+         * REAL and FLOAT8 values stored in a double[]
+         */
+        DOUBLE,
+        /**
+         * Text and BYTEA values stored as ranges of byte[]
+         */
+        BYTES,
+        /**
+         * Any other value stored in an Object[], serialized using toString()
+         */
+        OBJECT
+    }
+
+    private final int[] columnTypes;
+    private final Vector[] vectors;
+    private int size;
+
+    /**
+     * Constructs a batch with all the columns set to null.
+     *
+     * @param columnTypes the Greenplum type OIDs of the columns
+     */
+    public ColumnBatch(int[] columnTypes) {
+        this.columnTypes = columnTypes;
+        this.vectors = new Vector[columnTypes.length];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new Vector();
+        }
+    }
+
+    /**
+     * Returns the number of rows in the batch
+     *
+     * @return the number of rows in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the number of rows in the batch
+     *
+     * @param size the number of rows in the batch
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of columns in the batch
+     *
+     * @return the number of columns in the batch
+     */
+    public int getNumColumns() {
+        return columnTypes.length;
+    }
+
+    /**
+     * Returns the Greenplum type OID of the column
+     *
+     * @param column the column index
+     * @return the type OID of the column
+     */
+    public int getColumnType(int column) {
+        return columnTypes[column];
+    }
+
+    /**
+     * Returns the physical representation of the column
+     *
+     * @param column the column index
+     * @return the vector type of the column
+     */
+    public VectorType getVectorType(int column) {
+        return vectors[column].type;
+    }
+
+    /**
+     * Marks all the values of the column as null
+     *
+     * @param column the column index
+     */
+    public void setNullVector(int column) {
+        vectors[column].set(VectorType.NULL, null, null, null, true, true);
+    }
+
+    /**
+     * Sets the vector of a BOOLEAN, SMALLINT, INTEGER or BIGINT column.
+     * Booleans are represented as 0 and 1.
+     *
+     * @param column      the column index
+     * @param values      the values of the column
+     * @param isNull      the null mask, ignored when noNulls is true
+     * @param noNulls     true if the column has no null values
+     * @param isRepeating true if the first value repeats for every row
+     */
+    public void setLongVector(int column, long[] values, boolean[] isNull, boolean noNulls, boolean isRepeating) {
+        vectors[column].set(VectorType.LONG, values, null, isNull, noNulls, isRepeating);
+    }
+
+    /**
+     * Sets the vector of a REAL or FLOAT8 column.
+     *
+     * @param column      the column index
+     * @param values      the values of the column
+     * @param isNull      the null mask, ignored when noNulls is true
+     * @param noNulls     true if the column has no null values
+     * @param isRepeating true if the first value repeats for every row
+     */
+    public void setDoubleVector(int column, double[] values, boolean[] isNull, boolean noNulls, boolean isRepeating) {
+        vectors[column].set(VectorType.DOUBLE, values, null, isNull, noNulls, isRepeating);
+    }
+
+    /**
+     * Sets the vector of a text or BYTEA column, the value of a row is the
+     * range [start[row], start[row] + length[row]) of values[row].
+     *
+     * @param column      the column index
+     * @param values      the buffers holding the values of the column
+     * @param start       the offset of every value in its buffer
+     * @param length      the length of every value
+     * @param isNull      the null mask, ignored when noNulls is true
+     * @param noNulls     true if the column has no null values
+     * @param isRepeating true if the first value repeats for every row
+     */
+    public void setBytesVector(int column, byte[][] values, int[] start, int[] length, boolean[] isNull, boolean noNulls, boolean isRepeating) {
+        Vector vector = vectors[column];
+        vector.set(VectorType.BYTES, values, null, isNull, noNulls, isRepeating);
+        vector.start = start;
+        vector.length = length;
+    }
+
+    /**
+     * Sets the vector of a column whose values are serialized using their
+     * string representation, such as NUMERIC, DATE or arrays. A null value
+     * in the array is treated as a null value of the column.
+     *
+     * @param column      the column index
+     * @param values      the values of the column
+     * @param isNull      the null mask, ignored when noNulls is true
+     * @param noNulls     true if the column has no null values
+     * @param isRepeating true if the first value repeats for every row
+     */
+    public void setObjectVector(int column, Object[] values, boolean[] isNull, boolean noNulls, boolean isRepeating) {
+        vectors[column].set(VectorType.OBJECT, null, values, isNull, noNulls, isRepeating);
+    }
+
+    /**
+     * Returns whether the value of the column at the given row is null
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return true if the value is null, false otherwise
+     */
+    public boolean isNull(int column, int row) {
+        Vector vector = vectors[column];
+        if (vector.type == VectorType.NULL) {
+            return true;
+        }
+        int rowId = vector.isRepeating ? 0 : row;
+        if (!vector.noNulls && vector.isNull[rowId]) {
+            return true;
+        }
+        return vector.type == VectorType.OBJECT && vector.objects[rowId] == null;
+    }
+
+    /**
+     * Returns the value of a LONG column at the given row
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the value
+     */
+    public long getLong(int column, int row) {
+        Vector vector = vectors[column];
+        return ((long[]) vector.values)[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * Returns the value of a DOUBLE column at the given row
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the value
+     */
+    public double getDouble(int column, int row) {
+        Vector vector = vectors[column];
+        return ((double[]) vector.values)[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * Returns the buffer holding the value of a BYTES column at the given row
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the buffer holding the value
+     */
+    public byte[] getBytes(int column, int row) {
+        Vector vector = vectors[column];
+        return ((byte[][]) vector.values)[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * Returns the offset of the value of a BYTES column at the given row in its buffer
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the offset of the value in the buffer
+     */
+    public int getBytesStart(int column, int row) {
+        Vector vector = vectors[column];
+        return vector.start[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * Returns the length of the value of a BYTES column at the given row
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the length of the value in bytes
+     */
+    public int getBytesLength(int column, int row) {
+        Vector vector = vectors[column];
+        return vector.length[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * Returns the value of an OBJECT column at the given row
+     *
+     * @param column the column index
+     * @param row    the row index
+     * @return the value, or null
+     */
+    public Object getObject(int column, int row) {
+        Vector vector = vectors[column];
+        return vector.objects[vector.isRepeating ? 0 : row];
+    }
+
+    private static final class Vector {
+        private VectorType type = VectorType.NULL;
+        private Object values;
+        private Object[] objects;
+        private int[] start;
+        private int[] length;
+        private boolean[] isNull;
+        private boolean noNulls = true;
+        private boolean isRepeating;
+
+        private void set(VectorType type, Object values, Object[] objects, boolean[] isNull, boolean noNulls, boolean isRepeating) {
+            this.type = type;
+            this.values = values;
+            this.objects = objects;
+            this.isNull = isNull;
+            this.noNulls = noNulls;
+            this.isRepeating = isRepeating;
+            this.start = null;
+            this.length = null;
+        }
+    }
+}
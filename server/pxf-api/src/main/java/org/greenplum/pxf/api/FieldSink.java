@@ -0,0 +1,128 @@
+package org.greenplum.pxf.api;
+
+import java.io.IOException;
+
+/**
+ * Receives the values of the fields of a row, one column at a time. Unlike a
+ * list of {@link OneField} objects, primitive values are passed as is, so no
+ * object is created for the fields of primitive columns.
+ * <p>
+ * The columns of a row must be set in order, from the first to the last, and
+ * every column must be set exactly once, either with one of the setters or
+ * with {@link #setNull(int)}. The setter must match the type of the column:
+ * {@link #setInt(int, int)} for INTEGER columns, {@link #setLong(int, long)}
+ * for BIGINT columns, {@link #setBytes(int, byte[], int, int)} for BYTEA
+ * columns, {@link #setText(int, byte[], int, int)} or
+ * {@link #setString(int, String)} for text columns and for the types sent in
+ * their text representation (NUMERIC, DATE, TIMESTAMP, arrays, ...), and so
+ * on.
+ * <p>
+ * The arrays passed to the setters are not retained, so they can be reused
+ * by the caller once the setter returns.
+ */
+public interface FieldSink {
+
+    /**
+     * Sets the column to null.
+     *
+     * @param column the column index
+     * @throws IOException if the column cannot be set
+     */
+    void setNull(int column) throws IOException;
+
+    /**
+     * Sets the value of a BOOLEAN column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setBoolean(int column, boolean value) throws IOException;
+
+    /**
+     * Sets the value of a SMALLINT column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setShort(int column, short value) throws IOException;
+
+    /**
+     * Sets the value of an INTEGER column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setInt(int column, int value) throws IOException;
+
+    /**
+     * Sets the value of a BIGINT column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setLong(int column, long value) throws IOException;
+
+    /**
+     * Sets the value of a REAL column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setFloat(int column, float value) throws IOException;
+
+    /**
+     * Sets the value of a FLOAT8 column.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setDouble(int column, double value) throws IOException;
+
+    /**
+     * Sets the value of a BYTEA column to a range of bytes.
+     *
+     * @param column the column index
+     * @param value  the array holding the value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setBytes(int column, byte[] value, int offset, int length) throws IOException;
+
+    /**
+     * Sets the value of a text column to a range of UTF-8 encoded bytes.
+     *
+     * @param column the column index
+     * @param value  the array holding the UTF-8 encoded value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setText(int column, byte[] value, int offset, int length) throws IOException;
+
+    /**
+     * Sets the value of a text column, a null value sets the column to null.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setString(int column, String value) throws IOException;
+
+    /**
+     * Sets the value of a column that is sent in its text representation,
+     * given by {@link Object#toString()}, a null value sets the column to
+     * null.
+     *
+     * @param column the column index
+     * @param value  the value
+     * @throws IOException if the column cannot be set, or the column type does not match
+     */
+    void setObject(int column, Object value) throws IOException;
+}
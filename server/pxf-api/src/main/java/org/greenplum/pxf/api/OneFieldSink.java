@@ -0,0 +1,113 @@
+package org.greenplum.pxf.api;
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FieldSink} that collects the values of a row into a list of
+ * {@link OneField} objects, so that a resolver pushing its values into a
+ * {@link FieldSink} can also implement
+ * {@link org.greenplum.pxf.api.model.Resolver#getFields(OneRow)}.
+ * <p>
+ * Primitive values are boxed and typed after the setter they are set with,
+ * the other values are typed after the column they are set to. Byte arrays
+ * are copied.
+ */
+public class OneFieldSink implements FieldSink {
+
+    private final List<ColumnDescriptor> columns;
+    private List<OneField> fields;
+
+    /**
+     * Creates a sink for rows with the given columns.
+     *
+     * @param columns the columns of the rows
+     */
+    public OneFieldSink(List<ColumnDescriptor> columns) {
+        this.columns = columns;
+        this.fields = new ArrayList<>(columns.size());
+    }
+
+    /**
+     * Returns the fields of the row, the next fields set start a new row.
+     *
+     * @return the list of fields of the row
+     */
+    public List<OneField> getFields() {
+        List<OneField> row = fields;
+        fields = new ArrayList<>(columns.size());
+        return row;
+    }
+
+    @Override
+    public void setNull(int column) {
+        add(column, columnType(column), null);
+    }
+
+    @Override
+    public void setBoolean(int column, boolean value) {
+        add(column, DataType.BOOLEAN.getOID(), value);
+    }
+
+    @Override
+    public void setShort(int column, short value) {
+        add(column, DataType.SMALLINT.getOID(), value);
+    }
+
+    @Override
+    public void setInt(int column, int value) {
+        add(column, DataType.INTEGER.getOID(), value);
+    }
+
+    @Override
+    public void setLong(int column, long value) {
+        add(column, DataType.BIGINT.getOID(), value);
+    }
+
+    @Override
+    public void setFloat(int column, float value) {
+        add(column, DataType.REAL.getOID(), value);
+    }
+
+    @Override
+    public void setDouble(int column, double value) {
+        add(column, DataType.FLOAT8.getOID(), value);
+    }
+
+    @Override
+    public void setBytes(int column, byte[] value, int offset, int length) {
+        add(column, DataType.BYTEA.getOID(), Arrays.copyOfRange(value, offset, offset + length));
+    }
+
+    @Override
+    public void setText(int column, byte[] value, int offset, int length) {
+        add(column, columnType(column), new String(value, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void setString(int column, String value) {
+        add(column, columnType(column), value);
+    }
+
+    @Override
+    public void setObject(int column, Object value) {
+        add(column, columnType(column), value);
+    }
+
+    private int columnType(int column) {
+        return columns.get(column).columnTypeCode();
+    }
+
+    private void add(int column, int type, Object value) {
+        if (column != fields.size()) {
+            throw new IllegalStateException(String.format(
+                    "Column %d is set out of order, expected column %d", column, fields.size()));
+        }
+        fields.add(new OneField(type, value));
+    }
+}
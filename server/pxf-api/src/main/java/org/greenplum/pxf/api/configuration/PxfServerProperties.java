@@ -41,6 +41,14 @@ public class PxfServerProperties {
     @Setter
     private TaskExecutionProperties task = new TaskExecutionProperties();
 
+    /**
+     * Whether to stream each response on its own virtual thread instead of
+     * a thread of the task pool, when the JVM supports virtual threads
+     */
+    @Getter
+    @Setter
+    private boolean virtualThreads = false;
+
     @Getter
     @Setter
     public static class Tomcat {
@@ -60,6 +68,12 @@ public class PxfServerProperties {
          */
         private Duration connectionUploadTimeout = Duration.ofMinutes(5); // 5 min is default Tomcat setting
 
+        /**
+         * Whether the connector processes requests on virtual threads instead
+         * of its thread pool, when the JVM supports virtual threads
+         */
+        private boolean virtualThreads = false;
+
     }
 
     public void setBase(String base) {
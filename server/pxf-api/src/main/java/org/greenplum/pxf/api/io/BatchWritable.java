@@ -0,0 +1,14 @@
+package org.greenplum.pxf.api.io;
+
+/**
+ * A {@link Writable} that serializes several records at once.
+ */
+public interface BatchWritable extends Writable {
+
+    /**
+     * Returns the number of records serialized by this object
+     *
+     * @return the number of records
+     */
+    int getRecordCount();
+}
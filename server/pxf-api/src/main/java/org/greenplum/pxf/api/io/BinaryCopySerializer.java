@@ -0,0 +1,875 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.GreenplumDateTime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streaming serializer of records in the PostgreSQL binary COPY format.
+ * <p>
+ * {@link GPDBWritable} only has binary representations for the boolean,
+ * integer, floating point and bytea types, the values of all the other types
+ * are sent as text and parsed by Greenplum. This serializer sends the values
+ * of every supported type in the binary representation of the type of their
+ * column, including numeric, date, time, timestamp, uuid and one-dimensional
+ * arrays, so that Greenplum only has to copy them.
+ * <p>
+ * A stream of records starts with {@link #writeHeader(DataOutput)} and ends
+ * with {@link #writeTrailer(DataOutput)}. A record is started with
+ * {@link #startRecord()}, its columns are set in order, from the first to the
+ * last, with one of the setters or with {@link #setNull(int)}, and the record
+ * is completed with {@link #endRecord()}. Several records can be accumulated
+ * in the buffer, {@link #write(DataOutput)} sends all the completed records at
+ * once and {@link #reset()} empties the buffer so that it can be reused.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BinaryCopySerializer implements BatchWritable {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    // the dates and timestamps are relative to 2000-01-01
+    private static final long POSTGRES_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final long POSTGRES_EPOCH_SECOND = POSTGRES_EPOCH_DAY * 86_400;
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    private static final int NUMERIC_POSITIVE = 0x0000;
+    private static final int NUMERIC_NEGATIVE = 0x4000;
+    private static final int NUMERIC_NAN = 0xC000;
+
+    private final int numColumns;
+    private final DataType[] dataTypes;
+    private final Charset databaseEncoding;
+    private final boolean isUtf8;
+
+    private byte[] buffer;
+    private int position;
+    private int recordStart;
+    private int nextColumn;
+    private boolean inRecord;
+    private int recordCount;
+
+    /**
+     * Creates a serializer for records with the given column types.
+     *
+     * @param columnTypes      the type OIDs of the columns of the table
+     * @param databaseEncoding the encoding of the database
+     * @throws IllegalArgumentException if a column type is not supported
+     */
+    public BinaryCopySerializer(int[] columnTypes, Charset databaseEncoding) {
+        this.numColumns = columnTypes.length;
+        this.databaseEncoding = databaseEncoding;
+        this.isUtf8 = StandardCharsets.UTF_8.equals(databaseEncoding);
+
+        dataTypes = new DataType[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            if (!isSupported(columnTypes[i])) {
+                throw new IllegalArgumentException(String.format(
+                        "Type OID %d of column %d is not supported by the binary COPY format", columnTypes[i], i));
+            }
+            dataTypes[i] = DataType.get(columnTypes[i]);
+        }
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * Tests if the values of a type can be serialized.
+     *
+     * @param typeOid the type OID
+     * @return whether the values of the type can be serialized
+     */
+    public static boolean isSupported(int typeOid) {
+        return DataType.get(typeOid) != DataType.UNSUPPORTED_TYPE;
+    }
+
+    /**
+     * Writes the header that starts a stream of records.
+     *
+     * @param out the output of the stream
+     * @throws IOException if I/O error occurs
+     */
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.write(SIGNATURE);
+        // flags and length of the header extension
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    /**
+     * Writes the trailer that ends a stream of records.
+     *
+     * @param out the output of the stream
+     * @throws IOException if I/O error occurs
+     */
+    public static void writeTrailer(DataOutput out) throws IOException {
+        out.writeShort(-1);
+    }
+
+    /**
+     * Starts a new record. Any record that was started but not completed is
+     * discarded.
+     */
+    public void startRecord() {
+        position = recordStart;
+        ensureCapacity(2);
+        putShort(numColumns);
+        nextColumn = 0;
+        inRecord = true;
+    }
+
+    /**
+     * Completes the current record, all columns must have been set.
+     */
+    public void endRecord() {
+        checkInRecord();
+        if (nextColumn != numColumns) {
+            throw new IllegalStateException(String.format(
+                    "Record has %d fields but the schema size is %d", nextColumn, numColumns));
+        }
+        recordStart = position;
+        recordCount++;
+        inRecord = false;
+    }
+
+    /**
+     * Sets the next column of the current record to null.
+     *
+     * @param colIdx the column index
+     */
+    public void setNull(int colIdx) {
+        startValue(colIdx);
+        ensureCapacity(4);
+        putInt(-1);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setBoolean(int colIdx, boolean val) {
+        startValue(colIdx, DataType.BOOLEAN);
+        ensureCapacity(5);
+        putInt(1);
+        buffer[position++] = (byte) (val ? 1 : 0);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setShort(int colIdx, short val) {
+        startValue(colIdx, DataType.SMALLINT);
+        ensureCapacity(6);
+        putInt(2);
+        putShort(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setInt(int colIdx, int val) {
+        startValue(colIdx, DataType.INTEGER);
+        ensureCapacity(8);
+        putInt(4);
+        putInt(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setLong(int colIdx, long val) {
+        startValue(colIdx, DataType.BIGINT);
+        ensureCapacity(12);
+        putInt(8);
+        putLong(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setFloat(int colIdx, float val) {
+        startValue(colIdx, DataType.REAL);
+        ensureCapacity(8);
+        putInt(4);
+        putInt(Float.floatToIntBits(val));
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setDouble(int colIdx, double val) {
+        startValue(colIdx, DataType.FLOAT8);
+        ensureCapacity(12);
+        putInt(8);
+        putLong(Double.doubleToLongBits(val));
+    }
+
+    /**
+     * Sets the column value of the current record to a range of bytes.
+     *
+     * @param colIdx the column index
+     * @param val    the array holding the value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setBytes(int colIdx, byte[] val, int offset, int length) {
+        startValue(colIdx, DataType.BYTEA);
+        putBytes(val, offset, length);
+    }
+
+    /**
+     * Sets the column value of the current record to a range of bytes that
+     * are already encoded with the database encoding. The column must be of
+     * a text type: text, varchar or bpchar.
+     *
+     * @param colIdx the column index
+     * @param val    the array holding the encoded value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws IllegalArgumentException if the column type does not match
+     */
+    public void setText(int colIdx, byte[] val, int offset, int length) {
+        checkInRecord();
+        if (colIdx < numColumns && !isTextType(dataTypes[colIdx])) {
+            throw typeMismatch(colIdx, DataType.TEXT);
+        }
+        startValue(colIdx);
+        putBytes(val, offset, length);
+    }
+
+    /**
+     * Sets the column value of the current record, a null value sets the
+     * column to null. The value is converted to the type of the column, see
+     * {@link #setValue(int, Object)}.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the value cannot be converted to
+     *                                  the type of the column
+     */
+    public void setString(int colIdx, String val) {
+        setValue(colIdx, val);
+    }
+
+    /**
+     * Sets the column value of the current record, a null value sets the
+     * column to null. The value is converted to the type of the column: the
+     * values of the Java types matching the column type are used as is, and
+     * the other values are parsed from their Greenplum text representation,
+     * given by their <code>toString()</code> method. The text representation
+     * of an array can only have one dimension.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws IllegalArgumentException if the value cannot be converted to
+     *                                  the type of the column
+     */
+    public void setValue(int colIdx, Object val) {
+        if (val == null) {
+            setNull(colIdx);
+            return;
+        }
+        startValue(colIdx);
+        putValue(dataTypes[colIdx], val);
+    }
+
+    /**
+     * Returns the number of completed records in the buffer.
+     *
+     * @return the number of completed records
+     */
+    @Override
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of bytes of completed records in the buffer.
+     *
+     * @return the number of bytes of completed records
+     */
+    public int getLength() {
+        return recordStart;
+    }
+
+    /**
+     * Discards all records in the buffer.
+     */
+    public void reset() {
+        position = 0;
+        recordStart = 0;
+        recordCount = 0;
+        nextColumn = 0;
+        inRecord = false;
+    }
+
+    /**
+     * Serializes all completed records in the buffer to <code>out</code>.
+     *
+     * @param out <code>DataOutput</code> to serialize the records into.
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.write(buffer, 0, recordStart);
+    }
+
+    /**
+     * Deserialization is not supported by the serializer.
+     *
+     * @param in <code>DataInput</code> to deserialize this object from
+     * @throws UnsupportedOperationException this function is not supported
+     */
+    @Override
+    public void readFields(DataInput in) {
+        throw new UnsupportedOperationException(
+                "BinaryCopySerializer.readFields() is not implemented");
+    }
+
+    /*
+     * Writes the length and the binary representation of a value of the
+     * given type.
+     */
+    private void putValue(DataType dataType, Object val) {
+        switch (dataType) {
+            case BOOLEAN:
+                ensureCapacity(5);
+                putInt(1);
+                buffer[position++] = (byte) (toBoolean(val) ? 1 : 0);
+                break;
+            case SMALLINT:
+                ensureCapacity(6);
+                putInt(2);
+                putShort(val instanceof Number ? ((Number) val).shortValue() : Short.parseShort(val.toString().trim()));
+                break;
+            case INTEGER:
+                ensureCapacity(8);
+                putInt(4);
+                putInt(val instanceof Number ? ((Number) val).intValue() : Integer.parseInt(val.toString().trim()));
+                break;
+            case BIGINT:
+                ensureCapacity(12);
+                putInt(8);
+                putLong(val instanceof Number ? ((Number) val).longValue() : Long.parseLong(val.toString().trim()));
+                break;
+            case REAL:
+                ensureCapacity(8);
+                putInt(4);
+                putInt(Float.floatToIntBits(val instanceof Number ? ((Number) val).floatValue() : Float.parseFloat(val.toString())));
+                break;
+            case FLOAT8:
+                ensureCapacity(12);
+                putInt(8);
+                putLong(Double.doubleToLongBits(val instanceof Number ? ((Number) val).doubleValue() : Double.parseDouble(val.toString())));
+                break;
+            case BYTEA:
+                if (val instanceof byte[]) {
+                    byte[] bytes = (byte[]) val;
+                    putBytes(bytes, 0, bytes.length);
+                } else if (val instanceof ByteBuffer) {
+                    ByteBuffer bytes = (ByteBuffer) val;
+                    putBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+                } else {
+                    putHexBytes(val.toString());
+                }
+                break;
+            case TEXT:
+            case VARCHAR:
+            case BPCHAR:
+                putString(val.toString());
+                break;
+            case NUMERIC:
+                putNumeric(val);
+                break;
+            case DATE:
+                ensureCapacity(8);
+                putInt(4);
+                putInt(toPostgresDate(val));
+                break;
+            case TIME:
+                ensureCapacity(12);
+                putInt(8);
+                putLong(toMicrosOfDay(val));
+                break;
+            case TIMESTAMP:
+                ensureCapacity(12);
+                putInt(8);
+                putLong(toPostgresTimestamp(val));
+                break;
+            case TIMESTAMP_WITH_TIME_ZONE:
+                ensureCapacity(12);
+                putInt(8);
+                putLong(toPostgresTimestampWithTimeZone(val));
+                break;
+            case UUID:
+                UUID uuid = val instanceof UUID ? (UUID) val : UUID.fromString(val.toString().trim());
+                ensureCapacity(20);
+                putInt(16);
+                putLong(uuid.getMostSignificantBits());
+                putLong(uuid.getLeastSignificantBits());
+                break;
+            default:
+                // all the other supported types are arrays
+                putArray(dataType.getTypeElem(), val);
+        }
+    }
+
+    /*
+     * Writes a one-dimensional array, either a list of elements or the text
+     * representation of the array.
+     */
+    private void putArray(DataType elementType, Object val) {
+        List<?> elements = val instanceof List ? (List<?>) val : parseArray(val.toString());
+        int lengthPosition = position;
+        ensureCapacity(4 + 20);
+        position += 4;
+        putInt(elements.isEmpty() ? 0 : 1);
+        putInt(elements.contains(null) ? 1 : 0);
+        putInt(elementType.getOID());
+        if (!elements.isEmpty()) {
+            putInt(elements.size());
+            // lower bound
+            putInt(1);
+        }
+        for (Object element : elements) {
+            if (element == null) {
+                ensureCapacity(4);
+                putInt(-1);
+            } else {
+                putValue(elementType, element);
+            }
+        }
+        putInt(lengthPosition, position - lengthPosition - 4);
+    }
+
+    /*
+     * Writes a numeric as its sign, its display scale, and its digits in base
+     * 10000 with the weight of the first one.
+     */
+    private void putNumeric(Object val) {
+        BigDecimal decimal;
+        if (val instanceof BigDecimal) {
+            decimal = (BigDecimal) val;
+        } else if (val instanceof Long || val instanceof Integer || val instanceof Short) {
+            decimal = BigDecimal.valueOf(((Number) val).longValue());
+        } else {
+            String text = val.toString().trim();
+            if (text.equalsIgnoreCase("NaN")) {
+                ensureCapacity(12);
+                putInt(8);
+                putShort(0);
+                putShort(0);
+                putShort(NUMERIC_NAN);
+                putShort(0);
+                return;
+            }
+            decimal = new BigDecimal(text);
+        }
+
+        int sign = decimal.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE;
+        BigDecimal abs = decimal.abs();
+        if (abs.scale() < 0) {
+            abs = abs.setScale(0);
+        }
+        int scale = abs.scale();
+        String digits = abs.unscaledValue().toString();
+
+        // pad the integer part on the left and the fraction on the right to
+        // groups of 4 decimal digits
+        int integerDigits = digits.length() - scale;
+        int leadingZeros;
+        int integerGroups;
+        if (integerDigits > 0) {
+            leadingZeros = (4 - integerDigits % 4) % 4;
+            integerGroups = (integerDigits + 3) / 4;
+        } else {
+            // no integer part, the fraction starts with zeros
+            leadingZeros = -integerDigits;
+            integerGroups = 0;
+        }
+        int totalDigits = leadingZeros + digits.length();
+        int groups = (totalDigits + 3) / 4;
+        int weight = integerGroups - 1;
+
+        short[] base10000 = new short[groups];
+        for (int i = 0; i < totalDigits; i++) {
+            int digit = i < leadingZeros ? 0 : digits.charAt(i - leadingZeros) - '0';
+            base10000[i / 4] = (short) (base10000[i / 4] * 10 + digit);
+        }
+        // the last group is padded with zeros on the right
+        for (int i = totalDigits; i < groups * 4; i++) {
+            base10000[i / 4] = (short) (base10000[i / 4] * 10);
+        }
+
+        int first = 0;
+        while (first < groups && base10000[first] == 0) {
+            first++;
+            weight--;
+        }
+        int last = groups;
+        while (last > first && base10000[last - 1] == 0) {
+            last--;
+        }
+        int ndigits = last - first;
+        if (ndigits == 0) {
+            weight = 0;
+            sign = NUMERIC_POSITIVE;
+        }
+
+        ensureCapacity(4 + 8 + 2 * ndigits);
+        putInt(8 + 2 * ndigits);
+        putShort(ndigits);
+        putShort(weight);
+        putShort(sign);
+        putShort(scale);
+        for (int i = first; i < last; i++) {
+            putShort(base10000[i]);
+        }
+    }
+
+    private void putBytes(byte[] val, int offset, int length) {
+        ensureCapacity(4 + length);
+        putInt(length);
+        System.arraycopy(val, offset, buffer, position, length);
+        position += length;
+    }
+
+    /*
+     * Writes a bytea given in the hex format of its text representation.
+     */
+    private void putHexBytes(String val) {
+        if (!val.startsWith("\\x") || val.length() % 2 != 0) {
+            throw new IllegalArgumentException(String.format("invalid hex format of bytea value %s", val));
+        }
+        int length = (val.length() - 2) / 2;
+        ensureCapacity(4 + length);
+        putInt(length);
+        for (int i = 2; i < val.length(); i += 2) {
+            int high = Character.digit(val.charAt(i), 16);
+            int low = Character.digit(val.charAt(i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException(String.format("invalid hex format of bytea value %s", val));
+            }
+            buffer[position++] = (byte) ((high << 4) | low);
+        }
+    }
+
+    private void putString(String val) {
+        if (!isUtf8) {
+            byte[] encoded = val.getBytes(databaseEncoding);
+            putBytes(encoded, 0, encoded.length);
+            return;
+        }
+        int length = val.length();
+        // a char takes at most 3 bytes, a surrogate pair (2 chars) takes 4 bytes
+        ensureCapacity(4 + length * 3);
+        int lengthPosition = position;
+        position += 4;
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(val.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, val.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[position++] = '?';
+                }
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        putInt(lengthPosition, position - lengthPosition - 4);
+    }
+
+    private static boolean toBoolean(Object val) {
+        if (val instanceof Boolean) {
+            return (Boolean) val;
+        }
+        String text = val.toString().trim();
+        if (text.equalsIgnoreCase("t") || text.equalsIgnoreCase("true")) {
+            return true;
+        } else if (text.equalsIgnoreCase("f") || text.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(String.format("invalid boolean value %s", text));
+    }
+
+    /*
+     * Returns the number of days between 2000-01-01 and the date.
+     */
+    private static int toPostgresDate(Object val) {
+        LocalDate date;
+        if (val instanceof java.sql.Date) {
+            date = ((java.sql.Date) val).toLocalDate();
+        } else if (val instanceof LocalDate) {
+            date = (LocalDate) val;
+        } else {
+            String text = val.toString().trim();
+            if (text.equals("infinity")) {
+                return Integer.MAX_VALUE;
+            } else if (text.equals("-infinity")) {
+                return Integer.MIN_VALUE;
+            } else if (text.endsWith(" BC")) {
+                date = LocalDate.parse(text.substring(0, text.length() - 3), GreenplumDateTime.DATE_FORMATTER);
+                date = date.withYear(1 - date.getYear());
+            } else {
+                date = LocalDate.parse(text, GreenplumDateTime.DATE_FORMATTER);
+            }
+        }
+        return Math.toIntExact(date.toEpochDay() - POSTGRES_EPOCH_DAY);
+    }
+
+    private static long toMicrosOfDay(Object val) {
+        LocalTime time;
+        if (val instanceof Time) {
+            time = ((Time) val).toLocalTime();
+        } else if (val instanceof LocalTime) {
+            time = (LocalTime) val;
+        } else {
+            time = LocalTime.parse(val.toString().trim());
+        }
+        return time.toNanoOfDay() / 1000;
+    }
+
+    /*
+     * Returns the number of microseconds between 2000-01-01 00:00:00 and the
+     * timestamp.
+     */
+    private static long toPostgresTimestamp(Object val) {
+        LocalDateTime dateTime;
+        if (val instanceof Timestamp) {
+            dateTime = ((Timestamp) val).toLocalDateTime();
+        } else if (val instanceof LocalDateTime) {
+            dateTime = (LocalDateTime) val;
+        } else {
+            String text = val.toString().trim();
+            if (text.equals("infinity")) {
+                return Long.MAX_VALUE;
+            } else if (text.equals("-infinity")) {
+                return Long.MIN_VALUE;
+            } else if (text.endsWith(" BC")) {
+                dateTime = LocalDateTime.parse(text.substring(0, text.length() - 3), GreenplumDateTime.DATETIME_FORMATTER);
+                dateTime = dateTime.withYear(1 - dateTime.getYear());
+            } else {
+                dateTime = LocalDateTime.parse(text, GreenplumDateTime.DATETIME_FORMATTER);
+            }
+        }
+        return (dateTime.toLocalDate().toEpochDay() - POSTGRES_EPOCH_DAY) * MICROS_PER_DAY
+                + dateTime.toLocalTime().toNanoOfDay() / 1000;
+    }
+
+    /*
+     * Returns the number of microseconds between 2000-01-01 00:00:00 UTC and
+     * the timestamp.
+     */
+    private static long toPostgresTimestampWithTimeZone(Object val) {
+        Instant instant;
+        if (val instanceof Timestamp) {
+            instant = ((Timestamp) val).toInstant();
+        } else if (val instanceof Instant) {
+            instant = (Instant) val;
+        } else if (val instanceof OffsetDateTime) {
+            instant = ((OffsetDateTime) val).toInstant();
+        } else if (val instanceof ZonedDateTime) {
+            instant = ((ZonedDateTime) val).toInstant();
+        } else {
+            String text = val.toString().trim();
+            if (text.equals("infinity")) {
+                return Long.MAX_VALUE;
+            } else if (text.equals("-infinity")) {
+                return Long.MIN_VALUE;
+            }
+            TemporalAccessor parsed = GreenplumDateTime.DATETIME_WITH_TIMEZONE_FORMATTER.parse(text);
+            if (!parsed.isSupported(ChronoField.OFFSET_SECONDS)) {
+                throw new IllegalArgumentException(String.format(
+                        "timestamp with time zone value %s has no time zone offset", text));
+            }
+            instant = OffsetDateTime.from(parsed).toInstant();
+        }
+        return (instant.getEpochSecond() - POSTGRES_EPOCH_SECOND) * 1_000_000 + instant.getNano() / 1000;
+    }
+
+    /*
+     * Splits the text representation of a one-dimensional array into its
+     * elements, unquoting and unescaping them. NULL elements are returned as
+     * nulls.
+     */
+    private static List<String> parseArray(String val) {
+        int length = val.length();
+        if (length < 2 || val.charAt(0) != '{' || val.charAt(length - 1) != '}') {
+            throw new IllegalArgumentException(String.format("malformed array literal %s", val));
+        }
+        List<String> elements = new ArrayList<>();
+        StringBuilder element = new StringBuilder();
+        int i = 1;
+        while (i < length - 1) {
+            while (i < length - 1 && Character.isWhitespace(val.charAt(i))) {
+                i++;
+            }
+            element.setLength(0);
+            boolean quoted = false;
+            if (val.charAt(i) == '"') {
+                quoted = true;
+                i++;
+                while (i < length - 1 && val.charAt(i) != '"') {
+                    if (val.charAt(i) == '\\') {
+                        i++;
+                    }
+                    element.append(val.charAt(i++));
+                }
+                // the closing quote
+                i++;
+                while (i < length - 1 && Character.isWhitespace(val.charAt(i))) {
+                    i++;
+                }
+            } else {
+                int lastNonSpace = 0;
+                while (i < length - 1 && val.charAt(i) != ',') {
+                    char c = val.charAt(i);
+                    if (c == '{') {
+                        throw new IllegalArgumentException(String.format(
+                                "multi-dimensional array %s is not supported", val));
+                    } else if (c == '\\') {
+                        c = val.charAt(++i);
+                        element.append(c);
+                        lastNonSpace = element.length();
+                    } else {
+                        element.append(c);
+                        if (!Character.isWhitespace(c)) {
+                            lastNonSpace = element.length();
+                        }
+                    }
+                    i++;
+                }
+                element.setLength(lastNonSpace);
+            }
+            if (i < length - 1 && val.charAt(i) != ',') {
+                throw new IllegalArgumentException(String.format("malformed array literal %s", val));
+            }
+            // skip the delimiter
+            i++;
+
+            String text = element.toString();
+            elements.add(!quoted && text.equalsIgnoreCase("NULL") ? null : text);
+        }
+        return elements;
+    }
+
+    private void startValue(int colIdx, DataType dataType) {
+        checkInRecord();
+        if (colIdx < numColumns && dataTypes[colIdx] != dataType) {
+            throw typeMismatch(colIdx, dataType);
+        }
+        startValue(colIdx);
+    }
+
+    private void startValue(int colIdx) {
+        checkInRecord();
+        if (colIdx >= numColumns) {
+            throw new IllegalStateException(String.format(
+                    "Column %d is out of range, the schema size is %d", colIdx, numColumns));
+        } else if (colIdx != nextColumn) {
+            throw new IllegalStateException(String.format(
+                    "Column %d is set out of order, expected column %d", colIdx, nextColumn));
+        }
+        nextColumn++;
+    }
+
+    private void checkInRecord() {
+        if (!inRecord) {
+            throw new IllegalStateException("No record was started");
+        }
+    }
+
+    private IllegalArgumentException typeMismatch(int colIdx, DataType dataType) {
+        return new IllegalArgumentException(String.format(
+                "Column %d of type %s cannot be set to a value of type %s", colIdx, dataTypes[colIdx], dataType));
+    }
+
+    private static boolean isTextType(DataType dataType) {
+        return dataType == DataType.TEXT || dataType == DataType.VARCHAR || dataType == DataType.BPCHAR;
+    }
+
+    private void putShort(int val) {
+        buffer[position++] = (byte) (val >>> 8);
+        buffer[position++] = (byte) val;
+    }
+
+    private void putInt(int val) {
+        putInt(position, val);
+        position += 4;
+    }
+
+    private void putInt(int pos, int val) {
+        buffer[pos] = (byte) (val >>> 24);
+        buffer[pos + 1] = (byte) (val >>> 16);
+        buffer[pos + 2] = (byte) (val >>> 8);
+        buffer[pos + 3] = (byte) val;
+    }
+
+    private void putLong(long val) {
+        putInt((int) (val >>> 32));
+        putInt((int) val);
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
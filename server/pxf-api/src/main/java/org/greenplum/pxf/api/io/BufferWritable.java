@@ -32,6 +32,7 @@ import java.lang.UnsupportedOperationException;
 public class BufferWritable implements Writable {
 
     byte[] buf;
+    int offset;
     int length;
 
     /**
@@ -57,7 +58,21 @@ public class BufferWritable implements Writable {
      * @param length the length of data within the buffer
      */
     public BufferWritable(byte[] inBuf, int length) {
+        this(inBuf, 0, length);
+    }
+
+    /**
+     * Constructs a BufferWritable over a range of the given buffer. Copies
+     * the buffer reference (not the actual bytes), the offset and the length
+     * of bytes.
+     *
+     * @param inBuf  buffer reference
+     * @param offset the offset of data within the buffer
+     * @param length the length of data within the buffer
+     */
+    public BufferWritable(byte[] inBuf, int offset, int length) {
         this.buf = inBuf;
+        this.offset = offset;
         this.length = length;
     }
 
@@ -71,7 +86,7 @@ public class BufferWritable implements Writable {
     public void write(DataOutput out) throws IOException {
         if (buf == null)
             throw new IOException("BufferWritable was not set");
-        out.write(buf, 0, length);
+        out.write(buf, offset, length);
     }
 
     /**
@@ -107,10 +122,11 @@ public class BufferWritable implements Writable {
             return;
         }
 
-        byte[] newbuf = new byte[buf.length + app.length];
-        System.arraycopy(buf, 0, newbuf, 0, buf.length);
-        System.arraycopy(app, 0, newbuf, buf.length, app.length);
+        byte[] newbuf = new byte[length + app.length];
+        System.arraycopy(buf, offset, newbuf, 0, length);
+        System.arraycopy(app, 0, newbuf, length, app.length);
         buf = newbuf;
+        offset = 0;
         length = newbuf.length;
     }
 }
@@ -0,0 +1,220 @@
+package org.greenplum.pxf.api.io;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DataOutput} that serializes into a reusable {@link ByteBuffer} and
+ * writes the content of the buffer to the underlying output stream only when
+ * the buffer is full or flushed, so that the many small writes of a record
+ * (integers, shorts, bytes, ...) become a few large writes to the output
+ * stream. Byte arrays that do not fit in the buffer are written to the output
+ * stream directly, without being copied into the buffer.
+ * <p>
+ * The buffer must be backed by an array, the output stream only accepts byte
+ * arrays. The output keeps track of the number of bytes written to it,
+ * whether or not they have been written to the output stream yet.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ByteBufferDataOutput extends OutputStream implements DataOutput {
+
+    private ByteBuffer buffer;
+    private final OutputStream out;
+    private long flushedCount;
+    private DataOutputStream utfOutput;
+
+    /**
+     * Creates an output serializing into the given buffer.
+     *
+     * @param buffer the buffer, must be backed by an array and hold at least 8 bytes
+     * @param out    the output stream the content of the buffer is written to
+     */
+    public ByteBufferDataOutput(ByteBuffer buffer, OutputStream out) {
+        validate(buffer);
+        this.buffer = buffer;
+        this.out = out;
+        buffer.clear();
+    }
+
+    /**
+     * Returns the number of bytes written to this output
+     *
+     * @return the number of bytes
+     */
+    public long getCount() {
+        return flushedCount + buffer.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            flushBuffer();
+            if (len >= buffer.capacity()) {
+                // no point in copying the bytes into the buffer
+                out.write(b, off, len);
+                flushedCount += len;
+                return;
+            }
+        }
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        write(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        ensureRemaining(Short.BYTES);
+        buffer.putShort((short) v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        ensureRemaining(Character.BYTES);
+        buffer.putChar((char) v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        ensureRemaining(Float.BYTES);
+        buffer.putFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        ensureRemaining(Double.BYTES);
+        buffer.putDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        // modified UTF-8 is rarely used, let DataOutputStream encode it into this output
+        if (utfOutput == null) {
+            utfOutput = new DataOutputStream(this);
+        }
+        utfOutput.writeUTF(s);
+    }
+
+    /**
+     * Replaces the buffer with the given buffer, without writing the content
+     * of the current buffer to the output stream, so that the content can be
+     * handed over to another consumer without being copied. The content of
+     * the current buffer is still counted as written to this output.
+     *
+     * @param newBuffer the buffer to serialize into from now on, must be backed by an array and hold at least 8 bytes
+     * @return the current buffer, flipped for reading its content
+     */
+    public ByteBuffer swapBuffer(ByteBuffer newBuffer) {
+        validate(newBuffer);
+        ByteBuffer current = buffer;
+        flushedCount += current.position();
+        current.flip();
+        newBuffer.clear();
+        buffer = newBuffer;
+        return current;
+    }
+
+    /**
+     * Writes the content of the buffer to the output stream, without
+     * flushing the output stream.
+     *
+     * @throws IOException if I/O error occurs
+     */
+    public void flushBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+            flushedCount += buffer.position();
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the output stream and flushes the
+     * output stream.
+     *
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the content of the buffer to the output stream and closes the
+     * output stream.
+     *
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void validate(ByteBuffer buffer) {
+        if (!buffer.hasArray()) {
+            throw new IllegalArgumentException("The buffer must be backed by an array");
+        }
+        if (buffer.capacity() < Long.BYTES) {
+            throw new IllegalArgumentException("The buffer must hold at least " + Long.BYTES + " bytes");
+        }
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flushBuffer();
+        }
+    }
+}
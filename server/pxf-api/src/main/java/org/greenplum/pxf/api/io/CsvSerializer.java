@@ -0,0 +1,564 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.GreenplumDateTime;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Streaming serializer of records in the delimited text format sent to
+ * Greenplum for the TEXT output format.
+ * <p>
+ * The fields of each record are encoded directly into a reusable byte buffer
+ * with the database encoding, text fields are quoted and their quote
+ * characters are escaped in the same pass that encodes them, and the
+ * primitive values and timestamps are formatted without intermediate
+ * objects.
+ * <p>
+ * A record is started with {@link #startRecord()}, its fields are appended
+ * in order, the delimiters between the fields are added by the serializer,
+ * and the record is completed with {@link #endRecord()}, which adds the
+ * newline. Several records can be accumulated in the buffer,
+ * {@link #write(DataOutput)} sends all the completed records at once and
+ * {@link #reset()} empties the buffer so that it can be reused.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class CsvSerializer implements BatchWritable {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final GreenplumCSV greenplumCSV;
+    private final Charset encoding;
+    private final boolean isUtf8;
+    private final char quote;
+    private final Character escape;
+    private final Character delimiter;
+    private final String newline;
+    private final byte[] quoteBytes;
+    private final byte[] escapeBytes;
+    private final byte[] delimiterBytes;
+    private final byte[] newlineBytes;
+    private final byte[] nullBytes;
+    private final byte[] hexPrefixBytes;
+
+    private byte[] buffer;
+    private int position;
+    private int recordStart;
+    private int fieldCount;
+    private int recordCount;
+
+    /**
+     * Creates a serializer for the given CSV settings.
+     *
+     * @param greenplumCSV the quote, escape, delimiter, newline and null
+     *                     settings of the table
+     * @param encoding     the encoding of the database
+     * @param hexPrefix    the prefix of hex encoded BYTEA values
+     */
+    public CsvSerializer(GreenplumCSV greenplumCSV, Charset encoding, String hexPrefix) {
+        this.greenplumCSV = greenplumCSV;
+        this.encoding = encoding;
+        this.isUtf8 = StandardCharsets.UTF_8.equals(encoding);
+        this.quote = greenplumCSV.getQuote();
+        this.escape = greenplumCSV.getEscape();
+        this.delimiter = greenplumCSV.getDelimiter();
+        this.newline = greenplumCSV.getNewline();
+
+        quoteBytes = String.valueOf(quote).getBytes(encoding);
+        escapeBytes = escape == null ? null : String.valueOf(escape).getBytes(encoding);
+        delimiterBytes = delimiter == null ? new byte[0] : String.valueOf(delimiter).getBytes(encoding);
+        newlineBytes = newline.getBytes(encoding);
+        nullBytes = greenplumCSV.getValueOfNull() == null ? new byte[0] : greenplumCSV.getValueOfNull().getBytes(encoding);
+        hexPrefixBytes = hexPrefix.getBytes(encoding);
+
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * Starts a new record. Any record that was started but not completed is
+     * discarded.
+     */
+    public void startRecord() {
+        position = recordStart;
+        fieldCount = 0;
+    }
+
+    /**
+     * Appends a field to the current record, the value is converted
+     * according to its type: BYTEA values are hex encoded, the values of
+     * types that are not text and the values of NUMERIC, TIMESTAMP and DATE
+     * are written as is, and the values of the other types are quoted when
+     * needed.
+     *
+     * @param type the type OID of the field
+     * @param val  the value, null for a null field
+     */
+    public void appendField(int type, Object val) {
+        if (val == null) {
+            appendNull();
+        } else if (type == DataType.BYTEA.getOID()) {
+            byte[] bytes = (byte[]) val;
+            appendBytea(bytes, 0, bytes.length);
+        } else if (type == DataType.NUMERIC.getOID() || !DataType.isTextForm(type)) {
+            if (val instanceof Integer || val instanceof Long || val instanceof Short) {
+                appendLong(((Number) val).longValue());
+            } else if (val instanceof Boolean) {
+                appendBoolean((Boolean) val);
+            } else {
+                appendValue(val.toString());
+            }
+        } else if (type == DataType.TIMESTAMP.getOID()) {
+            if (val instanceof String) {
+                appendValue((String) val);
+            } else {
+                appendTimestamp((Timestamp) val);
+            }
+        } else if (type == DataType.DATE.getOID()) {
+            appendValue(val.toString());
+        } else {
+            appendText(val.toString());
+        }
+    }
+
+    /**
+     * Appends a null field to the current record.
+     */
+    public void appendNull() {
+        startField(nullBytes.length);
+        put(nullBytes);
+    }
+
+    /**
+     * Appends a field to the current record.
+     *
+     * @param val the value
+     */
+    public void appendBoolean(boolean val) {
+        startField(5);
+        put(val ? TRUE : FALSE);
+    }
+
+    /**
+     * Appends a field to the current record.
+     *
+     * @param val the value
+     */
+    public void appendLong(long val) {
+        startField(LONG_MIN_VALUE.length);
+        if (val == Long.MIN_VALUE) {
+            put(LONG_MIN_VALUE);
+            return;
+        }
+        if (val < 0) {
+            buffer[position++] = '-';
+            val = -val;
+        }
+        int end = position + digitCount(val);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + val % 10);
+            val /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Appends a field to the current record.
+     *
+     * @param val the value
+     */
+    public void appendFloat(float val) {
+        appendValue(Float.toString(val));
+    }
+
+    /**
+     * Appends a field to the current record.
+     *
+     * @param val the value
+     */
+    public void appendDouble(double val) {
+        appendValue(Double.toString(val));
+    }
+
+    /**
+     * Appends a BYTEA field to the current record, the bytes are hex encoded.
+     *
+     * @param val    the array holding the value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     */
+    public void appendBytea(byte[] val, int offset, int length) {
+        startField(hexPrefixBytes.length + 2 * length);
+        put(hexPrefixBytes);
+        for (int i = offset; i < offset + length; i++) {
+            buffer[position++] = HEX_DIGITS[(val[i] >> 4) & 0x0F];
+            buffer[position++] = HEX_DIGITS[val[i] & 0x0F];
+        }
+    }
+
+    /**
+     * Appends a TIMESTAMP field to the current record.
+     *
+     * @param val the value
+     */
+    public void appendTimestamp(Timestamp val) {
+        appendDateTime(val.toLocalDateTime());
+    }
+
+    /**
+     * Appends a TIMESTAMP field to the current record, the value is
+     * formatted the same way as {@link GreenplumDateTime#DATETIME_FORMATTER}
+     * formats it.
+     *
+     * @param val the value
+     */
+    public void appendDateTime(LocalDateTime val) {
+        int year = val.getYear();
+        if (year < 1 || year > 9999) {
+            // the years of the BC era and the years with more than 4 digits
+            // are left to the formatter
+            appendValue(val.format(GreenplumDateTime.DATETIME_FORMATTER));
+            return;
+        }
+        startField(26);
+        putDigits(year, 4);
+        buffer[position++] = '-';
+        putDigits(val.getMonthValue(), 2);
+        buffer[position++] = '-';
+        putDigits(val.getDayOfMonth(), 2);
+        buffer[position++] = ' ';
+        putDigits(val.getHour(), 2);
+        buffer[position++] = ':';
+        putDigits(val.getMinute(), 2);
+        buffer[position++] = ':';
+        putDigits(val.getSecond(), 2);
+
+        // the fraction of second is written without its trailing zeros and
+        // is truncated to 6 digits
+        int fraction = val.getNano();
+        if (fraction > 0) {
+            int digits = 9;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (; digits > 6; digits--) {
+                fraction /= 10;
+            }
+            buffer[position++] = '.';
+            putDigits(fraction, digits);
+        }
+    }
+
+    /**
+     * Appends a field to the current record, the value is written as is,
+     * without quoting.
+     *
+     * @param val the value
+     */
+    public void appendValue(String val) {
+        if (isUtf8) {
+            startField(3 * val.length());
+            encodeUtf8(val);
+        } else {
+            byte[] encoded = val.getBytes(encoding);
+            startField(encoded.length);
+            put(encoded);
+        }
+    }
+
+    /**
+     * Appends a text field to the current record. The value is quoted when
+     * it contains a delimiter, a newline or, when an escape character is
+     * defined, a quote character, in which case the quote characters are
+     * escaped.
+     *
+     * @param val the value
+     */
+    public void appendText(String val) {
+        if (!isUtf8) {
+            // in multibyte encodings a trailing byte of a character can be
+            // a quote or a delimiter, so the field is quoted before encoding it
+            appendValue(greenplumCSV.toCsvField(val, true, true, true));
+            return;
+        }
+
+        int length = val.length();
+        // every character is at most 3 bytes and is escaped at most once,
+        // plus the opening and closing quotes
+        startField(6 * length + 6);
+        int fieldStart = position;
+        boolean quoted = false;
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            if (escape != null && c == quote) {
+                if (!quoted) {
+                    quoted = openQuote(fieldStart);
+                }
+                put(escapeBytes);
+            } else if (!quoted && isSpecialChar(val, i, c)) {
+                quoted = openQuote(fieldStart);
+            }
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(val.charAt(i + 1))) {
+                putUtf8CodePoint(Character.toCodePoint(c, val.charAt(++i)));
+            } else {
+                putUtf8Char(c);
+            }
+        }
+        if (quoted) {
+            put(quoteBytes);
+        }
+    }
+
+    /**
+     * Appends a text field to the current record from a range of UTF-8
+     * bytes, the value is quoted the same way as in
+     * {@link #appendText(String)}.
+     *
+     * @param val    the array holding the UTF-8 encoded value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     */
+    public void appendText(byte[] val, int offset, int length) {
+        if (isUtf8) {
+            for (int i = offset; i < offset + length; i++) {
+                if (val[i] < 0) {
+                    // non-ASCII characters are handled by the string version
+                    appendText(new String(val, offset, length, StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            // only ASCII characters, the bytes are the characters
+            int escapeLength = (escape == null) ? 0 : escapeBytes.length;
+            startField((1 + escapeLength) * length + 2 * quoteBytes.length);
+            int fieldStart = position;
+            boolean quoted = false;
+            for (int i = offset; i < offset + length; i++) {
+                char c = (char) val[i];
+                if (escape != null && c == quote) {
+                    if (!quoted) {
+                        quoted = openQuote(fieldStart);
+                    }
+                    put(escapeBytes);
+                } else if (!quoted && isSpecialChar(val, i, offset + length, c)) {
+                    quoted = openQuote(fieldStart);
+                }
+                buffer[position++] = val[i];
+            }
+            if (quoted) {
+                put(quoteBytes);
+            }
+        } else {
+            appendText(new String(val, offset, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Completes the current record.
+     */
+    public void endRecord() {
+        ensureCapacity(newlineBytes.length);
+        put(newlineBytes);
+        recordStart = position;
+        fieldCount = 0;
+        recordCount++;
+    }
+
+    /**
+     * Returns the number of completed records in the buffer.
+     *
+     * @return the number of completed records
+     */
+    @Override
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of bytes of completed records in the buffer.
+     *
+     * @return the number of bytes of completed records
+     */
+    public int getLength() {
+        return recordStart;
+    }
+
+    /**
+     * Returns a copy of the completed records in the buffer.
+     *
+     * @return the copy of the completed records
+     */
+    public BufferWritable copy() {
+        return new BufferWritable(Arrays.copyOf(buffer, recordStart));
+    }
+
+    /**
+     * Returns a copy of the bytes of the completed records in the buffer.
+     *
+     * @return the bytes of the completed records
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, recordStart);
+    }
+
+    /**
+     * Discards all records in the buffer.
+     */
+    public void reset() {
+        position = 0;
+        recordStart = 0;
+        fieldCount = 0;
+        recordCount = 0;
+    }
+
+    /**
+     * Serializes all completed records in the buffer to <code>out</code>.
+     *
+     * @param out <code>DataOutput</code> to serialize the records into.
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.write(buffer, 0, recordStart);
+    }
+
+    /**
+     * Deserialization is not supported by the serializer.
+     *
+     * @param in <code>DataInput</code> to deserialize this object from
+     * @throws UnsupportedOperationException this function is not supported
+     */
+    @Override
+    public void readFields(DataInput in) {
+        throw new UnsupportedOperationException(
+                "CsvSerializer.readFields() is not implemented");
+    }
+
+    /*
+     * Writes the delimiter before every field but the first of the record,
+     * and reserves enough space for the field.
+     */
+    private void startField(int maxLength) {
+        ensureCapacity(delimiterBytes.length + maxLength);
+        if (fieldCount++ > 0) {
+            put(delimiterBytes);
+        }
+    }
+
+    /*
+     * Inserts the opening quote at the start of the field, the part of the
+     * field that was already written is moved after it.
+     */
+    private boolean openQuote(int fieldStart) {
+        int quoteLength = quoteBytes.length;
+        System.arraycopy(buffer, fieldStart, buffer, fieldStart + quoteLength, position - fieldStart);
+        System.arraycopy(quoteBytes, 0, buffer, fieldStart, quoteLength);
+        position += quoteLength;
+        return true;
+    }
+
+    private boolean isSpecialChar(String val, int i, char c) {
+        if (delimiter != null && c == delimiter) {
+            return true;
+        }
+        if (c != newline.charAt(0)) {
+            return false;
+        }
+        return newline.length() == 1 || (i + 1 < val.length() && val.charAt(i + 1) == newline.charAt(1));
+    }
+
+    private boolean isSpecialChar(byte[] val, int i, int end, char c) {
+        if (delimiter != null && c == delimiter) {
+            return true;
+        }
+        if (c != newline.charAt(0)) {
+            return false;
+        }
+        return newline.length() == 1 || (i + 1 < end && val[i + 1] == newline.charAt(1));
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /*
+     * Writes a non-negative value with the given number of digits, padded
+     * with leading zeros.
+     */
+    private void putDigits(int val, int digits) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + val % 10);
+            val /= 10;
+        }
+        position += digits;
+    }
+
+    private static int digitCount(long val) {
+        int count = 1;
+        while (val >= 10) {
+            val /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    /*
+     * Encodes a string with UTF-8 into the buffer, enough space must have
+     * been reserved for it. Unpaired surrogates are replaced with '?', as
+     * String.getBytes() does.
+     */
+    private void encodeUtf8(String val) {
+        int length = val.length();
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(val.charAt(i + 1))) {
+                putUtf8CodePoint(Character.toCodePoint(c, val.charAt(++i)));
+            } else {
+                putUtf8Char(c);
+            }
+        }
+    }
+
+    private void putUtf8Char(char c) {
+        if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void putUtf8CodePoint(int codePoint) {
+        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.OneField;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming deserializer of records in the {@link GPDBWritable} wire format.
+ * <p>
+ * Unlike {@link GPDBWritable}, which decodes every record field by field from
+ * the input, allocating the column types, the null bitmap and a value array
+ * for each of them, the deserializer reads a whole record into a reusable
+ * byte buffer with a single bulk read and decodes the fields from the buffer
+ * into {@link OneField} instances. The schema-derived part of the layout
+ * (wire types, field types and alignment) is computed once from the column
+ * types of the table; records announcing different wire types, which is not
+ * expected, are still decoded after deriving the layout from the record.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class GPDBWritableDeserializer {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int VERSION = 2;
+    private static final int PREV_VERSION = 1;
+    private static final int EOF = -1;
+
+    private static final GPDBWritable.DBType[] DB_TYPES = GPDBWritable.DBType.values();
+
+    private final Charset databaseEncoding;
+    private final int alignmentOfEightBytes;
+
+    private byte[] wireTypes;
+    private GPDBWritable.DBType[] dbTypes;
+    private int[] fieldTypes;
+    private int[] alignments;
+
+    private byte[] buffer;
+
+    /**
+     * Creates a deserializer for records with the given column types.
+     *
+     * @param columnTypes      the type OIDs of the columns of the table
+     * @param databaseEncoding the encoding of the database
+     */
+    public GPDBWritableDeserializer(int[] columnTypes, Charset databaseEncoding) {
+        this.databaseEncoding = databaseEncoding;
+        this.alignmentOfEightBytes = GPDBWritable.getEightByteAlignment();
+
+        byte[] types = new byte[columnTypes.length];
+        for (int i = 0; i < columnTypes.length; i++) {
+            types[i] = (byte) GPDBWritable.getDBType(columnTypes[i]).ordinal();
+        }
+        bind(types);
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * Reads the next record from the input. The fields of the record have the
+     * type of their wire representation, columns without a binary
+     * representation are read as text.
+     *
+     * @param in the input to read the record from
+     * @return the fields of the record, or null if the end of the input was reached
+     * @throws IOException if the record cannot be read or is malformed
+     */
+    public List<OneField> readRecord(DataInput in) throws IOException {
+        int pktlen;
+        try {
+            pktlen = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (pktlen == EOF) {
+            return null;
+        }
+        if (pktlen < 4 + 2 + 2) {
+            throw new IOException("Invalid GPDBWritable record length " + pktlen);
+        }
+
+        // the buffer mirrors the record, offsets in the buffer are offsets in the record
+        if (pktlen > buffer.length) {
+            buffer = new byte[Math.max(pktlen, buffer.length * 2)];
+        }
+        in.readFully(buffer, 4, pktlen - 4);
+
+        int pos = 4;
+        int version = getShort(pos);
+        pos += 2;
+        if (version != VERSION && version != PREV_VERSION) {
+            throw new IOException("Current GPDBWritable version(" + VERSION +
+                    ") does not match input version(" + version + ")");
+        }
+        byte errorFlag = 0;
+        if (version == VERSION) {
+            errorFlag = buffer[pos++];
+        }
+        int colCnt = getShort(pos);
+        pos += 2;
+        if (colCnt < 0) {
+            throw new IOException("Invalid GPDBWritable column count " + colCnt);
+        }
+        checkLength(pos + colCnt + GPDBWritable.getNullByteArraySize(colCnt), pktlen);
+        if (colCnt != wireTypes.length || !matchesWireTypes(pos)) {
+            byte[] types = Arrays.copyOfRange(buffer, pos, pos + colCnt);
+            for (byte type : types) {
+                if (type < 0 || type >= DB_TYPES.length) {
+                    throw new IOException("Unknown GPDBWritable.DBType ordinal value");
+                }
+            }
+            bind(types);
+        }
+        pos += colCnt;
+
+        int nullBitmap = pos;
+        pos += GPDBWritable.getNullByteArraySize(colCnt);
+
+        List<OneField> record = new ArrayList<>(colCnt);
+        for (int i = 0; i < colCnt; i++) {
+            if ((buffer[nullBitmap + (i >> 3)] & (1 << (7 - (i & 7)))) != 0) {
+                record.add(new OneField(fieldTypes[i], null));
+                continue;
+            }
+            pos = align(pos, alignments[i]);
+            GPDBWritable.DBType dbType = dbTypes[i];
+            Object value;
+            if (dbType.isVarLength()) {
+                checkLength(pos + 4, pktlen);
+                int length = getInt(pos);
+                pos += 4;
+                checkLength(pos + length, pktlen);
+                if (dbType == GPDBWritable.DBType.BYTEA) {
+                    value = Arrays.copyOfRange(buffer, pos, pos + length);
+                } else {
+                    // text is always null terminated, the terminator is dropped
+                    value = new String(buffer, pos, length - 1, databaseEncoding);
+                }
+                pos += length;
+            } else {
+                checkLength(pos + dbType.getTypeLength(), pktlen);
+                value = getFixedLengthValue(dbType, pos);
+                pos += dbType.getTypeLength();
+            }
+            record.add(new OneField(fieldTypes[i], value));
+        }
+
+        if (align(pos, alignmentOfEightBytes) != pktlen) {
+            throw new IOException(String.format(
+                    "GPDBWritable record length %d does not match the length of its fields %d", pktlen, pos));
+        }
+        if (errorFlag != 0) {
+            throw new IOException("Received error value " + errorFlag + " from format");
+        }
+        return record;
+    }
+
+    /**
+     * Computes the layout of records with the given wire types.
+     */
+    private void bind(byte[] types) {
+        int numColumns = types.length;
+        GPDBWritable.DBType[] newDbTypes = new GPDBWritable.DBType[numColumns];
+        int[] newFieldTypes = new int[numColumns];
+        int[] newAlignments = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            GPDBWritable.DBType dbType = DB_TYPES[types[i]];
+            newDbTypes[i] = dbType;
+            newFieldTypes[i] = DataType.valueOf(dbType.name()).getOID();
+            int alignment = dbType.getAlignment();
+            newAlignments[i] = (alignment == 8) ? alignmentOfEightBytes : alignment;
+        }
+        wireTypes = types;
+        dbTypes = newDbTypes;
+        fieldTypes = newFieldTypes;
+        alignments = newAlignments;
+    }
+
+    private boolean matchesWireTypes(int pos) {
+        for (int i = 0; i < wireTypes.length; i++) {
+            if (buffer[pos + i] != wireTypes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object getFixedLengthValue(GPDBWritable.DBType dbType, int pos) {
+        switch (dbType) {
+            case BIGINT:
+                return getLong(pos);
+            case BOOLEAN:
+                return buffer[pos] != 0;
+            case FLOAT8:
+                return Double.longBitsToDouble(getLong(pos));
+            case INTEGER:
+                return getInt(pos);
+            case REAL:
+                return Float.intBitsToFloat(getInt(pos));
+            case SMALLINT:
+                return (short) getShort(pos);
+            default:
+                throw new IllegalStateException("Unexpected fixed length type " + dbType);
+        }
+    }
+
+    private static void checkLength(int end, int pktlen) throws IOException {
+        if (end > pktlen || end < 0) {
+            throw new IOException("GPDBWritable record of length " + pktlen + " is truncated");
+        }
+    }
+
+    private static int align(int offset, int alignment) {
+        return (offset + (alignment - 1)) & ~(alignment - 1);
+    }
+
+    private int getShort(int pos) {
+        return (short) (((buffer[pos] & 0xff) << 8) | (buffer[pos + 1] & 0xff));
+    }
+
+    private int getInt(int pos) {
+        return ((buffer[pos] & 0xff) << 24)
+                | ((buffer[pos + 1] & 0xff) << 16)
+                | ((buffer[pos + 2] & 0xff) << 8)
+                | (buffer[pos + 3] & 0xff);
+    }
+
+    private long getLong(int pos) {
+        return ((long) getInt(pos) << 32) | (getInt(pos + 4) & 0xffffffffL);
+    }
+}
@@ -0,0 +1,468 @@
+package org.greenplum.pxf.api.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming serializer of records in the {@link GPDBWritable} wire format.
+ * <p>
+ * Unlike {@link GPDBWritable}, which keeps the values of a record as objects
+ * and computes the layout of the record on every write, the serializer
+ * computes the schema-derived part of the layout (wire types, alignment and
+ * the record header) once, and then encodes the values of each record
+ * directly into a reusable byte buffer as they are set through the primitive
+ * setters.
+ * <p>
+ * A record is started with {@link #startRecord()}, its columns are set in
+ * order, from the first to the last, with one of the setters or with
+ * {@link #setNull(int)}, and the record is completed with
+ * {@link #endRecord()}. Several records can be accumulated in the buffer,
+ * {@link #write(DataOutput)} sends all the completed records at once and
+ * {@link #reset()} empties the buffer so that it can be reused.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class GPDBWritableSerializer implements BatchWritable {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 4 + 2 + 1 + 2;
+    private static final byte NUL = 0;
+
+    private final int numColumns;
+    private final int[] columnTypes;
+    private final GPDBWritable.DBType[] dbTypes;
+    private final int[] alignments;
+    private final int nullBitmapOffset;
+    private final int valuesOffset;
+    private final int alignmentOfEightBytes;
+    private final Charset databaseEncoding;
+    private final boolean isUtf8;
+
+    private byte[] buffer;
+    private int position;
+    private int recordStart;
+    private int nextColumn;
+    private boolean inRecord;
+    private int recordCount;
+    private int[] recordOffsets;
+
+    /**
+     * Creates a serializer for records with the given column types.
+     *
+     * @param columnTypes      the type OIDs of the columns of the table
+     * @param databaseEncoding the encoding of the database
+     */
+    public GPDBWritableSerializer(int[] columnTypes, Charset databaseEncoding) {
+        this.numColumns = columnTypes.length;
+        this.columnTypes = columnTypes.clone();
+        this.databaseEncoding = databaseEncoding;
+        this.isUtf8 = StandardCharsets.UTF_8.equals(databaseEncoding);
+        this.alignmentOfEightBytes = GPDBWritable.getEightByteAlignment();
+
+        dbTypes = new GPDBWritable.DBType[numColumns];
+        alignments = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            dbTypes[i] = GPDBWritable.getDBType(columnTypes[i]);
+            int alignment = dbTypes[i].getAlignment();
+            alignments[i] = (alignment == 8) ? alignmentOfEightBytes : alignment;
+        }
+
+        nullBitmapOffset = HEADER_LENGTH + numColumns;
+        valuesOffset = nullBitmapOffset + GPDBWritable.getNullByteArraySize(numColumns);
+
+        buffer = new byte[Math.max(INITIAL_BUFFER_SIZE, valuesOffset * 2)];
+        recordOffsets = new int[16];
+    }
+
+    /**
+     * Starts a new record. Any record that was started but not completed is
+     * discarded.
+     */
+    public void startRecord() {
+        position = recordStart;
+        ensureCapacity(valuesOffset);
+
+        // packet length is filled in when the record is completed
+        putInt(0);
+        putShort(VERSION);
+        buffer[position++] = 0; // error flag
+        putShort(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            buffer[position++] = (byte) dbTypes[i].ordinal();
+        }
+        // the null bitmap is all zeros, bits are set when columns are set to null
+        Arrays.fill(buffer, position, recordStart + valuesOffset, (byte) 0);
+        position = recordStart + valuesOffset;
+        nextColumn = 0;
+        inRecord = true;
+    }
+
+    /**
+     * Completes the current record, all columns must have been set.
+     */
+    public void endRecord() {
+        checkInRecord();
+        if (nextColumn != numColumns) {
+            throw new IllegalStateException(String.format(
+                    "Record has %d fields but the schema size is %d", nextColumn, numColumns));
+        }
+        // add the final alignment padding for the next record
+        pad(alignmentOfEightBytes);
+        putInt(recordStart, position - recordStart);
+
+        if (recordCount == recordOffsets.length) {
+            recordOffsets = Arrays.copyOf(recordOffsets, recordCount * 2);
+        }
+        recordOffsets[recordCount++] = recordStart;
+        recordStart = position;
+        inRecord = false;
+    }
+
+    /**
+     * Sets the next column of the current record to null.
+     *
+     * @param colIdx the column index
+     */
+    public void setNull(int colIdx) {
+        checkColumn(colIdx);
+        if (colIdx >= numColumns) {
+            throw new IllegalStateException("Column index is out of range");
+        }
+        int nullByte = recordStart + nullBitmapOffset + (colIdx >> 3);
+        buffer[nullByte] |= (byte) (1 << (7 - (colIdx & 7)));
+        nextColumn++;
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setBoolean(int colIdx, boolean val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.BOOLEAN, DataType.BOOLEAN);
+        buffer[position++] = (byte) (val ? 1 : 0);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setShort(int colIdx, short val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.SMALLINT, DataType.SMALLINT);
+        putShort(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setInt(int colIdx, int val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.INTEGER, DataType.INTEGER);
+        putInt(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setLong(int colIdx, long val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.BIGINT, DataType.BIGINT);
+        putLong(val);
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setFloat(int colIdx, float val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.REAL, DataType.REAL);
+        putInt(Float.floatToIntBits(val));
+    }
+
+    /**
+     * Sets the column value of the current record.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setDouble(int colIdx, double val) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.FLOAT8, DataType.FLOAT8);
+        putLong(Double.doubleToLongBits(val));
+    }
+
+    /**
+     * Sets the column value of the current record to a range of bytes.
+     *
+     * @param colIdx the column index
+     * @param val    the array holding the value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setBytes(int colIdx, byte[] val, int offset, int length) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.BYTEA, DataType.BYTEA);
+        ensureCapacity(4 + length);
+        putInt(length);
+        System.arraycopy(val, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Sets the column value of the current record. The value is encoded
+     * with the database encoding, a null value sets the column to null.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setString(int colIdx, String val) throws GPDBWritable.TypeMismatchException {
+        if (val == null) {
+            checkType(colIdx, GPDBWritable.DBType.TEXT, DataType.TEXT);
+            setNull(colIdx);
+            return;
+        }
+        startValue(colIdx, GPDBWritable.DBType.TEXT, DataType.TEXT);
+        int lengthPosition = position;
+        position += 4;
+        if (isUtf8) {
+            encodeUtf8(val);
+        } else {
+            byte[] encoded = val.getBytes(databaseEncoding);
+            ensureCapacity(encoded.length + 1);
+            System.arraycopy(encoded, 0, buffer, position, encoded.length);
+            position += encoded.length;
+        }
+        buffer[position++] = NUL;
+        putInt(lengthPosition, position - lengthPosition - 4);
+    }
+
+    /**
+     * Sets the column value of the current record to a range of bytes that
+     * are already encoded with the database encoding.
+     *
+     * @param colIdx the column index
+     * @param val    the array holding the encoded value
+     * @param offset the offset of the value in the array
+     * @param length the length of the value
+     * @throws GPDBWritable.TypeMismatchException the column type does not match
+     */
+    public void setText(int colIdx, byte[] val, int offset, int length) throws GPDBWritable.TypeMismatchException {
+        startValue(colIdx, GPDBWritable.DBType.TEXT, DataType.TEXT);
+        ensureCapacity(4 + length + 1);
+        putInt(length + 1);
+        System.arraycopy(val, offset, buffer, position, length);
+        position += length;
+        buffer[position++] = NUL;
+    }
+
+    /**
+     * Returns the number of completed records in the buffer.
+     *
+     * @return the number of completed records
+     */
+    @Override
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of bytes of completed records in the buffer.
+     *
+     * @return the number of bytes of completed records
+     */
+    public int getLength() {
+        return recordStart;
+    }
+
+    /**
+     * Returns a {@link Writable} view of a single completed record. The view
+     * shares the buffer of the serializer and is valid until the serializer
+     * is reset or another record is added.
+     *
+     * @param index the index of the record in the buffer
+     * @return the record
+     */
+    public Writable getRecord(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record index " + index + " is out of range");
+        }
+        int end = (index + 1 < recordCount) ? recordOffsets[index + 1] : recordStart;
+        return new BufferWritable(buffer, recordOffsets[index], end - recordOffsets[index]);
+    }
+
+    /**
+     * Discards all records in the buffer.
+     */
+    public void reset() {
+        position = 0;
+        recordStart = 0;
+        recordCount = 0;
+        nextColumn = 0;
+        inRecord = false;
+    }
+
+    /**
+     * Serializes all completed records in the buffer to <code>out</code>.
+     *
+     * @param out <code>DataOutput</code> to serialize the records into.
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.write(buffer, 0, recordStart);
+    }
+
+    /**
+     * Deserialization is not supported by the serializer, use
+     * {@link GPDBWritable#readFields(DataInput)} instead.
+     *
+     * @param in <code>DataInput</code> to deserialize this object from
+     * @throws UnsupportedOperationException this function is not supported
+     */
+    @Override
+    public void readFields(DataInput in) {
+        throw new UnsupportedOperationException(
+                "GPDBWritableSerializer.readFields() is not implemented");
+    }
+
+    /*
+     * Checks the column and its type, writes the alignment padding and
+     * reserves enough space for a fixed length value.
+     */
+    private void startValue(int colIdx, GPDBWritable.DBType dbType, DataType dataType)
+            throws GPDBWritable.TypeMismatchException {
+        checkColumn(colIdx);
+        checkType(colIdx, dbType, dataType);
+        ensureCapacity(alignments[colIdx] + 8);
+        pad(alignments[colIdx]);
+        nextColumn++;
+    }
+
+    private void checkColumn(int colIdx) {
+        checkInRecord();
+        if (colIdx != nextColumn) {
+            throw new IllegalStateException(String.format(
+                    "Column %d is set out of order, expected column %d", colIdx, nextColumn));
+        }
+    }
+
+    private void checkInRecord() {
+        if (!inRecord) {
+            throw new IllegalStateException("No record was started");
+        }
+    }
+
+    private void checkType(int colIdx, GPDBWritable.DBType dbType, DataType dataType)
+            throws GPDBWritable.TypeMismatchException {
+        if (colIdx < 0 || colIdx >= numColumns) {
+            throw new GPDBWritable.TypeMismatchException("Column index is out of range");
+        }
+        if (dbTypes[colIdx] != dbType) {
+            int expected = (dbTypes[colIdx] == GPDBWritable.DBType.TEXT) ? DataType.TEXT.getOID() : columnTypes[colIdx];
+            throw new GPDBWritable.TypeMismatchException(
+                    GPDBWritable.formErrorMsg(dataType.getOID(), expected, true));
+        }
+    }
+
+    /*
+     * Pads the current record with zeros up to the given alignment, the
+     * alignment is relative to the beginning of the record.
+     */
+    private void pad(int alignment) {
+        int offset = position - recordStart;
+        int padding = ((offset + (alignment - 1)) & ~(alignment - 1)) - offset;
+        ensureCapacity(padding);
+        for (int i = 0; i < padding; i++) {
+            buffer[position++] = 0;
+        }
+    }
+
+    /*
+     * Encodes the string into the buffer using UTF-8 without allocating an
+     * intermediate array. Unpaired surrogates are replaced with '?' the same
+     * way String.getBytes() does.
+     */
+    private void encodeUtf8(String val) {
+        int length = val.length();
+        // a char takes at most 3 bytes, a surrogate pair (2 chars) takes 4 bytes, leave room for the NUL
+        ensureCapacity(length * 3 + 1);
+        byte[] buf = buffer;
+        int pos = position;
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                int codePoint = -1;
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(val.charAt(i + 1))) {
+                    codePoint = Character.toCodePoint(c, val.charAt(++i));
+                }
+                if (codePoint < 0) {
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = pos;
+    }
+
+    private void putShort(int val) {
+        buffer[position++] = (byte) (val >>> 8);
+        buffer[position++] = (byte) val;
+    }
+
+    private void putInt(int val) {
+        putInt(position, val);
+        position += 4;
+    }
+
+    private void putInt(int pos, int val) {
+        buffer[pos] = (byte) (val >>> 24);
+        buffer[pos + 1] = (byte) (val >>> 16);
+        buffer[pos + 2] = (byte) (val >>> 8);
+        buffer[pos + 3] = (byte) val;
+    }
+
+    private void putLong(long val) {
+        putInt((int) (val >>> 32));
+        putInt((int) val);
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package org.greenplum.pxf.api.model;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Data;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -8,6 +13,7 @@ import org.greenplum.pxf.api.configuration.PxfServerProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -16,24 +22,70 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_AUTH_TO_LOCAL;
 
+/**
+ * Creates the configuration of a request for a PXF server. The configuration
+ * is built from the Hadoop default resources, the {@code *-site.xml} files in
+ * the server directory and the {@code <user>-user.xml} file of the user.
+ * <p>
+ * Parsing the XML files for every request is expensive, so the fully-resolved
+ * configuration of every server and user is cached, along with the names,
+ * modification times and sizes of the configuration files it was built from.
+ * When any of the files in the server directory is added, removed or modified,
+ * the cached configuration is discarded and built again. Every request gets a
+ * copy of the cached configuration, so changes made to the configuration of a
+ * request are never seen by other requests.
+ * <p>
+ * Cache expiration is managed by the "pxf.configuration-cache.expiration"
+ * property, entries that are not accessed for the given duration are evicted.
+ * Setting the property to 0 disables the cache.
+ */
 @Component
 public class BaseConfigurationFactory implements ConfigurationFactory {
 
     protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
 
+    private static final String CACHE_EXPIRATION_PROPERTY = "pxf.configuration-cache.expiration";
+    private static final Duration DEFAULT_CACHE_EXPIRATION = Duration.ofMinutes(10);
+    private static final int MAX_CACHE_SIZE = 200;
+
     private final File serversConfigDirectory;
+    private final Cache<String, ConfigurationHolder> configurationCache;
+
+    /**
+     * A holder of the configuration of a server and the properties of a user,
+     * along with the signature of the files they were read from. It is used
+     * as an entry in the configuration cache.
+     */
+    @Data
+    static class ConfigurationHolder {
+        private final Configuration serverConfiguration;
+        private final Map<String, String> userProperties;
+        private final String signature;
+    }
 
     @Autowired
-    public BaseConfigurationFactory(PxfServerProperties pxfServerProperties) {
-        this(new File(String.format("%s%sservers", pxfServerProperties.getBase(), File.separator)));
+    public BaseConfigurationFactory(PxfServerProperties pxfServerProperties,
+                                    @Value("${" + CACHE_EXPIRATION_PROPERTY + ":10m}") Duration expiration) {
+        this(new File(String.format("%s%sservers", pxfServerProperties.getBase(), File.separator)), expiration);
     }
 
     BaseConfigurationFactory(File serversConfigDirectory) {
+        this(serversConfigDirectory, DEFAULT_CACHE_EXPIRATION);
+    }
+
+    BaseConfigurationFactory(File serversConfigDirectory, Duration expiration) {
         this.serversConfigDirectory = serversConfigDirectory;
+        this.configurationCache = initCache(expiration);
     }
 
     /**
@@ -41,8 +93,86 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
      */
     @Override
     public Configuration initConfiguration(String configDirectory, String serverName, String userName, Map<String, String> additionalProperties) {
-        // start with built-in Hadoop configuration that loads core-site.xml
         LOG.debug("Initializing configuration for server {}", serverName);
+        File serverDirectory = getServerDirectory(configDirectory, serverName);
+        if (serverDirectory == null) {
+            LOG.debug("Directory {}{}{} does not exist or cannot be read by PXF, no configuration resources are added for server {}",
+                    serversConfigDirectory, File.separator, configDirectory, serverName);
+        }
+
+        // copy the cached configuration, so that changes to the configuration of this request do not leak
+        ConfigurationHolder holder = getConfigurationHolder(serverDirectory, serverName, userName);
+        Configuration configuration = new Configuration(holder.getServerConfiguration());
+
+        // add additional properties, if provided
+        if (additionalProperties != null) {
+            LOG.debug("Adding {} additional properties to configuration for server {}", additionalProperties.size(), serverName);
+            additionalProperties.forEach(configuration::set);
+        }
+
+        // add user configuration, it takes precedence over the additional properties
+        holder.getUserProperties().forEach(configuration::set);
+
+        // Starting with Hadoop 2.10.0, the "DEFAULT" rule will throw an
+        // exception when no rules are applied while getting the principal
+        // name translation into operating system user name. See
+        // org.apache.hadoop.security.authentication.util.KerberosName#getShortName
+        // We add a default rule that will return the service name as the
+        // short name, i.e. gpadmin/_HOST@REALM will map to gpadmin
+        configuration.set(HADOOP_SECURITY_AUTH_TO_LOCAL, "RULE:[1:$1] RULE:[2:$1] DEFAULT");
+
+        return configuration;
+    }
+
+    /**
+     * Returns the cached configuration of the server and properties of the
+     * user. The cached entry is replaced when the configuration files of the
+     * server have changed since the entry was cached.
+     *
+     * @param serverDirectory the server directory, or null if there is no directory for the server
+     * @param serverName      the name of the server
+     * @param userName        the name of the user
+     * @return the holder of the server configuration and user properties
+     */
+    private ConfigurationHolder getConfigurationHolder(File serverDirectory, String serverName, String userName) {
+        final String key = (serverDirectory == null ? "" : serverDirectory.getAbsolutePath()) + ":" + serverName + ":" + userName;
+        final String signature = getSignature(serverDirectory, userName);
+        try {
+            LOG.debug("Getting configuration from cache for key {}", key);
+            ConfigurationHolder holder = configurationCache.get(key, () -> loadConfiguration(serverDirectory, serverName, userName, signature));
+            if (holder.getSignature().equals(signature)) {
+                return holder;
+            }
+
+            // the configuration files have changed since the configuration was cached
+            LOG.debug("Configuration files for server {} have changed, reloading the configuration", serverName);
+            holder = loadConfiguration(serverDirectory, serverName, userName, signature);
+            configurationCache.put(key, holder);
+            return holder;
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            // Unwrap the exception
+            Exception exception = e.getCause() != null ? (Exception) e.getCause() : e;
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            } else {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+
+    /**
+     * Builds the configuration of the server and reads the properties of the
+     * user. All the configuration resources are parsed here, so that copies
+     * of the configuration do not need to parse them again.
+     *
+     * @param serverDirectory the server directory, or null if there is no directory for the server
+     * @param serverName      the name of the server
+     * @param userName        the name of the user
+     * @param signature       the signature of the configuration files
+     * @return the holder of the server configuration and user properties
+     */
+    private ConfigurationHolder loadConfiguration(File serverDirectory, String serverName, String userName, String signature) {
+        // start with built-in Hadoop configuration that loads core-site.xml
         Configuration configuration = new Configuration();
         // while implementing multiple kerberized support we noticed that non-kerberized hadoop
         // access was trying to use SASL-client authentication. Setting the fallback to simple auth
@@ -61,6 +191,36 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         // add the server name itself as a configuration property
         configuration.set(PXF_SERVER_NAME_PROPERTY, serverName);
 
+        Map<String, String> userProperties = Collections.emptyMap();
+        if (serverDirectory != null) {
+            // add all site files as URL resources to the configuration, no resources will be added from the classpath
+            LOG.debug("Using directory {} for server {} configuration", serverDirectory, serverName);
+            processServerResources(configuration, serverName, serverDirectory);
+            userProperties = processUserResource(serverName, userName, serverDirectory);
+        }
+
+        try {
+            // We need to set the restrict system properties to false so
+            // variables in the configuration get replaced by system property
+            // values
+            configuration.setRestrictSystemProps(false);
+        } catch (NoSuchMethodError e) {
+            // Expected exception for MapR
+        }
+
+        // parse the resources now, copies of the configuration get the parsed properties
+        configuration.size();
+        return new ConfigurationHolder(configuration, userProperties, signature);
+    }
+
+    /**
+     * Returns the directory of the server, if it exists and can be read
+     *
+     * @param configDirectory the name of the configuration directory or its absolute path
+     * @param serverName      the name of the server
+     * @return the directory of the server, or null if there is no such directory
+     */
+    private File getServerDirectory(String configDirectory, String serverName) {
         File[] serverDirectories = null;
         Path p = Paths.get(configDirectory);
 
@@ -78,47 +238,62 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         }
 
         if (ArrayUtils.isEmpty(serverDirectories)) {
-            LOG.debug("Directory {}{}{} does not exist or cannot be read by PXF, no configuration resources are added for server {}",
-                    serversConfigDirectory, File.separator, configDirectory, serverName);
+            return null;
         } else if (serverDirectories.length > 1) {
             throw new IllegalStateException(String.format(
                     "Multiple directories found for server %s. Server directories are expected to be case-insensitive.", serverName
             ));
-        } else {
-            // add all site files as URL resources to the configuration, no resources will be added from the classpath
-            LOG.debug("Using directory {} for server {} configuration", serverDirectories[0], serverName);
-            processServerResources(configuration, serverName, serverDirectories[0]);
-        }
-
-        // add additional properties, if provided
-        if (additionalProperties != null) {
-            LOG.debug("Adding {} additional properties to configuration for server {}", additionalProperties.size(), serverName);
-            additionalProperties.forEach(configuration::set);
         }
+        return serverDirectories[0];
+    }
 
-        // add user configuration
-        if (!ArrayUtils.isEmpty(serverDirectories)) {
-            processUserResource(configuration, serverName, userName, serverDirectories[0]);
+    /**
+     * Returns the signature of the configuration files of the server and the
+     * user, made of the names, modification times and sizes of the files.
+     *
+     * @param serverDirectory the server directory, or null if there is no directory for the server
+     * @param userName        the name of the user
+     * @return the signature of the configuration files
+     */
+    private String getSignature(File serverDirectory, String userName) {
+        if (serverDirectory == null) {
+            return "";
         }
 
-        try {
-            // We need to set the restrict system properties to false so
-            // variables in the configuration get replaced by system property
-            // values
-            configuration.setRestrictSystemProps(false);
-        } catch (NoSuchMethodError e) {
-            // Expected exception for MapR
+        StringBuilder signature = new StringBuilder();
+        // the modification time of the directory changes when files are added or removed
+        signature.append(serverDirectory.lastModified());
+        File[] files = serverDirectory.listFiles(f ->
+                f.getName().endsWith("-site.xml") || f.getName().equals(userName + "-user.xml"));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                signature.append('|').append(file.getName())
+                        .append(':').append(file.lastModified())
+                        .append(':').append(file.length());
+            }
         }
+        return signature.toString();
+    }
 
-        // Starting with Hadoop 2.10.0, the "DEFAULT" rule will throw an
-        // exception when no rules are applied while getting the principal
-        // name translation into operating system user name. See
-        // org.apache.hadoop.security.authentication.util.KerberosName#getShortName
-        // We add a default rule that will return the service name as the
-        // short name, i.e. gpadmin/_HOST@REALM will map to gpadmin
-        configuration.set(HADOOP_SECURITY_AUTH_TO_LOCAL, "RULE:[1:$1] RULE:[2:$1] DEFAULT");
-
-        return configuration;
+    /**
+     * Initializes the configuration cache, entries expire when they are not
+     * accessed for the given duration
+     *
+     * @param expiration entry duration before expiration
+     * @return initialized cache
+     */
+    private Cache<String, ConfigurationHolder> initCache(Duration expiration) {
+        long expirationMillis = expiration.toMillis();
+        LOG.info("Creating configuration cache with expiration of {}ms", expirationMillis);
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHE_SIZE)
+                .expireAfterAccess(expirationMillis, TimeUnit.MILLISECONDS)
+                .removalListener((RemovalListener<String, ConfigurationHolder>) notification ->
+                        LOG.debug("Removed configuration from cache for key {} with cause {}",
+                                notification.getKey(),
+                                notification.getCause().toString()))
+                .build();
     }
 
     private void processServerResources(Configuration configuration, String serverName, File directory) {
@@ -140,18 +315,21 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         }
     }
 
-    private void processUserResource(Configuration configuration, String serverName, String userName, File directory) {
-        // add user config file as configuration resource
+    private Map<String, String> processUserResource(String serverName, String userName, File directory) {
+        // read the properties from the user config file
         try {
             Path path = Paths.get(String.format("%s/%s-user.xml", directory.toPath(), userName));
-            if (Files.exists(path)) {
-                Configuration userConfiguration = new Configuration(false);
-                URL resourceURL = path.toUri().toURL();
-                userConfiguration.addResource(resourceURL);
-                LOG.debug("Adding user properties for server {} from {}", serverName, resourceURL);
-                userConfiguration.forEach(entry -> configuration.set(entry.getKey(), entry.getValue()));
-                configuration.set(String.format("%s.%s", PXF_CONFIG_RESOURCE_PATH_PROPERTY, path.getFileName().toString()), resourceURL.toString());
+            if (!Files.exists(path)) {
+                return Collections.emptyMap();
             }
+            Configuration userConfiguration = new Configuration(false);
+            URL resourceURL = path.toUri().toURL();
+            userConfiguration.addResource(resourceURL);
+            LOG.debug("Adding user properties for server {} from {}", serverName, resourceURL);
+            Map<String, String> userProperties = new LinkedHashMap<>();
+            userConfiguration.forEach(entry -> userProperties.put(entry.getKey(), entry.getValue()));
+            userProperties.put(String.format("%s.%s", PXF_CONFIG_RESOURCE_PATH_PROPERTY, path.getFileName().toString()), resourceURL.toString());
+            return userProperties;
         } catch (Exception e) {
             throw new RuntimeException(String.format("Unable to read user configuration for user %s using server %s from %s",
                     userName, serverName, directory.getAbsolutePath()), e);
@@ -27,7 +27,8 @@ import org.greenplum.pxf.api.error.UnsupportedTypeException;
  */
 public enum OutputFormat {
     TEXT("org.greenplum.pxf.api.io.Text"),
-    GPDBWritable("org.greenplum.pxf.api.io.GPDBWritable");
+    GPDBWritable("org.greenplum.pxf.api.io.GPDBWritable"),
+    BINARY("org.greenplum.pxf.api.io.BinaryCopySerializer");
 
     private String className;
 
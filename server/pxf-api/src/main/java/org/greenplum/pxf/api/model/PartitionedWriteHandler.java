@@ -0,0 +1,23 @@
+package org.greenplum.pxf.api.model;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+
+/**
+ * Annotation for marking Accessors as capable of writing the rows of each
+ * partition of a partitioned write to a separate directory, given as the
+ * data source of the request of the partition. Such accessors name the files
+ * they write with {@link RequestContext#getTransactionId()} and
+ * {@link RequestContext#getSegmentId()}, and do not fail when
+ * {@link RequestContext#isSkipExistingFiles()} is set and files of the same
+ * transaction and segment already exist, but write to files with new names
+ * instead.
+ */
+@Inherited
+@Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+@Target({ TYPE })
+public @interface PartitionedWriteHandler {
+}
@@ -0,0 +1,22 @@
+package org.greenplum.pxf.api.model;
+
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneRow;
+
+/**
+ * Interface that resolves a batch of records into column vectors, without
+ * creating an object per field. The bridge serializes the returned
+ * {@link ColumnBatch} directly into the output format.
+ */
+public interface ReadColumnBatchResolver extends ReadVectorizedResolver {
+
+    /**
+     * Returns the resolved batch. The returned batch, and the vectors it
+     * references, may be reused by the resolver for the next batch.
+     *
+     * @param batch unresolved batch
+     * @return the batch of column vectors, one per column of the Greenplum table
+     */
+    ColumnBatch getColumnBatch(OneRow batch);
+
+}
@@ -0,0 +1,27 @@
+package org.greenplum.pxf.api.model;
+
+import org.greenplum.pxf.api.FieldSink;
+import org.greenplum.pxf.api.OneFieldSink;
+import org.greenplum.pxf.api.OneRow;
+
+/**
+ * A {@link Resolver} that pushes the values of the fields of a row into a
+ * {@link FieldSink}, so that the values of primitive columns are serialized
+ * without being boxed into {@link org.greenplum.pxf.api.OneField} objects.
+ * <p>
+ * The bridge uses {@link #getFields(OneRow, FieldSink)} when the output
+ * format supports it, and {@link #getFields(OneRow)} otherwise. Resolvers
+ * can implement the latter with a {@link OneFieldSink}.
+ */
+public interface ReadRowResolver extends Resolver {
+
+    /**
+     * Sets the fields of one row into the sink, every column of the
+     * Greenplum table is set in order, from the first to the last.
+     *
+     * @param row  the row to get the fields from
+     * @param sink the sink to set the fields into
+     * @throws Exception if decomposing the row into fields failed
+     */
+    void getFields(OneRow row, FieldSink sink) throws Exception;
+}
@@ -43,7 +43,7 @@ import java.util.TreeMap;
  */
 @Getter
 @Setter
-public class RequestContext {
+public class RequestContext implements Cloneable {
 
     /**
      * The request type can be used to later determine whether we
@@ -132,6 +132,11 @@ public class RequestContext {
      */
     private OutputFormat outputFormat;
 
+    /**
+     * The compression of the read response or of the write request body.
+     */
+    private StreamCompression streamCompression = StreamCompression.NONE;
+
     /**
      * The Greenplum command count
      */
@@ -273,6 +278,14 @@ public class RequestContext {
     @Setter(AccessLevel.NONE)
     private String serverName = "default";
 
+    /**
+     * Whether a write skips the names of the files that already exist instead
+     * of failing. Set for the partitions of a partitioned write that are
+     * written again after their writer was closed, the files written by the
+     * previous writers of the partition are then kept.
+     */
+    private boolean skipExistingFiles;
+
     /**
      * The number of segments in Greenplum.
      */
@@ -452,6 +465,29 @@ public class RequestContext {
         options.put(name, value);
     }
 
+    /**
+     * Returns a copy of this request context that can be modified without
+     * affecting this request context, e.g. to process another fragment of
+     * the request concurrently. The configuration and the options are copied,
+     * the other values are shared with this request context.
+     *
+     * @return a copy of this request context
+     */
+    public RequestContext copy() {
+        RequestContext copy;
+        try {
+            copy = (RequestContext) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        if (configuration != null) {
+            copy.configuration = new Configuration(configuration);
+        }
+        copy.options = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        copy.options.putAll(options);
+        return copy;
+    }
+
     /**
      * Returns unmodifiable map of options.
      *
@@ -0,0 +1,35 @@
+package org.greenplum.pxf.api.model;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Compression of the data streamed between Greenplum and PXF: the body of
+ * the read responses and of the write requests.
+ */
+public enum StreamCompression {
+    NONE,
+    LZ4;
+
+    /**
+     * Looks up the stream compression by its case-insensitive name, no
+     * compression when the name is not provided.
+     *
+     * @param name the name of the stream compression, or null
+     * @return the stream compression with the given name
+     * @throws IllegalArgumentException if the stream compression is not supported
+     */
+    public static StreamCompression fromName(String name) {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        for (StreamCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "stream compression %s is not supported, supported values are %s", name,
+                Arrays.stream(values()).map(value -> value.name().toLowerCase()).collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,79 @@
+package org.greenplum.pxf.api;
+
+import org.greenplum.pxf.api.io.DataType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnBatchTest {
+
+    @Test
+    public void testNewBatchHasNullVectors() {
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.INTEGER.getOID(), DataType.TEXT.getOID()});
+        assertEquals(0, batch.getSize());
+        assertEquals(2, batch.getNumColumns());
+        assertEquals(DataType.TEXT.getOID(), batch.getColumnType(1));
+        assertEquals(ColumnBatch.VectorType.NULL, batch.getVectorType(0));
+        assertTrue(batch.isNull(0, 0));
+        assertTrue(batch.isNull(1, 100));
+    }
+
+    @Test
+    public void testPrimitiveVectors() {
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.BIGINT.getOID(), DataType.FLOAT8.getOID()});
+        batch.setLongVector(0, new long[]{1, 2, 3}, new boolean[]{false, true, false}, false, false);
+        batch.setDoubleVector(1, new double[]{1.5, 2.5, 3.5}, new boolean[]{true, true, true}, true, false);
+        batch.setSize(3);
+
+        assertEquals(ColumnBatch.VectorType.LONG, batch.getVectorType(0));
+        assertEquals(ColumnBatch.VectorType.DOUBLE, batch.getVectorType(1));
+        assertFalse(batch.isNull(0, 0));
+        assertTrue(batch.isNull(0, 1));
+        assertEquals(3L, batch.getLong(0, 2));
+        // the null mask is ignored when the vector has no nulls
+        assertFalse(batch.isNull(1, 1));
+        assertEquals(2.5, batch.getDouble(1, 1));
+    }
+
+    @Test
+    public void testRepeatingVectors() {
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.INTEGER.getOID(), DataType.TEXT.getOID()});
+        batch.setLongVector(0, new long[]{42, 0}, new boolean[]{false, true}, false, true);
+        byte[] value = "repeated".getBytes(StandardCharsets.UTF_8);
+        batch.setBytesVector(1, new byte[][]{value}, new int[]{2}, new int[]{4}, new boolean[]{true}, false, true);
+        batch.setSize(2);
+
+        assertFalse(batch.isNull(0, 1));
+        assertEquals(42L, batch.getLong(0, 1));
+        assertTrue(batch.isNull(1, 0));
+        assertTrue(batch.isNull(1, 1));
+    }
+
+    @Test
+    public void testBytesAndObjectVectors() {
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.BYTEA.getOID(), DataType.NUMERIC.getOID()});
+        byte[] buffer = {0, 1, 2, 3, 4, 5};
+        batch.setBytesVector(0, new byte[][]{buffer, buffer}, new int[]{0, 3}, new int[]{3, 3}, null, true, false);
+        Object[] decimals = {"1.5", null};
+        batch.setObjectVector(1, decimals, null, true, false);
+        batch.setSize(2);
+
+        assertEquals(ColumnBatch.VectorType.BYTES, batch.getVectorType(0));
+        assertSame(buffer, batch.getBytes(0, 1));
+        assertEquals(3, batch.getBytesStart(0, 1));
+        assertEquals(3, batch.getBytesLength(0, 1));
+
+        assertEquals(ColumnBatch.VectorType.OBJECT, batch.getVectorType(1));
+        assertEquals("1.5", batch.getObject(1, 0));
+        // a null object is a null value
+        assertTrue(batch.isNull(1, 1));
+
+        batch.setNullVector(1);
+        assertTrue(batch.isNull(1, 0));
+    }
+}
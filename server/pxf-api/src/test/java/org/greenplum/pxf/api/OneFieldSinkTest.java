@@ -0,0 +1,77 @@
+package org.greenplum.pxf.api;
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OneFieldSinkTest {
+
+    private final List<ColumnDescriptor> columns = Arrays.asList(
+            new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+            new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null),
+            new ColumnDescriptor("data", DataType.BYTEA.getOID(), 2, "bytea", null),
+            new ColumnDescriptor("day", DataType.DATE.getOID(), 3, "date", null));
+
+    @Test
+    public void testCollectsFields() throws Exception {
+        OneFieldSink sink = new OneFieldSink(columns);
+        byte[] name = "xname".getBytes(StandardCharsets.UTF_8);
+        byte[] data = {1, 2, 3};
+
+        sink.setInt(0, 7);
+        sink.setText(1, name, 1, 4);
+        sink.setBytes(2, data, 1, 2);
+        sink.setObject(3, Date.valueOf("2020-01-02"));
+        data[1] = 9;
+
+        List<OneField> fields = sink.getFields();
+        assertEquals(4, fields.size());
+        assertEquals(DataType.INTEGER.getOID(), fields.get(0).type);
+        assertEquals(7, fields.get(0).val);
+        assertEquals(DataType.TEXT.getOID(), fields.get(1).type);
+        assertEquals("name", fields.get(1).val);
+        assertEquals(DataType.BYTEA.getOID(), fields.get(2).type);
+        assertArrayEquals(new byte[]{2, 3}, (byte[]) fields.get(2).val);
+        assertEquals(DataType.DATE.getOID(), fields.get(3).type);
+        assertEquals(Date.valueOf("2020-01-02"), fields.get(3).val);
+    }
+
+    @Test
+    public void testNextRowStartsNewList() throws Exception {
+        OneFieldSink sink = new OneFieldSink(columns);
+        sink.setInt(0, 1);
+        sink.setString(1, "one");
+        sink.setNull(2);
+        sink.setNull(3);
+        List<OneField> first = sink.getFields();
+
+        sink.setNull(0);
+        List<OneField> second = sink.getFields();
+
+        assertEquals(4, first.size());
+        assertEquals(DataType.BYTEA.getOID(), first.get(2).type);
+        assertNull(first.get(2).val);
+        assertEquals(1, second.size());
+        assertEquals(DataType.INTEGER.getOID(), second.get(0).type);
+        assertNull(second.get(0).val);
+    }
+
+    @Test
+    public void testColumnSetOutOfOrder() throws Exception {
+        OneFieldSink sink = new OneFieldSink(columns);
+        sink.setInt(0, 1);
+
+        Exception e = assertThrows(IllegalStateException.class, () -> sink.setString(2, "two"));
+        assertEquals("Column 2 is set out of order, expected column 1", e.getMessage());
+    }
+}
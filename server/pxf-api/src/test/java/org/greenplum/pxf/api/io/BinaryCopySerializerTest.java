@@ -0,0 +1,353 @@
+package org.greenplum.pxf.api.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryCopySerializerTest {
+
+    @Test
+    public void testHeaderAndTrailer() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(out);
+        BinaryCopySerializer.writeHeader(dataOut);
+        BinaryCopySerializer.writeTrailer(dataOut);
+
+        assertArrayEquals(new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+                0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF}, out.toByteArray());
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(BinaryCopySerializer.isSupported(DataType.NUMERIC.getOID()));
+        assertTrue(BinaryCopySerializer.isSupported(DataType.UUIDARRAY.getOID()));
+        assertFalse(BinaryCopySerializer.isSupported(1186)); // interval
+        assertThrows(IllegalArgumentException.class,
+                () -> new BinaryCopySerializer(new int[]{1186}, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSerializePrimitiveTypes() throws Exception {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{
+                DataType.BOOLEAN.getOID(), DataType.SMALLINT.getOID(), DataType.INTEGER.getOID(),
+                DataType.BIGINT.getOID(), DataType.REAL.getOID(), DataType.FLOAT8.getOID(),
+                DataType.BYTEA.getOID(), DataType.TEXT.getOID(), DataType.VARCHAR.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setBoolean(0, true);
+        serializer.setShort(1, (short) -2);
+        serializer.setInt(2, 123456);
+        serializer.setLong(3, Long.MIN_VALUE);
+        serializer.setFloat(4, 1.5f);
+        serializer.setDouble(5, -2.25d);
+        serializer.setBytes(6, new byte[]{0, 1, 2, 3}, 1, 2);
+        serializer.setString(7, "ünï 😀");
+        serializer.setNull(8);
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(9, in.readShort());
+        assertEquals(1, in.readInt());
+        assertTrue(in.readBoolean());
+        assertEquals(2, in.readInt());
+        assertEquals(-2, in.readShort());
+        assertEquals(4, in.readInt());
+        assertEquals(123456, in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(Long.MIN_VALUE, in.readLong());
+        assertEquals(4, in.readInt());
+        assertEquals(1.5f, in.readFloat());
+        assertEquals(8, in.readInt());
+        assertEquals(-2.25d, in.readDouble());
+        assertArrayEquals(new byte[]{1, 2}, readValue(in));
+        assertEquals("ünï 😀", new String(readValue(in), StandardCharsets.UTF_8));
+        assertEquals(-1, in.readInt());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testSetValueConvertsToColumnType() throws Exception {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{
+                DataType.BOOLEAN.getOID(), DataType.SMALLINT.getOID(), DataType.INTEGER.getOID(),
+                DataType.BIGINT.getOID(), DataType.FLOAT8.getOID(), DataType.BYTEA.getOID(),
+                DataType.BPCHAR.getOID(), DataType.UUID.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setValue(0, "f");
+        serializer.setValue(1, 7);
+        serializer.setValue(2, " -42 ");
+        serializer.setValue(3, 1234567890123L);
+        serializer.setValue(4, "0.5");
+        serializer.setValue(5, "\\xab0F");
+        serializer.setValue(6, 12);
+        serializer.setValue(7, "123e4567-e89b-12d3-a456-426614174000");
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(8, in.readShort());
+        assertArrayEquals(new byte[]{0}, readValue(in));
+        assertArrayEquals(new byte[]{0, 7}, readValue(in));
+        assertEquals(4, in.readInt());
+        assertEquals(-42, in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(1234567890123L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(0.5d, in.readDouble());
+        assertArrayEquals(new byte[]{(byte) 0xAB, 0x0F}, readValue(in));
+        assertEquals("12", new String(readValue(in), StandardCharsets.UTF_8));
+        UUID uuid = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        assertEquals(16, in.readInt());
+        assertEquals(uuid.getMostSignificantBits(), in.readLong());
+        assertEquals(uuid.getLeastSignificantBits(), in.readLong());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testSerializeNumeric() throws Exception {
+        // ndigits, weight, sign, dscale, digits
+        assertNumeric(new short[]{2, 0, 0, 2, 123, 4500}, new BigDecimal("123.45"));
+        assertNumeric(new short[]{2, -1, 0x4000, 7, 1, 2340}, "-0.0001234");
+        assertNumeric(new short[]{1, 2, 0, 0, 1}, 100000000L);
+        assertNumeric(new short[]{1, -2, 0, 8, 1}, "0.00000001");
+        assertNumeric(new short[]{1, 0, 0, 0, 1000}, new BigDecimal("1E+3"));
+        assertNumeric(new short[]{3, 1, 0, 1, 12, 3456, 7000}, "123456.7");
+        assertNumeric(new short[]{0, 0, 0, 2}, "-0.00");
+        assertNumeric(new short[]{0, 0, (short) 0xC000, 0}, "NaN");
+    }
+
+    @Test
+    public void testSerializeDateAndTime() throws Exception {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{
+                DataType.DATE.getOID(), DataType.DATE.getOID(), DataType.DATE.getOID(), DataType.DATE.getOID(),
+                DataType.TIME.getOID(), DataType.TIMESTAMP.getOID(), DataType.TIMESTAMP.getOID(),
+                DataType.TIMESTAMP.getOID(), DataType.TIMESTAMP_WITH_TIME_ZONE.getOID(),
+                DataType.TIMESTAMP_WITH_TIME_ZONE.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setValue(0, "2000-01-02");
+        serializer.setValue(1, Date.valueOf("1999-12-31"));
+        serializer.setValue(2, "infinity");
+        serializer.setValue(3, "0001-01-01 BC");
+        serializer.setValue(4, "01:02:03.000004");
+        serializer.setValue(5, "2000-01-01 00:00:01.5");
+        serializer.setValue(6, Timestamp.valueOf("1999-12-31 23:59:59"));
+        serializer.setValue(7, "-infinity");
+        serializer.setValue(8, "2000-01-01 01:00:00+01:00");
+        serializer.setValue(9, "2000-01-01 00:00:00.000001Z");
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(10, in.readShort());
+        assertEquals(4, in.readInt());
+        assertEquals(1, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(-1, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(Integer.MAX_VALUE, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(LocalDate.of(0, 1, 1).toEpochDay() - LocalDate.of(2000, 1, 1).toEpochDay(), in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(3_723_000_004L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(1_500_000L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(-1_000_000L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(Long.MIN_VALUE, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(0L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(1L, in.readLong());
+        assertEquals(0, in.available());
+
+        serializer.startRecord();
+        for (int i = 0; i < 9; i++) {
+            serializer.setNull(i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> serializer.setValue(9, "2000-01-01 00:00:00"));
+    }
+
+    @Test
+    public void testSerializeArrays() throws Exception {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{
+                DataType.INT4ARRAY.getOID(), DataType.TEXTARRAY.getOID(), DataType.BOOLARRAY.getOID(),
+                DataType.NUMERICARRAY.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setValue(0, "{1, NULL,3}");
+        serializer.setValue(1, "{\"a,b\",\"NULL\",c\\\"d, e f }");
+        serializer.setValue(2, "{}");
+        serializer.setValue(3, Arrays.asList(new BigDecimal("1.5"), null));
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(4, in.readShort());
+
+        in.readInt();
+        assertArrayHeader(in, 1, 1, DataType.INTEGER, 3);
+        assertEquals(4, in.readInt());
+        assertEquals(1, in.readInt());
+        assertEquals(-1, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(3, in.readInt());
+
+        in.readInt();
+        assertArrayHeader(in, 1, 0, DataType.TEXT, 4);
+        assertEquals("a,b", new String(readValue(in), StandardCharsets.UTF_8));
+        assertEquals("NULL", new String(readValue(in), StandardCharsets.UTF_8));
+        assertEquals("c\"d", new String(readValue(in), StandardCharsets.UTF_8));
+        assertEquals("e f", new String(readValue(in), StandardCharsets.UTF_8));
+
+        assertEquals(12, in.readInt());
+        assertEquals(0, in.readInt());
+        assertEquals(0, in.readInt());
+        assertEquals(DataType.BOOLEAN.getOID(), in.readInt());
+
+        in.readInt();
+        assertArrayHeader(in, 1, 1, DataType.NUMERIC, 2);
+        assertEquals(12, in.readInt());
+        in.skipBytes(12);
+        assertEquals(-1, in.readInt());
+        assertEquals(0, in.available());
+
+        serializer.startRecord();
+        assertThrows(IllegalArgumentException.class, () -> serializer.setValue(0, "{{1,2},{3,4}}"));
+    }
+
+    @Test
+    public void testSerializeWithNonUtf8Encoding() throws Exception {
+        Charset encoding = Charset.forName("windows-1251");
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{DataType.TEXT.getOID()}, encoding);
+        serializer.startRecord();
+        serializer.setString(0, "Привет");
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(1, in.readShort());
+        assertArrayEquals("Привет".getBytes(encoding), readValue(in));
+    }
+
+    @Test
+    public void testMultipleRecordsAndReset() throws Exception {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{DataType.INTEGER.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setInt(0, 1);
+        serializer.endRecord();
+        serializer.startRecord();
+        serializer.setInt(0, 2);
+        serializer.endRecord();
+        // an incomplete record is not written and is discarded by the next record
+        serializer.startRecord();
+
+        assertEquals(2, serializer.getRecordCount());
+        assertEquals(20, serializer.getLength());
+        assertEquals(20, toBytes(serializer).length);
+
+        serializer.reset();
+        serializer.startRecord();
+        serializer.setInt(0, 3);
+        serializer.endRecord();
+        assertEquals(1, serializer.getRecordCount());
+        assertArrayEquals(new byte[]{0, 1, 0, 0, 0, 4, 0, 0, 0, 3}, toBytes(serializer));
+    }
+
+    @Test
+    public void testInvalidUsage() {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{
+                DataType.INTEGER.getOID(), DataType.TEXT.getOID()}, StandardCharsets.UTF_8);
+        assertThrows(IllegalStateException.class, () -> serializer.setInt(0, 1));
+
+        serializer.startRecord();
+        assertThrows(IllegalArgumentException.class, () -> serializer.setLong(0, 1));
+        assertThrows(IllegalStateException.class, () -> serializer.setNull(1));
+        serializer.startRecord();
+        assertThrows(IllegalArgumentException.class, () -> serializer.setText(0, new byte[0], 0, 0));
+        serializer.startRecord();
+        serializer.setInt(0, 1);
+        assertThrows(IllegalStateException.class, serializer::endRecord);
+        assertThrows(UnsupportedOperationException.class, () -> serializer.readFields(null));
+    }
+
+    @Test
+    public void testBufferGrows() throws Exception {
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'é');
+        String value = new String(chars);
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{DataType.TEXT.getOID()},
+                StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            serializer.startRecord();
+            serializer.setString(0, value);
+            serializer.endRecord();
+        }
+
+        DataInputStream in = toInput(serializer);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, in.readShort());
+            assertEquals(value, new String(readValue(in), StandardCharsets.UTF_8));
+        }
+        assertEquals(0, in.available());
+    }
+
+    private void assertNumeric(short[] expected, Object value) throws IOException {
+        BinaryCopySerializer serializer = new BinaryCopySerializer(new int[]{DataType.NUMERIC.getOID()},
+                StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setValue(0, value);
+        serializer.endRecord();
+
+        DataInputStream in = toInput(serializer);
+        assertEquals(1, in.readShort());
+        assertEquals(expected.length * 2, in.readInt(), value.toString());
+        short[] actual = new short[expected.length];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = in.readShort();
+        }
+        assertArrayEquals(expected, actual, value.toString());
+    }
+
+    private void assertArrayHeader(DataInputStream in, int ndim, int hasNull, DataType elementType, int size)
+            throws IOException {
+        assertEquals(ndim, in.readInt());
+        assertEquals(hasNull, in.readInt());
+        assertEquals(elementType.getOID(), in.readInt());
+        assertEquals(size, in.readInt());
+        // lower bound
+        assertEquals(1, in.readInt());
+    }
+
+    private byte[] readValue(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private DataInputStream toInput(Writable writable) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(toBytes(writable)));
+    }
+
+    private byte[] toBytes(Writable writable) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,136 @@
+package org.greenplum.pxf.api.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ByteBufferDataOutputTest {
+
+    @Test
+    public void testSerializesLikeDataOutputStream() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        writeAll(new DataOutputStream(expected));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        // a small buffer, flushed many times
+        ByteBufferDataOutput output = new ByteBufferDataOutput(ByteBuffer.allocate(8), actual);
+        writeAll(output);
+        assertEquals(expected.size(), output.getCount());
+        output.flushBuffer();
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertEquals(expected.size(), output.getCount());
+    }
+
+    @Test
+    public void testWritesToOutputStreamOnlyWhenBufferIsFull() throws IOException {
+        OutputStream out = mock(OutputStream.class);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        ByteBufferDataOutput output = new ByteBufferDataOutput(buffer, out);
+
+        output.writeLong(1L);
+        output.writeInt(2);
+        output.writeShort(3);
+        output.writeByte(4);
+        output.writeByte(5);
+        verify(out, never()).write(any(byte[].class), anyInt(), anyInt());
+
+        // the buffer is full
+        output.writeInt(6);
+        verify(out).write(same(buffer.array()), eq(0), eq(16));
+        assertEquals(20, output.getCount());
+    }
+
+    @Test
+    public void testLargeArrayIsWrittenDirectly() throws IOException {
+        OutputStream out = mock(OutputStream.class);
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        ByteBufferDataOutput output = new ByteBufferDataOutput(buffer, out);
+        byte[] large = "large enough to skip the buffer".getBytes(StandardCharsets.UTF_8);
+
+        output.writeByte(1);
+        output.write(large, 0, large.length);
+
+        verify(out).write(same(buffer.array()), eq(0), eq(1));
+        verify(out).write(same(large), eq(0), eq(large.length));
+        assertEquals(1 + large.length, output.getCount());
+    }
+
+    @Test
+    public void testFlushFlushesOutputStream() throws IOException {
+        OutputStream out = mock(OutputStream.class);
+        ByteBufferDataOutput output = new ByteBufferDataOutput(ByteBuffer.allocate(8), out);
+
+        output.flushBuffer();
+        verify(out, never()).write(any(byte[].class), anyInt(), anyInt());
+
+        output.writeByte(1);
+        output.flush();
+        verify(out, times(1)).write(any(byte[].class), eq(0), eq(1));
+        verify(out).flush();
+    }
+
+    @Test
+    public void testSwapBufferHandsOverContent() throws IOException {
+        OutputStream out = mock(OutputStream.class);
+        ByteBuffer first = ByteBuffer.allocate(8);
+        ByteBuffer second = ByteBuffer.allocate(8);
+        ByteBufferDataOutput output = new ByteBufferDataOutput(first, out);
+
+        output.writeInt(1);
+        assertSame(first, output.swapBuffer(second));
+        assertEquals(0, first.position());
+        assertEquals(4, first.limit());
+        assertEquals(1, first.getInt(0));
+        output.writeShort(2);
+        assertEquals(6, output.getCount());
+        verify(out, never()).write(any(byte[].class), anyInt(), anyInt());
+
+        output.flushBuffer();
+        verify(out).write(same(second.array()), eq(0), eq(2));
+        assertThrows(IllegalArgumentException.class, () -> output.swapBuffer(ByteBuffer.allocateDirect(8)));
+    }
+
+    @Test
+    public void testBufferMustBeBackedByArray() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ByteBufferDataOutput(ByteBuffer.allocateDirect(8), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ByteBufferDataOutput(ByteBuffer.allocate(4), new ByteArrayOutputStream()));
+    }
+
+    private void writeAll(DataOutput out) throws IOException {
+        out.writeBoolean(true);
+        out.writeByte(-3);
+        out.writeShort(0x1234);
+        out.writeChar('π');
+        out.writeInt(Integer.MIN_VALUE);
+        out.writeLong(Long.MAX_VALUE);
+        out.writeFloat(1.5f);
+        out.writeDouble(-2.25d);
+        out.writeBytes("bytes");
+        out.writeChars("chars");
+        out.writeUTF("modified UTF-8 \u0000 π");
+        out.write("a byte array longer than the buffer".getBytes(StandardCharsets.UTF_8));
+        out.write(7);
+    }
+}
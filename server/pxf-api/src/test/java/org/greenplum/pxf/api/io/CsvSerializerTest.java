@@ -0,0 +1,192 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.GreenplumDateTime;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvSerializerTest {
+
+    @Test
+    public void testSerializeAllTypes() throws Exception {
+        CsvSerializer serializer = new CsvSerializer(new GreenplumCSV(), StandardCharsets.UTF_8, "\\x");
+        serializer.appendBoolean(true);
+        serializer.appendBytea(new byte[]{0, (byte) 0xAB, 0x0F, 1}, 1, 2);
+        serializer.appendLong(-12345678901L);
+        serializer.appendLong(Long.MIN_VALUE);
+        serializer.appendFloat(1.5f);
+        serializer.appendDouble(-2.25d);
+        serializer.appendNull();
+        serializer.appendValue("1234.5678");
+        serializer.appendText("some text");
+        serializer.endRecord();
+
+        assertEquals(1, serializer.getRecordCount());
+        assertEquals("true,\\xab0f,-12345678901,-9223372036854775808,1.5,-2.25,,1234.5678,some text\n",
+                toString(serializer, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAppendFieldConvertsLikeCsvField() throws Exception {
+        GreenplumCSV csv = new GreenplumCSV();
+        CsvSerializer serializer = new CsvSerializer(csv, StandardCharsets.UTF_8, "\\\\x");
+        Timestamp timestamp = Timestamp.valueOf("2022-06-10 11:44:33.1234");
+        serializer.appendField(DataType.INTEGER.getOID(), 7);
+        serializer.appendField(DataType.SMALLINT.getOID(), (short) -3);
+        serializer.appendField(DataType.BOOLEAN.getOID(), false);
+        serializer.appendField(DataType.FLOAT8.getOID(), 0.1d);
+        serializer.appendField(DataType.BYTEA.getOID(), new byte[]{1});
+        serializer.appendField(DataType.NUMERIC.getOID(), "1,5");
+        serializer.appendField(DataType.TIMESTAMP.getOID(), timestamp);
+        serializer.appendField(DataType.TIMESTAMP.getOID(), "2022-06-10 11:44:33");
+        serializer.appendField(DataType.DATE.getOID(), Date.valueOf("2020-01-02"));
+        serializer.appendField(DataType.TEXT.getOID(), "a,\"b\"");
+        serializer.appendField(DataType.VARCHAR.getOID(), null);
+        serializer.endRecord();
+
+        assertEquals("7,-3,false,0.1,\\\\x01,1,5,2022-06-10 11:44:33.1234,2022-06-10 11:44:33,2020-01-02,"
+                        + csv.toCsvField("a,\"b\"", true, true, true) + ",\n",
+                toString(serializer, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testTextIsQuotedLikeCsvField() throws Exception {
+        String[] values = {"", "plain", "a,b", "a\"b", "\"", "line\nbreak", "line\rbreak", "line\r\nbreak",
+                "ünïcödé", "ünï,cödé", "smile \uD83D\uDE00 \"quoted\"",
+                "a|b", "tab\tseparated"};
+        GreenplumCSV[] settings = {
+                new GreenplumCSV(),
+                new GreenplumCSV().withDelimiter('|').withQuoteChar('\'').withEscapeChar('\\').withNewline("\r\n"),
+                new GreenplumCSV().withDelimiter('\t').withNewline("\r"),
+                new GreenplumCSV().withEscapeChar("OFF")
+        };
+
+        for (GreenplumCSV csv : settings) {
+            for (String value : values) {
+                CsvSerializer serializer = new CsvSerializer(csv, StandardCharsets.UTF_8, "\\x");
+                serializer.appendText(value);
+                serializer.endRecord();
+                String expected = csv.toCsvField(value, true, true, true) + csv.getNewline();
+                assertEquals(expected, toString(serializer, StandardCharsets.UTF_8), value);
+
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                serializer.reset();
+                serializer.appendText(bytes, 0, bytes.length);
+                serializer.endRecord();
+                assertEquals(expected, toString(serializer, StandardCharsets.UTF_8), value);
+            }
+        }
+    }
+
+    @Test
+    public void testTimestampIsFormattedLikeFormatter() throws Exception {
+        LocalDateTime[] values = {
+                LocalDateTime.of(2022, 6, 10, 11, 44, 33),
+                LocalDateTime.of(2022, 6, 10, 11, 44, 33, 100_000_000),
+                LocalDateTime.of(1999, 12, 31, 23, 59, 59, 123_456_000),
+                LocalDateTime.of(1999, 12, 31, 23, 59, 59, 123_456_789),
+                LocalDateTime.of(1970, 1, 1, 0, 0, 0, 10_000),
+                LocalDateTime.of(1970, 1, 1, 0, 0, 0, 500),
+                LocalDateTime.of(1970, 1, 1, 0, 0, 0, 100_000_010),
+                LocalDateTime.of(1, 1, 1, 1, 1, 1),
+                LocalDateTime.of(99, 2, 3, 4, 5, 6),
+                LocalDateTime.of(0, 2, 3, 4, 5, 6),
+                LocalDateTime.of(12345, 2, 3, 4, 5, 6)
+        };
+
+        for (LocalDateTime value : values) {
+            CsvSerializer serializer = new CsvSerializer(new GreenplumCSV(), StandardCharsets.UTF_8, "\\x");
+            serializer.appendDateTime(value);
+            serializer.endRecord();
+            assertEquals(value.format(GreenplumDateTime.DATETIME_FORMATTER) + "\n",
+                    toString(serializer, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testSerializeWithNonUtf8Encoding() throws Exception {
+        Charset encoding = Charset.forName("windows-1251");
+        CsvSerializer serializer = new CsvSerializer(new GreenplumCSV(), encoding, "\\x");
+        serializer.appendText("Привет, мир");
+        byte[] text = "Пока".getBytes(StandardCharsets.UTF_8);
+        serializer.appendText(text, 0, text.length);
+        serializer.appendValue("значение");
+        serializer.endRecord();
+
+        assertArrayEquals("\"Привет, мир\",Пока,значение\n".getBytes(encoding), toBytes(serializer));
+    }
+
+    @Test
+    public void testMultipleRecordsAndReset() throws Exception {
+        CsvSerializer serializer = new CsvSerializer(new GreenplumCSV().withValueOfNull("NULL"),
+                StandardCharsets.UTF_8, "\\x");
+        serializer.appendLong(1);
+        serializer.appendText("one");
+        serializer.endRecord();
+        serializer.appendLong(2);
+        serializer.appendNull();
+        serializer.endRecord();
+        // an incomplete record is not written and is discarded by the next record
+        serializer.appendLong(3);
+
+        assertEquals(2, serializer.getRecordCount());
+        assertEquals("1,one\n2,NULL\n", toString(serializer, StandardCharsets.UTF_8));
+        assertEquals(13, serializer.getLength());
+        assertArrayEquals(toBytes(serializer), toBytes(serializer.copy()));
+        assertArrayEquals(toBytes(serializer), serializer.toByteArray());
+        serializer.startRecord();
+        serializer.appendLong(5);
+        serializer.endRecord();
+        assertEquals("1,one\n2,NULL\n5\n", toString(serializer, StandardCharsets.UTF_8));
+
+        serializer.reset();
+        serializer.appendLong(4);
+        serializer.endRecord();
+        assertEquals(1, serializer.getRecordCount());
+        assertEquals("4\n", toString(serializer, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBufferGrows() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append("ab\"");
+        }
+        CsvSerializer serializer = new CsvSerializer(new GreenplumCSV(), StandardCharsets.UTF_8, "\\x");
+        for (int i = 0; i < 3; i++) {
+            serializer.appendText(value.toString());
+            serializer.endRecord();
+        }
+
+        String line = new GreenplumCSV().toCsvField(value.toString(), true, true, true) + "\n";
+        assertEquals(line + line + line, toString(serializer, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadFieldsIsNotSupported() {
+        CsvSerializer serializer = new CsvSerializer(new GreenplumCSV(), StandardCharsets.UTF_8, "\\x");
+        assertThrows(UnsupportedOperationException.class, () -> serializer.readFields(null));
+    }
+
+    private String toString(Writable writable, Charset encoding) throws IOException {
+        return new String(toBytes(writable), encoding);
+    }
+
+    private byte[] toBytes(Writable writable) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+}
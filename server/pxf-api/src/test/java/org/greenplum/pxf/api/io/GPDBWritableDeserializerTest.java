@@ -0,0 +1,218 @@
+package org.greenplum.pxf.api.io;
+
+import org.greenplum.pxf.api.OneField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GPDBWritableDeserializerTest {
+
+    private static final int[] SCHEMA = {
+            DataType.BOOLEAN.getOID(),
+            DataType.BYTEA.getOID(),
+            DataType.BIGINT.getOID(),
+            DataType.SMALLINT.getOID(),
+            DataType.INTEGER.getOID(),
+            DataType.TEXT.getOID(),
+            DataType.REAL.getOID(),
+            DataType.FLOAT8.getOID(),
+            DataType.NUMERIC.getOID(),
+            DataType.TIMESTAMP.getOID()
+    };
+
+    @BeforeEach
+    @AfterEach
+    public void clearAlignment() {
+        System.clearProperty("greenplum.alignment");
+    }
+
+    @Test
+    public void testDeserializeAllTypes() throws Exception {
+        byte[] input = serialize(allTypesRecord(StandardCharsets.UTF_8));
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input));
+        assertAllTypes(deserializer.readRecord(in));
+        assertNull(deserializer.readRecord(in));
+    }
+
+    @Test
+    public void testDeserializeNulls() throws Exception {
+        GPDBWritable first = new GPDBWritable(SCHEMA, StandardCharsets.UTF_8);
+        first.setLong(2, 1L);
+        first.setString(5, "only text");
+        GPDBWritable second = allTypesRecord(StandardCharsets.UTF_8);
+        byte[] input = serialize(first, second);
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input));
+        List<OneField> record = deserializer.readRecord(in);
+        assertEquals(SCHEMA.length, record.size());
+        for (int i = 0; i < SCHEMA.length; i++) {
+            if (i == 2) {
+                assertEquals(1L, record.get(i).val);
+            } else if (i == 5) {
+                assertEquals("only text", record.get(i).val);
+            } else {
+                assertNull(record.get(i).val, "column " + i);
+            }
+        }
+        // the buffer is reused for the next record
+        assertAllTypes(deserializer.readRecord(in));
+        assertNull(deserializer.readRecord(in));
+    }
+
+    @Test
+    public void testDeserializeDatabaseEncoding() throws Exception {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        GPDBWritable writable = new GPDBWritable(SCHEMA, latin1);
+        writable.setString(5, "café");
+        byte[] input = serialize(writable);
+
+        List<OneField> record = new GPDBWritableDeserializer(SCHEMA, latin1)
+                .readRecord(new DataInputStream(new ByteArrayInputStream(input)));
+        assertEquals("café", record.get(5).val);
+    }
+
+    @Test
+    public void testDeserializeFourByteAlignment() throws Exception {
+        System.setProperty("greenplum.alignment", "4");
+        byte[] input = serialize(allTypesRecord(StandardCharsets.UTF_8));
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        assertAllTypes(deserializer.readRecord(new DataInputStream(new ByteArrayInputStream(input))));
+    }
+
+    @Test
+    public void testDeserializeLargeRecord() throws Exception {
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, 'x');
+        String text = new String(chars);
+        GPDBWritable writable = new GPDBWritable(SCHEMA, StandardCharsets.UTF_8);
+        writable.setString(5, text);
+        byte[] input = serialize(writable, allTypesRecord(StandardCharsets.UTF_8));
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input));
+        assertEquals(text, deserializer.readRecord(in).get(5).val);
+        assertAllTypes(deserializer.readRecord(in));
+    }
+
+    @Test
+    public void testDeserializeRecordWithOtherSchema() throws Exception {
+        int[] otherSchema = {DataType.INTEGER.getOID(), DataType.TEXT.getOID()};
+        GPDBWritable writable = new GPDBWritable(otherSchema, StandardCharsets.UTF_8);
+        writable.setInt(0, 5);
+        writable.setString(1, "five");
+        byte[] input = serialize(writable, allTypesRecord(StandardCharsets.UTF_8));
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input));
+        List<OneField> record = deserializer.readRecord(in);
+        assertEquals(2, record.size());
+        assertEquals(DataType.INTEGER.getOID(), record.get(0).type);
+        assertEquals(5, record.get(0).val);
+        assertEquals("five", record.get(1).val);
+        assertAllTypes(deserializer.readRecord(in));
+    }
+
+    @Test
+    public void testDeserializeEmptyInput() throws Exception {
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        assertNull(deserializer.readRecord(new DataInputStream(new ByteArrayInputStream(new byte[0]))));
+    }
+
+    @Test
+    public void testDeserializeTruncatedRecord() throws Exception {
+        byte[] input = serialize(allTypesRecord(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(input, input.length - 8);
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        assertThrows(IOException.class,
+                () -> deserializer.readRecord(new DataInputStream(new ByteArrayInputStream(truncated))));
+    }
+
+    @Test
+    public void testDeserializeInvalidVersion() throws Exception {
+        byte[] input = serialize(allTypesRecord(StandardCharsets.UTF_8));
+        input[5] = 3;
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        IOException e = assertThrows(IOException.class,
+                () -> deserializer.readRecord(new DataInputStream(new ByteArrayInputStream(input))));
+        assertEquals("Current GPDBWritable version(2) does not match input version(3)", e.getMessage());
+    }
+
+    @Test
+    public void testDeserializeErrorFlag() throws Exception {
+        GPDBWritable writable = allTypesRecord(StandardCharsets.UTF_8);
+        writable.setError(true);
+        byte[] input = serialize(writable);
+
+        GPDBWritableDeserializer deserializer = new GPDBWritableDeserializer(SCHEMA, StandardCharsets.UTF_8);
+        IOException e = assertThrows(IOException.class,
+                () -> deserializer.readRecord(new DataInputStream(new ByteArrayInputStream(input))));
+        assertEquals("Received error value 1 from format", e.getMessage());
+    }
+
+    private GPDBWritable allTypesRecord(Charset encoding) throws IOException {
+        GPDBWritable writable = new GPDBWritable(SCHEMA, encoding);
+        writable.setBoolean(0, true);
+        writable.setBytes(1, new byte[]{1, 2, 3});
+        writable.setLong(2, 12345678901L);
+        writable.setShort(3, (short) 7);
+        writable.setInt(4, -42);
+        writable.setString(5, "some text");
+        writable.setFloat(6, 1.5f);
+        writable.setDouble(7, -2.25d);
+        writable.setString(8, "1234.5678");
+        writable.setString(9, "2020-01-01 10:11:12");
+        return writable;
+    }
+
+    private void assertAllTypes(List<OneField> record) {
+        assertEquals(SCHEMA.length, record.size());
+        assertField(DataType.BOOLEAN, true, record.get(0));
+        assertEquals(DataType.BYTEA.getOID(), record.get(1).type);
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) record.get(1).val);
+        assertField(DataType.BIGINT, 12345678901L, record.get(2));
+        assertField(DataType.SMALLINT, (short) 7, record.get(3));
+        assertField(DataType.INTEGER, -42, record.get(4));
+        assertField(DataType.TEXT, "some text", record.get(5));
+        assertField(DataType.REAL, 1.5f, record.get(6));
+        assertField(DataType.FLOAT8, -2.25d, record.get(7));
+        // types without a binary representation are sent as text
+        assertField(DataType.TEXT, "1234.5678", record.get(8));
+        assertField(DataType.TEXT, "2020-01-01 10:11:12", record.get(9));
+    }
+
+    private void assertField(DataType type, Object value, OneField field) {
+        assertEquals(type.getOID(), field.type);
+        assertEquals(value, field.val);
+    }
+
+    private byte[] serialize(GPDBWritable... writables) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (GPDBWritable writable : writables) {
+            writable.write(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
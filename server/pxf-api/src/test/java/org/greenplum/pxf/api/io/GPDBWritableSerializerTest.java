@@ -0,0 +1,277 @@
+package org.greenplum.pxf.api.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GPDBWritableSerializerTest {
+
+    private static final int[] SCHEMA = {
+            DataType.BOOLEAN.getOID(),
+            DataType.BYTEA.getOID(),
+            DataType.BIGINT.getOID(),
+            DataType.SMALLINT.getOID(),
+            DataType.INTEGER.getOID(),
+            DataType.TEXT.getOID(),
+            DataType.REAL.getOID(),
+            DataType.FLOAT8.getOID(),
+            DataType.NUMERIC.getOID(),
+            DataType.TIMESTAMP.getOID()
+    };
+
+    @BeforeEach
+    public void setup() {
+        System.clearProperty("greenplum.alignment");
+    }
+
+    @Test
+    public void testSerializeAllTypes() throws Exception {
+        GPDBWritable expected = new GPDBWritable(SCHEMA, StandardCharsets.UTF_8);
+        expected.setBoolean(0, true);
+        expected.setBytes(1, new byte[]{1, 2, 3});
+        expected.setLong(2, 12345678901L);
+        expected.setShort(3, (short) 7);
+        expected.setInt(4, -42);
+        expected.setString(5, "some text");
+        expected.setFloat(6, 1.5f);
+        expected.setDouble(7, -2.25d);
+        expected.setString(8, "1234.5678");
+        expected.setString(9, "2020-01-01 10:11:12");
+
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(SCHEMA, StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setBoolean(0, true);
+        serializer.setBytes(1, new byte[]{0, 1, 2, 3, 4}, 1, 3);
+        serializer.setLong(2, 12345678901L);
+        serializer.setShort(3, (short) 7);
+        serializer.setInt(4, -42);
+        serializer.setString(5, "some text");
+        serializer.setFloat(6, 1.5f);
+        serializer.setDouble(7, -2.25d);
+        byte[] numeric = "1234.5678".getBytes(StandardCharsets.UTF_8);
+        serializer.setText(8, numeric, 0, numeric.length);
+        serializer.setString(9, "2020-01-01 10:11:12");
+        serializer.endRecord();
+
+        assertEquals(1, serializer.getRecordCount());
+        assertArrayEquals(toBytes(expected), toBytes(serializer));
+        assertEquals(toBytes(expected).length, serializer.getLength());
+    }
+
+    @Test
+    public void testSerializeNulls() throws Exception {
+        GPDBWritable expected = new GPDBWritable(SCHEMA, StandardCharsets.UTF_8);
+        expected.setBytes(1, new byte[]{9});
+        expected.setShort(3, (short) 1);
+        expected.setString(9, "x");
+
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(SCHEMA, StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setNull(0);
+        serializer.setBytes(1, new byte[]{9}, 0, 1);
+        serializer.setNull(2);
+        serializer.setShort(3, (short) 1);
+        serializer.setNull(4);
+        serializer.setString(5, null);
+        serializer.setNull(6);
+        serializer.setNull(7);
+        serializer.setNull(8);
+        serializer.setString(9, "x");
+        serializer.endRecord();
+
+        assertArrayEquals(toBytes(expected), toBytes(serializer));
+    }
+
+    @Test
+    public void testSerializeMultipleRecordsAndReset() throws Exception {
+        int[] schema = {DataType.INTEGER.getOID(), DataType.TEXT.getOID()};
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(expected);
+        for (int i = 0; i < 1000; i++) {
+            GPDBWritable writable = new GPDBWritable(schema, StandardCharsets.UTF_8);
+            writable.setInt(0, i);
+            writable.setString(1, "row-" + i);
+            writable.write(dos);
+
+            serializer.startRecord();
+            serializer.setInt(0, i);
+            serializer.setString(1, "row-" + i);
+            serializer.endRecord();
+        }
+
+        assertEquals(1000, serializer.getRecordCount());
+        assertArrayEquals(expected.toByteArray(), toBytes(serializer));
+
+        // each record can be written separately
+        GPDBWritable record = new GPDBWritable(toBytes(serializer.getRecord(999)), StandardCharsets.UTF_8);
+        assertEquals(999, record.getInt(0));
+        assertEquals("row-999", record.getString(1));
+
+        serializer.reset();
+        assertEquals(0, serializer.getRecordCount());
+        assertEquals(0, serializer.getLength());
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws Exception {
+        int[] schema = {DataType.INTEGER.getOID(), DataType.INTEGER.getOID()};
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+
+        serializer.startRecord();
+        serializer.setInt(0, 1);
+        serializer.setInt(1, 2);
+        serializer.endRecord();
+        serializer.startRecord();
+        serializer.setInt(0, 3);
+
+        // restart the record without completing it
+        serializer.startRecord();
+        serializer.setInt(0, 4);
+        serializer.setInt(1, 5);
+        serializer.endRecord();
+
+        GPDBWritable first = new GPDBWritable(schema, StandardCharsets.UTF_8);
+        first.setInt(0, 1);
+        first.setInt(1, 2);
+        GPDBWritable second = new GPDBWritable(schema, StandardCharsets.UTF_8);
+        second.setInt(0, 4);
+        second.setInt(1, 5);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(expected);
+        first.write(dos);
+        second.write(dos);
+
+        assertEquals(2, serializer.getRecordCount());
+        assertArrayEquals(expected.toByteArray(), toBytes(serializer));
+    }
+
+    @Test
+    public void testSerializeTextInDifferentEncodings() throws Exception {
+        int[] schema = {DataType.TEXT.getOID(), DataType.VARCHAR.getOID()};
+        // includes 2, 3 and 4 byte UTF-8 sequences and an unpaired surrogate
+        String value = "Qué será – ∑ 😀 end \uD800";
+
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, Charset.forName("windows-1251")}) {
+            GPDBWritable expected = new GPDBWritable(schema, charset);
+            expected.setString(0, value);
+            expected.setString(1, "");
+
+            GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, charset);
+            serializer.startRecord();
+            serializer.setString(0, value);
+            serializer.setString(1, "");
+            serializer.endRecord();
+
+            assertArrayEquals(toBytes(expected), toBytes(serializer), "failed for " + charset);
+        }
+    }
+
+    @Test
+    public void testSerializeLargeValues() throws Exception {
+        int[] schema = {DataType.SMALLINT.getOID(), DataType.BYTEA.getOID(), DataType.TEXT.getOID()};
+        byte[] bytes = new byte[100_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            builder.append("ü");
+        }
+
+        GPDBWritable expected = new GPDBWritable(schema, StandardCharsets.UTF_8);
+        expected.setShort(0, (short) 1);
+        expected.setBytes(1, bytes);
+        expected.setString(2, builder.toString());
+
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+        serializer.startRecord();
+        serializer.setShort(0, (short) 1);
+        serializer.setBytes(1, bytes, 0, bytes.length);
+        serializer.setString(2, builder.toString());
+        serializer.endRecord();
+
+        assertArrayEquals(toBytes(expected), toBytes(serializer));
+    }
+
+    @Test
+    public void testSerializeWithAlignmentOverride() throws Exception {
+        System.setProperty("greenplum.alignment", "4");
+        try {
+            int[] schema = {DataType.BOOLEAN.getOID(), DataType.BIGINT.getOID(), DataType.FLOAT8.getOID()};
+            GPDBWritable expected = new GPDBWritable(schema, StandardCharsets.UTF_8);
+            expected.setBoolean(0, false);
+            expected.setLong(1, Long.MIN_VALUE);
+            expected.setDouble(2, Double.MAX_VALUE);
+
+            GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+            serializer.startRecord();
+            serializer.setBoolean(0, false);
+            serializer.setLong(1, Long.MIN_VALUE);
+            serializer.setDouble(2, Double.MAX_VALUE);
+            serializer.endRecord();
+
+            assertArrayEquals(toBytes(expected), toBytes(serializer));
+        } finally {
+            System.clearProperty("greenplum.alignment");
+        }
+    }
+
+    @Test
+    public void testTypeMismatch() {
+        int[] schema = {DataType.INTEGER.getOID(), DataType.DATE.getOID()};
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+        serializer.startRecord();
+
+        Exception e = assertThrows(GPDBWritable.TypeMismatchException.class,
+                () -> serializer.setLong(0, 1L));
+        assertEquals("Cannot set BIGINT to a INTEGER column", e.getMessage());
+
+        e = assertThrows(GPDBWritable.TypeMismatchException.class,
+                () -> serializer.setString(0, "1"));
+        assertEquals("Cannot set TEXT to a INTEGER column", e.getMessage());
+
+        e = assertThrows(GPDBWritable.TypeMismatchException.class,
+                () -> serializer.setShort(0, (short) 1));
+        assertEquals("Cannot set SMALLINT to a INTEGER column", e.getMessage());
+    }
+
+    @Test
+    public void testColumnsMustBeSetInOrder() throws Exception {
+        int[] schema = {DataType.INTEGER.getOID(), DataType.INTEGER.getOID()};
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(schema, StandardCharsets.UTF_8);
+
+        assertThrows(IllegalStateException.class, () -> serializer.setInt(0, 1));
+
+        serializer.startRecord();
+        Exception e = assertThrows(IllegalStateException.class, () -> serializer.setInt(1, 1));
+        assertEquals("Column 1 is set out of order, expected column 0", e.getMessage());
+
+        serializer.setInt(0, 1);
+        e = assertThrows(IllegalStateException.class, serializer::endRecord);
+        assertEquals("Record has 1 fields but the schema size is 2", e.getMessage());
+    }
+
+    @Test
+    public void testReadFieldsIsNotSupported() {
+        GPDBWritableSerializer serializer = new GPDBWritableSerializer(new int[0], StandardCharsets.UTF_8);
+        assertThrows(UnsupportedOperationException.class, () -> serializer.readFields(null));
+    }
+
+    private byte[] toBytes(Writable writable) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+}
@@ -3,12 +3,17 @@ package org.greenplum.pxf.api.model;
 import org.apache.hadoop.conf.Configuration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,8 +21,10 @@ import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_CONFIG_RESOUR
 import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY;
 import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_SESSION_USER_PROPERTY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -29,6 +36,9 @@ public class BaseConfigurationFactoryTest {
     private File mockServersDirectory;
     private File serversDirectory;
 
+    @TempDir
+    File tempServersDirectory;
+
     @BeforeEach
     public void setup() throws URISyntaxException {
         mockServersDirectory = mock(File.class);
@@ -198,4 +208,128 @@ public class BaseConfigurationFactoryTest {
         assertEquals("dummy", configuration.get(PXF_SESSION_USER_PROPERTY));
     }
 
+    @Test
+    public void testConfigurationChangesDoNotLeakToOtherRequests() {
+        Configuration configuration = factory.initConfiguration("default", "default", "dummy", null);
+        configuration.set("test.blue", "changed");
+        configuration.set("test.user.key", "changed");
+
+        Configuration otherConfiguration = factory.initConfiguration("default", "default", "dummy", null);
+
+        assertNotSame(configuration, otherConfiguration);
+        assertEquals("blue", otherConfiguration.get("test.blue"));
+        assertEquals("uservalue", otherConfiguration.get("test.user.key"));
+    }
+
+    @Test
+    public void testAdditionalPropertiesDoNotLeakToOtherRequests() {
+        additionalProperties.put("test.newOption", "newOption");
+        additionalProperties.put("test.red", "purple");
+        Configuration configuration = factory.initConfiguration("default", "default", "dummy", additionalProperties);
+        assertEquals("purple", configuration.get("test.red"));
+
+        Configuration otherConfiguration = factory.initConfiguration("default", "default", "dummy", null);
+
+        assertEquals("red", otherConfiguration.get("test.red"));
+        assertNull(otherConfiguration.get("test.newOption"));
+    }
+
+    @Test
+    public void testConfigurationIsCachedPerUser() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory);
+        Path serverDirectory = createServerDirectory();
+        writeConfiguration(serverDirectory.resolve("test-site.xml"), "test.key", "value1");
+        writeConfiguration(serverDirectory.resolve("alice-user.xml"), "test.user.key", "alice");
+
+        assertEquals("alice", factory.initConfiguration("test", "test", "alice", null).get("test.user.key"));
+        assertEquals("alice", factory.initConfiguration("test", "test", "alice", null).get(PXF_SESSION_USER_PROPERTY));
+        assertNull(factory.initConfiguration("test", "test", "bob", null).get("test.user.key"));
+        assertEquals("bob", factory.initConfiguration("test", "test", "bob", null).get(PXF_SESSION_USER_PROPERTY));
+    }
+
+    @Test
+    public void testCachedConfigurationIsUsedWhenFilesDoNotChange() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory);
+        Path serverDirectory = createServerDirectory();
+        Path siteFile = serverDirectory.resolve("test-site.xml");
+        writeConfiguration(siteFile, "test.key", "value1");
+        assertEquals("value1", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+
+        // same size and modification time, the file is not read again
+        long lastModified = siteFile.toFile().lastModified();
+        writeConfiguration(siteFile, "test.key", "value2");
+        assertTrue(siteFile.toFile().setLastModified(lastModified));
+
+        assertEquals("value1", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenSiteFileChanges() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory);
+        Path serverDirectory = createServerDirectory();
+        Path siteFile = serverDirectory.resolve("test-site.xml");
+        writeConfiguration(siteFile, "test.key", "value1");
+        assertEquals("value1", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+
+        long lastModified = siteFile.toFile().lastModified();
+        writeConfiguration(siteFile, "test.key", "value2");
+        assertTrue(siteFile.toFile().setLastModified(lastModified + 1000));
+
+        assertEquals("value2", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenSiteFileIsAdded() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory);
+        Path serverDirectory = createServerDirectory();
+        writeConfiguration(serverDirectory.resolve("test-site.xml"), "test.key", "value1");
+        assertNull(factory.initConfiguration("test", "test", "dummy", null).get("test.other.key"));
+
+        writeConfiguration(serverDirectory.resolve("other-site.xml"), "test.other.key", "other");
+
+        Configuration configuration = factory.initConfiguration("test", "test", "dummy", null);
+        assertEquals("value1", configuration.get("test.key"));
+        assertEquals("other", configuration.get("test.other.key"));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenUserFileChanges() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory);
+        Path serverDirectory = createServerDirectory();
+        Path userFile = serverDirectory.resolve("dummy-user.xml");
+        writeConfiguration(serverDirectory.resolve("test-site.xml"), "test.key", "value1");
+        assertNull(factory.initConfiguration("test", "test", "dummy", null).get("test.user.key"));
+
+        writeConfiguration(userFile, "test.user.key", "user1");
+        assertEquals("user1", factory.initConfiguration("test", "test", "dummy", null).get("test.user.key"));
+
+        long lastModified = userFile.toFile().lastModified();
+        writeConfiguration(userFile, "test.user.key", "user2");
+        assertTrue(userFile.toFile().setLastModified(lastModified + 1000));
+        assertEquals("user2", factory.initConfiguration("test", "test", "dummy", null).get("test.user.key"));
+    }
+
+    @Test
+    public void testConfigurationIsNotCachedWhenExpirationIsZero() throws IOException {
+        factory = new BaseConfigurationFactory(tempServersDirectory, Duration.ZERO);
+        Path serverDirectory = createServerDirectory();
+        Path siteFile = serverDirectory.resolve("test-site.xml");
+        writeConfiguration(siteFile, "test.key", "value1");
+        assertEquals("value1", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+
+        long lastModified = siteFile.toFile().lastModified();
+        writeConfiguration(siteFile, "test.key", "value2");
+        assertTrue(siteFile.toFile().setLastModified(lastModified));
+
+        assertEquals("value2", factory.initConfiguration("test", "test", "dummy", null).get("test.key"));
+    }
+
+    private Path createServerDirectory() throws IOException {
+        return Files.createDirectories(tempServersDirectory.toPath().resolve("test"));
+    }
+
+    private void writeConfiguration(Path file, String name, String value) throws IOException {
+        String xml = String.format("<configuration><property><name>%s</name><value>%s</value></property></configuration>", name, value);
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -1,5 +1,6 @@
 package org.greenplum.pxf.api.model;
 
+import org.apache.hadoop.conf.Configuration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -7,7 +8,10 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class RequestContextTest {
@@ -232,4 +236,29 @@ public class RequestContextTest {
         context.setConfig("foo/bar");
         assertEquals("foo/bar", context.getConfig());
     }
+
+    @Test
+    public void testCopy() {
+        Configuration configuration = new Configuration(false);
+        configuration.set("foo", "bar");
+        context.setConfiguration(configuration);
+        context.setDataSource("/path/a");
+        context.addOption("option", "a");
+
+        RequestContext copy = context.copy();
+        copy.getConfiguration().set("foo", "baz");
+        copy.setDataSource("/path/b");
+        copy.addOption("option", "b");
+        copy.addOption("other", "c");
+
+        assertNotSame(context.getConfiguration(), copy.getConfiguration());
+        assertEquals("bar", context.getConfiguration().get("foo"));
+        assertEquals("/path/a", context.getDataSource());
+        assertEquals("a", context.getOption("OPTION"));
+        assertNull(context.getOption("other"));
+        assertEquals("baz", copy.getConfiguration().get("foo"));
+        assertEquals("/path/b", copy.getDataSource());
+        assertEquals("b", copy.getOption("OPTION"));
+        assertSame(context.getTupleDescription(), copy.getTupleDescription());
+    }
 }
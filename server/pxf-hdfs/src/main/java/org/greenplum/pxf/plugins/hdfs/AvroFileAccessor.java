@@ -37,14 +37,17 @@ import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
 import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
 import org.greenplum.pxf.api.utilities.SpringContext;
 import org.greenplum.pxf.plugins.hdfs.avro.AvroUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.FileRollingPolicy;
 
 import java.io.IOException;
 
 /**
  * A PXF Accessor for Avro File records
  */
+@PartitionedWriteHandler
 public class AvroFileAccessor extends HdfsSplittableDataAccessor {
 
     private static final String COMPRESSION_CODEC_OPTION = "COMPRESSION_CODEC";
@@ -166,7 +169,10 @@ public class AvroFileAccessor extends HdfsSplittableDataAccessor {
                 throw new RuntimeException(String.format("Avro Compression codec %s not supported", codec));
         }
 
-        Path file = new Path(hcfsType.getUriForWrite(context) + ".avro");
+        // the rows are always written to a single file
+        FileRollingPolicy rollingPolicy = new FileRollingPolicy(0, 0, context.isSkipExistingFiles());
+        Path file = new Path(rollingPolicy.getFileName(
+                fileIndex -> hcfsType.getUriForWrite(context, fileIndex, ".avro", null), jobConf));
         FileSystem fs = file.getFileSystem(jobConf);
         FSDataOutputStream avroOut = null;
         try {
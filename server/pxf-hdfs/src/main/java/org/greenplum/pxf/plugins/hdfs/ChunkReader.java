@@ -25,22 +25,25 @@ import org.apache.hadoop.io.Writable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A class that provides a line reader from an input stream. Lines are
  * terminated by '\n' (LF) EOF also terminates an otherwise unterminated line.
+ * <p>
+ * The lines and chunks read are not copied, the {@link ChunkWritable} is set
+ * to a range of the buffer of the reader, so they are only valid until the
+ * next read.
  */
 public class ChunkReader implements Closeable {
     public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-    private int bufferSize = DEFAULT_BUFFER_SIZE;
-    private InputStream in;
+    private final InputStream in;
     private byte[] buffer;
     // the number of bytes of real data in the buffer
     private int bufferLength = 0;
     // the current position in the buffer
     private int bufferPosn = 0;
+    private boolean eof = false;
     private static final byte LF = '\n';
 
     /**
@@ -50,7 +53,7 @@ public class ChunkReader implements Closeable {
      */
     public ChunkReader(InputStream in) {
         this.in = in;
-        this.buffer = new byte[this.bufferSize];
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
     }
 
     /**
@@ -61,85 +64,31 @@ public class ChunkReader implements Closeable {
         in.close();
     }
 
-    /*
-     * Internal class used for holding part of a chunk brought by one read()
-     * operation on the input stream. We collect several such nodes in a list by
-     * doing several read operation until we reach the chunk size -
-     * maxBytesToConsume
-     */
-    private class Node {
-        /* part of a chunk brought in a single inputstream.read() operation */
-        public byte[] slice;
-        /* the size of the slice */
-        public int len;
-    }
-
     /**
-     * Reads data in chunks of DEFAULT_CHUNK_SIZE, until we reach
-     * maxBytesToConsume.
+     * Reads a chunk of complete lines of at most maxBytesToConsume bytes. If
+     * the first line is longer than maxBytesToConsume, the chunk is that line
+     * alone. The chunk only ends without a line feed at the end of the
+     * stream.
      *
-     * @param str               - output parameter, will contain the read chunk byte array
+     * @param str               - output parameter, will contain the read chunk
      * @param maxBytesToConsume - requested chunk size
-     * @return actual chunk size
+     * @return actual chunk size, 0 at the end of the stream
      * @throws IOException if the first byte cannot be read for any reason
      *                     other than the end of the file, if the input stream has been closed,
      *                     or if some other I/O error occurs.
      */
     public int readChunk(Writable str, int maxBytesToConsume) throws IOException {
         ChunkWritable cw = (ChunkWritable) str;
-        List<Node> list = new LinkedList<Node>();
-
-        long bytesConsumed = 0;
 
-        do {
-            if (bufferLength > 0) {
-                int remaining = bufferLength - bufferPosn;
-                Node nd = new Node();
-                nd.slice = new byte[remaining];
-                nd.len = remaining;
-                System.arraycopy(buffer, bufferPosn, nd.slice, 0, nd.len);
-                list.add(nd);
-                bytesConsumed += nd.len;
-            } else {
-                Node nd = new Node();
-                nd.slice = new byte[buffer.length];
-                nd.len = in.read(nd.slice);
-                if (nd.len <= 0) {
-                    break; // EOF
-                }
-                bytesConsumed += nd.len;
-                list.add(nd);
+        int available = fill(maxBytesToConsume);
+        int limit = bufferPosn + Math.min(available, maxBytesToConsume);
+        for (int i = limit - 1; i >= bufferPosn; i--) { // search for the last newline
+            if (buffer[i] == LF) {
+                return consume(cw, i + 1 - bufferPosn);
             }
-
-            bufferLength = bufferPosn = 0;
-
-        } while (bytesConsumed < maxBytesToConsume);
-
-        copyListToChunkWritable(cw, list, bytesConsumed);
-
-        return (int) bytesConsumed;
-    }
-
-    /**
-     * This function iterates over the list of nodes and copies data to ChunkWritable.box array
-     *
-     * @param cw            ChunkWritable Object
-     * @param nodeList      List containing the Node Object
-     * @param bytesConsumed chunk size
-     */
-    private void copyListToChunkWritable(ChunkWritable cw, List<Node> nodeList, long bytesConsumed) {
-
-        if (nodeList.isEmpty()) {
-            return;
-        }
-
-        cw.box = new byte[(int) bytesConsumed];
-        int pos = 0;
-        for (Node node : nodeList) {
-            int len = node.len;
-            System.arraycopy(node.slice, 0, cw.box, pos, len);
-            pos += len;
         }
+        // the first line is longer than the chunk, or unterminated
+        return readLine(cw, Integer.MAX_VALUE);
     }
 
     /**
@@ -147,51 +96,89 @@ public class ChunkReader implements Closeable {
      *
      * @param str               - output parameter, will contain the read record
      * @param maxBytesToConsume - the line mustn't exceed this value
-     * @return length of the line read
+     * @return length of the line read, 0 at the end of the stream
      * @throws IOException if the first byte cannot be read for any reason
      *                     other than the end of the file, if the input stream has been closed,
      *                     or if some other I/O error occurs.
      */
     public int readLine(Writable str, int maxBytesToConsume) throws IOException {
-        ChunkWritable cw = (ChunkWritable) str;
-        List<Node> list = new LinkedList<>();
-
-        boolean newLine = false; // length of terminating newline
-        long bytesConsumed = 0;
+        return consume((ChunkWritable) str, lineLength(maxBytesToConsume));
+    }
 
-        do {
-            int startPosn = bufferPosn; // starting from where we left off the last time
-            if (bufferPosn >= bufferLength) {
-                startPosn = bufferPosn = 0;
+    /**
+     * Skips a line terminated by LF.
+     *
+     * @param maxBytesToConsume - the maximum number of bytes to skip
+     * @return length of the line skipped, 0 at the end of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    public int skipLine(int maxBytesToConsume) throws IOException {
+        return consume(null, lineLength(maxBytesToConsume));
+    }
 
-                bufferLength = in.read(buffer);
-                if (bufferLength <= 0) {
-                    break; // EOF
-                }
+    /*
+     * Returns the length of the line starting at the current position,
+     * including its newline, reading more data into the buffer as needed
+     */
+    private int lineLength(int maxBytesToConsume) throws IOException {
+        int scanned = 0;
+        while (scanned < maxBytesToConsume) {
+            int available = fill(scanned + 1);
+            if (available <= scanned) {
+                break; // EOF
             }
-
-            for (; bufferPosn < bufferLength; ++bufferPosn) { // search for newline
-                if (buffer[bufferPosn] == LF) {
-                    newLine = true;
-                    ++bufferPosn; // at next invocation proceed from following byte
-                    break;
+            int limit = bufferPosn + available;
+            for (int i = bufferPosn + scanned; i < limit; i++) { // search for newline
+                if (buffer[i] == LF) {
+                    return i + 1 - bufferPosn;
                 }
             }
+            scanned = available;
+        }
+        return scanned;
+    }
 
-            int readLength = bufferPosn - startPosn;
-            bytesConsumed += readLength;
-
-            if (readLength > 0) {
-                Node nd = new Node();
-                nd.slice = new byte[readLength];
-                nd.len = readLength;
-                System.arraycopy(buffer, startPosn, nd.slice, 0, nd.len);
-                list.add(nd);
-            }
-        } while (!newLine && bytesConsumed < maxBytesToConsume);
+    /*
+     * Sets the chunk to the next length bytes of the buffer and moves past them
+     */
+    private int consume(ChunkWritable cw, int length) {
+        if (cw != null) {
+            cw.set(buffer, bufferPosn, length);
+        }
+        bufferPosn += length;
+        return length;
+    }
 
-        copyListToChunkWritable(cw, list, bytesConsumed);
+    /*
+     * Reads from the stream until at least minAvailable bytes are available
+     * in the buffer past the current position, or the stream ends. The
+     * unread bytes are moved to the start of the buffer first, and the buffer
+     * grows when it cannot hold minAvailable bytes.
+     *
+     * Returns the number of bytes available past the current position
+     */
+    private int fill(int minAvailable) throws IOException {
+        int available = bufferLength - bufferPosn;
+        if (available >= minAvailable || eof) {
+            return available;
+        }
 
-        return (int) bytesConsumed;
+        if (bufferPosn > 0) {
+            System.arraycopy(buffer, bufferPosn, buffer, 0, available);
+            bufferPosn = 0;
+            bufferLength = available;
+        }
+        if (buffer.length < minAvailable) {
+            buffer = Arrays.copyOf(buffer, Math.max(minAvailable, (int) Math.min(2L * buffer.length, Integer.MAX_VALUE - 8)));
+        }
+        while (bufferLength < minAvailable) {
+            int n = in.read(buffer, bufferLength, buffer.length - bufferLength);
+            if (n <= 0) {
+                eof = true;
+                break;
+            }
+            bufferLength += n;
+        }
+        return bufferLength;
     }
 }
@@ -22,14 +22,10 @@ package org.greenplum.pxf.plugins.hdfs;
 
 import static org.apache.hadoop.mapreduce.lib.input.LineRecordReader.MAX_LINE_LENGTH;
 
-import java.io.InputStream;
-import java.io.IOException;
-
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.fs.Seekable;
 import org.apache.hadoop.hdfs.DFSInputStream;
 import org.apache.hadoop.hdfs.DFSInputStream.ReadStatistics;
 import org.apache.hadoop.io.IOUtils;
@@ -38,34 +34,54 @@ import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.io.compress.Decompressor;
-import org.apache.hadoop.io.compress.SplitCompressionInputStream;
 import org.apache.hadoop.io.compress.SplittableCompressionCodec;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.RecordReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * ChunkRecordReader is designed for fast reading of a file split. The idea is
  * to bring chunks of data instead of single records. The chunks contain many
- * records and the chunk end is not aligned on a record boundary. The size of
- * the chunk is a class hardcoded parameter - CHUNK_SIZE. This behaviour sets
- * this reader apart from the other readers which will fetch one record and stop
- * when reaching a record delimiter.
+ * complete records, terminated by '\n' (LF), and are passed as is to the
+ * response. The size of the chunk is a class hardcoded parameter -
+ * CHUNK_SIZE. This behaviour sets this reader apart from the other readers
+ * which will fetch one record and stop when reaching a record delimiter.
+ * <p>
+ * The split owns the same records as with a LineRecordReader: every record
+ * that starts within the split, except the first one when the split does not
+ * start the file. Files compressed with a codec that is not splittable are
+ * read from start to end, files compressed with a splittable codec are not
+ * supported. As with a LineRecordReader, the records that are not shorter
+ * than the MAX_LINE_LENGTH of the configuration, including their linefeed,
+ * are skipped.
+ * <p>
+ * The chunks are ranges of the buffer of the reader, so a chunk is only valid
+ * until the next chunk is read.
  */
 public class ChunkRecordReader implements
         RecordReader<LongWritable, ChunkWritable> {
 
-    private CompressionCodecFactory compressionCodecs = null;
-    private long start;
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkRecordReader.class);
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final byte LF = '\n';
+
+    private final long start;
+    private final long end;
+    private final long splitEnd;
     private long pos;
-    private long end;
-    private long fileLength;
-    private ChunkReader in;
-    private FSDataInputStream fileIn;
-    private final Seekable filePosition;
-    private int maxLineLength;
-    private CompressionCodec codec;
+    private final int maxLineLength;
+    private final ChunkReader in;
+    private final FSDataInputStream fileIn;
     private Decompressor decompressor;
-    private static final int CHUNK_SIZE = 1024 * 1024;
+    // a lock rather than monitors, so that a virtual thread blocked on I/O
+    // while holding it does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * Translates the FSDataInputStream into a DFSInputStream.
@@ -75,7 +91,6 @@ public class ChunkRecordReader implements
         if (inputStream instanceof DFSInputStream) {
             return (DFSInputStream) inputStream;
         } else {
-            IOUtils.closeStream(fileIn);
             throw new IncompatibleInputStreamException(inputStream.getClass());
         }
     }
@@ -86,6 +101,7 @@ public class ChunkRecordReader implements
      * descriptor).
      *
      * @return an instance of ReadStatistics class
+     * @throws IncompatibleInputStreamException if the file is not read from HDFS
      */
     public ReadStatistics getReadStatistics() throws IncompatibleInputStreamException {
         return getInputStream().getReadStatistics();
@@ -99,50 +115,75 @@ public class ChunkRecordReader implements
      *            bytes length
      * @throws IOException if an I/O error occurs when accessing the file or
      *             creating input stream to read from it
+     * @throws IncompatibleInputStreamException if the file is compressed
+     *             with a splittable codec
      */
     public ChunkRecordReader(Configuration job, FileSplit split)
             throws IOException, IncompatibleInputStreamException {
+        this(job, split, 0);
+    }
+
+    /**
+     * Constructs a ChunkRecordReader instance that skips the given number of
+     * header lines when the split starts the file.
+     *
+     * @param job the job configuration
+     * @param split contains the file name, begin byte of the split and the
+     *            bytes length
+     * @param skipHeaderCount the number of header lines to skip
+     * @throws IOException if an I/O error occurs when accessing the file or
+     *             creating input stream to read from it
+     * @throws IncompatibleInputStreamException if the file is compressed
+     *             with a splittable codec
+     */
+    public ChunkRecordReader(Configuration job, FileSplit split, int skipHeaderCount)
+            throws IOException, IncompatibleInputStreamException {
         maxLineLength = job.getInt(MAX_LINE_LENGTH, Integer.MAX_VALUE);
         validateLength(maxLineLength);
-        start = split.getStart();
-        end = start + split.getLength();
         final Path file = split.getPath();
-        compressionCodecs = new CompressionCodecFactory(job);
-        codec = compressionCodecs.getCodec(file);
+        final CompressionCodec codec = new CompressionCodecFactory(job).getCodec(file);
+        if (codec instanceof SplittableCompressionCodec) {
+            // records of splittable codecs are owned by compressed blocks,
+            // the LineRecordReader handles them
+            throw new IncompatibleInputStreamException(String.format(
+                    "Codec %s is splittable", codec.getClass().getName()));
+        }
+
+        long splitStart = split.getStart();
+        splitEnd = splitStart + split.getLength();
 
-        // openForWrite the file and seek to the start of the split
+        // open the file and seek to the start of the split
         final FileSystem fs = file.getFileSystem(job);
         fileIn = fs.open(file, ChunkReader.DEFAULT_BUFFER_SIZE);
-        fileLength = getInputStream().getFileLength();
-        if (isCompressedInput()) {
-            decompressor = CodecPool.getDecompressor(codec);
-            if (codec instanceof SplittableCompressionCodec) {
-                final SplitCompressionInputStream cIn = ((SplittableCompressionCodec) codec).createInputStream(
-                        fileIn, decompressor, start, end,
-                        SplittableCompressionCodec.READ_MODE.BYBLOCK);
-                in = new ChunkReader(cIn);
-                start = cIn.getAdjustedStart();
-                end = cIn.getAdjustedEnd();
-                filePosition = cIn; // take pos from compressed stream
+        try {
+            if (codec != null) {
+                // the file is a single split, read it to the end
+                decompressor = CodecPool.getDecompressor(codec);
+                in = new ChunkReader(codec.createInputStream(fileIn, decompressor));
+                end = Long.MAX_VALUE;
             } else {
-                in = new ChunkReader(codec.createInputStream(fileIn,
-                        decompressor));
-                filePosition = fileIn;
+                fileIn.seek(splitStart);
+                in = new ChunkReader(fileIn);
+                end = splitEnd;
             }
-        } else {
-            fileIn.seek(start);
-            in = new ChunkReader(fileIn);
-            filePosition = fileIn;
-        }
-        /*
-         * If this is not the first split, we always throw away first record
-         * because we always (except the last split) read one extra line in
-         * next() method.
-         */
-        if (start != 0) {
-            start += in.readLine(new ChunkWritable(), maxBytesToConsume(start));
+
+            /*
+             * If this is not the first split, we always throw away first record
+             * because the previous split reads the record it ends in.
+             */
+            if (splitStart != 0) {
+                splitStart += in.skipLine(Integer.MAX_VALUE);
+            } else {
+                for (int i = 0; i < skipHeaderCount; i++) {
+                    splitStart += in.skipLine(Integer.MAX_VALUE);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
         }
-        this.pos = start;
+        start = splitStart;
+        pos = start;
     }
 
     /**
@@ -168,85 +209,108 @@ public class ChunkRecordReader implements
     }
 
     /**
-     * Fetches the next data chunk from the file split. The size of the chunk is
-     * a class hardcoded parameter - CHUNK_SIZE. This behaviour sets this reader
-     * apart from the other readers which will fetch one record and stop when
-     * reaching a record delimiter.
+     * Fetches the next data chunk from the file split. The chunk holds the
+     * complete records that fit in CHUNK_SIZE bytes, or a single record
+     * when it is larger. The records that start after the end of the split
+     * are left to the next split, the last record of the file is terminated
+     * with a linefeed when it is not.
      *
      * @param key - output parameter. When method returns will contain the key -
      *            the number of the start byte of the chunk
      * @param value - output parameter. When method returns will contain the
-     *            value - the chunk, a byte array inside the ChunkWritable
-     *            instance
+     *            value - the chunk, a range of a byte array inside the
+     *            ChunkWritable instance
      * @return false - when end of split was reached
      * @throws IOException if an I/O error occurred while reading the next chunk
-     *             or line
      */
     @Override
-    public synchronized boolean next(LongWritable key, ChunkWritable value)
+    public boolean next(LongWritable key, ChunkWritable value)
             throws IOException {
-        /*
-         * Usually a record is spread between the end of current split and the
-         * beginning of next split. So when reading the last record in the split
-         * we usually need to cross over to the next split. This tricky logic is
-         * implemented in ChunkReader.readLine(). In order not to rewrite this
-         * logic we will read the lust chunk in the split with readLine(). For a
-         * split of 120M, reading the last 1M line by line doesn't have a huge
-         * impact. Applying a factor to the last chunk to make sure we start
-         * before the last record.
-         */
-        float factor = 1.5f;
-        int limit = (int) (factor * CHUNK_SIZE);
-        long curPos = getFilePosition();
-        int newSize = 0;
+        lock.lock();
+        try {
+            return nextChunk(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        while (curPos <= end) {
+    private boolean nextChunk(LongWritable key, ChunkWritable value) throws IOException {
+        while (pos <= end) {
             key.set(pos);
 
-            if ((end - curPos) > limit) {
-                newSize = in.readChunk(value, CHUNK_SIZE);
-            } else {
-                newSize = in.readLine(value,
-                        Math.max(maxBytesToConsume(pos), maxLineLength));
+            /*
+             * A chunk of at most (end - pos + 1) bytes only holds records that
+             * start within the split. When the record at the end of the split is
+             * longer, the chunk is that record alone and the next call stops.
+             */
+            int size = in.readChunk(value, end - pos >= CHUNK_SIZE ? CHUNK_SIZE : (int) (end - pos + 1));
+            if (size == 0) {
+                return false;
             }
-            if (newSize == 0) {
-                break;
-            }
-
-            pos += newSize;
+            pos += size;
 
-            if (pos == fileLength) { /*
-                                      * in case text file last character is not
-                                      * a linefeed
-                                      */
-                if (value.box[value.box.length - 1] != '\n') {
-                    int newLen = value.box.length + 1;
-                    byte[] tmp = new byte[newLen];
-                    System.arraycopy(value.box, 0, tmp, 0, newLen - 1);
-                    tmp[newLen - 1] = '\n';
-                    value.box = tmp;
+            if (maxLineLength < Integer.MAX_VALUE) {
+                removeLongLines(value);
+                if (value.length == 0) {
+                    continue;
                 }
             }
 
+            if (value.box[value.offset + value.length - 1] != LF) {
+                // in case text file last character is not a linefeed
+                byte[] tmp = Arrays.copyOfRange(value.box, value.offset, value.offset + value.length + 1);
+                tmp[value.length] = LF;
+                value.set(tmp, 0, tmp.length);
+            }
             return true;
         }
-        /*
-         * if we got here, either newSize was 0 or curPos is bigger than end
-         */
-
         return false;
     }
 
+    /*
+     * Removes the lines that are not shorter than maxLineLength, including
+     * their linefeed, from the chunk by moving the following lines over them
+     */
+    private void removeLongLines(ChunkWritable value) {
+        byte[] box = value.box;
+        int chunkEnd = value.offset + value.length;
+        int target = value.offset;
+        int lineStart = value.offset;
+        while (lineStart < chunkEnd) {
+            int lineEnd = lineStart;
+            while (lineEnd < chunkEnd && box[lineEnd] != LF) {
+                lineEnd++;
+            }
+            if (lineEnd < chunkEnd) {
+                lineEnd++; // the linefeed
+            }
+            int lineLength = lineEnd - lineStart;
+            if (lineLength < maxLineLength) {
+                System.arraycopy(box, lineStart, box, target, lineLength);
+                target += lineLength;
+            } else {
+                LOG.info("Skipped line of size {} at pos {}", lineLength, pos - (chunkEnd - lineStart));
+            }
+            lineStart = lineEnd;
+        }
+        value.set(box, value.offset, target - value.offset);
+    }
+
     /**
      * Gets the progress within the split.
      */
     @Override
-    public synchronized float getProgress() throws IOException {
-        if (start == end) {
-            return 0.0f;
-        } else {
-            return Math.min(1.0f, (getFilePosition() - start)
-                    / (float) (end - start));
+    public float getProgress() throws IOException {
+        lock.lock();
+        try {
+            if (start >= splitEnd) {
+                return 0.0f;
+            } else {
+                return Math.min(1.0f, (fileIn.getPos() - start)
+                        / (float) (splitEnd - start));
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -256,23 +320,33 @@ public class ChunkRecordReader implements
      * @return pos - start byte of the unread tail of the file
      */
     @Override
-    public synchronized long getPos() throws IOException {
-        return pos;
+    public long getPos() throws IOException {
+        lock.lock();
+        try {
+            return pos;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Closes the input stream.
      */
     @Override
-    public synchronized void close() throws IOException {
+    public void close() throws IOException {
+        lock.lock();
         try {
             if (in != null) {
                 in.close();
+            } else {
+                IOUtils.closeStream(fileIn);
             }
         } finally {
             if (decompressor != null) {
                 CodecPool.returnDecompressor(decompressor);
+                decompressor = null;
             }
+            lock.unlock();
         }
     }
 
@@ -281,23 +355,4 @@ public class ChunkRecordReader implements
             throw new IllegalArgumentException(
                     "maxLineLength must be a positive value");
     }
-
-    private boolean isCompressedInput() {
-        return (codec != null);
-    }
-
-    private int maxBytesToConsume(long pos) {
-        return isCompressedInput() ? Integer.MAX_VALUE : (int) Math.min(
-                Integer.MAX_VALUE, end - pos);
-    }
-
-    private long getFilePosition() throws IOException {
-        long retVal;
-        if (isCompressedInput() && null != filePosition) {
-            retVal = filePosition.getPos();
-        } else {
-            retVal = pos;
-        }
-        return retVal;
-    }
-} // class ChunkRecordReader
+}
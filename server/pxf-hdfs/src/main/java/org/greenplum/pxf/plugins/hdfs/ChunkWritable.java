@@ -28,10 +28,29 @@ import org.apache.hadoop.io.Writable;
 
 /**
  * Just an output buffer for the ChunkRecordReader. It must extend Writable
- * otherwise it will not fit into the next() interface method
+ * otherwise it will not fit into the next() interface method.
+ * <p>
+ * The chunk is the range [offset, offset + length) of the box, the box is
+ * usually the buffer of the reader, so the chunk is only valid until the
+ * next chunk is read.
  */
 public class ChunkWritable implements Writable {
 	public byte [] box;
+	public int offset;
+	public int length;
+
+    /**
+     * Sets the chunk to a range of the given array, the bytes are not copied.
+     *
+     * @param box    the array holding the chunk
+     * @param offset the offset of the chunk in the array
+     * @param length the length of the chunk
+     */
+    public void set(byte[] box, int offset, int length) {
+        this.box = box;
+        this.offset = offset;
+        this.length = length;
+    }
 
 	/**
      * Serializes the fields of this object to <code>out</code>.
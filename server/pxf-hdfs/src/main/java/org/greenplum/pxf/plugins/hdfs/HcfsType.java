@@ -145,11 +145,33 @@ public enum HcfsType {
      * @return an absolute data path for write
      */
     public String getUriForWrite(RequestContext context, String extension, CompressionCodec compressionCodec) {
+        return getUriForWrite(context, 0, extension, compressionCodec);
+    }
+
+    /**
+     * Returns a unique fully resolved URI including the protocol for the
+     * file with the given index, when a segment writes its rows to several
+     * files. The first file is named as described in
+     * {@link #getUriForWrite(RequestContext, String, CompressionCodec)}, the
+     * index of the following files is appended to the name, resulting in
+     * <TRANSACTION-ID>_<SEGMENT-ID>_<FILE-INDEX>.
+     *
+     * @param context          the input data parameters
+     * @param fileIndex        the index of the file written by the segment, starting at 0
+     * @param extension        the extension for the file type to use before the compression extension
+     * @param compressionCodec the compression coded used for the extension
+     * @return an absolute data path for write
+     */
+    public String getUriForWrite(RequestContext context, int fileIndex, String extension, CompressionCodec compressionCodec) {
         String fileName = String.format("%s/%s_%d",
                 StringUtils.removeEnd(getDataUri(context), "/"),
                 context.getTransactionId(),
                 context.getSegmentId());
 
+        if (fileIndex > 0) {
+            fileName += "_" + fileIndex;
+        }
+
         if (extension != null) {
             // append type extension to the filename
             fileName += extension.startsWith(".") ? extension : "." + extension;
@@ -35,6 +35,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.apache.hadoop.mapreduce.lib.input.FileInputFormat.DEFAULT_LIST_STATUS_NUM_THREADS;
+import static org.apache.hadoop.mapreduce.lib.input.FileInputFormat.LIST_STATUS_NUM_THREADS;
+
 /**
  * Fragmenter class for HDFS data resources.
  * <p>
@@ -45,6 +48,7 @@ import java.util.List;
 public class HdfsDataFragmenter extends BaseFragmenter {
 
     protected static final String IGNORE_MISSING_PATH_OPTION = "IGNORE_MISSING_PATH";
+    protected static final String LIST_STATUS_THREADS_OPTION = "LIST_STATUS_THREADS";
 
     private JobConf jobConf;
     protected HcfsType hcfsType;
@@ -129,9 +133,26 @@ public class HdfsDataFragmenter extends BaseFragmenter {
         return result;
     }
 
+    /**
+     * Returns the JobConf used to list the files of the data source. The
+     * files are listed with the number of threads given by the
+     * LIST_STATUS_THREADS option, or by the
+     * mapreduce.input.fileinputformat.list-status.num-threads property of
+     * the server configuration when the option is not provided.
+     *
+     * @return the JobConf used to list the files of the data source
+     */
     protected JobConf getJobConf() {
         if (jobConf == null) {
             jobConf = new JobConf(configuration, this.getClass());
+            int listStatusThreads = context.getOption(LIST_STATUS_THREADS_OPTION,
+                    jobConf.getInt(LIST_STATUS_NUM_THREADS, DEFAULT_LIST_STATUS_NUM_THREADS), true);
+            if (listStatusThreads == 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Property %s has incorrect value 0 : must be a positive integer", LIST_STATUS_THREADS_OPTION));
+            }
+            LOG.debug("Listing files with {} thread{}", listStatusThreads, listStatusThreads == 1 ? "" : "s");
+            jobConf.setInt(LIST_STATUS_NUM_THREADS, listStatusThreads);
         }
         return jobConf;
     }
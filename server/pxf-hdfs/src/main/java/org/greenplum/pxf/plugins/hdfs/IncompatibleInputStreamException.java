@@ -5,4 +5,8 @@ public class IncompatibleInputStreamException extends Exception {
     public IncompatibleInputStreamException(Class actualClass) {
         super(String.format("Class %s is not a subclass of DFSInputStream", actualClass));
     }
+
+    public IncompatibleInputStreamException(String message) {
+        super(message);
+    }
 }
@@ -31,7 +31,10 @@ import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.LineRecordReader;
 import org.apache.hadoop.mapred.TextInputFormat;
 import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.hdfs.utilities.FileRollingPolicy;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.io.DataOutputStream;
@@ -42,18 +45,30 @@ import java.nio.charset.StandardCharsets;
 
 /**
  * A PXF Accessor for reading delimited plain text records.
+ * <p>
+ * On write, the rows are written to a new file whenever the current file
+ * reaches the MAX_FILE_SIZE or MAX_ROWS_PER_FILE of the request. Rows are
+ * terminated by the NEWLINE of the table, for the CSV format newlines within
+ * quoted values do not terminate the row.
  */
+@PartitionedWriteHandler
 public class LineBreakAccessor extends HdfsSplittableDataAccessor {
 
     private static final int DEFAULT_BUFFER_SIZE = 8192;
     public static final String PXF_CHUNK_RECORD_READER_ENABLED = "pxf.reader.chunk-record-reader.enabled";
-    public static final boolean PXF_CHUNK_RECORD_READER_DEFAULT = false;
+    public static final boolean PXF_CHUNK_RECORD_READER_DEFAULT = true;
 
     private int skipHeaderCount;
     protected DataOutputStream dos;
     private FSDataOutputStream fsdos;
     private FileSystem fs;
     private Path file;
+    private CompressionCodec codec;
+    private FileRollingPolicy rollingPolicy;
+    // the state of the row being written when the rows are streamed from Greenplum
+    private boolean atRowStart = true;
+    private boolean inQuote;
+    private boolean escaped;
 
     /**
      * Constructs a LineBreakAccessor.
@@ -89,11 +104,14 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
     protected Object getReader(JobConf jobConf, InputSplit split)
             throws IOException {
 
-        // Disable the ChunkRecordReader by default, but it can be enabled by
-        // setting the `pxf.reader.chunk-record-reader.enabled` property to true
-        if (configuration.getBoolean(PXF_CHUNK_RECORD_READER_ENABLED, PXF_CHUNK_RECORD_READER_DEFAULT)) {
+        // The ChunkRecordReader is used by default, but it can be disabled by
+        // setting the `pxf.reader.chunk-record-reader.enabled` property to false
+        if (isChunkRecordReaderSupported()) {
             try {
-                return new ChunkRecordReader(jobConf, (FileSplit) split);
+                ChunkRecordReader chunkRecordReader = new ChunkRecordReader(jobConf, (FileSplit) split, skipHeaderCount);
+                // the header lines are skipped by the reader
+                skipHeaderCount = 0;
+                return chunkRecordReader;
             } catch (IncompatibleInputStreamException e) {
                 // ignore and fallback to using LineRecordReader
                 LOG.debug("Failed to use ChunkRecordReader, falling back to LineRecordReader : " + e.getMessage());
@@ -103,6 +121,21 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
                 context.getGreenplumCSV().getNewline().getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Returns whether the lines can be passed as is to the response in chunks
+     * of many lines, rather than line by line. The lines must be terminated by
+     * a linefeed alone, so that a chunk ends where a line ends, and must be
+     * resolved by the {@link StringPassResolver} into the TEXT output format.
+     *
+     * @return true if the ChunkRecordReader can be used, false otherwise
+     */
+    private boolean isChunkRecordReaderSupported() {
+        return configuration.getBoolean(PXF_CHUNK_RECORD_READER_ENABLED, PXF_CHUNK_RECORD_READER_DEFAULT)
+                && StringPassResolver.class.getName().equals(context.getResolver())
+                && context.getOutputFormat() == OutputFormat.TEXT
+                && "\n".equals(context.getGreenplumCSV().getNewline());
+    }
+
     @Override
     public OneRow readNextObject() throws IOException {
         while (skipHeaderCount > 0) {
@@ -120,16 +153,10 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
     public boolean openForWrite() throws IOException {
         String compressCodec = context.getOption("COMPRESSION_CODEC");
         // get compression codec
-        CompressionCodec codec = compressCodec != null ?
+        codec = compressCodec != null ?
                 getCodec(compressCodec) : null;
-        String fileName = hcfsType.getUriForWrite(context, getFileExtension(), codec);
-
-        file = new Path(fileName);
-        fs = FileSystem.get(URI.create(fileName), configuration);
-        HdfsUtilities.validateFile(file, fs);
-
-        // create output stream - do not allow overwriting existing file
-        createOutputStream(file, codec);
+        rollingPolicy = FileRollingPolicy.forRequest(context);
+        createFile();
         return true;
     }
 
@@ -147,6 +174,9 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
 
             InputStream inputStream = (InputStream) onerow.getData();
             final byte[] buffer = new byte[bufferSize];
+            if (rollingPolicy.isEnabled()) {
+                return writeRows(inputStream, buffer);
+            }
 
             // The logic below is copied from IOUtils.copyLarge to add logging
             long totalByteCount = 0;
@@ -170,16 +200,79 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
             LOG.debug("Wrote {} bytes to outputStream using a buffer of size {}", totalByteCount, bufferSize);
             return totalByteCount > 0;
         } else {
+            if (rollingPolicy.isFileFull(fsdos::getPos)) {
+                rollFile();
+            }
             dos.write((byte[]) onerow.getData());
+            rollingPolicy.addRows(1);
         }
         return true;
     }
 
+    /**
+     * Copies the rows streamed from Greenplum to the files, rolling over to a
+     * new file at the start of a row when the current file is full.
+     *
+     * @param inputStream the rows streamed from Greenplum
+     * @param buffer      the buffer used for the copy
+     * @return true if any bytes were written, false otherwise
+     * @throws IOException if reading the rows or writing the files failed
+     */
+    private boolean writeRows(InputStream inputStream, byte[] buffer) throws IOException {
+        String newline = context.getGreenplumCSV().getNewline();
+        byte rowEnd = (byte) newline.charAt(newline.length() - 1);
+        boolean isCsv = "csv".equalsIgnoreCase(context.getFormat());
+        byte quote = (byte) context.getGreenplumCSV().getQuote();
+        Character escapeChar = context.getGreenplumCSV().getEscape();
+        byte escape = escapeChar != null ? (byte) escapeChar.charValue() : quote;
+
+        long totalByteCount = 0;
+        int n;
+        while (-1 != (n = inputStream.read(buffer))) {
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                byte b = buffer[i];
+                if (atRowStart) {
+                    long pending = i - start;
+                    if (rollingPolicy.isFileFull(() -> fsdos.getPos() + pending)) {
+                        dos.write(buffer, start, i - start);
+                        start = i;
+                        rollFile();
+                    }
+                    atRowStart = false;
+                }
+                if (escaped) {
+                    escaped = false;
+                } else if (isCsv && inQuote && b == escape && escape != quote) {
+                    escaped = true;
+                } else if (isCsv && b == quote) {
+                    // a doubled quote within a quoted value toggles twice
+                    inQuote = !inQuote;
+                } else if (b == rowEnd && !inQuote) {
+                    rollingPolicy.addRows(1);
+                    atRowStart = true;
+                }
+            }
+            dos.write(buffer, start, n - start);
+            totalByteCount += n;
+        }
+
+        LOG.debug("Wrote {} bytes to {} files", totalByteCount, rollingPolicy.getFileIndex() + 1);
+        return totalByteCount > 0;
+    }
+
     /**
      * Closes the output stream after done writing.
      */
     @Override
     public void closeForWrite() throws IOException {
+        closeFile();
+    }
+
+    /**
+     * Closes the output stream of the current file
+     */
+    private void closeFile() throws IOException {
         if ((dos != null) && (fsdos != null)) {
             LOG.debug("Closing writing stream for path {}", file);
             dos.flush();
@@ -195,6 +288,31 @@ public class LineBreakAccessor extends HdfsSplittableDataAccessor {
         }
     }
 
+    /**
+     * Closes the current file and creates the next one
+     */
+    private void rollFile() throws IOException {
+        closeFile();
+        rollingPolicy.nextFile();
+        createFile();
+    }
+
+    /*
+     * Creates the file with the current index of the rolling policy, and its
+     * output stream.
+     */
+    private void createFile() throws IOException {
+        String fileName = rollingPolicy.getFileName(
+                fileIndex -> hcfsType.getUriForWrite(context, fileIndex, getFileExtension(), codec), configuration);
+
+        file = new Path(fileName);
+        fs = FileSystem.get(URI.create(fileName), configuration);
+        HdfsUtilities.validateFile(file, fs);
+
+        // create output stream - do not allow overwriting existing file
+        createOutputStream(file, codec);
+    }
+
     /*
      * Creates output stream from given file. If compression codec is provided,
      * wrap it around stream.
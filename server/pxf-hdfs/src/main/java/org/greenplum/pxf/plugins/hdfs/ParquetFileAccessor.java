@@ -21,6 +21,7 @@ package org.greenplum.pxf.plugins.hdfs;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
@@ -36,6 +37,8 @@ import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.ParquetFileWriter;
 import org.apache.parquet.hadoop.ParquetOutputFormat;
 import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
 import org.apache.parquet.hadoop.example.GroupReadSupport;
 import org.apache.parquet.hadoop.example.GroupWriteSupport;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
@@ -59,11 +62,13 @@ import org.greenplum.pxf.api.filter.TreeVisitor;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Accessor;
 import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.filter.BPCharOperatorTransformer;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetOperatorPruner;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetRecordFilterBuilder;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.FileRollingPolicy;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.io.IOException;
@@ -92,7 +97,13 @@ import static org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalType
 /**
  * Parquet file accessor.
  * Unit of operation is record.
+ * <p>
+ * On write, the rows are written to a new file whenever the current file
+ * reaches the MAX_FILE_SIZE or MAX_ROWS_PER_FILE of the request, the size of
+ * a file includes the encoded rows buffered for its current row group. Every
+ * file is closed with its own footer.
  */
+@PartitionedWriteHandler
 public class ParquetFileAccessor extends BasePlugin implements Accessor {
 
     private static final int DEFAULT_ROWGROUP_SIZE = 8 * 1024 * 1024;
@@ -130,11 +141,12 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
 
     private ParquetReader<Group> fileReader;
     private CompressionCodecName codecName;
-    private RecordWriter<Void, Group> recordWriter;
-    private GroupWriteSupport groupWriteSupport;
+    private RowWriter<Group> parquetWriter;
+    private HcfsType hcfsType;
     private FileSystem fs;
     private Path file;
-    private String filePrefix;
+    private MessageType writeSchema;
+    private FileRollingPolicy rollingPolicy;
     private boolean enableDictionary;
     private int pageSize, rowGroupSize, dictionarySize;
     private long rowsRead, totalRowsRead, totalRowsWritten;
@@ -221,9 +233,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     @Override
     public boolean openForWrite() throws IOException, InterruptedException {
 
-        HcfsType hcfsType = HcfsType.getHcfsType(context);
-        // skip codec extension in filePrefix, because we add it in this accessor
-        filePrefix = hcfsType.getUriForWrite(context);
+        hcfsType = HcfsType.getHcfsType(context);
         String compressCodec = context.getOption("COMPRESSION_CODEC");
         codecName = getCodecName(compressCodec, DEFAULT_COMPRESSION);
 
@@ -237,27 +247,22 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         LOG.debug("{}-{}: Parquet options: PAGE_SIZE = {}, ROWGROUP_SIZE = {}, DICTIONARY_PAGE_SIZE = {}, PARQUET_VERSION = {}, ENABLE_DICTIONARY = {}",
                 context.getTransactionId(), context.getSegmentId(), pageSize, rowGroupSize, dictionarySize, parquetVersion, enableDictionary);
 
+        rollingPolicy = FileRollingPolicy.forRequest(context);
+
         // fs is the dependency for both readSchemaFile and createParquetWriter
-        String fileName = filePrefix + codecName.getExtension() + ".parquet";
-        LOG.debug("{}-{}: Creating file {}", context.getTransactionId(),
-                context.getSegmentId(), fileName);
-        file = new Path(fileName);
-        fs = FileSystem.get(URI.create(fileName), configuration);
-        HdfsUtilities.validateFile(file, fs);
+        resolveWriteFile();
 
         // Read schema file, if given
         String schemaFile = context.getOption("SCHEMA");
-        MessageType schema = (schemaFile != null) ? readSchemaFile(hcfsType.getDataUri(configuration, schemaFile), context.getTupleDescription()) :
+        writeSchema = (schemaFile != null) ? readSchemaFile(hcfsType.getDataUri(configuration, schemaFile), context.getTupleDescription()) :
                 generateParquetSchema(context.getTupleDescription());
         LOG.debug("{}-{}: Schema fields = {}", context.getTransactionId(),
-                context.getSegmentId(), schema.getFields());
-        GroupWriteSupport.setSchema(schema, configuration);
-        groupWriteSupport = new GroupWriteSupport();
+                context.getSegmentId(), writeSchema.getFields());
 
         // We get the parquet schema and set it to the metadata in the request context
         // to avoid computing the schema again in the Resolver
-        context.setMetadata(schema);
-        createParquetWriter();
+        context.setMetadata(writeSchema);
+        createParquetWriter(writeSchema);
         return true;
     }
 
@@ -270,7 +275,8 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      */
     @Override
     public boolean writeNextObject(OneRow onerow) throws IOException, InterruptedException {
-        recordWriter.write(null, (Group) onerow.getData());
+        startRow(parquetWriter);
+        parquetWriter.write((Group) onerow.getData());
         totalRowsWritten++;
         return true;
     }
@@ -283,8 +289,8 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     @Override
     public void closeForWrite() throws IOException, InterruptedException {
 
-        if (recordWriter != null) {
-            recordWriter.close(null);
+        if (parquetWriter != null) {
+            parquetWriter.close();
         }
         LOG.debug("{}-{}: writer closed, wrote a TOTAL of {} rows to {} on server {}",
                 context.getTransactionId(),
@@ -301,7 +307,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalFieldsMap a map of field names to types
      * @return the parquet record filter for the given filter string
      */
-    private FilterCompat.Filter getRecordFilter(String filterString, Map<String, Type> originalFieldsMap) {
+    protected FilterCompat.Filter getRecordFilter(String filterString, Map<String, Type> originalFieldsMap) {
         if (StringUtils.isBlank(filterString)) {
             return FilterCompat.NOOP;
         }
@@ -340,7 +346,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @return the original schema from the parquet file
      * @throws IOException when there's an IOException while reading the schema
      */
-    private MessageType getSchema(Path parquetFile, FileSplit fileSplit) throws IOException {
+    protected MessageType getSchema(Path parquetFile, FileSplit fileSplit) throws IOException {
 
         final long then = System.nanoTime();
         ParquetMetadataConverter.MetadataFilter filter = ParquetMetadataConverter.range(
@@ -375,7 +381,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalSchema the original schema of the parquet file
      * @return a map of field names to types
      */
-    private Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
+    protected Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
         Map<String, Type> originalFields = new HashMap<>(originalSchema.getFieldCount() * 2);
 
         // We need to add the original name and lower cased name to
@@ -398,7 +404,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalFields a map of field names to types
      * @param originalSchema the original read schema
      */
-    private MessageType buildReadSchema(Map<String, Type> originalFields, MessageType originalSchema) {
+    protected MessageType buildReadSchema(Map<String, Type> originalFields, MessageType originalSchema) {
         List<Type> projectedFields = context.getTupleDescription().stream()
                 .filter(ColumnDescriptor::isProjected)
                 .map(c -> {
@@ -413,15 +419,121 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         return new MessageType(originalSchema.getName(), projectedFields);
     }
 
-    private void createParquetWriter() throws IOException, InterruptedException {
+    /**
+     * Creates the writer of the rows resolved by the {@link ParquetResolver},
+     * which are {@link Group}s
+     *
+     * @param schema the schema of the file
+     * @throws IOException          if creating the writer failed
+     * @throws InterruptedException if interrupted while creating the writer
+     */
+    protected void createParquetWriter(MessageType schema) throws IOException, InterruptedException {
+        GroupWriteSupport.setSchema(schema, configuration);
+        parquetWriter = buildParquetWriter(new GroupWriteSupport());
+    }
+
+    /**
+     * Creates a writer of the current file for write using the given write
+     * support and the Parquet options of the request. The writer is created
+     * by the {@link ParquetOutputFormat}, whose memory manager shrinks the
+     * row groups of all the open writers when they would use too much memory.
+     * When the size of the files is limited, the writer is a
+     * {@link SizedRowWriter} wrapping a {@link ParquetWriter}, which reports
+     * the size of the file but is not managed by the memory manager.
+     *
+     * @param writeSupport the write support converting the written objects into Parquet records
+     * @param <T>          the type of the written objects
+     * @return the writer
+     * @throws IOException          if creating the writer failed
+     * @throws InterruptedException if interrupted while creating the writer
+     */
+    protected <T> RowWriter<T> buildParquetWriter(WriteSupport<T> writeSupport) throws IOException, InterruptedException {
         configuration.setInt(PAGE_SIZE, pageSize);
         configuration.setInt(DICTIONARY_PAGE_SIZE, dictionarySize);
         configuration.setBoolean(ENABLE_DICTIONARY, enableDictionary);
         configuration.set(WRITER_VERSION, parquetVersion.toString());
         configuration.setLong(BLOCK_SIZE, rowGroupSize);
 
-        recordWriter = new ParquetOutputFormat<>(groupWriteSupport)
-                .getRecordWriter(configuration, file, codecName, ParquetFileWriter.Mode.CREATE);
+        if (rollingPolicy.getMaxFileSize() == 0) {
+            RecordWriter<Void, T> recordWriter = new ParquetOutputFormat<>(writeSupport)
+                    .getRecordWriter(configuration, file, codecName, ParquetFileWriter.Mode.CREATE);
+            return new RowWriter<T>() {
+                @Override
+                public void write(T row) throws IOException, InterruptedException {
+                    recordWriter.write(null, row);
+                }
+
+                @Override
+                public void close() throws IOException, InterruptedException {
+                    recordWriter.close(null);
+                }
+            };
+        }
+
+        ParquetWriter<T> writer = new WriterBuilder<>(file, writeSupport)
+                .withConf(configuration)
+                .withWriteMode(ParquetFileWriter.Mode.CREATE)
+                .withCompressionCodec(codecName)
+                .withPageSize(pageSize)
+                .withDictionaryPageSize(dictionarySize)
+                .withDictionaryEncoding(enableDictionary)
+                .withWriterVersion(parquetVersion)
+                .withRowGroupSize(rowGroupSize)
+                .build();
+        return new SizedRowWriter<T>() {
+            @Override
+            public void write(T row) throws IOException {
+                writer.write(row);
+            }
+
+            @Override
+            public long getDataSize() {
+                return writer.getDataSize();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    /**
+     * Must be called before writing each row. When the current file is full,
+     * closes its writer and creates the next file and its writer. The size of
+     * the file is only checked when the writer reports it, which it does when
+     * the size of the files is limited.
+     *
+     * @param writer the writer of the current file
+     * @throws IOException          if closing or creating a file failed
+     * @throws InterruptedException if interrupted while closing or creating a file
+     */
+    protected void startRow(RowWriter<?> writer) throws IOException, InterruptedException {
+        boolean fileFull = writer instanceof SizedRowWriter
+                ? rollingPolicy.isFileFull(((SizedRowWriter<?>) writer)::getDataSize)
+                : rollingPolicy.isFileFull();
+        if (fileFull) {
+            writer.close();
+            rollingPolicy.nextFile();
+            resolveWriteFile();
+            createParquetWriter(writeSchema);
+        }
+        rollingPolicy.addRows(1);
+    }
+
+    /**
+     * Resolves and validates the path of the current file of the write, the
+     * file itself is created by its writer
+     */
+    private void resolveWriteFile() throws IOException {
+        // the codec extension goes before the parquet extension
+        String fileName = rollingPolicy.getFileName(fileIndex -> hcfsType.getUriForWrite(context, fileIndex,
+                codecName.getExtension() + ".parquet", null), configuration);
+        LOG.debug("{}-{}: Creating file {}", context.getTransactionId(),
+                context.getSegmentId(), fileName);
+        file = new Path(fileName);
+        fs = FileSystem.get(URI.create(fileName), configuration);
+        HdfsUtilities.validateFile(file, fs);
     }
 
     /**
@@ -629,4 +741,65 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
             }
         }
     }
+
+    /**
+     * Writes the rows of a Parquet file
+     *
+     * @param <T> the type of the written rows
+     */
+    protected interface RowWriter<T> {
+
+        /**
+         * Writes a row to the file
+         *
+         * @param row the row
+         * @throws IOException          if writing failed
+         * @throws InterruptedException if interrupted while writing
+         */
+        void write(T row) throws IOException, InterruptedException;
+
+        /**
+         * Flushes the buffered rows and closes the file
+         *
+         * @throws IOException          if closing failed
+         * @throws InterruptedException if interrupted while closing
+         */
+        void close() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Writes the rows of a Parquet file and reports the size of the file
+     *
+     * @param <T> the type of the written rows
+     */
+    protected interface SizedRowWriter<T> extends RowWriter<T> {
+
+        /**
+         * @return the number of bytes written to the file so far, including the buffered rows
+         */
+        long getDataSize();
+    }
+
+    /**
+     * Builds a {@link ParquetWriter} for a given {@link WriteSupport}
+     */
+    private static class WriterBuilder<T> extends ParquetWriter.Builder<T, WriterBuilder<T>> {
+
+        private final WriteSupport<T> writeSupport;
+
+        WriterBuilder(Path file, WriteSupport<T> writeSupport) {
+            super(file);
+            this.writeSupport = writeSupport;
+        }
+
+        @Override
+        protected WriterBuilder<T> self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<T> getWriteSupport(Configuration conf) {
+            return writeSupport;
+        }
+    }
 }
@@ -265,7 +265,16 @@ public class ParquetResolver extends BasePlugin implements Resolver {
         }
     }
 
-    private byte[] getFixedLenByteArray(String value, Type type, String columnName) {
+    /**
+     * Converts the string representation of a NUMERIC value into the bytes of
+     * a FIXED_LEN_BYTE_ARRAY decimal of the given type
+     *
+     * @param value      the string representation of the value
+     * @param type       the Parquet type of the column
+     * @param columnName the name of the column
+     * @return the bytes of the decimal, or null if the value overflows and must be skipped
+     */
+    protected byte[] getFixedLenByteArray(String value, Type type, String columnName) {
         // From org.apache.hadoop.hive.ql.io.parquet.write.DataWritableWriter.DecimalDataWriter#decimalToBinary
         DecimalLogicalTypeAnnotation typeAnnotation = (DecimalLogicalTypeAnnotation) type.getLogicalTypeAnnotation();
         int precision = Math.min(HiveDecimal.MAX_PRECISION, typeAnnotation.getPrecision());
@@ -27,6 +27,7 @@ import org.greenplum.pxf.api.model.InputStreamHandler;
 import org.greenplum.pxf.api.model.Resolver;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -62,7 +63,9 @@ public class StringPassResolver extends BasePlugin implements Resolver {
         List<OneField> record = new LinkedList<>();
         Object data = onerow.getData();
         if (data instanceof ChunkWritable) {
-            record.add(new OneField(BYTEA.getOID(), ((ChunkWritable) data).box));
+            // a chunk of lines is passed as is, without copying its bytes
+            ChunkWritable chunk = (ChunkWritable) data;
+            record.add(new OneField(BYTEA.getOID(), ByteBuffer.wrap(chunk.box, chunk.offset, chunk.length)));
         } else {
             record.add(new OneField(VARCHAR.getOID(), data));
         }
@@ -13,6 +13,7 @@ import org.apache.orc.OrcConf;
 import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
 import org.apache.orc.RecordReader;
+import org.apache.orc.StripeInformation;
 import org.apache.orc.TypeDescription;
 import org.apache.orc.Writer;
 import org.greenplum.pxf.api.OneRow;
@@ -25,11 +26,13 @@ import org.greenplum.pxf.api.filter.TreeTraverser;
 import org.greenplum.pxf.api.filter.TreeVisitor;
 import org.greenplum.pxf.api.model.Accessor;
 import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.hdfs.HcfsType;
 import org.greenplum.pxf.plugins.hdfs.filter.BPCharOperatorTransformer;
 import org.greenplum.pxf.plugins.hdfs.filter.SearchArgumentBuilder;
+import org.greenplum.pxf.plugins.hdfs.utilities.FileRollingPolicy;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.io.IOException;
@@ -42,6 +45,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 
+@PartitionedWriteHandler
 public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
 
     public static final EnumSet<Operator> SUPPORTED_OPERATORS =
@@ -91,6 +95,9 @@ public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
         String fileName;
         Writer fileWriter;
         OrcFile.WriterOptions writerOptions;
+        FileRollingPolicy rollingPolicy = new FileRollingPolicy(0, 0);
+        // holds the rows of a batch that go to the next file, when the rows roll over in the middle of a batch
+        VectorizedRowBatch splitBatch;
     }
     private final WriterState writerState = new WriterState();
 
@@ -166,9 +173,8 @@ public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
 
     @Override
     public boolean openForWrite() throws IOException {
-        HcfsType hcfsType = HcfsType.getHcfsType(context);
-        // ORC does not use codec suffix in filenames
-        writerState.setFileName(hcfsType.getUriForWrite(context) + ORC_FILE_SUFFIX);
+        FileRollingPolicy rollingPolicy = FileRollingPolicy.forRequest(context);
+        writerState.setRollingPolicy(rollingPolicy);
 
         // create writer options
         OrcFile.WriterOptions orcWriterOptions = OrcFile.writerOptions(configuration);
@@ -190,10 +196,16 @@ public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
         orcWriterOptions.useUTCTimestamp(writeTimestampsInUTC);
         LOG.debug("Using UTC for writer timezone: {}", writeTimestampsInUTC);
 
+        // the size of a file is the size of its stripes, flush stripes no larger than the files
+        long maxFileSize = rollingPolicy.getMaxFileSize();
+        if (maxFileSize > 0 && maxFileSize < orcWriterOptions.getStripeSize()) {
+            orcWriterOptions.stripeSize(maxFileSize);
+        }
+
         writerState.setWriterOptions(orcWriterOptions);
 
         // create ORC file writer with provided options, store it in the writer state
-        writerState.setFileWriter(OrcFile.createWriter(new Path(writerState.getFileName()), orcWriterOptions));
+        createFileWriter();
 
         // store writer options on the context for downstream resolver to use it
         context.setMetadata(orcWriterOptions);
@@ -206,7 +218,24 @@ public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
         // get a row batch produced by the resolver, the batch object might be re-usable, but we should not reset it here
         VectorizedRowBatch rowBatch = (VectorizedRowBatch) onerow.getData();
         LOG.debug("Adding VectorizedRowBatch with {} rows", rowBatch.size);
-        writerState.getFileWriter().addRowBatch(rowBatch);
+        FileRollingPolicy rollingPolicy = writerState.getRollingPolicy();
+        if (!rollingPolicy.isEnabled()) {
+            writerState.getFileWriter().addRowBatch(rowBatch);
+            return true;
+        }
+
+        int offset = 0;
+        while (offset < rowBatch.size) {
+            if (rollingPolicy.isFileFull(this::getWrittenStripesSize)) {
+                writerState.getFileWriter().close();
+                rollingPolicy.nextFile();
+                createFileWriter();
+            }
+            int rows = (int) Math.min(rowBatch.size - offset, rollingPolicy.getRowsLeftInFile());
+            addRows(rowBatch, offset, rows);
+            rollingPolicy.addRows(rows);
+            offset += rows;
+        }
         return true;
     }
 
@@ -218,6 +247,71 @@ public class ORCVectorizedAccessor extends BasePlugin implements Accessor {
         }
     }
 
+    /**
+     * Creates the ORC writer of the current file of the write, and stores it
+     * in the writer state
+     *
+     * @throws IOException when creating the file fails
+     */
+    private void createFileWriter() throws IOException {
+        HcfsType hcfsType = HcfsType.getHcfsType(context);
+        // ORC does not use codec suffix in filenames
+        writerState.setFileName(writerState.getRollingPolicy().getFileName(
+                fileIndex -> hcfsType.getUriForWrite(context, fileIndex, ORC_FILE_SUFFIX, null), configuration));
+        writerState.setFileWriter(OrcFile.createWriter(new Path(writerState.getFileName()), writerState.getWriterOptions()));
+    }
+
+    /**
+     * @return the number of bytes of the stripes flushed to the current file
+     * @throws IOException when the stripes cannot be retrieved
+     */
+    private long getWrittenStripesSize() throws IOException {
+        long size = 0;
+        for (StripeInformation stripe : writerState.getFileWriter().getStripes()) {
+            size += stripe.getLength();
+        }
+        return size;
+    }
+
+    /**
+     * Writes a range of rows of the batch to the current file. The batch
+     * itself is left unchanged. A range that does not start at the first row
+     * of the batch is copied into a separate batch, which only happens when
+     * the rows roll over to a new file in the middle of the batch.
+     *
+     * @param rowBatch the batch produced by the resolver
+     * @param offset   the index of the first row to write
+     * @param rows     the number of rows to write
+     * @throws IOException when writing the rows fails
+     */
+    private void addRows(VectorizedRowBatch rowBatch, int offset, int rows) throws IOException {
+        Writer fileWriter = writerState.getFileWriter();
+        if (offset == 0) {
+            int size = rowBatch.size;
+            rowBatch.size = rows;
+            try {
+                fileWriter.addRowBatch(rowBatch);
+            } finally {
+                rowBatch.size = size;
+            }
+            return;
+        }
+
+        VectorizedRowBatch splitBatch = writerState.getSplitBatch();
+        if (splitBatch == null) {
+            splitBatch = writerState.getWriterOptions().getSchema().createRowBatch(rowBatch.getMaxSize());
+            writerState.setSplitBatch(splitBatch);
+        }
+        splitBatch.reset();
+        for (int column = 0; column < rowBatch.numCols; column++) {
+            for (int row = 0; row < rows; row++) {
+                splitBatch.cols[column].setElement(row, offset + row, rowBatch.cols[column]);
+            }
+        }
+        splitBatch.size = rows;
+        fileWriter.addRowBatch(splitBatch);
+    }
+
     /**
      * Given a filter string, builds the SearchArgument object to perform
      * predicated pushdown for ORC
@@ -1,13 +1,18 @@
 package org.greenplum.pxf.plugins.hdfs.orc;
 
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.orc.OrcFile;
 import org.apache.orc.TypeDescription;
+import org.greenplum.pxf.api.ColumnBatch;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.function.PentaConsumer;
-import org.greenplum.pxf.api.model.ReadVectorizedResolver;
+import org.greenplum.pxf.api.model.ReadColumnBatchResolver;
 import org.greenplum.pxf.api.error.PxfRuntimeException;
 import org.greenplum.pxf.api.error.UnsupportedTypeException;
 import org.greenplum.pxf.api.function.TriFunction;
@@ -58,9 +63,9 @@ import static org.greenplum.pxf.api.io.DataType.VARCHARARRAY;
 import static org.greenplum.pxf.plugins.hdfs.orc.ORCVectorizedAccessor.MAP_BY_POSITION_OPTION;
 
 /**
- * Resolves ORC VectorizedRowBatch into lists of List<OneField>. Currently,
- * Timestamp and Timestamp with TimeZone are not supported. The supported
- * scalar mapping is as follows:
+ * Resolves ORC VectorizedRowBatch into column batches or lists of
+ * List<OneField>. Currently, Timestamp and Timestamp with TimeZone are not
+ * supported. The supported scalar mapping is as follows:
  * <p>
  * ---------------------------------------------------------------------------
  * | ORC Physical Type | ORC Logical Type   | Greenplum Type | Greenplum OID |
@@ -100,7 +105,7 @@ import static org.greenplum.pxf.plugins.hdfs.orc.ORCVectorizedAccessor.MAP_BY_PO
  * | array<binary>     | BYTEA[]        | 1001          |
  * ------------------------------------------------------
  */
-public class ORCVectorizedResolver extends BasePlugin implements ReadVectorizedResolver, WriteVectorizedResolver, Resolver {
+public class ORCVectorizedResolver extends BasePlugin implements ReadColumnBatchResolver, WriteVectorizedResolver, Resolver {
 
     private static final String UNSUPPORTED_ERR_MESSAGE = "Current operation is not supported";
     private static final String PXF_ORC_WRITE_DECIMAL_OVERFLOW_PROPERTY_NAME = "pxf.orc.write.decimal.overflow";
@@ -143,6 +148,8 @@ public class ORCVectorizedResolver extends BasePlugin implements ReadVectorizedR
     private List<ColumnDescriptor> columnDescriptors;
 
     private List<List<OneField>> cachedBatch;
+    private ColumnBatch columnBatch;
+    private Object[][] objectVectors;
     private VectorizedRowBatch vectorizedRowBatch;
     private DecimalOverflowOption decimalOverflowOption;
     private DecimalUtilities decimalUtilities;
@@ -185,9 +192,7 @@ public class ORCVectorizedResolver extends BasePlugin implements ReadVectorizedR
                 oneFields = ORCVectorizedMappingFunctions
                         .getNullResultSet(columnDescriptor.columnTypeCode(), batchSize);
             } else {
-                TypeDescription orcColumn = positionalAccess
-                        ? columnIndex < orcSchema.getChildren().size() ? orcSchema.getChildren().get(columnIndex) : null
-                        : readFields.get(columnDescriptor.columnName());
+                TypeDescription orcColumn = getOrcColumn(columnDescriptor, columnIndex);
                 if (orcColumn == null) {
                     // this column is missing in the underlying ORC file, but
                     // it is defined in the Greenplum table. This can happen
@@ -218,6 +223,91 @@ public class ORCVectorizedResolver extends BasePlugin implements ReadVectorizedR
         return resolvedBatch;
     }
 
+    /**
+     * Returns the resolved batch of column vectors given a
+     * VectorizedRowBatch. The long, double, bytes and decimal vectors of the
+     * VectorizedRowBatch are exposed directly, other types are resolved to
+     * their string representation.
+     *
+     * @param batch unresolved batch
+     * @return the resolved batch of column vectors
+     */
+    @Override
+    public ColumnBatch getColumnBatch(OneRow batch) {
+        ensureReadFunctionsAreInitialized();
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) batch.getData();
+        int batchSize = vectorizedBatch.size;
+        ensureColumnBatchIsInitialized();
+
+        // index to the projected columns
+        int columnIndex = 0;
+        for (int i = 0; i < columnDescriptors.size(); i++) {
+            ColumnDescriptor columnDescriptor = columnDescriptors.get(i);
+            if (!columnDescriptor.isProjected()) {
+                columnBatch.setNullVector(i);
+                continue;
+            }
+            TypeDescription orcColumn = getOrcColumn(columnDescriptor, columnIndex);
+            if (orcColumn == null) {
+                // this column is missing in the underlying ORC file
+                columnBatch.setNullVector(i);
+                continue;
+            }
+
+            ColumnVector columnVector = vectorizedBatch.cols[columnIndex];
+            if (columnVector == null) {
+                columnBatch.setNullVector(i);
+            } else {
+                switch (orcColumn.getCategory()) {
+                    case BOOLEAN:
+                    case BYTE:
+                    case SHORT:
+                    case INT:
+                    case LONG:
+                        LongColumnVector lcv = (LongColumnVector) columnVector;
+                        columnBatch.setLongVector(i, lcv.vector, lcv.isNull, lcv.noNulls, lcv.isRepeating);
+                        break;
+                    case FLOAT:
+                    case DOUBLE:
+                        DoubleColumnVector dcv = (DoubleColumnVector) columnVector;
+                        columnBatch.setDoubleVector(i, dcv.vector, dcv.isNull, dcv.noNulls, dcv.isRepeating);
+                        break;
+                    case STRING:
+                    case VARCHAR:
+                    case CHAR:
+                    case BINARY:
+                        BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                        columnBatch.setBytesVector(i, bcv.vector, bcv.start, bcv.length, bcv.isNull, bcv.noNulls, bcv.isRepeating);
+                        break;
+                    case DECIMAL:
+                        DecimalColumnVector decimalVector = (DecimalColumnVector) columnVector;
+                        columnBatch.setObjectVector(i, decimalVector.vector, decimalVector.isNull, decimalVector.noNulls, decimalVector.isRepeating);
+                        break;
+                    case DATE:
+                    case TIMESTAMP:
+                    case TIMESTAMP_INSTANT:
+                    case LIST:
+                        // these types are serialized to strings by the read functions
+                        OneField[] oneFields = readFunctions[columnIndex]
+                                .apply(vectorizedBatch, columnVector, typeOidMappings[columnIndex]);
+                        Object[] values = getObjectVector(i, batchSize);
+                        for (int row = 0; row < batchSize; row++) {
+                            values[row] = oneFields[row].val;
+                        }
+                        columnBatch.setObjectVector(i, values, null, true, false);
+                        break;
+                    default:
+                        throw new UnsupportedTypeException(
+                                String.format("Unable to resolve column '%s' with category '%s'. Only primitive and lists of primitive types are supported.",
+                                        orcSchema.getFieldNames().get(columnIndex), orcColumn.getCategory()));
+                }
+            }
+            columnIndex++;
+        }
+        columnBatch.setSize(batchSize);
+        return columnBatch;
+    }
+
     @Override
     public int getBatchSize() {
         return VectorizedRowBatch.DEFAULT_SIZE;
@@ -408,6 +498,50 @@ public class ORCVectorizedResolver extends BasePlugin implements ReadVectorizedR
         }
     }
 
+    /**
+     * Returns the ORC column for the given column descriptor, or null if
+     * the column is missing in the ORC file
+     *
+     * @param columnDescriptor the column descriptor
+     * @param columnIndex      the index to the projected columns
+     * @return the ORC column, or null if the column is missing
+     */
+    private TypeDescription getOrcColumn(ColumnDescriptor columnDescriptor, int columnIndex) {
+        return positionalAccess
+                ? columnIndex < orcSchema.getChildren().size() ? orcSchema.getChildren().get(columnIndex) : null
+                : readFields.get(columnDescriptor.columnName());
+    }
+
+    /**
+     * Ensures that the column batch is initialized. The type of each column
+     * of the batch is the type the ORC column maps to, or the type of the
+     * Greenplum column when the column is not projected or is missing in the
+     * ORC file.
+     */
+    private void ensureColumnBatchIsInitialized() {
+        if (columnBatch != null) return;
+
+        int[] columnTypes = new int[columnDescriptors.size()];
+        int columnIndex = 0;
+        for (int i = 0; i < columnDescriptors.size(); i++) {
+            ColumnDescriptor columnDescriptor = columnDescriptors.get(i);
+            columnTypes[i] = columnDescriptor.columnTypeCode();
+            if (columnDescriptor.isProjected() && getOrcColumn(columnDescriptor, columnIndex) != null) {
+                columnTypes[i] = typeOidMappings[columnIndex];
+                columnIndex++;
+            }
+        }
+        columnBatch = new ColumnBatch(columnTypes);
+        objectVectors = new Object[columnTypes.length][];
+    }
+
+    private Object[] getObjectVector(int column, int batchSize) {
+        if (objectVectors[column] == null || objectVectors[column].length < batchSize) {
+            objectVectors[column] = new Object[batchSize];
+        }
+        return objectVectors[column];
+    }
+
     private List<List<OneField>> prepareResolvedBatch(int batchSize) {
 
         if (cachedBatch == null) {
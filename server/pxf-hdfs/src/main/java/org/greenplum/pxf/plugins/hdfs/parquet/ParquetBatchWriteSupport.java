@@ -0,0 +1,163 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes the rows of a {@link ParquetWriteBatch} to a Parquet file. Unlike
+ * the {@link org.apache.parquet.hadoop.example.GroupWriteSupport}, no
+ * {@link org.apache.parquet.example.data.Group} is assembled per row: the
+ * values are taken from the vectors of the batch and passed to the record
+ * consumer, which hands them over to the column writers of the row group.
+ * <p>
+ * The record written by {@link #write(ParquetWriteBatch)} is the current row
+ * of the batch.
+ */
+public class ParquetBatchWriteSupport extends WriteSupport<ParquetWriteBatch> {
+
+    private final MessageType schema;
+    private RecordConsumer recordConsumer;
+
+    /**
+     * Constructs a write support for files with the given schema
+     *
+     * @param schema the schema of the file
+     */
+    public ParquetBatchWriteSupport(MessageType schema) {
+        this.schema = schema;
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(schema, new HashMap<>());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    /**
+     * Writes the current row of the batch
+     *
+     * @param batch the batch
+     */
+    @Override
+    public void write(ParquetWriteBatch batch) {
+        int row = batch.row;
+        recordConsumer.startMessage();
+        for (int i = 0; i < batch.columns.length; i++) {
+            Type type = schema.getType(i);
+            ParquetColumnVector vector = batch.columns[i];
+            if (vector == null) {
+                List<?> values = batch.lists[i][row];
+                if (values != null) {
+                    writeList(type.asGroupType(), i, values);
+                }
+            } else if (!vector.isNull[row]) {
+                recordConsumer.startField(type.getName(), i);
+                writeValue(vector, row, type.asPrimitiveType());
+                recordConsumer.endField(type.getName(), i);
+            }
+        }
+        recordConsumer.endMessage();
+    }
+
+    private void writeValue(ParquetColumnVector vector, int row, PrimitiveType type) {
+        switch (vector.getTypeName()) {
+            case BOOLEAN:
+                recordConsumer.addBoolean(vector.longs[row] != 0);
+                break;
+            case INT32:
+                recordConsumer.addInteger((int) vector.longs[row]);
+                break;
+            case INT64:
+                recordConsumer.addLong(vector.longs[row]);
+                break;
+            case FLOAT:
+                recordConsumer.addFloat((float) vector.doubles[row]);
+                break;
+            case DOUBLE:
+                recordConsumer.addDouble(vector.doubles[row]);
+                break;
+            default:
+                recordConsumer.addBinary(toBinary(vector.bytes[row], vector.start[row], vector.length[row], type));
+        }
+    }
+
+    /**
+     * Writes a LIST column, which is always a 3-level structure:
+     * <pre>
+     * &lt;list-repetition&gt; group &lt;name&gt; (LIST) {
+     *   repeated group list {
+     *     &lt;element-repetition&gt; &lt;element-type&gt; element;
+     *   }
+     * }
+     * </pre>
+     * A null element is a repeated group without element.
+     */
+    private void writeList(GroupType listType, int index, List<?> values) {
+        GroupType repeatedType = listType.getType(0).asGroupType();
+        PrimitiveType elementType = repeatedType.getType(0).asPrimitiveType();
+
+        recordConsumer.startField(listType.getName(), index);
+        recordConsumer.startGroup();
+        if (!values.isEmpty()) {
+            recordConsumer.startField(repeatedType.getName(), 0);
+            for (Object value : values) {
+                recordConsumer.startGroup();
+                if (value != null) {
+                    recordConsumer.startField(elementType.getName(), 0);
+                    writeObject(value, elementType);
+                    recordConsumer.endField(elementType.getName(), 0);
+                }
+                recordConsumer.endGroup();
+            }
+            recordConsumer.endField(repeatedType.getName(), 0);
+        }
+        recordConsumer.endGroup();
+        recordConsumer.endField(listType.getName(), index);
+    }
+
+    private void writeObject(Object value, PrimitiveType type) {
+        switch (type.getPrimitiveTypeName()) {
+            case BOOLEAN:
+                recordConsumer.addBoolean((Boolean) value);
+                break;
+            case INT32:
+                recordConsumer.addInteger((Integer) value);
+                break;
+            case INT64:
+                recordConsumer.addLong((Long) value);
+                break;
+            case FLOAT:
+                recordConsumer.addFloat((Float) value);
+                break;
+            case DOUBLE:
+                recordConsumer.addDouble((Double) value);
+                break;
+            default:
+                recordConsumer.addBinary((Binary) value);
+        }
+    }
+
+    private Binary toBinary(byte[] bytes, int start, int length, PrimitiveType type) {
+        // values other than bytea are encoded by the resolver into arrays it does not reuse,
+        // bytea values are the arrays received from Greenplum, the writer copies them when it keeps them
+        if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.BINARY
+                && !(type.getLogicalTypeAnnotation() instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation)) {
+            return Binary.fromReusedByteArray(bytes, start, length);
+        }
+        return Binary.fromConstantByteArray(bytes, start, length);
+    }
+}
@@ -0,0 +1,236 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A vector of values decoded from a primitive Parquet column. The vector is
+ * the converter of the column reader, so values are written straight into
+ * primitive arrays without creating an object per value:
+ * <ul>
+ *     <li>BOOLEAN, INT32 and INT64 values are stored in a long[]</li>
+ *     <li>FLOAT and DOUBLE values are stored in a double[]</li>
+ *     <li>BINARY, FIXED_LEN_BYTE_ARRAY and INT96 values are stored as
+ *     ranges of the page (or dictionary) buffers they were decoded from</li>
+ * </ul>
+ * Dictionaries are decoded once per column chunk, values of
+ * dictionary-encoded pages are then looked up by id, which for binary
+ * columns means referencing the dictionary entry instead of copying it.
+ * <p>
+ * Vectors also hold the values of the primitive columns of a
+ * {@link ParquetWriteBatch}, in their Parquet physical representation.
+ */
+public class ParquetColumnVector extends PrimitiveConverter {
+
+    private final PrimitiveTypeName typeName;
+
+    final long[] longs;
+    final double[] doubles;
+    final byte[][] bytes;
+    final int[] start;
+    final int[] length;
+    final boolean[] isNull;
+    boolean noNulls;
+    int size;
+
+    private long[] longDictionary;
+    private double[] doubleDictionary;
+    private byte[][] bytesDictionary;
+    private int[] startDictionary;
+    private int[] lengthDictionary;
+
+    /**
+     * Constructs a vector for a column of the given primitive type
+     *
+     * @param typeName the primitive type of the column
+     * @param capacity the maximum number of values in the vector
+     */
+    public ParquetColumnVector(PrimitiveTypeName typeName, int capacity) {
+        this.typeName = typeName;
+        this.isNull = new boolean[capacity];
+        switch (typeName) {
+            case BOOLEAN:
+            case INT32:
+            case INT64:
+                longs = new long[capacity];
+                doubles = null;
+                bytes = null;
+                start = length = null;
+                break;
+            case FLOAT:
+            case DOUBLE:
+                longs = null;
+                doubles = new double[capacity];
+                bytes = null;
+                start = length = null;
+                break;
+            default:
+                longs = null;
+                doubles = null;
+                bytes = new byte[capacity][];
+                start = new int[capacity];
+                length = new int[capacity];
+        }
+        reset();
+    }
+
+    /**
+     * Removes all the values from the vector, the arrays are reused
+     */
+    public void reset() {
+        size = 0;
+        noNulls = true;
+    }
+
+    /**
+     * Appends a null value
+     */
+    public void addNull() {
+        noNulls = false;
+        isNull[size++] = true;
+    }
+
+    public PrimitiveTypeName getTypeName() {
+        return typeName;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean hasDictionarySupport() {
+        return true;
+    }
+
+    @Override
+    public void setDictionary(Dictionary dictionary) {
+        int dictionarySize = dictionary.getMaxId() + 1;
+        switch (typeName) {
+            case INT32:
+                longDictionary = new long[dictionarySize];
+                for (int id = 0; id < dictionarySize; id++) {
+                    longDictionary[id] = dictionary.decodeToInt(id);
+                }
+                break;
+            case INT64:
+                longDictionary = new long[dictionarySize];
+                for (int id = 0; id < dictionarySize; id++) {
+                    longDictionary[id] = dictionary.decodeToLong(id);
+                }
+                break;
+            case FLOAT:
+                doubleDictionary = new double[dictionarySize];
+                for (int id = 0; id < dictionarySize; id++) {
+                    doubleDictionary[id] = dictionary.decodeToFloat(id);
+                }
+                break;
+            case DOUBLE:
+                doubleDictionary = new double[dictionarySize];
+                for (int id = 0; id < dictionarySize; id++) {
+                    doubleDictionary[id] = dictionary.decodeToDouble(id);
+                }
+                break;
+            case BINARY:
+            case FIXED_LEN_BYTE_ARRAY:
+            case INT96:
+                bytesDictionary = new byte[dictionarySize][];
+                startDictionary = new int[dictionarySize];
+                lengthDictionary = new int[dictionarySize];
+                for (int id = 0; id < dictionarySize; id++) {
+                    ByteBuffer buffer = toHeapBuffer(dictionary.decodeToBinary(id));
+                    bytesDictionary[id] = buffer.array();
+                    startDictionary[id] = buffer.arrayOffset() + buffer.position();
+                    lengthDictionary[id] = buffer.remaining();
+                }
+                break;
+            default:
+                throw new UnsupportedOperationException(
+                        String.format("Dictionary encoding is not supported for Parquet type %s", typeName));
+        }
+    }
+
+    @Override
+    public void addValueFromDictionary(int dictionaryId) {
+        isNull[size] = false;
+        if (longs != null) {
+            longs[size] = longDictionary[dictionaryId];
+        } else if (doubles != null) {
+            doubles[size] = doubleDictionary[dictionaryId];
+        } else {
+            bytes[size] = bytesDictionary[dictionaryId];
+            start[size] = startDictionary[dictionaryId];
+            length[size] = lengthDictionary[dictionaryId];
+        }
+        size++;
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+        isNull[size] = false;
+        longs[size++] = value ? 1 : 0;
+    }
+
+    @Override
+    public void addInt(int value) {
+        isNull[size] = false;
+        longs[size++] = value;
+    }
+
+    @Override
+    public void addLong(long value) {
+        isNull[size] = false;
+        longs[size++] = value;
+    }
+
+    @Override
+    public void addFloat(float value) {
+        isNull[size] = false;
+        doubles[size++] = value;
+    }
+
+    @Override
+    public void addDouble(double value) {
+        isNull[size] = false;
+        doubles[size++] = value;
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+        // binaries of a page are backed by the page buffer, which is not
+        // reused by the reader, so they are referenced instead of copied
+        ByteBuffer buffer = value.isBackingBytesReused()
+                ? ByteBuffer.wrap(value.getBytes())
+                : toHeapBuffer(value);
+        isNull[size] = false;
+        bytes[size] = buffer.array();
+        start[size] = buffer.arrayOffset() + buffer.position();
+        length[size] = buffer.remaining();
+        size++;
+    }
+
+    /**
+     * Appends a binary value referencing the given range of bytes, the bytes
+     * are not copied
+     *
+     * @param value  the bytes of the value
+     * @param offset the offset of the value in the bytes
+     * @param len    the length of the value
+     */
+    void addBytes(byte[] value, int offset, int len) {
+        isNull[size] = false;
+        bytes[size] = value;
+        start[size] = offset;
+        length[size] = len;
+        size++;
+    }
+
+    private ByteBuffer toHeapBuffer(Binary value) {
+        ByteBuffer buffer = value.toByteBuffer();
+        return buffer.hasArray() ? buffer : ByteBuffer.wrap(value.getBytes());
+    }
+}
@@ -0,0 +1,36 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/**
+ * A batch of rows read from a Parquet row group, stored as one
+ * {@link ParquetColumnVector} per column of the read schema.
+ */
+public class ParquetRowBatch {
+
+    public static final int DEFAULT_SIZE = 1024;
+
+    final ParquetColumnVector[] columns;
+    int size;
+
+    ParquetRowBatch(ParquetColumnVector[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Returns the number of rows in the batch
+     *
+     * @return the number of rows in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the vector of the column at the given index of the read schema
+     *
+     * @param index the index of the column in the read schema
+     * @return the vector of the column
+     */
+    public ParquetColumnVector getColumn(int index) {
+        return columns[index];
+    }
+}
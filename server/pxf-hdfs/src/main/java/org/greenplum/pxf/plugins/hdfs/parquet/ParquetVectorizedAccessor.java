@@ -0,0 +1,288 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.parquet.HadoopReadOptions;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.UnsupportedTypeException;
+import org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.parquet.schema.Type.Repetition.REPEATED;
+
+/**
+ * Parquet file accessor that reads the projected columns of a row group
+ * column by column into a {@link ParquetRowBatch}, instead of assembling a
+ * {@link org.apache.parquet.example.data.Group} per row. Column chunks are
+ * decoded page by page by the Parquet column readers straight into the
+ * vectors of the batch.
+ * <p>
+ * Only primitive, non-repeated columns can be read by this accessor.
+ * <p>
+ * For writes, the file is opened by the {@link ParquetFileAccessor} and the
+ * {@link ParquetWriteBatch}es resolved by the {@link ParquetVectorizedResolver}
+ * are written row by row from the vectors of the batch by the
+ * {@link ParquetBatchWriteSupport}.
+ * <p>
+ * Unit of operation is a batch of up to {@link ParquetRowBatch#DEFAULT_SIZE}
+ * rows.
+ */
+public class ParquetVectorizedAccessor extends ParquetFileAccessor {
+
+    private ParquetFileReader fileReader;
+    private MessageType readSchema;
+    private String createdBy;
+    private ColumnReader[] columnReaders;
+    private ParquetRowBatch batch;
+    private long rowsRemainingInRowGroup;
+    private long batchIndex;
+    private long totalRowsRead;
+    private long totalReadTimeInNanos;
+    private RowWriter<ParquetWriteBatch> batchWriter;
+    private long totalRowsWritten;
+
+    /**
+     * Opens the resource for read.
+     *
+     * @throws IOException if opening the resource failed
+     */
+    @Override
+    public boolean openForRead() throws IOException {
+        Path file = new Path(context.getDataSource());
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context.getDataSource(), context.getFragmentMetadata());
+
+        // Read the original schema from the parquet file
+        MessageType originalSchema = getSchema(file, fileSplit);
+        // Get a map of the column name to Types for the given schema
+        Map<String, Type> originalFieldsMap = getOriginalFieldsMap(originalSchema);
+        // Get the read schema. This is either the full set or a subset (in
+        // case of column projection) of the greenplum schema.
+        readSchema = buildReadSchema(originalFieldsMap, originalSchema);
+        validateReadSchema(readSchema);
+        // Get the record filter in case of predicate push-down. Rows are not
+        // assembled, so the filter is only used to skip row groups based on
+        // their statistics and dictionaries
+        FilterCompat.Filter recordFilter = getRecordFilter(context.getFilterString(), originalFieldsMap);
+
+        ParquetReadOptions options = HadoopReadOptions
+                .builder(configuration)
+                // Create reader for a given split, read a range in file
+                .withRange(fileSplit.getStart(), fileSplit.getStart() + fileSplit.getLength())
+                .withRecordFilter(recordFilter)
+                .build();
+
+        final long then = System.nanoTime();
+        fileReader = new ParquetFileReader(HadoopInputFile.fromPath(file, configuration), options);
+        fileReader.setRequestedSchema(readSchema);
+        totalReadTimeInNanos += System.nanoTime() - then;
+        createdBy = fileReader.getFooter().getFileMetaData().getCreatedBy();
+
+        List<Type> fields = readSchema.getFields();
+        ParquetColumnVector[] vectors = new ParquetColumnVector[fields.size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = new ParquetColumnVector(
+                    fields.get(i).asPrimitiveType().getPrimitiveTypeName(), ParquetRowBatch.DEFAULT_SIZE);
+        }
+        batch = new ParquetRowBatch(vectors);
+        columnReaders = new ColumnReader[vectors.length];
+
+        context.setMetadata(readSchema);
+        return true;
+    }
+
+    /**
+     * Reads the next batch for the current fragment
+     *
+     * @return the next batch in OneRow format, the key is the batch number, and data is the batch
+     * @throws IOException when reading of the next batch fails
+     */
+    @Override
+    public OneRow readNextObject() throws IOException {
+        final long then = System.nanoTime();
+        if (rowsRemainingInRowGroup == 0 && !readNextRowGroup()) {
+            totalReadTimeInNanos += System.nanoTime() - then;
+            return null; // all row groups are exhausted
+        }
+
+        int batchSize = (int) Math.min(ParquetRowBatch.DEFAULT_SIZE, rowsRemainingInRowGroup);
+        readBatch(batchSize);
+        rowsRemainingInRowGroup -= batchSize;
+        totalRowsRead += batchSize;
+        totalReadTimeInNanos += System.nanoTime() - then;
+        return new OneRow(new LongWritable(batchIndex++), batch);
+    }
+
+    /**
+     * Closes the resource for read.
+     *
+     * @throws IOException if closing the resource failed
+     */
+    @Override
+    public void closeForRead() throws IOException {
+        logReadStats(totalRowsRead, totalReadTimeInNanos);
+        if (fileReader != null) {
+            fileReader.close();
+        }
+    }
+
+    /**
+     * Writes the rows of the next batch.
+     *
+     * @param onerow the batch to be written
+     * @return true if the write succeeded
+     * @throws IOException writing to the resource failed
+     */
+    @Override
+    public boolean writeNextObject(OneRow onerow) throws IOException, InterruptedException {
+        ParquetWriteBatch writeBatch = (ParquetWriteBatch) onerow.getData();
+        for (int row = 0; row < writeBatch.size; row++) {
+            // the writer changes when the rows roll over to a new file
+            startRow(batchWriter);
+            writeBatch.row = row;
+            batchWriter.write(writeBatch);
+        }
+        totalRowsWritten += writeBatch.size;
+        return true;
+    }
+
+    /**
+     * Closes the resource for write.
+     *
+     * @throws IOException if closing the resource failed
+     */
+    @Override
+    public void closeForWrite() throws IOException, InterruptedException {
+        if (batchWriter != null) {
+            batchWriter.close();
+        }
+        LOG.debug("{}-{}: writer closed, wrote a TOTAL of {} rows to {} on server {}",
+                context.getTransactionId(),
+                context.getSegmentId(),
+                totalRowsWritten,
+                context.getDataSource(),
+                context.getServerName());
+    }
+
+    /**
+     * Creates the writer of the batches resolved by the
+     * {@link ParquetVectorizedResolver}
+     *
+     * @param schema the schema of the file
+     * @throws IOException          if creating the writer failed
+     * @throws InterruptedException if interrupted while creating the writer
+     */
+    @Override
+    protected void createParquetWriter(MessageType schema) throws IOException, InterruptedException {
+        batchWriter = buildParquetWriter(new ParquetBatchWriteSupport(schema));
+    }
+
+    /**
+     * Reads the pages of the next non-empty row group and creates a column
+     * reader for every column of the read schema
+     *
+     * @return true if a row group was read, false when there are no more row groups
+     * @throws IOException when reading the row group fails
+     */
+    private boolean readNextRowGroup() throws IOException {
+        PageReadStore rowGroup;
+        do {
+            rowGroup = fileReader.readNextRowGroup();
+            if (rowGroup == null) {
+                return false;
+            }
+        } while (rowGroup.getRowCount() == 0);
+
+        ColumnReadStoreImpl columnReadStore = new ColumnReadStoreImpl(
+                rowGroup, new RowBatchConverter(batch.columns), readSchema, createdBy);
+        List<ColumnDescriptor> columns = readSchema.getColumns();
+        for (int i = 0; i < columnReaders.length; i++) {
+            columnReaders[i] = columnReadStore.getColumnReader(columns.get(i));
+        }
+        rowsRemainingInRowGroup = rowGroup.getRowCount();
+        return true;
+    }
+
+    /**
+     * Decodes the next rows of the current row group into the batch, one
+     * column at a time
+     *
+     * @param batchSize the number of rows to read
+     */
+    private void readBatch(int batchSize) {
+        for (int i = 0; i < columnReaders.length; i++) {
+            ColumnReader columnReader = columnReaders[i];
+            ParquetColumnVector vector = batch.columns[i];
+            int maxDefinitionLevel = columnReader.getDescriptor().getMaxDefinitionLevel();
+
+            vector.reset();
+            for (int row = 0; row < batchSize; row++) {
+                if (columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                    columnReader.writeCurrentValueToConverter();
+                } else {
+                    vector.addNull();
+                }
+                columnReader.consume();
+            }
+        }
+        batch.size = batchSize;
+    }
+
+    /**
+     * Makes sure all the projected columns are primitive and not repeated,
+     * other columns need to be assembled into records
+     *
+     * @param readSchema the read schema
+     */
+    private void validateReadSchema(MessageType readSchema) {
+        for (Type type : readSchema.getFields()) {
+            if (!type.isPrimitive() || type.getRepetition() == REPEATED) {
+                throw new UnsupportedTypeException(String.format(
+                        "Column %s has a %s Parquet type which is not supported by the vectorized Parquet reader, use a non-vectorized parquet profile instead",
+                        type.getName(), type.isPrimitive() ? "repeated" : "complex"));
+            }
+        }
+    }
+
+    /**
+     * The root converter of the column readers, the converter of each column
+     * is the vector of the column in the batch
+     */
+    private static class RowBatchConverter extends GroupConverter {
+
+        private final ParquetColumnVector[] columns;
+
+        RowBatchConverter(ParquetColumnVector[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return columns[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.error.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.ReadColumnBatchResolver;
+import org.greenplum.pxf.api.model.WriteVectorizedResolver;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
+import org.greenplum.pxf.plugins.hdfs.utilities.PgUtilities;
+import org.springframework.util.CollectionUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.parquet.schema.LogicalTypeAnnotation.DateLogicalTypeAnnotation;
+import static org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import static org.apache.parquet.schema.LogicalTypeAnnotation.StringLogicalTypeAnnotation;
+
+/**
+ * Resolves the batches read by the {@link ParquetVectorizedAccessor} into
+ * column batches. Integer, floating point, boolean and binary columns are
+ * exposed as the vectors of the batch without any conversion, only DATE,
+ * NUMERIC and INT96 timestamp values are converted one value at a time.
+ * The types of the values are the same as the ones returned by the
+ * {@link ParquetResolver}.
+ * <p>
+ * For writes, batches of records are resolved into a
+ * {@link ParquetWriteBatch}, which holds the values of every column in their
+ * Parquet physical representation, with the same conversions as the
+ * {@link ParquetResolver}.
+ */
+public class ParquetVectorizedResolver extends ParquetResolver implements ReadColumnBatchResolver, WriteVectorizedResolver {
+
+    private final ParquetUtilities parquetUtilities = new ParquetUtilities(new PgUtilities());
+    private List<ColumnDescriptor> columnDescriptors;
+    private MessageType readSchema;
+    private ColumnBatch columnBatch;
+    private Object[][] objectVectors;
+    private ParquetWriteBatch writeBatch;
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        columnDescriptors = context.getTupleDescription();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ColumnBatch getColumnBatch(OneRow batch) {
+        ParquetRowBatch rowBatch = (ParquetRowBatch) batch.getData();
+        ensureColumnBatchIsInitialized();
+
+        // index to the projected columns
+        int columnIndex = 0;
+        for (int i = 0; i < columnDescriptors.size(); i++) {
+            if (!columnDescriptors.get(i).isProjected()) {
+                columnBatch.setNullVector(i);
+                continue;
+            }
+            setVector(i, readSchema.getType(columnIndex).asPrimitiveType(), rowBatch.getColumn(columnIndex), rowBatch.getSize());
+            columnIndex++;
+        }
+        columnBatch.setSize(rowBatch.getSize());
+        return columnBatch;
+    }
+
+    /**
+     * Returns the resolved list of tuples, using the same types and values
+     * as the {@link ParquetResolver}
+     *
+     * @param batch unresolved batch
+     * @return list of tuples
+     */
+    @Override
+    public List<List<OneField>> getFieldsForBatch(OneRow batch) {
+        ColumnBatch resolvedBatch = getColumnBatch(batch);
+        List<List<OneField>> tuples = new ArrayList<>(resolvedBatch.getSize());
+        for (int row = 0; row < resolvedBatch.getSize(); row++) {
+            List<OneField> tuple = new ArrayList<>(resolvedBatch.getNumColumns());
+            for (int column = 0; column < resolvedBatch.getNumColumns(); column++) {
+                tuple.add(new OneField(resolvedBatch.getColumnType(column), getValue(resolvedBatch, column, row)));
+            }
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBatchSize() {
+        return ParquetRowBatch.DEFAULT_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OneRow setFieldsForBatch(List<List<OneField>> records) {
+        if (CollectionUtils.isEmpty(records)) {
+            return null; // this will end bridge iterations
+        }
+        // make sure provided record set can fit into a single batch, we do not want to produce multiple batches here
+        if (records.size() > getBatchSize()) {
+            throw new PxfRuntimeException(String.format("Provided set of %d records is greater than the batch size of %d",
+                    records.size(), getBatchSize()));
+        }
+        ensureWriteBatchIsInitialized();
+        // reuse the batch object between iterations
+        writeBatch.reset();
+
+        MessageType schema = writeBatch.schema;
+        for (List<OneField> record : records) {
+            for (int column = 0; column < writeBatch.columns.length; column++) {
+                Object value = column < record.size() ? record.get(column).val : null;
+                ParquetColumnVector vector = writeBatch.columns[column];
+                if (vector == null) {
+                    writeBatch.lists[column][writeBatch.size] = (value == null) ? null :
+                            getListValues(value.toString(), schema.getType(column).asGroupType(), column);
+                } else if (value == null) {
+                    vector.addNull();
+                } else {
+                    addValue(vector, column, value, schema.getType(column).asPrimitiveType());
+                }
+            }
+            writeBatch.size++;
+        }
+        return new OneRow(writeBatch);
+    }
+
+    /**
+     * Appends a value to the vector of a primitive column, converting it the
+     * same way as the {@link ParquetResolver} does
+     */
+    private void addValue(ParquetColumnVector vector, int column, Object value, PrimitiveType type) {
+        ColumnDescriptor columnDescriptor = columnDescriptors.get(column);
+        /*
+         * We need to right trim the incoming value from Greenplum. This is
+         * consistent with the behaviour in Hive, where char fields are right
+         * trimmed during write.
+         */
+        if (columnDescriptor.getDataType() == DataType.BPCHAR && value instanceof String) {
+            value = Utilities.rightTrimWhiteSpace((String) value);
+        }
+
+        LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+        switch (type.getPrimitiveTypeName()) {
+            case BINARY:
+                if (logicalType instanceof StringLogicalTypeAnnotation) {
+                    byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    vector.addBytes(bytes, 0, bytes.length);
+                } else if (value instanceof ByteBuffer) {
+                    ByteBuffer byteBuffer = (ByteBuffer) value;
+                    vector.addBytes(byteBuffer.array(), 0, byteBuffer.limit());
+                } else {
+                    byte[] bytes = (byte[]) value;
+                    vector.addBytes(bytes, 0, bytes.length);
+                }
+                break;
+            case INT32:
+                if (logicalType instanceof DateLogicalTypeAnnotation) {
+                    vector.addInt(ParquetTypeConverter.getDaysFromEpochFromDateString((String) value));
+                } else {
+                    vector.addInt(((Number) value).intValue());
+                }
+                break;
+            case INT64:
+                vector.addLong((Long) value);
+                break;
+            case DOUBLE:
+                vector.addDouble((Double) value);
+                break;
+            case FLOAT:
+                vector.addFloat((Float) value);
+                break;
+            case FIXED_LEN_BYTE_ARRAY:
+                byte[] fixedLenByteArray = getFixedLenByteArray((String) value, type, columnDescriptor.columnName());
+                if (fixedLenByteArray == null) {
+                    vector.addNull();
+                } else {
+                    vector.addBytes(fixedLenByteArray, 0, fixedLenByteArray.length);
+                }
+                break;
+            case INT96:
+                vector.addBinary(getInt96Timestamp((String) value));
+                break;
+            case BOOLEAN:
+                vector.addBoolean((Boolean) value);
+                break;
+            default:
+                throw new UnsupportedTypeException(String.format("Parquet primitive type %s is not supported.", type.getPrimitiveTypeName()));
+        }
+    }
+
+    /**
+     * Decodes the Postgres string representation of an array into the
+     * values of the elements of a LIST column, in their Parquet physical
+     * representation
+     */
+    private List<?> getListValues(String value, GroupType listType, int column) {
+        PrimitiveType elementType = listType.getType(0).asGroupType().getType(0).asPrimitiveType();
+        LogicalTypeAnnotation logicalType = elementType.getLogicalTypeAnnotation();
+        List<Object> values = parquetUtilities.parsePostgresArray(value, elementType.getPrimitiveTypeName(), logicalType);
+        for (int i = 0; i < values.size(); i++) {
+            Object element = values.get(i);
+            if (element == null) {
+                continue;
+            }
+            switch (elementType.getPrimitiveTypeName()) {
+                case BINARY:
+                    if (logicalType instanceof StringLogicalTypeAnnotation) {
+                        element = Binary.fromString((String) element);
+                    } else if (element instanceof ByteBuffer) {
+                        ByteBuffer byteBuffer = (ByteBuffer) element;
+                        element = Binary.fromReusedByteArray(byteBuffer.array(), 0, byteBuffer.limit());
+                    } else {
+                        element = Binary.fromReusedByteArray((byte[]) element);
+                    }
+                    break;
+                case INT32:
+                    element = (logicalType instanceof DateLogicalTypeAnnotation)
+                            ? ParquetTypeConverter.getDaysFromEpochFromDateString((String) element)
+                            : ((Number) element).intValue();
+                    break;
+                case FIXED_LEN_BYTE_ARRAY:
+                    byte[] fixedLenByteArray = getFixedLenByteArray((String) element, elementType, columnDescriptors.get(column).columnName());
+                    element = (fixedLenByteArray == null) ? null : Binary.fromConstantByteArray(fixedLenByteArray);
+                    break;
+                case INT96:
+                    element = getInt96Timestamp((String) element);
+                    break;
+                default:
+                    // BOOLEAN, INT64, FLOAT and DOUBLE values are decoded into their Parquet representation
+                    break;
+            }
+            values.set(i, element);
+        }
+        return values;
+    }
+
+    private Binary getInt96Timestamp(String timestamp) {
+        // Note: this conversion convert type "timestamp with time zone" will lose timezone information
+        // while preserving the correct value. (as Parquet doesn't support timestamp with time zone)
+        return TIMESTAMP_PATTERN.matcher(timestamp).find()
+                ? ParquetTypeConverter.getBinaryFromTimestampWithTimeZone(timestamp)
+                : ParquetTypeConverter.getBinaryFromTimestamp(timestamp);
+    }
+
+    private void ensureWriteBatchIsInitialized() {
+        if (writeBatch != null) return;
+
+        MessageType schema = (MessageType) context.getMetadata();
+        if (schema == null) {
+            throw new RuntimeException("No schema detected in request context");
+        }
+        for (Type type : schema.getFields()) {
+            if (type.isPrimitive()) {
+                continue;
+            }
+            LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+            if (logicalType == null) {
+                throw new UnsupportedTypeException("Parquet group type without logical annotation is not supported");
+            }
+            if (logicalType != LogicalTypeAnnotation.listType()) {
+                throw new UnsupportedTypeException(String.format("Parquet complex type %s is not supported", logicalType));
+            }
+        }
+        writeBatch = new ParquetWriteBatch(schema, getBatchSize());
+    }
+
+    private void setVector(int column, PrimitiveType type, ParquetColumnVector vector, int batchSize) {
+        LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+        switch (type.getPrimitiveTypeName()) {
+            case BOOLEAN:
+            case INT32:
+            case INT64:
+                if (logicalType instanceof DateLogicalTypeAnnotation) {
+                    setDateVector(column, vector, batchSize);
+                } else if (logicalType instanceof DecimalLogicalTypeAnnotation) {
+                    setUnscaledLongDecimalVector(column, vector, batchSize, ((DecimalLogicalTypeAnnotation) logicalType).getScale());
+                } else {
+                    columnBatch.setLongVector(column, vector.longs, vector.isNull, vector.noNulls, false);
+                }
+                break;
+            case FLOAT:
+            case DOUBLE:
+                columnBatch.setDoubleVector(column, vector.doubles, vector.isNull, vector.noNulls, false);
+                break;
+            case BINARY:
+                // strings are UTF-8 encoded in Parquet, so they are passed through
+                columnBatch.setBytesVector(column, vector.bytes, vector.start, vector.length, vector.isNull, vector.noNulls, false);
+                break;
+            case INT96:
+                setInt96TimestampVector(column, vector, batchSize);
+                break;
+            case FIXED_LEN_BYTE_ARRAY:
+                setFixedLenDecimalVector(column, vector, batchSize, ((DecimalLogicalTypeAnnotation) logicalType).getScale());
+                break;
+            default:
+                throw new PxfRuntimeException(String.format("Unsupported Parquet type %s", type.getPrimitiveTypeName()));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void setDateVector(int column, ParquetColumnVector vector, int batchSize) {
+        Object[] values = getObjectVector(column, batchSize);
+        for (int row = 0; row < batchSize; row++) {
+            values[row] = vector.isNull[row] ? null :
+                    new org.apache.hadoop.hive.serde2.io.DateWritable((int) vector.longs[row]).get(true);
+        }
+        columnBatch.setObjectVector(column, values, vector.isNull, vector.noNulls, false);
+    }
+
+    private void setUnscaledLongDecimalVector(int column, ParquetColumnVector vector, int batchSize, int scale) {
+        Object[] values = getObjectVector(column, batchSize);
+        for (int row = 0; row < batchSize; row++) {
+            values[row] = vector.isNull[row] ? null : BigDecimal.valueOf(vector.longs[row], scale);
+        }
+        columnBatch.setObjectVector(column, values, vector.isNull, vector.noNulls, false);
+    }
+
+    private void setInt96TimestampVector(int column, ParquetColumnVector vector, int batchSize) {
+        Object[] values = getObjectVector(column, batchSize);
+        for (int row = 0; row < batchSize; row++) {
+            values[row] = vector.isNull[row] ? null :
+                    ParquetTypeConverter.bytesToTimestamp(copyBytes(vector, row));
+        }
+        columnBatch.setObjectVector(column, values, vector.isNull, vector.noNulls, false);
+    }
+
+    private void setFixedLenDecimalVector(int column, ParquetColumnVector vector, int batchSize, int scale) {
+        Object[] values = getObjectVector(column, batchSize);
+        for (int row = 0; row < batchSize; row++) {
+            values[row] = vector.isNull[row] ? null :
+                    new BigDecimal(new BigInteger(copyBytes(vector, row)), scale);
+        }
+        columnBatch.setObjectVector(column, values, vector.isNull, vector.noNulls, false);
+    }
+
+    private byte[] copyBytes(ParquetColumnVector vector, int row) {
+        int start = vector.start[row];
+        return Arrays.copyOfRange(vector.bytes[row], start, start + vector.length[row]);
+    }
+
+    private Object getValue(ColumnBatch batch, int column, int row) {
+        if (batch.isNull(column, row)) {
+            return null;
+        }
+        DataType dataType = DataType.get(batch.getColumnType(column));
+        switch (batch.getVectorType(column)) {
+            case LONG:
+                long value = batch.getLong(column, row);
+                switch (dataType) {
+                    case BOOLEAN:
+                        return value != 0;
+                    case SMALLINT:
+                        return (short) value;
+                    case INTEGER:
+                        return (int) value;
+                    default:
+                        return value;
+                }
+            case DOUBLE:
+                double doubleValue = batch.getDouble(column, row);
+                if (dataType == DataType.REAL) {
+                    return (float) doubleValue;
+                }
+                return doubleValue;
+            case BYTES:
+                int start = batch.getBytesStart(column, row);
+                int length = batch.getBytesLength(column, row);
+                byte[] bytes = batch.getBytes(column, row);
+                return dataType == DataType.BYTEA
+                        ? Arrays.copyOfRange(bytes, start, start + length)
+                        : new String(bytes, start, length, StandardCharsets.UTF_8);
+            default:
+                return batch.getObject(column, row);
+        }
+    }
+
+    private void ensureColumnBatchIsInitialized() {
+        if (columnBatch != null) return;
+
+        readSchema = (MessageType) context.getMetadata();
+        if (readSchema == null) {
+            throw new RuntimeException("No schema detected in request context");
+        }
+
+        int[] columnTypes = new int[columnDescriptors.size()];
+        int columnIndex = 0;
+        for (int i = 0; i < columnDescriptors.size(); i++) {
+            ColumnDescriptor columnDescriptor = columnDescriptors.get(i);
+            columnTypes[i] = columnDescriptor.columnTypeCode();
+            if (columnDescriptor.isProjected()) {
+                PrimitiveType type = readSchema.getType(columnIndex).asPrimitiveType();
+                columnTypes[i] = ParquetTypeConverter.from(type).getDataType(type).getOID();
+                columnIndex++;
+            }
+        }
+        columnBatch = new ColumnBatch(columnTypes);
+        objectVectors = new Object[columnTypes.length][];
+    }
+
+    private Object[] getObjectVector(int column, int batchSize) {
+        if (objectVectors[column] == null || objectVectors[column].length < batchSize) {
+            objectVectors[column] = new Object[batchSize];
+        }
+        return objectVectors[column];
+    }
+}
@@ -0,0 +1,66 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.util.List;
+
+/**
+ * A batch of rows to write to a Parquet file, resolved by the
+ * {@link ParquetVectorizedResolver} and written by the
+ * {@link ParquetVectorizedAccessor}. Every primitive column of the schema is
+ * stored as a {@link ParquetColumnVector} of values in their Parquet physical
+ * representation, every LIST column as the list of element values of each
+ * row.
+ */
+public class ParquetWriteBatch {
+
+    final MessageType schema;
+    final ParquetColumnVector[] columns;
+    final List<?>[][] lists;
+    int size;
+    // the row written by the ParquetBatchWriteSupport
+    int row;
+
+    /**
+     * Constructs an empty batch for the given schema
+     *
+     * @param schema   the schema of the file
+     * @param capacity the maximum number of rows in the batch
+     */
+    ParquetWriteBatch(MessageType schema, int capacity) {
+        this.schema = schema;
+        int numColumns = schema.getFieldCount();
+        columns = new ParquetColumnVector[numColumns];
+        lists = new List<?>[numColumns][];
+        for (int i = 0; i < numColumns; i++) {
+            Type type = schema.getType(i);
+            if (type.isPrimitive()) {
+                columns[i] = new ParquetColumnVector(type.asPrimitiveType().getPrimitiveTypeName(), capacity);
+            } else {
+                lists[i] = new List<?>[capacity];
+            }
+        }
+    }
+
+    /**
+     * Removes all the rows from the batch, the vectors are reused
+     */
+    void reset() {
+        for (ParquetColumnVector column : columns) {
+            if (column != null) {
+                column.reset();
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the number of rows in the batch
+     *
+     * @return the number of rows in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,203 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.StringUtils.TraditionalBinaryPrefix;
+import org.greenplum.pxf.api.model.RequestContext;
+
+import java.io.IOException;
+
+/**
+ * Decides when a write accessor closes the file it is writing to and rolls
+ * over to a new file, based on the MAX_FILE_SIZE and MAX_ROWS_PER_FILE options
+ * of the request. When neither option is provided, all the rows are written
+ * to a single file.
+ * <p>
+ * The first file of a segment is named as if the options were not provided,
+ * the following files have the index of the file appended to their name, see
+ * {@link org.greenplum.pxf.plugins.hdfs.HcfsType#getUriForWrite(RequestContext, int, String, org.apache.hadoop.io.compress.CompressionCodec)}.
+ * When {@link RequestContext#isSkipExistingFiles()} is set, the indexes of the
+ * files that already exist are skipped.
+ */
+public class FileRollingPolicy {
+
+    public static final String MAX_FILE_SIZE_OPTION = "MAX_FILE_SIZE";
+    public static final String MAX_ROWS_PER_FILE_OPTION = "MAX_ROWS_PER_FILE";
+
+    private final long maxFileSize;
+    private final long maxRowsPerFile;
+    private final boolean skipExistingFiles;
+    private int fileIndex;
+    private long rowsInFile;
+
+    /**
+     * Constructs a policy with the given limits, a limit of 0 means no limit
+     *
+     * @param maxFileSize    the size in bytes after which a file is rolled over
+     * @param maxRowsPerFile the maximum number of rows in a file
+     */
+    public FileRollingPolicy(long maxFileSize, long maxRowsPerFile) {
+        this(maxFileSize, maxRowsPerFile, false);
+    }
+
+    /**
+     * Constructs a policy with the given limits, a limit of 0 means no limit
+     *
+     * @param maxFileSize       the size in bytes after which a file is rolled over
+     * @param maxRowsPerFile    the maximum number of rows in a file
+     * @param skipExistingFiles true if the indexes of the files that already exist are skipped
+     */
+    public FileRollingPolicy(long maxFileSize, long maxRowsPerFile, boolean skipExistingFiles) {
+        this.maxFileSize = maxFileSize;
+        this.maxRowsPerFile = maxRowsPerFile;
+        this.skipExistingFiles = skipExistingFiles;
+    }
+
+    /**
+     * Returns the policy for the MAX_FILE_SIZE and MAX_ROWS_PER_FILE options
+     * of the request. The size can have a k, m, g or t suffix, optionally
+     * followed by b, for instance 128m or 128MB.
+     *
+     * @param context the request context
+     * @return the policy for the request
+     */
+    public static FileRollingPolicy forRequest(RequestContext context) {
+        return new FileRollingPolicy(
+                parseSize(MAX_FILE_SIZE_OPTION, context.getOption(MAX_FILE_SIZE_OPTION)),
+                context.getOption(MAX_ROWS_PER_FILE_OPTION, 0L, true),
+                context.isSkipExistingFiles());
+    }
+
+    /**
+     * @return true if the rows are written to more than one file when a limit is reached, false otherwise
+     */
+    public boolean isEnabled() {
+        return maxFileSize > 0 || maxRowsPerFile > 0;
+    }
+
+    /**
+     * Returns whether the current file is full and the next rows have to be
+     * written to a new file. A file always holds at least one row. The size
+     * of the file is only requested when the size of files is limited.
+     *
+     * @param fileSize supplies the number of bytes written to the current file so far
+     * @return true if the current file is full, false otherwise
+     */
+    public boolean isFileFull(FileSize fileSize) throws IOException {
+        if (rowsInFile == 0) {
+            return false;
+        }
+        return (maxRowsPerFile > 0 && rowsInFile >= maxRowsPerFile)
+                || (maxFileSize > 0 && fileSize.get() >= maxFileSize);
+    }
+
+    /**
+     * Returns whether the current file is full, for a writer that does not
+     * report the size of the file. Such a writer can only be used when the
+     * size of files is not limited, see {@link #getMaxFileSize()}.
+     *
+     * @return true if the current file is full, false otherwise
+     * @throws IllegalStateException if the size of files is limited
+     */
+    public boolean isFileFull() {
+        if (maxFileSize > 0) {
+            throw new IllegalStateException("The size of the file is needed to limit the size of files");
+        }
+        return rowsInFile > 0 && maxRowsPerFile > 0 && rowsInFile >= maxRowsPerFile;
+    }
+
+    /**
+     * @return the size in bytes after which a file is rolled over, 0 if the size of files is not limited
+     */
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * @return the number of rows that can still be written to the current file
+     */
+    public long getRowsLeftInFile() {
+        return maxRowsPerFile > 0 ? Math.max(maxRowsPerFile - rowsInFile, 0) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Records that rows were written to the current file
+     *
+     * @param rows the number of rows written
+     */
+    public void addRows(long rows) {
+        rowsInFile += rows;
+    }
+
+    /**
+     * Moves on to the next file
+     */
+    public void nextFile() {
+        fileIndex++;
+        rowsInFile = 0;
+    }
+
+    /**
+     * @return the index of the current file, starting at 0
+     */
+    public int getFileIndex() {
+        return fileIndex;
+    }
+
+    /**
+     * Returns the name of the current file. When the existing files are
+     * skipped, the index of the current file is moved forward until the file
+     * with the index does not exist.
+     *
+     * @param fileName      supplies the name of the file with a given index
+     * @param configuration the configuration used to access the file system of the files
+     * @return the name of the current file
+     * @throws IOException if the file system cannot be accessed
+     */
+    public String getFileName(FileName fileName, Configuration configuration) throws IOException {
+        String name = fileName.get(fileIndex);
+        if (skipExistingFiles) {
+            Path path = new Path(name);
+            while (path.getFileSystem(configuration).exists(path)) {
+                name = fileName.get(++fileIndex);
+                path = new Path(name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Supplies the number of bytes written to the current file so far
+     */
+    @FunctionalInterface
+    public interface FileSize {
+        long get() throws IOException;
+    }
+
+    /**
+     * Supplies the name of the file with a given index
+     */
+    @FunctionalInterface
+    public interface FileName {
+        String get(int fileIndex);
+    }
+
+    private static long parseSize(String option, String value) {
+        if (value == null) {
+            return 0;
+        }
+        long result;
+        try {
+            result = TraditionalBinaryPrefix.string2long(StringUtils.removeEndIgnoreCase(value.trim(), "b"));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %s : must be a non-negative size in bytes", option, value), e);
+        }
+        if (result < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %s : must be a non-negative size in bytes", option, value));
+        }
+        return result;
+    }
+}
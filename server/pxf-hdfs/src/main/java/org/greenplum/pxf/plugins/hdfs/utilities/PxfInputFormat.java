@@ -32,6 +32,11 @@ import org.apache.hadoop.mapred.RecordReader;
 import org.apache.hadoop.mapred.Reporter;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.apache.hadoop.mapreduce.lib.input.FileInputFormat.DEFAULT_LIST_STATUS_NUM_THREADS;
+import static org.apache.hadoop.mapreduce.lib.input.FileInputFormat.LIST_STATUS_NUM_THREADS;
 
 /**
  * PxfInputFormat is not intended to read a specific format, hence it implements
@@ -49,9 +54,24 @@ public class PxfInputFormat extends FileInputFormat {
         throw new UnsupportedOperationException("PxfInputFormat should not be used for reading data, but only for obtaining the splits of a file");
     }
 
+    /**
+     * Lists the input files. When the files are listed by multiple threads,
+     * the files are returned in an order that depends on the completion of
+     * the threads, so they are sorted by path. Every PXF server must list the
+     * files in the same order, as the fragments are assigned to the segments
+     * by their position in the list.
+     *
+     * @param job the job configuration
+     * @return the list of input files
+     * @throws IOException when listing fails
+     */
     @Override
     public FileStatus[] listStatus(JobConf job) throws IOException {
-        return super.listStatus(job);
+        FileStatus[] result = super.listStatus(job);
+        if (job.getInt(LIST_STATUS_NUM_THREADS, DEFAULT_LIST_STATUS_NUM_THREADS) > 1) {
+            Arrays.sort(result, Comparator.comparing(FileStatus::getPath));
+        }
+        return result;
     }
 
     /**
@@ -20,16 +20,15 @@ package org.greenplum.pxf.plugins.hdfs;
  */
 
 
-import org.apache.hadoop.hdfs.DFSInputStream;
 import org.apache.hadoop.io.Writable;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 /**
  * Tester for the ChunkReader class
@@ -37,28 +36,18 @@ import static org.mockito.Mockito.when;
 public class ChunkReaderTest {
 
     ChunkReader reader;
-    /* Mocking the stream class that accesses the actual data */
-    DFSInputStream mockStream;
-
-    /*
-     * setup function called before each test.
-     */
-    @BeforeEach
-    public void setUp() {
-        mockStream = mock(DFSInputStream.class);
-    }
 
     /*
      * Simulate the empty file case
      */
     @Test
     public void readEmptyFile() throws Exception {
-        reader = new ChunkReader(mockStream);
-        when(mockStream.read((byte[]) any())).thenReturn(0);
+        reader = new ChunkReader(new ByteArrayInputStream(new byte[0]));
 
         Writable out = new ChunkWritable();
         int maxBytesToConsume = 1024 * 1024;
         assertEquals(0, reader.readLine(out, maxBytesToConsume));
+        assertEquals(0, reader.readChunk(out, maxBytesToConsume));
     }
 
     /*
@@ -66,60 +55,117 @@ public class ChunkReaderTest {
      */
     @Test
     public void readOneLine() throws Exception {
-        reader = new ChunkReader(mockStream);
-        when(mockStream.read((byte[]) any())).thenAnswer((Answer<Number>) invocation -> {
-            byte[] buf = (byte[]) invocation.getArguments()[0];
-
-            byte[] source = "OneLine\nTwoLine\n".getBytes();
-            System.arraycopy(source, 0, buf, 0, source.length);
-            return source.length;
-        });
+        reader = new ChunkReader(stream("OneLine\nTwoLine\n"));
 
         ChunkWritable out = new ChunkWritable();
         int maxBytesToConsume = 1024 * 1024;
         // read first line
         assertEquals("OneLine\n".length(), reader.readLine(out, maxBytesToConsume));
-        assertEquals("OneLine\n", new String(out.box));
+        assertEquals("OneLine\n", toString(out));
 
         // read second line
         assertEquals("TwoLine\n".length(), reader.readLine(out, maxBytesToConsume));
-        assertEquals("TwoLine\n", new String(out.box));
+        assertEquals("TwoLine\n", toString(out));
+
+        assertEquals(0, reader.readLine(out, maxBytesToConsume));
     }
 
     /*
-     * Read one line
+     * Read a chunk of lines
      */
     @Test
     public void readChunk() throws Exception {
-        reader = new ChunkReader(mockStream);
-        when(mockStream.read((byte[]) any())).thenAnswer((Answer<Number>) invocation -> {
-            byte[] buf = (byte[]) invocation.getArguments()[0];
-
-            byte[] source = "OneLine\nTwoLine\n".getBytes();
-            System.arraycopy(source, 0, buf, 0, source.length);
-            return source.length;
-        });
+        reader = new ChunkReader(stream("OneLine\nTwoLine\n"));
 
         ChunkWritable out = new ChunkWritable();
-        int maxBytesToConsume = 10; /* make readChunk return after reading the first "chunk": OneLine\nTwoLine\n */
+        int maxBytesToConsume = 1024 * 1024;
         // read chunk
         assertEquals("OneLine\nTwoLine\n".length()
                 , reader.readChunk(out, maxBytesToConsume));
-        assertEquals("OneLine\nTwoLine\n", new String(out.box));
+        assertEquals("OneLine\nTwoLine\n", toString(out));
     }
 
-}
-
-
-
-
-
-
+    /*
+     * A chunk ends with the last line that fits in it
+     */
+    @Test
+    public void readChunkEndsWithCompleteLine() throws Exception {
+        reader = new ChunkReader(stream("OneLine\nTwoLine\nThreeLine\n"));
 
+        ChunkWritable out = new ChunkWritable();
+        assertEquals(16, reader.readChunk(out, 20));
+        assertEquals("OneLine\nTwoLine\n", toString(out));
+        assertEquals(10, reader.readChunk(out, 20));
+        assertEquals("ThreeLine\n", toString(out));
+        assertEquals(0, reader.readChunk(out, 20));
+    }
 
+    /*
+     * A line longer than the chunk size is returned alone
+     */
+    @Test
+    public void readChunkWithLongLine() throws Exception {
+        reader = new ChunkReader(stream("AVeryLongLine\nShort\nLast"));
 
+        ChunkWritable out = new ChunkWritable();
+        assertEquals(14, reader.readChunk(out, 4));
+        assertEquals("AVeryLongLine\n", toString(out));
+        assertEquals(6, reader.readChunk(out, 8));
+        assertEquals("Short\n", toString(out));
+        // the last line is not terminated
+        assertEquals(4, reader.readChunk(out, 8));
+        assertEquals("Last", toString(out));
+    }
 
+    /*
+     * Lines longer than the buffer and lines spread over many reads
+     */
+    @Test
+    public void readLinesLongerThanBuffer() throws Exception {
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 3 * ChunkReader.DEFAULT_BUFFER_SIZE) {
+            longLine.append("0123456789");
+        }
+        longLine.append('\n');
+        // the stream returns a few bytes at a time
+        reader = new ChunkReader(new TrickleInputStream(stream("a\n" + longLine + "b\n"), 1000));
 
+        ChunkWritable out = new ChunkWritable();
+        assertEquals(2, reader.skipLine(Integer.MAX_VALUE));
+        assertEquals(longLine.length(), reader.readLine(out, Integer.MAX_VALUE));
+        assertEquals(longLine.toString(), toString(out));
+        assertEquals(2, reader.readChunk(out, 1024));
+        assertEquals("b\n", toString(out));
+    }
 
+    private InputStream stream(String data) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+    }
 
+    private String toString(ChunkWritable chunk) {
+        return new String(chunk.box, chunk.offset, chunk.length, StandardCharsets.UTF_8);
+    }
 
+    /*
+     * An input stream that returns at most maxRead bytes per read
+     */
+    private static class TrickleInputStream extends InputStream {
+        private final InputStream in;
+        private final int maxRead;
+
+        TrickleInputStream(InputStream in, int maxRead) {
+            this.in = in;
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return in.read(b, off, Math.min(len, maxRead));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.LineRecordReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkRecordReaderTest {
+
+    private static final String DATA = "line1,a\n\nline3,bbb\nline4,cccc\n\n\nline7,ddddddd\nlast";
+
+    @TempDir
+    File tempDir;
+
+    private Configuration configuration;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new Configuration();
+    }
+
+    @Test
+    public void testReadsSameLinesAsLineRecordReaderForEverySplitBoundary() throws Exception {
+        File file = write("data.txt", DATA.getBytes(StandardCharsets.UTF_8));
+        int length = (int) file.length();
+
+        for (int boundary = 1; boundary <= length; boundary++) {
+            FileSplit first = new FileSplit(new Path(file.toURI()), 0, boundary, (String[]) null);
+            FileSplit second = new FileSplit(new Path(file.toURI()), boundary, length - boundary, (String[]) null);
+
+            String expected = readLines(first) + readLines(second);
+            String actual = readChunks(new ChunkRecordReader(configuration, first))
+                    + readChunks(new ChunkRecordReader(configuration, second));
+            assertEquals(DATA + "\n", actual, "split boundary " + boundary);
+            assertEquals(expected, actual, "split boundary " + boundary);
+            assertEquals(readLines(first), readChunks(new ChunkRecordReader(configuration, first)), "split boundary " + boundary);
+        }
+    }
+
+    @Test
+    public void testSkipsHeaderLines() throws Exception {
+        File file = write("data.txt", DATA.getBytes(StandardCharsets.UTF_8));
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), (String[]) null);
+
+        assertEquals("line3,bbb\nline4,cccc\n\n\nline7,ddddddd\nlast\n",
+                readChunks(new ChunkRecordReader(configuration, split, 2)));
+        assertEquals("", readChunks(new ChunkRecordReader(configuration, split, 10)));
+    }
+
+    @Test
+    public void testDoesNotSkipHeaderLinesOfNextSplits() throws Exception {
+        File file = write("data.txt", DATA.getBytes(StandardCharsets.UTF_8));
+        FileSplit split = new FileSplit(new Path(file.toURI()), 10, file.length() - 10, (String[]) null);
+
+        assertEquals("line4,cccc\n\n\nline7,ddddddd\nlast\n",
+                readChunks(new ChunkRecordReader(configuration, split, 2)));
+    }
+
+    @Test
+    public void testReadsCompressedFile() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(DATA.getBytes(StandardCharsets.UTF_8));
+        }
+        File file = write("data.txt.gz", compressed.toByteArray());
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), (String[]) null);
+
+        assertEquals(DATA + "\n", readChunks(new ChunkRecordReader(configuration, split)));
+        assertEquals("line3,bbb\nline4,cccc\n\n\nline7,ddddddd\nlast\n",
+                readChunks(new ChunkRecordReader(configuration, split, 2)));
+    }
+
+    @Test
+    public void testReadsCompressedFileInChunks() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(DATA.getBytes(StandardCharsets.UTF_8));
+        }
+        File file = write("data.txt.gz", compressed.toByteArray());
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), (String[]) null);
+
+        ChunkRecordReader reader = new ChunkRecordReader(configuration, split);
+        LongWritable key = reader.createKey();
+        ChunkWritable value = reader.createValue();
+        // all the complete lines fit in the first chunk
+        assertTrue(reader.next(key, value));
+        assertEquals(DATA.substring(0, DATA.lastIndexOf('\n') + 1),
+                new String(value.box, value.offset, value.length, StandardCharsets.UTF_8));
+        assertTrue(reader.next(key, value));
+        assertEquals("last\n", new String(value.box, value.offset, value.length, StandardCharsets.UTF_8));
+        assertFalse(reader.next(key, value));
+        reader.close();
+    }
+
+    @Test
+    public void testSkipsLinesLongerThanMaxLineLength() throws Exception {
+        configuration.setInt("mapreduce.input.linerecordreader.line.maxlength", 10);
+        File file = write("data.txt", DATA.getBytes(StandardCharsets.UTF_8));
+        int length = (int) file.length();
+        // lines of 10 bytes or more, including their linefeed, are skipped
+        String expected = "line1,a\n\n\n\nlast\n";
+
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, length, (String[]) null);
+        assertEquals(readLines(split), readChunks(new ChunkRecordReader(configuration, split)));
+        assertEquals(expected, readChunks(new ChunkRecordReader(configuration, split)));
+
+        for (int boundary = 1; boundary <= length; boundary++) {
+            FileSplit first = new FileSplit(new Path(file.toURI()), 0, boundary, (String[]) null);
+            FileSplit second = new FileSplit(new Path(file.toURI()), boundary, length - boundary, (String[]) null);
+
+            assertEquals(expected, readChunks(new ChunkRecordReader(configuration, first))
+                    + readChunks(new ChunkRecordReader(configuration, second)), "split boundary " + boundary);
+        }
+    }
+
+    @Test
+    public void testSplittableCodecIsNotSupported() throws Exception {
+        File file = write("data.txt.bz2", new byte[0]);
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), (String[]) null);
+
+        Exception e = assertThrows(IncompatibleInputStreamException.class,
+                () -> new ChunkRecordReader(configuration, split));
+        assertEquals("Codec org.apache.hadoop.io.compress.BZip2Codec is splittable", e.getMessage());
+    }
+
+    @Test
+    public void testReadsChunksLargerThanBuffer() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 3 * 1024 * 1024; i++) {
+            data.append("line ").append(i).append('\n');
+        }
+        File file = write("large.txt", data.toString().getBytes(StandardCharsets.UTF_8));
+        FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), (String[]) null);
+
+        ChunkRecordReader reader = new ChunkRecordReader(configuration, split);
+        LongWritable key = reader.createKey();
+        ChunkWritable value = reader.createValue();
+        StringBuilder actual = new StringBuilder();
+        int chunks = 0;
+        while (reader.next(key, value)) {
+            assertEquals(actual.length(), key.get());
+            // every chunk ends with a complete line
+            assertEquals('\n', value.box[value.offset + value.length - 1]);
+            actual.append(new String(value.box, value.offset, value.length, StandardCharsets.UTF_8));
+            chunks++;
+        }
+        reader.close();
+
+        assertEquals(data.toString(), actual.toString());
+        assertTrue(chunks > 1);
+        assertFalse(chunks > 4);
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(tempDir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private String readChunks(ChunkRecordReader reader) throws IOException {
+        StringBuilder result = new StringBuilder();
+        LongWritable key = reader.createKey();
+        ChunkWritable value = reader.createValue();
+        while (reader.next(key, value)) {
+            result.append(new String(value.box, value.offset, value.length, StandardCharsets.UTF_8));
+        }
+        reader.close();
+        return result.toString();
+    }
+
+    private String readLines(FileSplit split) throws IOException {
+        StringBuilder result = new StringBuilder();
+        LineRecordReader reader = new LineRecordReader(configuration, split);
+        LongWritable key = reader.createKey();
+        Text value = reader.createValue();
+        while (reader.next(key, value)) {
+            result.append(value).append('\n');
+        }
+        reader.close();
+        return result.toString();
+    }
+}
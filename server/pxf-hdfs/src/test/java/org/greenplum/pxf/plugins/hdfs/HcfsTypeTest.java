@@ -193,6 +193,19 @@ public class HcfsTypeTest {
         assertEquals("xyz://abc/foo/bar/XID-XYZ-123456_3.foo.gz", type.getUriForWrite(context, ".foo", new GzipCodec()));
     }
 
+    @Test
+    public void testUriForWriteWithFileIndex() {
+        configuration.set("fs.defaultFS", "xyz://abc");
+        context.setDataSource("foo/bar");
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(3);
+
+        HcfsType type = HcfsType.getHcfsType(context);
+        assertEquals("xyz://abc/foo/bar/XID-XYZ-123456_3.foo.gz", type.getUriForWrite(context, 0, "foo", new GzipCodec()));
+        assertEquals("xyz://abc/foo/bar/XID-XYZ-123456_3_1.foo.gz", type.getUriForWrite(context, 1, "foo", new GzipCodec()));
+        assertEquals("xyz://abc/foo/bar/XID-XYZ-123456_3_12", type.getUriForWrite(context, 12, null, null));
+    }
+
     @Test
     public void testUriForWriteWithLzoCodec() {
         configuration.set("fs.defaultFS", "xyz://abc");
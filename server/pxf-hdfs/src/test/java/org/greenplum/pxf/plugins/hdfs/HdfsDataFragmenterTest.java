@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -83,6 +84,44 @@ public class HdfsDataFragmenterTest {
         assertEquals(0, fragmentList.size());
     }
 
+    @Test
+    public void testFragmenterListsFilesWithMultipleThreads() throws Exception {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.addOption("LIST_STATUS_THREADS", "4");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = getFragmenter(context);
+
+        List<Fragment> fragmentList = fragmenter.getFragments();
+        assertNotNull(fragmentList);
+        // empty.csv gets ignored
+        assertEquals(8, fragmentList.size());
+        // files listed by multiple threads are sorted, so that all PXF servers get the same list
+        List<String> sourceNames = fragmentList.stream().map(Fragment::getSourceName).collect(Collectors.toList());
+        assertEquals(sourceNames.stream().sorted().collect(Collectors.toList()), sourceNames);
+    }
+
+    @Test
+    public void testFragmenterFailsWithInvalidListStatusThreads() {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.addOption("LIST_STATUS_THREADS", "0");
+        context.setDataSource(path);
+
+        Fragmenter fragmenter = getFragmenter(context);
+        Exception e = assertThrows(IllegalArgumentException.class, fragmenter::getFragments);
+        assertEquals("Property LIST_STATUS_THREADS has incorrect value 0 : must be a positive integer", e.getMessage());
+
+        context.addOption("LIST_STATUS_THREADS", "many");
+        e = assertThrows(IllegalArgumentException.class, getFragmenter(context)::getFragments);
+        assertEquals("Property LIST_STATUS_THREADS has incorrect value many : must be a non-negative integer", e.getMessage());
+    }
+
     private Fragmenter getFragmenter(RequestContext context) {
         HdfsDataFragmenter fragmenter = new HdfsDataFragmenter();
         fragmenter.setRequestContext(context);
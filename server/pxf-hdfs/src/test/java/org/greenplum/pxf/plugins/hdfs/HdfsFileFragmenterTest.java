@@ -7,8 +7,13 @@ import org.greenplum.pxf.api.model.Fragmenter;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -22,6 +27,9 @@ public class HdfsFileFragmenterTest {
 
     private final RequestContext context = new RequestContext();
 
+    @TempDir
+    File tempDir;
+
     @BeforeEach
     public void setup() {
         Configuration configuration = new Configuration();
@@ -99,6 +107,46 @@ public class HdfsFileFragmenterTest {
         assertEquals(0, fragmentList.size());
     }
 
+    @Test
+    public void testFragmenterListsDirectoriesWithMultipleThreads() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            File directory = new File(tempDir, "dir" + i);
+            assertTrue(directory.mkdir());
+            for (int j = 0; j < 3; j++) {
+                Files.write(new File(directory, "file" + j + ".csv").toPath(), "a,b\n".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.setDataSource(tempDir.getAbsolutePath() + "/dir*");
+        List<String> singleThreaded = getSourceNames(getFragmenter(context).getFragments());
+
+        context.addOption("LIST_STATUS_THREADS", "4");
+        List<String> multiThreaded = getSourceNames(getFragmenter(context).getFragments());
+
+        assertEquals(15, multiThreaded.size());
+        assertEquals(singleThreaded.stream().sorted().collect(Collectors.toList()), multiThreaded);
+    }
+
+    @Test
+    public void testFragmenterErrorsWhenPathDoesNotExistWithMultipleThreads() {
+        String path = this.getClass().getClassLoader().getResource("csv/").getPath();
+
+        context.setConfig("default");
+        context.setUser("test-user");
+        context.addOption("LIST_STATUS_THREADS", "4");
+        context.setDataSource(path + "non-existent");
+
+        Fragmenter fragmenter = getFragmenter(context);
+        Exception e = assertThrows(InvalidInputException.class, fragmenter::getFragments);
+        assertTrue(e.getMessage().contains("Input path does not exist:"));
+    }
+
+    private List<String> getSourceNames(List<Fragment> fragments) {
+        return fragments.stream().map(Fragment::getSourceName).collect(Collectors.toList());
+    }
+
     private Fragmenter getFragmenter(RequestContext context) {
         HdfsFileFragmenter fragmenter = new HdfsFileFragmenter();
         fragmenter.setRequestContext(context);
@@ -4,22 +4,31 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LineBreakAccessorTest {
 
     private Accessor accessor;
     private RequestContext context;
+    @TempDir
+    File temp; // must be non-private
 
     @BeforeEach
     public void setup() {
@@ -272,6 +281,137 @@ public class LineBreakAccessorTest {
         accessor.closeForRead();
     }
 
+    @Test
+    public void testReadChunksForStringPassResolver() throws Exception {
+        prepareTest("csv/csv_with_header.csv");
+        context.addOption("SKIP_HEADER_COUNT", "1");
+        context.setResolver(StringPassResolver.class.getName());
+        context.setOutputFormat(OutputFormat.TEXT);
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        accessor.openForRead();
+
+        OneRow oneRow = accessor.readNextObject();
+        assertNotNull(oneRow);
+        ChunkWritable chunk = (ChunkWritable) oneRow.getData();
+        assertEquals("line2,header1,header2,header3\nline3,value1,value2,value3\n",
+                new String(chunk.box, chunk.offset, chunk.length, StandardCharsets.UTF_8));
+
+        oneRow = accessor.readNextObject();
+        assertNull(oneRow);
+
+        accessor.closeForRead();
+    }
+
+    @Test
+    public void testReadLinesWhenChunkRecordReaderIsDisabled() throws Exception {
+        prepareTest("csv/csv_with_header.csv");
+        context.setResolver(StringPassResolver.class.getName());
+        context.setOutputFormat(OutputFormat.TEXT);
+        context.getConfiguration().setBoolean(LineBreakAccessor.PXF_CHUNK_RECORD_READER_ENABLED, false);
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        accessor.openForRead();
+
+        OneRow oneRow = accessor.readNextObject();
+        assertNotNull(oneRow);
+        assertEquals("line1,header1,header2,header3", oneRow.getData().toString());
+
+        accessor.closeForRead();
+    }
+
+    @Test
+    public void testWriteRollsOverToNewFilesByRowCount() throws Exception {
+        prepareWriteTest();
+        context.setFormat("csv");
+        context.addOption("MAX_ROWS_PER_FILE", "2");
+        // a small buffer makes rows span several reads
+        context.getConfiguration().setInt("io.file.buffer.size", 3);
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+
+        String rows = "1,\"a\nb\"\n2,\"c\"\"\n\"\n3,d\n4,e\n5,f\n";
+        accessor.openForWrite();
+        assertTrue(accessor.writeNextObject(new OneRow(new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8)))));
+        accessor.closeForWrite();
+
+        assertEquals("1,\"a\nb\"\n2,\"c\"\"\n\"\n", readWrittenFile("XID-XYZ-123456_2"));
+        assertEquals("3,d\n4,e\n", readWrittenFile("XID-XYZ-123456_2_1"));
+        assertEquals("5,f\n", readWrittenFile("XID-XYZ-123456_2_2"));
+        assertEquals(3, new File(temp, "out").list((dir, name) -> !name.endsWith(".crc")).length);
+    }
+
+    @Test
+    public void testWriteRollsOverToNewFilesBySize() throws Exception {
+        prepareWriteTest();
+        context.addOption("MAX_FILE_SIZE", "10");
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+
+        accessor.openForWrite();
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(accessor.writeNextObject(new OneRow(("row-" + i + "\n").getBytes(StandardCharsets.UTF_8))));
+        }
+        accessor.closeForWrite();
+
+        assertEquals("row-1\nrow-2\n", readWrittenFile("XID-XYZ-123456_2"));
+        assertEquals("row-3\nrow-4\n", readWrittenFile("XID-XYZ-123456_2_1"));
+        assertEquals("row-5\n", readWrittenFile("XID-XYZ-123456_2_2"));
+    }
+
+    @Test
+    public void testWriteWithoutRollingOptions() throws Exception {
+        prepareWriteTest();
+        context.getConfiguration().setInt("io.file.buffer.size", 3);
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+
+        accessor.openForWrite();
+        assertTrue(accessor.writeNextObject(new OneRow(new ByteArrayInputStream("1,a\n2,b\n".getBytes(StandardCharsets.UTF_8)))));
+        accessor.closeForWrite();
+
+        assertEquals("1,a\n2,b\n", readWrittenFile("XID-XYZ-123456_2"));
+        assertEquals(1, new File(temp, "out").list((dir, name) -> !name.endsWith(".crc")).length);
+    }
+
+    @Test
+    public void testWriteSkipsExistingFiles() throws Exception {
+        prepareWriteTest();
+        context.addOption("MAX_ROWS_PER_FILE", "1");
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        accessor.openForWrite();
+        assertTrue(accessor.writeNextObject(new OneRow("row-1\n".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(accessor.writeNextObject(new OneRow("row-2\n".getBytes(StandardCharsets.UTF_8))));
+        accessor.closeForWrite();
+
+        // a second writer of the same segment continues after the files of the first one
+        context.setSkipExistingFiles(true);
+        LineBreakAccessor nextAccessor = new LineBreakAccessor();
+        nextAccessor.setRequestContext(context);
+        nextAccessor.afterPropertiesSet();
+        nextAccessor.openForWrite();
+        assertTrue(nextAccessor.writeNextObject(new OneRow("row-3\n".getBytes(StandardCharsets.UTF_8))));
+        nextAccessor.closeForWrite();
+
+        assertEquals("row-1\n", readWrittenFile("XID-XYZ-123456_2"));
+        assertEquals("row-2\n", readWrittenFile("XID-XYZ-123456_2_1"));
+        assertEquals("row-3\n", readWrittenFile("XID-XYZ-123456_2_2"));
+    }
+
+    private void prepareWriteTest() {
+        context.setProfileScheme("file");
+        context.getConfiguration().set("pxf.fs.basePath", "/");
+        context.setRequestType(RequestContext.RequestType.WRITE_BRIDGE);
+        context.setDataSource(new File(temp, "out").getAbsolutePath());
+        context.setTransactionId("XID-XYZ-123456");
+        context.setSegmentId(2);
+    }
+
+    private String readWrittenFile(String name) throws IOException {
+        return new String(Files.readAllBytes(new File(new File(temp, "out"), name).toPath()), StandardCharsets.UTF_8);
+    }
+
     private void prepareTest(String resourceName) throws IOException, URISyntaxException {
         String filepath = this.getClass().getClassLoader()
                 .getResource(resourceName).toURI().toString();
@@ -250,6 +250,89 @@ public class ParquetWriteTest {
         fileReader.close();
     }
 
+    @Test
+    public void testWriteRollsOverToNewFilesByRowCount() throws Exception {
+        String path = temp + "/out/rolling_rows/";
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.addOption("MAX_ROWS_PER_FILE", "10");
+
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        assertTrue(accessor.openForWrite());
+        for (int i = 0; i < 25; i++) {
+            List<OneField> record = Collections.singletonList(new OneField(DataType.INTEGER.getOID(), i));
+            assertTrue(accessor.writeNextObject(resolver.setFields(record)));
+        }
+        accessor.closeForWrite();
+
+        // every file has its own footer, the rows are written in order
+        int id = 0;
+        int[] expectedRows = {10, 10, 5};
+        for (int fileIndex = 0; fileIndex < expectedRows.length; fileIndex++) {
+            Path file = new Path(HcfsType.FILE.getUriForWrite(context, fileIndex, ".snappy.parquet", null));
+            validateFooter(file, 1, expectedRows[fileIndex]);
+            try (ParquetReader<Group> fileReader = ParquetReader.builder(new GroupReadSupport(), file)
+                    .withConf(configuration)
+                    .build()) {
+                Group group;
+                while ((group = fileReader.read()) != null) {
+                    assertEquals(id++, group.getInteger(0, 0));
+                }
+            }
+        }
+        assertEquals(25, id);
+        assertEquals("XID-XYZ-123456_4_2.snappy.parquet",
+                new Path(HcfsType.FILE.getUriForWrite(context, 2, ".snappy.parquet", null)).getName());
+        Path nextFile = new Path(HcfsType.FILE.getUriForWrite(context, 3, ".snappy.parquet", null));
+        assertFalse(nextFile.getFileSystem(configuration).exists(nextFile));
+    }
+
+    @Test
+    public void testWriteRollsOverToNewFilesBySize() throws Exception {
+        String path = temp + "/out/rolling_size/";
+        columnDescriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 0, "text", null));
+
+        context.setDataSource(path);
+        context.setTransactionId("XID-XYZ-123456");
+        context.addOption("MAX_FILE_SIZE", "16k");
+        context.addOption("ENABLE_DICTIONARY", "false");
+
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        assertTrue(accessor.openForWrite());
+        for (int i = 0; i < 2000; i++) {
+            List<OneField> record = Collections.singletonList(new OneField(DataType.TEXT.getOID(), StringUtils.repeat("row-" + i, 4)));
+            assertTrue(accessor.writeNextObject(resolver.setFields(record)));
+        }
+        accessor.closeForWrite();
+
+        int id = 0;
+        int fileIndex = 0;
+        Path file = new Path(HcfsType.FILE.getUriForWrite(context, fileIndex, ".snappy.parquet", null));
+        while (file.getFileSystem(configuration).exists(file)) {
+            try (ParquetReader<Group> fileReader = ParquetReader.builder(new GroupReadSupport(), file)
+                    .withConf(configuration)
+                    .build()) {
+                Group group;
+                while ((group = fileReader.read()) != null) {
+                    assertEquals(StringUtils.repeat("row-" + id++, 4), group.getString(0, 0));
+                }
+            }
+            file = new Path(HcfsType.FILE.getUriForWrite(context, ++fileIndex, ".snappy.parquet", null));
+        }
+        assertEquals(2000, id);
+        assertTrue(fileIndex > 1, "expected several files, got " + fileIndex);
+    }
+
     @Test
     public void testWriteText() throws Exception {
         String path = temp + "/out/text/";
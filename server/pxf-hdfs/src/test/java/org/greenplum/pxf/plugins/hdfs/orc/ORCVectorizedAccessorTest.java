@@ -2,11 +2,18 @@ package org.greenplum.pxf.plugins.hdfs.orc;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
 import org.apache.orc.TypeDescription;
 import org.apache.orc.Writer;
+import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.error.PxfRuntimeException;
 import org.greenplum.pxf.api.io.DataType;
@@ -15,15 +22,19 @@ import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.HcfsFragmentMetadata;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.IntStream;
 
 import static org.greenplum.pxf.plugins.hdfs.HcfsType.CONFIG_KEY_BASE_PATH;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -37,6 +48,8 @@ import static org.mockito.Mockito.when;
 class ORCVectorizedAccessorTest extends ORCVectorizedBaseTest {
     private ORCVectorizedAccessor accessor;
     private RequestContext context;
+    @TempDir
+    File temp; // must be non-private
 
     @BeforeEach
     public void setup() {
@@ -187,6 +200,81 @@ class ORCVectorizedAccessorTest extends ORCVectorizedBaseTest {
         verify(mockBatch, never()).reset();
     }
 
+    @Test
+    public void testWriteRollsOverToNewFilesByRowCount() throws IOException {
+        context.addOption("MAX_ROWS_PER_FILE", "1000");
+        ORCVectorizedResolver resolver = openForWriteWithResolver();
+
+        // rows roll over in the middle of the batches, the rows copied to the next file include a null
+        List<List<OneField>> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            records.add(Arrays.asList(
+                    new OneField(DataType.TEXT.getOID(), i == 1500 ? null : "row" + i),
+                    new OneField(DataType.INTEGER.getOID(), i)));
+        }
+        for (int start = 0; start < records.size(); start += resolver.getBatchSize()) {
+            OneRow batch = resolver.setFieldsForBatch(records.subList(start, Math.min(start + resolver.getBatchSize(), records.size())));
+            VectorizedRowBatch rowBatch = (VectorizedRowBatch) batch.getData();
+            int size = rowBatch.size;
+            assertTrue(accessor.writeNextObject(batch));
+            // the batch of the resolver is left unchanged
+            assertEquals(size, rowBatch.size);
+        }
+        accessor.closeForWrite();
+
+        int id = 0;
+        for (int fileIndex = 0; fileIndex < 3; fileIndex++) {
+            Path file = new Path(temp.getAbsolutePath() + "/pxf_orc_write/123_5" + (fileIndex > 0 ? "_" + fileIndex : "") + ".orc");
+            Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(context.getConfiguration()));
+            assertEquals(1000, reader.getNumberOfRows());
+            try (RecordReader rows = reader.rows()) {
+                VectorizedRowBatch rowBatch = reader.getSchema().createRowBatch();
+                while (rows.nextBatch(rowBatch)) {
+                    BytesColumnVector col0 = (BytesColumnVector) rowBatch.cols[0];
+                    LongColumnVector col1 = (LongColumnVector) rowBatch.cols[1];
+                    for (int row = 0; row < rowBatch.size; row++, id++) {
+                        assertEquals(id, col1.vector[row]);
+                        if (id == 1500) {
+                            assertTrue(col0.isNull[row]);
+                        } else {
+                            assertEquals("row" + id, col0.toString(row));
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(3000, id);
+        assertFalse(new File(temp, "pxf_orc_write/123_5_3.orc").exists());
+    }
+
+    @Test
+    public void testWriteRollsOverToNewFilesBySize() throws IOException {
+        context.addOption("MAX_FILE_SIZE", "4k");
+        ORCVectorizedResolver resolver = openForWriteWithResolver();
+        assertEquals(4096, accessor.getWriterState().getWriterOptions().getStripeSize());
+
+        List<List<OneField>> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(Arrays.asList(
+                    new OneField(DataType.TEXT.getOID(), "row" + i * 2654435761L),
+                    new OneField(DataType.INTEGER.getOID(), i)));
+        }
+        for (int i = 0; i < 30; i++) {
+            assertTrue(accessor.writeNextObject(resolver.setFieldsForBatch(records)));
+        }
+        accessor.closeForWrite();
+
+        long rows = 0;
+        int fileIndex = 0;
+        File file = new File(temp, "pxf_orc_write/123_5.orc");
+        while (file.exists()) {
+            rows += OrcFile.createReader(new Path(file.getAbsolutePath()), OrcFile.readerOptions(context.getConfiguration())).getNumberOfRows();
+            file = new File(temp, "pxf_orc_write/123_5_" + ++fileIndex + ".orc");
+        }
+        assertEquals(30000, rows);
+        assertTrue(fileIndex > 1, "expected several files, got " + fileIndex);
+    }
+
     @Test
     public void testCloseForWrite() throws IOException {
         accessor.getWriterState().setFileWriter(null);
@@ -229,6 +317,23 @@ class ORCVectorizedAccessorTest extends ORCVectorizedBaseTest {
         assertSame(writerState.getWriterOptions(), context.getMetadata());
     }
 
+    private ORCVectorizedResolver openForWriteWithResolver() throws IOException {
+        context.setRequestType(RequestContext.RequestType.WRITE_BRIDGE);
+        context.setTransactionId("123");
+        context.setSegmentId(5);
+        context.getConfiguration().set(CONFIG_KEY_BASE_PATH, temp.getAbsolutePath());
+        context.setDataSource("pxf_orc_write");
+        context.setTupleDescription(twoColumnDescriptors);
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        assertTrue(accessor.openForWrite());
+
+        ORCVectorizedResolver resolver = new ORCVectorizedResolver();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+        return resolver;
+    }
+
     private void runErrorScenario_OpenForWrite(String exceptionMessage) throws IOException {
         File tempDirBase = FileUtils.getTempDirectory();
         File writeDir = new File(tempDirBase, "pxf_orc_write");
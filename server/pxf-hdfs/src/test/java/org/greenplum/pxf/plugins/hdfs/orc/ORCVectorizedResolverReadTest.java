@@ -10,6 +10,7 @@ import org.apache.orc.Reader;
 import org.apache.orc.RecordReader;
 import org.apache.orc.TypeDescription;
 import org.apache.orc.impl.SchemaEvolution;
+import org.greenplum.pxf.api.ColumnBatch;
 import org.greenplum.pxf.api.GreenplumDateTime;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
@@ -21,18 +22,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.IntStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -328,6 +333,114 @@ class ORCVectorizedResolverReadTest extends ORCVectorizedBaseTest {
         assertDataReturned(ORC_TYPES_DATASET, fields);
     }
 
+    @Test
+    public void testGetColumnBatchPrimitive() throws IOException {
+        TypeDescription schema = TypeDescription.fromString(ORC_TYPES_SCHEMA);
+        context.setMetadata(schema);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        OneRow batchOfRows = new OneRow(readOrcFile("orc_types.orc", 25, schema));
+        ColumnBatch columnBatch = resolver.getColumnBatch(batchOfRows);
+        assertEquals(25, columnBatch.getSize());
+        assertEquals(16, columnBatch.getNumColumns());
+        assertEquals(ColumnBatch.VectorType.BYTES, columnBatch.getVectorType(0));
+        assertEquals(ColumnBatch.VectorType.LONG, columnBatch.getVectorType(2));
+        assertEquals(ColumnBatch.VectorType.DOUBLE, columnBatch.getVectorType(3));
+        assertEquals(ColumnBatch.VectorType.OBJECT, columnBatch.getVectorType(4));
+
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(batchOfRows), columnBatch);
+    }
+
+    @Test
+    public void testGetColumnBatchPrimitiveWithProjection() throws IOException {
+        IntStream.range(0, columnDescriptors.size()).forEach(idx ->
+                columnDescriptors
+                        .get(idx)
+                        .setProjected(idx == 1 || idx == 2 || idx == 5 || idx == 6 || idx == 7 || idx == 10 || idx == 14));
+
+        TypeDescription schema = TypeDescription.fromString("struct<t2:string,num1:int,tm:timestamp,tmtz: timestamp with local time zone,r:float,tn:tinyint,c1:char(3)>");
+        context.setMetadata(schema);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        OneRow batchOfRows = new OneRow(readOrcFile("orc_types.orc", 25, schema));
+        ColumnBatch columnBatch = resolver.getColumnBatch(batchOfRows);
+        assertEquals(ColumnBatch.VectorType.NULL, columnBatch.getVectorType(0));
+        assertEquals(DataType.TEXT.getOID(), columnBatch.getColumnType(0));
+
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(batchOfRows), columnBatch);
+    }
+
+    @Test
+    public void testGetColumnBatchCompound() throws IOException {
+        TypeDescription schema = TypeDescription.fromString(ORC_TYPES_SCHEMA_COMPOUND);
+        context.setMetadata(schema);
+        context.setTupleDescription(columnDescriptorsCompound);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        OneRow batchOfRows = new OneRow(readOrcFile("orc_types_compound.orc", 6, schema));
+        ColumnBatch columnBatch = resolver.getColumnBatch(batchOfRows);
+
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(batchOfRows), columnBatch);
+    }
+
+    @Test
+    public void testGetColumnBatchPrimitiveUnorderedSubset() throws IOException {
+        TypeDescription schema = TypeDescription.fromString(ORC_TYPES_SCHEMA);
+        context.setMetadata(schema);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        OneRow batchOfRows = new OneRow(readOrcFile("orc_types_unordered_subset.orc", 17, schema));
+        ColumnBatch columnBatch = resolver.getColumnBatch(batchOfRows);
+
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(batchOfRows), columnBatch);
+    }
+
+    @Test
+    public void testGetColumnBatchRepeatedPrimitive() throws IOException {
+        TypeDescription schema = TypeDescription.fromString(ORC_TYPES_SCHEMA);
+        context.setMetadata(schema);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        OneRow batchOfRows = new OneRow(readOrcFile("orc_types_repeated.orc", 3, schema));
+        ColumnBatch columnBatch = resolver.getColumnBatch(batchOfRows);
+        assertEquals(3, columnBatch.getSize());
+
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(batchOfRows), columnBatch);
+    }
+
+    @Test
+    public void testGetColumnBatchForMultipleBatches() throws IOException {
+        TypeDescription schema = TypeDescription.fromString(ORC_TYPES_SCHEMA);
+        context.setMetadata(schema);
+
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        List<VectorizedRowBatch> batches = readBatchesFromOrcFile("orc_types.orc", 24, 2, schema);
+
+        OneRow firstBatchOfRows = new OneRow(batches.get(0));
+        ColumnBatch columnBatch1 = resolver.getColumnBatch(firstBatchOfRows);
+        assertEquals(24, columnBatch1.getSize());
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(firstBatchOfRows), columnBatch1);
+
+        OneRow secondBatchOfRows = new OneRow(batches.get(1));
+        ColumnBatch columnBatch2 = resolver.getColumnBatch(secondBatchOfRows);
+        // the column batch is reused between batches
+        assertSame(columnBatch1, columnBatch2);
+        assertEquals(1, columnBatch2.getSize());
+        assertColumnBatchMatchesFields(resolver.getFieldsForBatch(secondBatchOfRows), columnBatch2);
+    }
+
     @Test
     public void testUnsupportedFunctionality() {
         Exception e = assertThrows(UnsupportedOperationException.class, () -> resolver.getFields(new OneRow()));
@@ -337,6 +450,53 @@ class ORCVectorizedResolverReadTest extends ORCVectorizedBaseTest {
         assertEquals("Current operation is not supported", e.getMessage());
     }
 
+    private void assertColumnBatchMatchesFields(List<List<OneField>> fieldsForBatch, ColumnBatch columnBatch) {
+        assertEquals(fieldsForBatch.size(), columnBatch.getSize());
+        for (int rowNum = 0; rowNum < fieldsForBatch.size(); rowNum++) {
+            List<OneField> row = fieldsForBatch.get(rowNum);
+            assertEquals(row.size(), columnBatch.getNumColumns());
+            for (int colNum = 0; colNum < row.size(); colNum++) {
+                OneField field = row.get(colNum);
+                assertEquals(field.type, columnBatch.getColumnType(colNum));
+                Object value = getColumnBatchValue(columnBatch, colNum, rowNum);
+                if (field.val instanceof byte[]) {
+                    assertArrayEquals((byte[]) field.val, (byte[]) value, "Row " + rowNum + ", COL" + (colNum + 1));
+                } else {
+                    assertEquals(field.val, value, "Row " + rowNum + ", COL" + (colNum + 1));
+                }
+            }
+        }
+    }
+
+    private Object getColumnBatchValue(ColumnBatch columnBatch, int column, int row) {
+        if (columnBatch.isNull(column, row)) {
+            return null;
+        }
+        DataType dataType = DataType.get(columnBatch.getColumnType(column));
+        switch (columnBatch.getVectorType(column)) {
+            case LONG:
+                long longValue = columnBatch.getLong(column, row);
+                if (dataType == DataType.BOOLEAN) return longValue != 0;
+                if (dataType == DataType.SMALLINT) return (short) longValue;
+                if (dataType == DataType.INTEGER) return (int) longValue;
+                return longValue;
+            case DOUBLE:
+                double doubleValue = columnBatch.getDouble(column, row);
+                return dataType == DataType.REAL ? (Object) (float) doubleValue : (Object) doubleValue;
+            case BYTES:
+                byte[] bytes = columnBatch.getBytes(column, row);
+                int start = columnBatch.getBytesStart(column, row);
+                int length = columnBatch.getBytesLength(column, row);
+                return dataType == DataType.BYTEA
+                        ? Arrays.copyOfRange(bytes, start, start + length)
+                        : new String(bytes, start, length, StandardCharsets.UTF_8);
+            case OBJECT:
+                return columnBatch.getObject(column, row);
+            default:
+                throw new IllegalStateException("Unexpected vector type " + columnBatch.getVectorType(column));
+        }
+    }
+
     private void assertDataReturned(Object[][] expected, List<List<OneField>> fieldsForBatch) {
         for (int rowNum = 0; rowNum < fieldsForBatch.size(); rowNum++) {
             List<OneField> row = fieldsForBatch.get(rowNum);
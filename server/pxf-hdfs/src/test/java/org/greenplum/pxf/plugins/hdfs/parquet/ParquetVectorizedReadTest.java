@@ -0,0 +1,312 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.HcfsFragmentMetadata;
+import org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParquetVectorizedReadTest extends ParquetBaseTest {
+
+    private static final int GENERATED_ROWS = 5000;
+    private static final MessageType GENERATED_SCHEMA = MessageTypeParser.parseMessageType("message test {\n" +
+            "  required int32 id;\n" +
+            "  optional binary name (UTF8);\n" +
+            "  optional binary comment (UTF8);\n" +
+            "  optional int64 bg;\n" +
+            "  optional double amt;\n" +
+            "  optional boolean b;\n" +
+            "  optional int32 cdate (DATE);\n" +
+            "  optional int64 dec (DECIMAL(12,2));\n" +
+            "  optional binary bin;\n" +
+            "}");
+
+    @TempDir
+    File tempDir;
+
+    private String parquetTypesPath;
+
+    @BeforeEach
+    @Override
+    public void setup() throws Exception {
+        super.setup();
+        parquetTypesPath = Objects.requireNonNull(getClass().getClassLoader().getResource("parquet/parquet_types.parquet")).getPath();
+    }
+
+    @Test
+    public void testReadAllTypesMatchesRowReader() throws Exception {
+        assertVectorizedReadMatchesRowRead(parquetTypesPath, columnDescriptors, null);
+    }
+
+    @Test
+    public void testReadWithProjectionMatchesRowReader() throws Exception {
+        // set odd columns to be not projected, their values will become null
+        for (int i = 0; i < columnDescriptors.size(); i++) {
+            columnDescriptors.get(i).setProjected(i % 2 == 0);
+        }
+        assertVectorizedReadMatchesRowRead(parquetTypesPath, columnDescriptors, null);
+    }
+
+    @Test
+    public void testReadDictionaryEncodedPagesAndMultipleRowGroups() throws Exception {
+        String path = writeGeneratedFile();
+        List<List<OneField>> rows = assertVectorizedReadMatchesRowRead(path, getGeneratedColumnDescriptors(), null);
+        assertEquals(GENERATED_ROWS, rows.size());
+        assertEquals(4999, rows.get(4999).get(0).val);
+        assertEquals("name-9", rows.get(4999).get(1).val);
+        assertNull(rows.get(4998).get(1).val);
+    }
+
+    @Test
+    public void testDictionaryValuesAreNotCopied() throws Exception {
+        String path = writeGeneratedFile();
+        RequestContext context = getContext(path, getGeneratedColumnDescriptors(), null);
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+
+        assertTrue(accessor.openForRead());
+        OneRow oneRow = accessor.readNextObject();
+        ColumnBatch batch = resolver.getColumnBatch(oneRow);
+        accessor.closeForRead();
+
+        // batches do not span row groups
+        int size = batch.getSize();
+        assertTrue(size > 11 && size <= ParquetRowBatch.DEFAULT_SIZE);
+        assertEquals(ColumnBatch.VectorType.BYTES, batch.getVectorType(1));
+        // rows 1 and 11 have the value name-1, both reference the same dictionary entry
+        assertSame(batch.getBytes(1, 1), batch.getBytes(1, 11));
+        assertEquals(batch.getBytesStart(1, 1), batch.getBytesStart(1, 11));
+        assertEquals("name-1", new String(batch.getBytes(1, 11), batch.getBytesStart(1, 11), batch.getBytesLength(1, 11), StandardCharsets.UTF_8));
+        assertTrue(batch.isNull(1, 0));
+        assertFalse(batch.isNull(1, 1));
+        assertEquals(ColumnBatch.VectorType.LONG, batch.getVectorType(0));
+        assertEquals(size - 1, batch.getLong(0, size - 1));
+    }
+
+    @Test
+    public void testReadWithoutProjectedColumns() throws Exception {
+        String path = writeGeneratedFile();
+        List<ColumnDescriptor> descriptors = getGeneratedColumnDescriptors();
+        descriptors.forEach(d -> d.setProjected(false));
+
+        RequestContext context = getContext(path, descriptors, null);
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+
+        assertTrue(accessor.openForRead());
+        int rows = 0;
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            ColumnBatch batch = resolver.getColumnBatch(oneRow);
+            for (int column = 0; column < batch.getNumColumns(); column++) {
+                assertEquals(ColumnBatch.VectorType.NULL, batch.getVectorType(column));
+            }
+            rows += batch.getSize();
+        }
+        accessor.closeForRead();
+        assertEquals(GENERATED_ROWS, rows);
+    }
+
+    @Test
+    public void testRowGroupsAreSkippedByFilter() throws Exception {
+        String path = writeGeneratedFile();
+
+        // id > 100000
+        RequestContext context = getContext(path, getGeneratedColumnDescriptors(), "a0c23s6d100000o2");
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+
+        assertTrue(accessor.openForRead());
+        assertNull(accessor.readNextObject());
+        accessor.closeForRead();
+
+        // id < 10, only the rows of the first row group are returned,
+        // Greenplum filters the rows that do not match
+        List<List<OneField>> rows = readVectorized(path, getGeneratedColumnDescriptors(), "a0c23s2d10o1");
+        assertTrue(rows.size() >= 10);
+        assertTrue(rows.size() < GENERATED_ROWS);
+    }
+
+    @Test
+    public void testRepeatedColumnIsNotSupported() {
+        String path = Objects.requireNonNull(getClass().getClassLoader().getResource("parquet/old-repeated-int.parquet")).getPath();
+        List<ColumnDescriptor> descriptors = Collections.singletonList(
+                new ColumnDescriptor("repeatedInt", DataType.TEXT.getOID(), 0, "text", null));
+
+        RequestContext context = getContext(path, descriptors, null);
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+
+        Exception e = assertThrows(UnsupportedTypeException.class, accessor::openForRead);
+        assertEquals("Column repeatedInt has a repeated Parquet type which is not supported by the vectorized Parquet reader, use a non-vectorized parquet profile instead", e.getMessage());
+    }
+
+    private List<List<OneField>> assertVectorizedReadMatchesRowRead(String path, List<ColumnDescriptor> descriptors, String filter) throws Exception {
+        List<List<OneField>> expected = readRows(path, descriptors, filter);
+        List<List<OneField>> actual = readVectorized(path, descriptors, filter);
+
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            List<OneField> expectedFields = expected.get(row);
+            List<OneField> actualFields = actual.get(row);
+            assertEquals(expectedFields.size(), actualFields.size());
+            for (int column = 0; column < expectedFields.size(); column++) {
+                String message = String.format("row %d, column %d", row, column);
+                OneField expectedField = expectedFields.get(column);
+                OneField actualField = actualFields.get(column);
+                assertEquals(expectedField.type, actualField.type, message);
+                if (expectedField.val instanceof byte[]) {
+                    assertArrayEquals((byte[]) expectedField.val, (byte[]) actualField.val, message);
+                } else {
+                    assertEquals(expectedField.val, actualField.val, message);
+                }
+            }
+        }
+        return actual;
+    }
+
+    private List<List<OneField>> readRows(String path, List<ColumnDescriptor> descriptors, String filter) throws Exception {
+        RequestContext context = getContext(path, descriptors, filter);
+        ParquetFileAccessor accessor = new ParquetFileAccessor();
+        ParquetResolver resolver = new ParquetResolver();
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+
+        List<List<OneField>> rows = new ArrayList<>();
+        assertTrue(accessor.openForRead());
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            rows.add(resolver.getFields(oneRow));
+        }
+        accessor.closeForRead();
+        return rows;
+    }
+
+    private List<List<OneField>> readVectorized(String path, List<ColumnDescriptor> descriptors, String filter) throws Exception {
+        RequestContext context = getContext(path, descriptors, filter);
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+
+        List<List<OneField>> rows = new ArrayList<>();
+        assertTrue(accessor.openForRead());
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            rows.addAll(resolver.getFieldsForBatch(oneRow));
+        }
+        accessor.closeForRead();
+        return rows;
+    }
+
+    private void initialize(ParquetVectorizedAccessor accessor, ParquetVectorizedResolver resolver, RequestContext context) {
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+    }
+
+    private RequestContext getContext(String path, List<ColumnDescriptor> descriptors, String filter) {
+        RequestContext context = new RequestContext();
+        context.setConfig("fakeConfig");
+        context.setServerName("fakeServerName");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setRequestType(RequestContext.RequestType.READ_BRIDGE);
+        context.setDataSource(path);
+        context.setFragmentMetadata(new HcfsFragmentMetadata(0, new File(path).length()));
+        context.setTupleDescription(descriptors);
+        context.setFilterString(filter);
+        context.setConfiguration(new Configuration());
+        return context;
+    }
+
+    private List<ColumnDescriptor> getGeneratedColumnDescriptors() {
+        List<ColumnDescriptor> descriptors = new ArrayList<>();
+        descriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        descriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        descriptors.add(new ColumnDescriptor("comment", DataType.TEXT.getOID(), 2, "text", null));
+        descriptors.add(new ColumnDescriptor("bg", DataType.BIGINT.getOID(), 3, "int8", null));
+        descriptors.add(new ColumnDescriptor("amt", DataType.FLOAT8.getOID(), 4, "float8", null));
+        descriptors.add(new ColumnDescriptor("b", DataType.BOOLEAN.getOID(), 5, "bool", null));
+        descriptors.add(new ColumnDescriptor("cdate", DataType.DATE.getOID(), 6, "date", null));
+        descriptors.add(new ColumnDescriptor("dec", DataType.NUMERIC.getOID(), 7, "numeric", new Integer[]{12, 2}));
+        descriptors.add(new ColumnDescriptor("bin", DataType.BYTEA.getOID(), 8, "bytea", null));
+        return descriptors;
+    }
+
+    /**
+     * Writes a file with small pages and row groups, the name column is
+     * dictionary encoded, while the dictionary of the comment column
+     * overflows, so its chunks mix dictionary-encoded and plain pages.
+     */
+    private String writeGeneratedFile() throws IOException {
+        File file = new File(tempDir, "generated.parquet");
+        SimpleGroupFactory groupFactory = new SimpleGroupFactory(GENERATED_SCHEMA);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new Path(file.getAbsolutePath()))
+                .withConf(new Configuration())
+                .withType(GENERATED_SCHEMA)
+                .withPageSize(1024)
+                .withDictionaryPageSize(4096)
+                .withRowGroupSize(32 * 1024)
+                .build()) {
+            for (int i = 0; i < GENERATED_ROWS; i++) {
+                Group group = groupFactory.newGroup().append("id", i);
+                if (i % 7 != 0) {
+                    group.append("name", "name-" + (i % 10));
+                }
+                if (i % 11 != 0) {
+                    group.append("comment", "comment for row " + i + " with ünïcödé");
+                }
+                if (i % 13 != 0) {
+                    group.append("bg", (long) i * Integer.MAX_VALUE);
+                    group.append("amt", i / 8.0);
+                    group.append("b", i % 3 == 0);
+                    group.append("cdate", 18000 + i % 100);
+                    group.append("dec", (long) i * 100 + 25);
+                    group.append("bin", Binary.fromConstantByteArray(new byte[]{(byte) i, (byte) (i >> 8)}));
+                }
+                writer.write(group);
+            }
+        }
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,261 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.HcfsType;
+import org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParquetVectorizedWriteTest {
+
+    private static final int ROWS = 2500;
+
+    @TempDir
+    File temp; // must be non-private
+
+    private List<ColumnDescriptor> columnDescriptors;
+    private Configuration configuration;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new Configuration();
+        configuration.set("pxf.fs.basePath", "/");
+        configuration.set(ParquetResolver.PXF_PARQUET_WRITE_DECIMAL_OVERFLOW_PROPERTY_NAME, "ignore");
+
+        columnDescriptors = new ArrayList<>();
+        columnDescriptors.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columnDescriptors.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        columnDescriptors.add(new ColumnDescriptor("sml", DataType.SMALLINT.getOID(), 2, "int2", null));
+        columnDescriptors.add(new ColumnDescriptor("bg", DataType.BIGINT.getOID(), 3, "int8", null));
+        columnDescriptors.add(new ColumnDescriptor("r", DataType.REAL.getOID(), 4, "float4", null));
+        columnDescriptors.add(new ColumnDescriptor("amt", DataType.FLOAT8.getOID(), 5, "float8", null));
+        columnDescriptors.add(new ColumnDescriptor("b", DataType.BOOLEAN.getOID(), 6, "bool", null));
+        columnDescriptors.add(new ColumnDescriptor("bin", DataType.BYTEA.getOID(), 7, "bytea", null));
+        columnDescriptors.add(new ColumnDescriptor("c", DataType.BPCHAR.getOID(), 8, "bpchar", new Integer[]{5}));
+        columnDescriptors.add(new ColumnDescriptor("vc", DataType.VARCHAR.getOID(), 9, "varchar", new Integer[]{5}));
+        columnDescriptors.add(new ColumnDescriptor("cdate", DataType.DATE.getOID(), 10, "date", null));
+        columnDescriptors.add(new ColumnDescriptor("tm", DataType.TIMESTAMP.getOID(), 11, "timestamp", null));
+        columnDescriptors.add(new ColumnDescriptor("tmtz", DataType.TIMESTAMP_WITH_TIME_ZONE.getOID(), 12, "timestamptz", null));
+        columnDescriptors.add(new ColumnDescriptor("dec", DataType.NUMERIC.getOID(), 13, "numeric", new Integer[]{10, 2}));
+        columnDescriptors.add(new ColumnDescriptor("int_arr", DataType.INT4ARRAY.getOID(), 14, "int4[]", null));
+        columnDescriptors.add(new ColumnDescriptor("text_arr", DataType.TEXTARRAY.getOID(), 15, "text[]", null));
+        columnDescriptors.add(new ColumnDescriptor("bool_arr", DataType.BOOLARRAY.getOID(), 16, "bool[]", null));
+        columnDescriptors.add(new ColumnDescriptor("float8_arr", DataType.FLOAT8ARRAY.getOID(), 17, "float8[]", null));
+        columnDescriptors.add(new ColumnDescriptor("num_arr", DataType.NUMERICARRAY.getOID(), 18, "numeric[]", null));
+        columnDescriptors.add(new ColumnDescriptor("date_arr", DataType.DATEARRAY.getOID(), 19, "date[]", null));
+        columnDescriptors.add(new ColumnDescriptor("ts_arr", DataType.TIMESTAMPARRAY.getOID(), 20, "timestamp[]", null));
+    }
+
+    @Test
+    public void testVectorizedWriteMatchesRowWrite() throws Exception {
+        RequestContext rowContext = getContext(temp + "/out/row/");
+        Accessor rowAccessor = new ParquetFileAccessor();
+        Resolver rowResolver = new ParquetResolver();
+        initialize(rowAccessor, rowResolver, rowContext);
+        assertTrue(rowAccessor.openForWrite());
+        for (List<OneField> record : generateRecords()) {
+            assertTrue(rowAccessor.writeNextObject(rowResolver.setFields(record)));
+        }
+        rowAccessor.closeForWrite();
+
+        RequestContext vectorizedContext = getContext(temp + "/out/vectorized/");
+        ParquetVectorizedAccessor vectorizedAccessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver vectorizedResolver = new ParquetVectorizedResolver();
+        initialize(vectorizedAccessor, vectorizedResolver, vectorizedContext);
+        assertTrue(vectorizedAccessor.openForWrite());
+        List<List<OneField>> records = generateRecords();
+        int batchSize = vectorizedResolver.getBatchSize();
+        for (int start = 0; start < records.size(); start += batchSize) {
+            OneRow batch = vectorizedResolver.setFieldsForBatch(records.subList(start, Math.min(start + batchSize, records.size())));
+            assertTrue(vectorizedAccessor.writeNextObject(batch));
+        }
+        vectorizedAccessor.closeForWrite();
+
+        Path rowFile = new Path(HcfsType.FILE.getUriForWrite(rowContext) + ".snappy.parquet");
+        Path vectorizedFile = new Path(HcfsType.FILE.getUriForWrite(vectorizedContext) + ".snappy.parquet");
+        ParquetMetadata rowFooter = readFooter(rowFile);
+        ParquetMetadata vectorizedFooter = readFooter(vectorizedFile);
+        assertEquals(rowFooter.getFileMetaData().getSchema(), vectorizedFooter.getFileMetaData().getSchema());
+        assertEquals(ROWS, vectorizedFooter.getBlocks().stream().mapToLong(b -> b.getRowCount()).sum());
+
+        try (ParquetReader<Group> rowReader = ParquetReader.builder(new GroupReadSupport(), rowFile).withConf(configuration).build();
+             ParquetReader<Group> vectorizedReader = ParquetReader.builder(new GroupReadSupport(), vectorizedFile).withConf(configuration).build()) {
+            int rows = 0;
+            Group expected;
+            while ((expected = rowReader.read()) != null) {
+                Group actual = vectorizedReader.read();
+                assertEquals(expected.toString(), actual.toString(), "row " + rows);
+                rows++;
+            }
+            assertNull(vectorizedReader.read());
+            assertEquals(ROWS, rows);
+        }
+    }
+
+    @Test
+    public void testBatchIsReused() throws Exception {
+        RequestContext context = getContext(temp + "/out/reused/");
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+        assertTrue(accessor.openForWrite());
+
+        List<List<OneField>> records = generateRecords();
+        OneRow first = resolver.setFieldsForBatch(records.subList(0, 10));
+        assertEquals(10, ((ParquetWriteBatch) first.getData()).getSize());
+        assertTrue(accessor.writeNextObject(first));
+        OneRow second = resolver.setFieldsForBatch(records.subList(10, 15));
+        assertSame(first.getData(), second.getData());
+        assertEquals(5, ((ParquetWriteBatch) second.getData()).getSize());
+        assertTrue(accessor.writeNextObject(second));
+        accessor.closeForWrite();
+
+        Path file = new Path(HcfsType.FILE.getUriForWrite(context) + ".snappy.parquet");
+        assertEquals(15, readFooter(file).getBlocks().get(0).getRowCount());
+    }
+
+    @Test
+    public void testWriteRollsOverToNewFiles() throws Exception {
+        RequestContext context = getContext(temp + "/out/rolling/");
+        context.addOption("MAX_ROWS_PER_FILE", "1000");
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        initialize(accessor, resolver, context);
+        assertTrue(accessor.openForWrite());
+        List<List<OneField>> records = generateRecords();
+        int batchSize = resolver.getBatchSize();
+        for (int start = 0; start < records.size(); start += batchSize) {
+            OneRow batch = resolver.setFieldsForBatch(records.subList(start, Math.min(start + batchSize, records.size())));
+            assertTrue(accessor.writeNextObject(batch));
+        }
+        accessor.closeForWrite();
+
+        // the rows roll over in the middle of the batches, the files are filled up in order
+        int id = 0;
+        long[] expectedRows = {1000, 1000, 500};
+        for (int fileIndex = 0; fileIndex < expectedRows.length; fileIndex++) {
+            Path file = new Path(HcfsType.FILE.getUriForWrite(context, fileIndex, ".snappy.parquet", null));
+            assertEquals(expectedRows[fileIndex], readFooter(file).getBlocks().stream().mapToLong(b -> b.getRowCount()).sum());
+            try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), file).withConf(configuration).build()) {
+                Group group;
+                while ((group = reader.read()) != null) {
+                    assertEquals(id++, group.getInteger(0, 0));
+                }
+            }
+        }
+        assertEquals(ROWS, id);
+        Path nextFile = new Path(HcfsType.FILE.getUriForWrite(context, expectedRows.length, ".snappy.parquet", null));
+        assertFalse(nextFile.getFileSystem(configuration).exists(nextFile));
+    }
+
+    @Test
+    public void testEmptyBatchEndsIteration() {
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        resolver.setRequestContext(getContext(temp + "/out/empty/"));
+        resolver.afterPropertiesSet();
+
+        assertNull(resolver.setFieldsForBatch(null));
+        assertNull(resolver.setFieldsForBatch(Collections.emptyList()));
+    }
+
+    @Test
+    public void testBatchLargerThanBatchSize() {
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        resolver.setRequestContext(getContext(temp + "/out/large/"));
+        resolver.afterPropertiesSet();
+
+        List<List<OneField>> records = Collections.nCopies(ParquetRowBatch.DEFAULT_SIZE + 1,
+                Collections.singletonList(new OneField(DataType.INTEGER.getOID(), 1)));
+        Exception e = assertThrows(PxfRuntimeException.class, () -> resolver.setFieldsForBatch(records));
+        assertEquals("Provided set of 1025 records is greater than the batch size of 1024", e.getMessage());
+    }
+
+    private List<List<OneField>> generateRecords() {
+        List<List<OneField>> records = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String day = String.format("%02d", i % 28 + 1);
+            String second = String.format("%02d", i % 60);
+            records.add(Arrays.asList(
+                    new OneField(DataType.INTEGER.getOID(), i),
+                    new OneField(DataType.TEXT.getOID(), i % 11 == 0 ? null : "name-" + i % 10),
+                    new OneField(DataType.SMALLINT.getOID(), (short) (i % 100)),
+                    new OneField(DataType.BIGINT.getOID(), i % 7 == 0 ? null : i * 1_000_000_007L),
+                    new OneField(DataType.REAL.getOID(), i / 4f),
+                    new OneField(DataType.FLOAT8.getOID(), i * 1.5d),
+                    new OneField(DataType.BOOLEAN.getOID(), i % 3 == 0 ? null : i % 2 == 0),
+                    new OneField(DataType.BYTEA.getOID(), new byte[]{(byte) i, 1, 2}),
+                    new OneField(DataType.BPCHAR.getOID(), "ab   "),
+                    new OneField(DataType.VARCHAR.getOID(), "vc  "),
+                    new OneField(DataType.TEXT.getOID(), "2020-01-" + day),
+                    new OneField(DataType.TEXT.getOID(), "2020-01-" + day + " 10:11:" + second),
+                    new OneField(DataType.TEXT.getOID(), "2020-01-" + day + " 10:11:" + second + "+07:30"),
+                    // values with more than 8 integer digits overflow and are written as nulls
+                    new OneField(DataType.TEXT.getOID(), i % 100 == 0 ? "123456789012.5" : i + ".255"),
+                    new OneField(DataType.TEXT.getOID(), i % 13 == 0 ? null : i % 5 == 0 ? "{}" : "{1,NULL," + i + "}"),
+                    new OneField(DataType.TEXT.getOID(), "{a,\"b c\",NULL}"),
+                    new OneField(DataType.TEXT.getOID(), "{t,f,NULL}"),
+                    new OneField(DataType.TEXT.getOID(), "{1.5,NULL," + i + "}"),
+                    new OneField(DataType.TEXT.getOID(), "{1.5,NULL}"),
+                    new OneField(DataType.TEXT.getOID(), "{2020-01-" + day + ",NULL}"),
+                    new OneField(DataType.TEXT.getOID(), "{\"2020-01-01 10:11:" + second + "\"}")));
+        }
+        return records;
+    }
+
+    private RequestContext getContext(String path) {
+        RequestContext context = new RequestContext();
+        context.setConfig("fakeConfig");
+        context.setServerName("fakeServerName");
+        context.setUser("fakeUser");
+        context.setSegmentId(4);
+        context.setTransactionId("XID-XYZ-123456");
+        context.setRequestType(RequestContext.RequestType.WRITE_BRIDGE);
+        context.setTupleDescription(columnDescriptors);
+        context.setConfiguration(configuration);
+        context.setDataSource(path);
+        return context;
+    }
+
+    private void initialize(Accessor accessor, Resolver resolver, RequestContext context) {
+        accessor.setRequestContext(context);
+        accessor.afterPropertiesSet();
+        resolver.setRequestContext(context);
+        resolver.afterPropertiesSet();
+    }
+
+    private ParquetMetadata readFooter(Path file) throws Exception {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(file, configuration))) {
+            return reader.getFooter();
+        }
+    }
+}
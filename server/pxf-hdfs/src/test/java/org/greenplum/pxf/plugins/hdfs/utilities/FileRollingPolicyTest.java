@@ -0,0 +1,147 @@
+package org.greenplum.pxf.plugins.hdfs.utilities;
+
+import org.apache.hadoop.conf.Configuration;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class FileRollingPolicyTest {
+
+    private RequestContext context;
+
+    @BeforeEach
+    public void setup() {
+        context = new RequestContext();
+    }
+
+    @Test
+    public void testNoOptions() throws IOException {
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        assertFalse(policy.isEnabled());
+        policy.addRows(Integer.MAX_VALUE);
+        assertFalse(policy.isFileFull(() -> fail("the size of the file is not limited")));
+        assertEquals(Long.MAX_VALUE, policy.getRowsLeftInFile());
+        assertEquals(0, policy.getMaxFileSize());
+        assertEquals(0, policy.getFileIndex());
+    }
+
+    @Test
+    public void testMaxRowsPerFile() throws IOException {
+        context.addOption("MAX_ROWS_PER_FILE", "10");
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        assertTrue(policy.isEnabled());
+        assertEquals(10, policy.getRowsLeftInFile());
+        policy.addRows(9);
+        assertFalse(policy.isFileFull(() -> fail("the size of the file is not limited")));
+        assertEquals(1, policy.getRowsLeftInFile());
+        policy.addRows(1);
+        assertTrue(policy.isFileFull(() -> fail("the size of the file is not limited")));
+        assertEquals(0, policy.getRowsLeftInFile());
+
+        policy.nextFile();
+        assertEquals(1, policy.getFileIndex());
+        assertFalse(policy.isFileFull(() -> 0));
+        assertEquals(10, policy.getRowsLeftInFile());
+    }
+
+    @Test
+    public void testMaxFileSize() throws IOException {
+        context.addOption("MAX_FILE_SIZE", "100");
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        assertTrue(policy.isEnabled());
+        assertEquals(100, policy.getMaxFileSize());
+        assertEquals(Long.MAX_VALUE, policy.getRowsLeftInFile());
+        // a file always holds at least one row
+        assertFalse(policy.isFileFull(() -> 1000));
+        policy.addRows(1);
+        assertFalse(policy.isFileFull(() -> 99));
+        assertTrue(policy.isFileFull(() -> 100));
+    }
+
+    @Test
+    public void testFileFullWithoutFileSize() {
+        context.addOption("MAX_ROWS_PER_FILE", "2");
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        assertFalse(policy.isFileFull());
+        policy.addRows(1);
+        assertFalse(policy.isFileFull());
+        policy.addRows(1);
+        assertTrue(policy.isFileFull());
+
+        context.addOption("MAX_FILE_SIZE", "100");
+        FileRollingPolicy sizePolicy = FileRollingPolicy.forRequest(context);
+        assertThrows(IllegalStateException.class, sizePolicy::isFileFull);
+    }
+
+    @Test
+    public void testMaxFileSizeWithUnits() {
+        assertMaxFileSize(1024L, "1k");
+        assertMaxFileSize(128L * 1024 * 1024, "128m");
+        assertMaxFileSize(128L * 1024 * 1024, "128MB");
+        assertMaxFileSize(2L * 1024 * 1024 * 1024, " 2G ");
+        assertMaxFileSize(0L, "0");
+    }
+
+    @Test
+    public void testInvalidMaxFileSize() {
+        assertInvalidMaxFileSize("foo");
+        assertInvalidMaxFileSize("12x");
+        assertInvalidMaxFileSize("b");
+        assertInvalidMaxFileSize("-1");
+    }
+
+    @Test
+    public void testFileName(@TempDir File temp) throws IOException {
+        assertTrue(new File(temp, "file_0").createNewFile());
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        // the existing files are not skipped by default
+        assertEquals(temp + "/file_0", policy.getFileName(index -> temp + "/file_" + index, new Configuration()));
+        assertEquals(0, policy.getFileIndex());
+    }
+
+    @Test
+    public void testFileNameSkipsExistingFiles(@TempDir File temp) throws IOException {
+        assertTrue(new File(temp, "file_0").createNewFile());
+        assertTrue(new File(temp, "file_1").createNewFile());
+        context.setSkipExistingFiles(true);
+        FileRollingPolicy policy = FileRollingPolicy.forRequest(context);
+
+        assertEquals(temp + "/file_2", policy.getFileName(index -> temp + "/file_" + index, new Configuration()));
+        assertEquals(2, policy.getFileIndex());
+        policy.nextFile();
+        assertEquals(temp + "/file_3", policy.getFileName(index -> temp + "/file_" + index, new Configuration()));
+    }
+
+    @Test
+    public void testInvalidMaxRowsPerFile() {
+        context.addOption("MAX_ROWS_PER_FILE", "-1");
+        Exception e = assertThrows(IllegalArgumentException.class, () -> FileRollingPolicy.forRequest(context));
+        assertEquals("Property MAX_ROWS_PER_FILE has incorrect value -1 : must be a non-negative long", e.getMessage());
+    }
+
+    private void assertMaxFileSize(long expected, String value) {
+        context.addOption("MAX_FILE_SIZE", value);
+        assertEquals(expected, FileRollingPolicy.forRequest(context).getMaxFileSize());
+    }
+
+    private void assertInvalidMaxFileSize(String value) {
+        context.addOption("MAX_FILE_SIZE", value);
+        Exception e = assertThrows(IllegalArgumentException.class, () -> FileRollingPolicy.forRequest(context));
+        assertEquals("Property MAX_FILE_SIZE has incorrect value " + value + " : must be a non-negative size in bytes", e.getMessage());
+    }
+}
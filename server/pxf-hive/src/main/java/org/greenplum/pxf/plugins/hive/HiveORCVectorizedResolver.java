@@ -34,9 +34,10 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.Pr
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.Text;
+import org.greenplum.pxf.api.ColumnBatch;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
-import org.greenplum.pxf.api.model.ReadVectorizedResolver;
+import org.greenplum.pxf.api.model.ReadColumnBatchResolver;
 import org.greenplum.pxf.api.error.UnsupportedTypeException;
 import org.greenplum.pxf.api.io.DataType;
 
@@ -60,12 +61,14 @@ import static org.greenplum.pxf.api.io.DataType.VARCHAR;
 /**
  * Class which implements resolving a batch of records at once
  */
-public class HiveORCVectorizedResolver extends HiveResolver implements ReadVectorizedResolver {
+public class HiveORCVectorizedResolver extends HiveResolver implements ReadColumnBatchResolver {
 
     private static final Log LOG = LogFactory.getLog(HiveORCVectorizedResolver.class);
 
     private List<List<OneField>> resolvedBatch;
     private StructObjectInspector soi;
+    private ColumnBatch columnBatch;
+    private Object[][] objectVectors;
 
     @Override
     public void afterPropertiesSet() {
@@ -114,6 +117,132 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
         return resolvedBatch;
     }
 
+    /**
+     * Returns the batch of column vectors given a VectorizedRowBatch. The
+     * long, double, bytes and decimal vectors of the VectorizedRowBatch are
+     * exposed directly without creating an object per field.
+     *
+     * @param batch unresolved batch
+     * @return the resolved batch of column vectors
+     */
+    @SuppressWarnings("deprecation")
+    @Override
+    public ColumnBatch getColumnBatch(OneRow batch) {
+
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) batch.getData();
+        List<? extends StructField> allStructFieldRefs = soi.getAllStructFieldRefs();
+        int columnsNumber = context.getColumns();
+        if (columnBatch == null) {
+            int[] columnTypes = new int[columnsNumber];
+            for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+                columnTypes[columnIndex] = columnIndex < vectorizedBatch.numCols
+                        ? getPrimitiveColumnType(columnIndex, allStructFieldRefs.get(columnIndex).getFieldObjectInspector()).getOID()
+                        : context.getColumn(columnIndex).columnTypeCode();
+            }
+            columnBatch = new ColumnBatch(columnTypes);
+            objectVectors = new Object[columnsNumber][];
+        }
+
+        for (int columnIndex = 0; columnIndex < columnsNumber; columnIndex++) {
+            ColumnVector columnVector = columnIndex < vectorizedBatch.numCols ? vectorizedBatch.cols[columnIndex] : null;
+            if (columnVector == null) {
+                columnBatch.setNullVector(columnIndex);
+                continue;
+            }
+            DataType columnType = DataType.get(columnBatch.getColumnType(columnIndex));
+            switch (columnType) {
+                case BOOLEAN:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                    LongColumnVector lcv = (LongColumnVector) columnVector;
+                    columnBatch.setLongVector(columnIndex, lcv.vector, lcv.isNull, lcv.noNulls, lcv.isRepeating);
+                    break;
+                case REAL:
+                case FLOAT8:
+                    DoubleColumnVector dcv = (DoubleColumnVector) columnVector;
+                    columnBatch.setDoubleVector(columnIndex, dcv.vector, dcv.isNull, dcv.noNulls, dcv.isRepeating);
+                    break;
+                case NUMERIC:
+                    DecimalColumnVector decimalVector = (DecimalColumnVector) columnVector;
+                    columnBatch.setObjectVector(columnIndex, decimalVector.vector, decimalVector.isNull, decimalVector.noNulls, decimalVector.isRepeating);
+                    break;
+                case VARCHAR:
+                case BPCHAR:
+                case TEXT:
+                case BYTEA:
+                    BytesColumnVector bcv = (BytesColumnVector) columnVector;
+                    columnBatch.setBytesVector(columnIndex, bcv.vector, bcv.start, bcv.length, bcv.isNull, bcv.noNulls, bcv.isRepeating);
+                    break;
+                case DATE:
+                    LongColumnVector dateVector = (LongColumnVector) columnVector;
+                    Object[] dates = objectVectors[columnIndex];
+                    if (dates == null || dates.length < vectorizedBatch.size) {
+                        dates = objectVectors[columnIndex] = new Object[vectorizedBatch.size];
+                    }
+                    for (int rowIndex = 0; rowIndex < vectorizedBatch.size; rowIndex++) {
+                        int rowId = dateVector.isRepeating ? 0 : rowIndex;
+                        dates[rowIndex] = (dateVector.noNulls || !dateVector.isNull[rowId])
+                                ? new Date(org.apache.hadoop.hive.serde2.io.DateWritable.daysToMillis((int) dateVector.vector[rowId]))
+                                : null;
+                    }
+                    columnBatch.setObjectVector(columnIndex, dates, null, true, false);
+                    break;
+                default:
+                    throw new UnsupportedTypeException(columnType
+                            + " conversion is not supported by "
+                            + getClass().getSimpleName());
+            }
+        }
+        columnBatch.setSize(vectorizedBatch.size);
+        return columnBatch;
+    }
+
+    /**
+     * Returns the Greenplum type a Hive column of a primitive type maps to
+     *
+     * @param columnIndex index of the column
+     * @param oi          object inspector
+     * @return the Greenplum type of the column
+     */
+    private DataType getPrimitiveColumnType(int columnIndex, ObjectInspector oi) {
+        if (oi.getCategory() != Category.PRIMITIVE) {
+            throw new UnsupportedTypeException("Unable to resolve column index:" + columnIndex
+                    + ". Only primitive types are supported.");
+        }
+        switch (((PrimitiveObjectInspector) oi).getPrimitiveCategory()) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case BYTE:
+            case SHORT:
+                return SMALLINT;
+            case INT:
+                return INTEGER;
+            case LONG:
+                return BIGINT;
+            case FLOAT:
+                return REAL;
+            case DOUBLE:
+                return FLOAT8;
+            case DECIMAL:
+                return NUMERIC;
+            case VARCHAR:
+                return VARCHAR;
+            case CHAR:
+                return BPCHAR;
+            case STRING:
+                return TEXT;
+            case BINARY:
+                return BYTEA;
+            case DATE:
+                return DATE;
+            default:
+                throw new UnsupportedTypeException(oi.getTypeName()
+                        + " conversion is not supported by "
+                        + getClass().getSimpleName());
+        }
+    }
+
     /**
      * Resolves a column of a primitive type out of given batch
      *
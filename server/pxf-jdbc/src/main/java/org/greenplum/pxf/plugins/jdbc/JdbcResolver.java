@@ -20,11 +20,13 @@ package org.greenplum.pxf.plugins.jdbc;
  */
 
 import org.apache.commons.lang.BooleanUtils;
+import org.greenplum.pxf.api.FieldSink;
 import org.greenplum.pxf.api.GreenplumDateTime;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneFieldSink;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.io.DataType;
-import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.model.ReadRowResolver;
 import org.greenplum.pxf.api.security.SecureLogin;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.jdbc.utils.ConnectionManager;
@@ -32,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -48,7 +51,6 @@ import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.time.temporal.TemporalQuery;
 import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -58,7 +60,7 @@ import static java.time.format.DateTimeFormatter.ISO_LOCAL_TIME;
 /**
  * JDBC tables resolver
  */
-public class JdbcResolver extends JdbcBasePlugin implements Resolver {
+public class JdbcResolver extends JdbcBasePlugin implements ReadRowResolver {
     // Signifies the ERA format
     private static final String DATE_TIME_FORMATTER_SPECIFIER = " G";
 
@@ -158,45 +160,99 @@ public class JdbcResolver extends JdbcBasePlugin implements Resolver {
      */
     @Override
     public List<OneField> getFields(OneRow row) throws SQLException {
+        OneFieldSink sink = new OneFieldSink(columns);
+        try {
+            getFields(row, sink);
+        } catch (IOException e) {
+            // OneFieldSink does not throw
+            throw new UncheckedIOException(e);
+        }
+        return sink.getFields();
+    }
+
+    /**
+     * getFields() implementation setting the fields into a sink, the values
+     * of primitive columns are read from the result set without being boxed
+     *
+     * @param row  one row
+     * @param sink the sink to set the fields into
+     * @throws SQLException if the provided {@link OneRow} object is invalid
+     * @throws IOException  if the sink fails to set a field
+     */
+    @Override
+    public void getFields(OneRow row, FieldSink sink) throws SQLException, IOException {
         ResultSet result = (ResultSet) row.getData();
-        LinkedList<OneField> fields = new LinkedList<>();
 
-        for (ColumnDescriptor column : columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnDescriptor column = columns.get(i);
             String colName = column.columnName();
-            Object value;
-
-            OneField oneField = new OneField();
-            oneField.type = column.columnTypeCode();
-
-            fields.add(oneField);
 
             /*
              * Non-projected columns get null values
              */
-            if (!column.isProjected()) continue;
+            if (!column.isProjected()) {
+                sink.setNull(i);
+                continue;
+            }
 
-            switch (DataType.get(oneField.type)) {
+            Object value;
+            switch (DataType.get(column.columnTypeCode())) {
                 case INTEGER:
-                    value = result.getInt(colName);
-                    break;
+                    int intValue = result.getInt(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setInt(i, intValue);
+                    }
+                    continue;
                 case FLOAT8:
-                    value = result.getDouble(colName);
-                    break;
+                    double doubleValue = result.getDouble(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setDouble(i, doubleValue);
+                    }
+                    continue;
                 case REAL:
-                    value = result.getFloat(colName);
-                    break;
+                    float floatValue = result.getFloat(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setFloat(i, floatValue);
+                    }
+                    continue;
                 case BIGINT:
-                    value = result.getLong(colName);
-                    break;
+                    long longValue = result.getLong(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setLong(i, longValue);
+                    }
+                    continue;
                 case SMALLINT:
-                    value = result.getShort(colName);
-                    break;
+                    short shortValue = result.getShort(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setShort(i, shortValue);
+                    }
+                    continue;
                 case BOOLEAN:
-                    value = result.getBoolean(colName);
-                    break;
+                    boolean booleanValue = result.getBoolean(colName);
+                    if (result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setBoolean(i, booleanValue);
+                    }
+                    continue;
                 case BYTEA:
-                    value = result.getBytes(colName);
-                    break;
+                    byte[] bytesValue = result.getBytes(colName);
+                    if (bytesValue == null || result.wasNull()) {
+                        sink.setNull(i);
+                    } else {
+                        sink.setBytes(i, bytesValue, 0, bytesValue.length);
+                    }
+                    continue;
                 case VARCHAR:
                 case BPCHAR:
                 case TEXT:
@@ -236,14 +292,12 @@ public class JdbcResolver extends JdbcBasePlugin implements Resolver {
                 default:
                     throw new UnsupportedOperationException(
                             String.format("Field type '%s' (column '%s') is not supported",
-                                    DataType.get(oneField.type),
+                                    DataType.get(column.columnTypeCode()),
                                     column));
             }
 
-            oneField.val = result.wasNull() ? null : value;
+            sink.setObject(i, result.wasNull() ? null : value);
         }
-
-        return fields;
     }
 
     /**
@@ -0,0 +1,357 @@
+package org.greenplum.pxf.jmh;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.hadoop.conf.Configuration;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.service.BridgeOutputBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the tables processed by the benchmarks. The values are
+ * generated from a fixed seed, so every run of a benchmark processes the
+ * same data for the same parameters.
+ */
+public class BenchmarkData {
+
+    /**
+     * The types of the columns of the generated tables, the columns of a
+     * table cycle through the types of the mix
+     */
+    public enum TypeMix {
+        NUMERIC(DataType.INTEGER, DataType.BIGINT, DataType.FLOAT8, DataType.SMALLINT, DataType.REAL, DataType.BOOLEAN),
+        TEXT(DataType.TEXT, DataType.VARCHAR),
+        MIXED(DataType.INTEGER, DataType.TEXT, DataType.BIGINT, DataType.FLOAT8, DataType.BOOLEAN,
+                DataType.DATE, DataType.NUMERIC, DataType.TIMESTAMP, DataType.VARCHAR, DataType.BYTEA);
+
+        private final DataType[] types;
+
+        TypeMix(DataType... types) {
+            this.types = types;
+        }
+
+        DataType getType(int column) {
+            return types[column % types.length];
+        }
+    }
+
+    private static final long SEED = 42L;
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // includes values that need to be quoted in CSV and characters that
+    // are encoded differently in UTF-8 and LATIN1
+    private static final String[] WORDS = {
+            "greenplum", "external", "table", "protocol", "extension", "fragment", "segment", "parquet",
+            "quoted \"value\"", "comma, separated", "café", "naïve", "ünïcödé", "x"
+    };
+
+    private final List<ColumnDescriptor> columnDescriptors;
+    private final int[] columnTypes;
+    private final List<List<OneField>> rows;
+
+    /**
+     * Generates a table
+     *
+     * @param numColumns the number of columns
+     * @param typeMix    the types of the columns
+     * @param nullRatio  the ratio of null values, between 0 and 1
+     * @param numRows    the number of rows
+     */
+    public BenchmarkData(int numColumns, TypeMix typeMix, double nullRatio, int numRows) {
+        Random random = new Random(SEED);
+
+        List<ColumnDescriptor> descriptors = new ArrayList<>(numColumns);
+        columnTypes = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            DataType type = typeMix.getType(i);
+            columnTypes[i] = type.getOID();
+            descriptors.add(new ColumnDescriptor("col" + i, type.getOID(), i, type.name().toLowerCase(), null));
+        }
+        columnDescriptors = Collections.unmodifiableList(descriptors);
+
+        List<List<OneField>> generatedRows = new ArrayList<>(numRows);
+        for (int row = 0; row < numRows; row++) {
+            List<OneField> fields = new ArrayList<>(numColumns);
+            for (int column = 0; column < numColumns; column++) {
+                Object value = random.nextDouble() < nullRatio ? null : generateValue(random, typeMix.getType(column));
+                fields.add(new OneField(columnTypes[column], value));
+            }
+            generatedRows.add(fields);
+        }
+        rows = Collections.unmodifiableList(generatedRows);
+    }
+
+    /**
+     * Returns new descriptors of the columns of the table, the descriptors
+     * are mutable so every request context gets its own copy
+     *
+     * @return the column descriptors
+     */
+    public List<ColumnDescriptor> getColumnDescriptors() {
+        List<ColumnDescriptor> descriptors = new ArrayList<>(columnDescriptors.size());
+        for (ColumnDescriptor descriptor : columnDescriptors) {
+            descriptors.add(new ColumnDescriptor(descriptor));
+        }
+        return descriptors;
+    }
+
+    public int[] getColumnTypes() {
+        return columnTypes;
+    }
+
+    public List<List<OneField>> getRows() {
+        return rows;
+    }
+
+    /**
+     * Creates a request context for the table, in the same way it is created
+     * for a request coming from Greenplum
+     *
+     * @param outputFormat     the format of the data exchanged with Greenplum
+     * @param databaseEncoding the encoding of the database
+     * @return the request context
+     */
+    public RequestContext createRequestContext(OutputFormat outputFormat, Charset databaseEncoding) {
+        RequestContext context = new RequestContext();
+        context.setConfig("default");
+        context.setServerName("default");
+        context.setUser("gpadmin");
+        context.setTransactionId("1");
+        context.setSegmentId(0);
+        context.setTotalSegments(1);
+        context.setOutputFormat(outputFormat);
+        context.setFormat(outputFormat == OutputFormat.TEXT ? "CSV" : "CUSTOM");
+        context.setDatabaseEncoding(databaseEncoding);
+        context.setDataEncoding(StandardCharsets.UTF_8);
+        context.setTupleDescription(getColumnDescriptors());
+        context.setConfiguration(new Configuration());
+        return context;
+    }
+
+    /**
+     * Serializes the rows in the given format, the way Greenplum sends them
+     * to PXF for writes: CSV lines for the TEXT format, GPDBWritable records
+     * otherwise
+     *
+     * @param outputFormat     the format of the data
+     * @param databaseEncoding the encoding of the database
+     * @return the serialized rows
+     * @throws Exception if serializing the rows failed
+     */
+    public byte[] serialize(OutputFormat outputFormat, Charset databaseEncoding) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (outputFormat == OutputFormat.TEXT) {
+            GreenplumCSV greenplumCSV = new GreenplumCSV();
+            StringBuilder line = new StringBuilder();
+            for (List<OneField> row : rows) {
+                line.setLength(0);
+                for (int column = 0; column < row.size(); column++) {
+                    if (column > 0) {
+                        line.append(greenplumCSV.getDelimiter());
+                    }
+                    line.append(toCsvValue(greenplumCSV, row.get(column).val));
+                }
+                line.append(greenplumCSV.getNewline());
+                bytes.write(line.toString().getBytes(databaseEncoding));
+            }
+        } else {
+            BridgeOutputBuilder outputBuilder = new BridgeOutputBuilder(createRequestContext(outputFormat, databaseEncoding));
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (List<OneField> row : rows) {
+                writeAll(outputBuilder.makeOutput(row), out);
+            }
+            out.flush();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates a batch of column vectors holding the given rows, with the
+     * vector types used by the vectorized resolvers
+     *
+     * @param fromRow the first row of the batch
+     * @param size    the number of rows in the batch
+     * @return the column batch
+     */
+    public ColumnBatch toColumnBatch(int fromRow, int size) {
+        ColumnBatch batch = new ColumnBatch(columnTypes);
+        for (int column = 0; column < columnTypes.length; column++) {
+            boolean[] isNull = new boolean[size];
+            boolean noNulls = true;
+            for (int row = 0; row < size; row++) {
+                isNull[row] = getValue(fromRow + row, column) == null;
+                noNulls &= !isNull[row];
+            }
+
+            switch (DataType.get(columnTypes[column])) {
+                case BOOLEAN:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                    long[] longs = new long[size];
+                    for (int row = 0; row < size; row++) {
+                        Object value = getValue(fromRow + row, column);
+                        if (value instanceof Boolean) {
+                            longs[row] = (Boolean) value ? 1 : 0;
+                        } else if (value != null) {
+                            longs[row] = ((Number) value).longValue();
+                        }
+                    }
+                    batch.setLongVector(column, longs, isNull, noNulls, false);
+                    break;
+                case REAL:
+                case FLOAT8:
+                    double[] doubles = new double[size];
+                    for (int row = 0; row < size; row++) {
+                        Object value = getValue(fromRow + row, column);
+                        doubles[row] = value == null ? 0 : ((Number) value).doubleValue();
+                    }
+                    batch.setDoubleVector(column, doubles, isNull, noNulls, false);
+                    break;
+                case TEXT:
+                case VARCHAR:
+                case BYTEA:
+                    byte[][] bytes = new byte[size][];
+                    int[] start = new int[size];
+                    int[] length = new int[size];
+                    for (int row = 0; row < size; row++) {
+                        Object value = getValue(fromRow + row, column);
+                        if (value instanceof byte[]) {
+                            bytes[row] = (byte[]) value;
+                        } else if (value != null) {
+                            bytes[row] = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        }
+                        length[row] = bytes[row] == null ? 0 : bytes[row].length;
+                    }
+                    batch.setBytesVector(column, bytes, start, length, isNull, noNulls, false);
+                    break;
+                default:
+                    Object[] objects = new Object[size];
+                    for (int row = 0; row < size; row++) {
+                        objects[row] = getValue(fromRow + row, column);
+                    }
+                    batch.setObjectVector(column, objects, isNull, noNulls, false);
+            }
+        }
+        batch.setSize(size);
+        return batch;
+    }
+
+    /**
+     * Formats a value the way Greenplum does in the CSV format
+     */
+    private static String toCsvValue(GreenplumCSV greenplumCSV, Object value) {
+        if (value == null) {
+            return greenplumCSV.getValueOfNull();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "t" : "f";
+        } else if (value instanceof byte[]) {
+            return "\\x" + Hex.encodeHexString((byte[]) value);
+        } else if (value instanceof String) {
+            return greenplumCSV.toCsvField((String) value, true, true, true);
+        }
+        return value.toString();
+    }
+
+    private Object getValue(int row, int column) {
+        return rows.get(row).get(column).val;
+    }
+
+    /**
+     * Generates a value with the Java type returned by the resolvers for the
+     * given data type
+     */
+    private static Object generateValue(Random random, DataType type) {
+        switch (type) {
+            case BOOLEAN:
+                return random.nextBoolean();
+            case SMALLINT:
+                return (short) random.nextInt();
+            case INTEGER:
+                return random.nextInt();
+            case BIGINT:
+                return random.nextLong();
+            case REAL:
+                return random.nextFloat() * 1000;
+            case FLOAT8:
+                return random.nextDouble() * 1_000_000;
+            case NUMERIC:
+                return BigDecimal.valueOf(random.nextInt(1_000_000_000), 2).toString();
+            case DATE:
+                return LocalDate.ofEpochDay(random.nextInt(20_000)).toString();
+            case TIMESTAMP:
+                return LocalDateTime.ofEpochSecond(random.nextInt(Integer.MAX_VALUE), 0, ZoneOffset.UTC)
+                        .format(TIMESTAMP_FORMATTER);
+            case BYTEA:
+                byte[] bytes = new byte[4 + random.nextInt(28)];
+                random.nextBytes(bytes);
+                return bytes;
+            default:
+                int numWords = 1 + random.nextInt(8);
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < numWords; i++) {
+                    if (i > 0) {
+                        builder.append(' ');
+                    }
+                    builder.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                return builder.toString();
+        }
+    }
+
+    /**
+     * An output stream that discards the bytes written to it, it only
+     * counts them so the writes cannot be eliminated by the JIT
+     */
+    public static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Writes the given records to the output
+     *
+     * @param records the records to write
+     * @param out     the output
+     * @throws IOException if writing failed
+     */
+    public static void writeAll(Iterable<? extends Writable> records, DataOutputStream out) throws IOException {
+        for (Writable record : records) {
+            record.write(out);
+        }
+    }
+}
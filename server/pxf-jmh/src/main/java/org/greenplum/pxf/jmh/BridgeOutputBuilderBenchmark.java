@@ -0,0 +1,94 @@
+package org.greenplum.pxf.jmh;
+
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.service.BridgeOutputBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of serializing resolved rows
+ * into the records sent to Greenplum: one row at a time, as done by the
+ * read bridge, a batch of rows, as done by the vectorized read bridge, and a
+ * batch of column vectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BridgeOutputBuilderBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({"TEXT", "GPDBWritable"})
+    public OutputFormat outputFormat;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"NUMERIC", "TEXT", "MIXED"})
+    public BenchmarkData.TypeMix typeMix;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String encoding;
+
+    private List<List<OneField>> rows;
+    private ColumnBatch columnBatch;
+    private BridgeOutputBuilder outputBuilder;
+    private BenchmarkData.CountingOutputStream sink;
+    private DataOutputStream out;
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = new BenchmarkData(columns, typeMix, nullRatio, ROWS);
+        rows = data.getRows();
+        columnBatch = data.toColumnBatch(0, ROWS);
+        outputBuilder = new BridgeOutputBuilder(data.createRequestContext(outputFormat, Charset.forName(encoding)));
+        sink = new BenchmarkData.CountingOutputStream();
+        out = new DataOutputStream(sink);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long makeOutput() throws Exception {
+        for (List<OneField> row : rows) {
+            BenchmarkData.writeAll(outputBuilder.makeOutput(row), out);
+        }
+        return sink.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long makeVectorizedOutput() throws Exception {
+        BenchmarkData.writeAll(outputBuilder.makeVectorizedOutput(rows), out);
+        return sink.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long makeColumnBatchOutput() throws Exception {
+        BenchmarkData.writeAll(outputBuilder.makeColumnBatchOutput(columnBatch), out);
+        return sink.getCount();
+    }
+}
@@ -0,0 +1,145 @@
+package org.greenplum.pxf.jmh;
+
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Fragmenter;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.hdfs.HcfsType;
+import org.greenplum.pxf.plugins.hdfs.HdfsDataFragmenter;
+import org.greenplum.pxf.plugins.hdfs.LineBreakAccessor;
+import org.greenplum.pxf.plugins.hdfs.ParquetFileAccessor;
+import org.greenplum.pxf.plugins.hdfs.ParquetResolver;
+import org.greenplum.pxf.plugins.hdfs.StringPassResolver;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetVectorizedAccessor;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetVectorizedResolver;
+import org.greenplum.pxf.plugins.hdfs.utilities.PgUtilities;
+import org.greenplum.pxf.service.bridge.Bridge;
+import org.greenplum.pxf.service.bridge.BridgeFactory;
+import org.greenplum.pxf.service.bridge.SimpleBridgeFactory;
+import org.greenplum.pxf.service.serde.RecordReaderFactory;
+import org.greenplum.pxf.service.utilities.BasePluginFactory;
+import org.greenplum.pxf.service.utilities.GSSFailureHandler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * The {@code file:} profiles exercised by the bridge benchmarks, with the
+ * plugins configured for them in pxf-profiles-default.xml and the format
+ * Greenplum uses to exchange their data with PXF.
+ */
+public enum FileProfile {
+
+    TEXT("file:text", LineBreakAccessor.class, StringPassResolver.class, OutputFormat.TEXT),
+    PARQUET("file:parquet", ParquetFileAccessor.class, ParquetResolver.class, OutputFormat.GPDBWritable),
+    PARQUET_VECTORIZED("file:parquet:vectorized", ParquetVectorizedAccessor.class, ParquetVectorizedResolver.class, OutputFormat.GPDBWritable);
+
+    private static final BasePluginFactory PLUGIN_FACTORY = new BasePluginFactory();
+    private static final BridgeFactory BRIDGE_FACTORY = new SimpleBridgeFactory(PLUGIN_FACTORY,
+            new RecordReaderFactory(new PgUtilities()), new GSSFailureHandler());
+
+    private final String profile;
+    private final String accessor;
+    private final String resolver;
+    private final OutputFormat outputFormat;
+
+    FileProfile(String profile, Class<?> accessor, Class<?> resolver, OutputFormat outputFormat) {
+        this.profile = profile;
+        this.accessor = accessor.getName();
+        this.resolver = resolver.getName();
+        this.outputFormat = outputFormat;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Creates the context of a request for the given path, relative to the
+     * base path of the file server
+     *
+     * @param data             the table
+     * @param databaseEncoding the encoding of the database
+     * @param basePath         the base path of the file server
+     * @param dataSource       the path of the data, relative to the base path
+     * @param requestType      the type of the request
+     * @return the request context
+     */
+    public RequestContext createRequestContext(BenchmarkData data, Charset databaseEncoding, File basePath,
+                                               String dataSource, RequestContext.RequestType requestType) {
+        RequestContext context = data.createRequestContext(outputFormat, databaseEncoding);
+        context.setRequestType(requestType);
+        context.setProfile(profile);
+        context.setProfileScheme("file");
+        context.setFragmenter(HdfsDataFragmenter.class.getName());
+        context.setAccessor(accessor);
+        context.setResolver(resolver);
+        context.setDataSource(dataSource);
+        context.getConfiguration().set(HcfsType.CONFIG_KEY_BASE_PATH, basePath.getAbsolutePath());
+        return context;
+    }
+
+    /**
+     * Gets the fragments of the data source of the given request
+     *
+     * @param context the request context
+     * @return the fragments
+     * @throws Exception if getting the fragments failed
+     */
+    public List<Fragment> getFragments(RequestContext context) throws Exception {
+        Fragmenter fragmenter = PLUGIN_FACTORY.getPlugin(context, context.getFragmenter());
+        return fragmenter.getFragments();
+    }
+
+    /**
+     * Reads a fragment through the read bridge selected for the request, the
+     * way the read service does
+     *
+     * @param context  the request context
+     * @param fragment the fragment to read
+     * @param out      the output for the records sent to Greenplum
+     * @throws Exception if reading failed
+     */
+    public void read(RequestContext context, Fragment fragment, DataOutputStream out) throws Exception {
+        context.setDataSource(fragment.getSourceName());
+        context.setFragmentMetadata(fragment.getMetadata());
+        Bridge bridge = BRIDGE_FACTORY.getBridge(context);
+        if (!bridge.beginIteration()) {
+            return;
+        }
+        try {
+            Writable record;
+            while ((record = bridge.getNext()) != null) {
+                record.write(out);
+            }
+        } finally {
+            bridge.endIteration();
+        }
+    }
+
+    /**
+     * Writes the records sent by Greenplum through the write bridge selected
+     * for the request, the way the write service does
+     *
+     * @param context the request context
+     * @param in      the records sent by Greenplum
+     * @throws Exception if writing failed
+     */
+    public void write(RequestContext context, DataInputStream in) throws Exception {
+        Bridge bridge = BRIDGE_FACTORY.getBridge(context);
+        if (!bridge.beginIteration()) {
+            return;
+        }
+        try {
+            while (bridge.setNext(in)) {
+                // keep writing until the stream is consumed
+            }
+        } finally {
+            bridge.endIteration();
+        }
+    }
+}
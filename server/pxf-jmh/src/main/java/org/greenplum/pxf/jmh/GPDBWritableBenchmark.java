@@ -0,0 +1,158 @@
+package org.greenplum.pxf.jmh;
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.GPDBWritable;
+import org.greenplum.pxf.api.io.GPDBWritableSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of serializing rows in the
+ * GPDBWritable format with a {@link GPDBWritable} per row and with the
+ * streaming {@link GPDBWritableSerializer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GPDBWritableBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"NUMERIC", "TEXT", "MIXED"})
+    public BenchmarkData.TypeMix typeMix;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String encoding;
+
+    private int[] columnTypes;
+    private List<List<OneField>> rows;
+    private Charset databaseEncoding;
+    private GPDBWritableSerializer serializer;
+    private BenchmarkData.CountingOutputStream sink;
+    private DataOutputStream out;
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = new BenchmarkData(columns, typeMix, nullRatio, ROWS);
+        columnTypes = data.getColumnTypes();
+        rows = data.getRows();
+        databaseEncoding = Charset.forName(encoding);
+        serializer = new GPDBWritableSerializer(columnTypes, databaseEncoding);
+        sink = new BenchmarkData.CountingOutputStream();
+        out = new DataOutputStream(sink);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long gpdbWritable() throws Exception {
+        for (List<OneField> row : rows) {
+            GPDBWritable writable = new GPDBWritable(columnTypes, databaseEncoding);
+            for (int column = 0; column < columnTypes.length; column++) {
+                setField(writable, column, row.get(column).val);
+            }
+            writable.write(out);
+        }
+        return sink.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long serializer() throws Exception {
+        serializer.reset();
+        for (List<OneField> row : rows) {
+            serializer.startRecord();
+            for (int column = 0; column < columnTypes.length; column++) {
+                setField(serializer, column, row.get(column).val);
+            }
+            serializer.endRecord();
+        }
+        serializer.write(out);
+        return sink.getCount();
+    }
+
+    private void setField(GPDBWritable writable, int column, Object value) throws Exception {
+        switch (DataType.get(columnTypes[column])) {
+            case BOOLEAN:
+                writable.setBoolean(column, (Boolean) value);
+                break;
+            case SMALLINT:
+                writable.setShort(column, (Short) value);
+                break;
+            case INTEGER:
+                writable.setInt(column, (Integer) value);
+                break;
+            case BIGINT:
+                writable.setLong(column, (Long) value);
+                break;
+            case REAL:
+                writable.setFloat(column, (Float) value);
+                break;
+            case FLOAT8:
+                writable.setDouble(column, (Double) value);
+                break;
+            case BYTEA:
+                writable.setBytes(column, (byte[]) value);
+                break;
+            default:
+                writable.setString(column, (String) value);
+        }
+    }
+
+    private void setField(GPDBWritableSerializer serializer, int column, Object value) throws Exception {
+        if (value == null) {
+            serializer.setNull(column);
+            return;
+        }
+        switch (DataType.get(columnTypes[column])) {
+            case BOOLEAN:
+                serializer.setBoolean(column, (Boolean) value);
+                break;
+            case SMALLINT:
+                serializer.setShort(column, (Short) value);
+                break;
+            case INTEGER:
+                serializer.setInt(column, (Integer) value);
+                break;
+            case BIGINT:
+                serializer.setLong(column, (Long) value);
+                break;
+            case REAL:
+                serializer.setFloat(column, (Float) value);
+                break;
+            case FLOAT8:
+                serializer.setDouble(column, (Double) value);
+                break;
+            case BYTEA:
+                byte[] bytes = (byte[]) value;
+                serializer.setBytes(column, bytes, 0, bytes.length);
+                break;
+            default:
+                serializer.setString(column, (String) value);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.greenplum.pxf.jmh;
+
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of escaping text values as CSV fields, for values
+ * that do not need to be quoted, values with delimiters and values with
+ * quotes that need to be escaped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GreenplumCSVBenchmark {
+
+    public enum ValueKind {
+        PLAIN("a"),
+        DELIMITER(","),
+        QUOTE("\"");
+
+        private final String specialCharacter;
+
+        ValueKind(String specialCharacter) {
+            this.specialCharacter = specialCharacter;
+        }
+    }
+
+    @Param({"PLAIN", "DELIMITER", "QUOTE"})
+    public ValueKind valueKind;
+
+    @Param({"8", "64", "1024"})
+    public int length;
+
+    private GreenplumCSV greenplumCSV;
+    private String value;
+
+    @Setup
+    public void setup() {
+        greenplumCSV = new GreenplumCSV();
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // one special character in every 8 characters
+            builder.append(i % 8 == 7 ? valueKind.specialCharacter : "a");
+        }
+        value = builder.toString();
+    }
+
+    @Benchmark
+    public String toCsvField() {
+        return greenplumCSV.toCsvField(value, true, true, true);
+    }
+}
@@ -0,0 +1,102 @@
+package org.greenplum.pxf.jmh;
+
+import org.apache.commons.io.FileUtils;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of reading local files
+ * end-to-end: the fragments of the data are listed by the fragmenter of the
+ * profile and every fragment is read through the bridge selected by the
+ * bridge factory, the records are serialized in the format expected by
+ * Greenplum. The files are written by the write bridge of the same profile
+ * before the benchmark starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadBridgeBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"TEXT", "PARQUET", "PARQUET_VECTORIZED"})
+    public FileProfile profile;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"NUMERIC", "TEXT", "MIXED"})
+    public BenchmarkData.TypeMix typeMix;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    @Param({"UTF-8"})
+    public String encoding;
+
+    private File basePath;
+    private BenchmarkData data;
+    private Charset databaseEncoding;
+    private List<Fragment> fragments;
+    private BenchmarkData.CountingOutputStream sink;
+    private DataOutputStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        basePath = Files.createTempDirectory("pxf-jmh-read").toFile();
+        data = new BenchmarkData(columns, typeMix, nullRatio, ROWS);
+        databaseEncoding = Charset.forName(encoding);
+
+        byte[] input = data.serialize(profile.getOutputFormat(), databaseEncoding);
+        profile.write(newRequestContext(RequestContext.RequestType.WRITE_BRIDGE),
+                new DataInputStream(new ByteArrayInputStream(input)));
+        fragments = profile.getFragments(newRequestContext(RequestContext.RequestType.READ_BRIDGE));
+
+        sink = new BenchmarkData.CountingOutputStream();
+        out = new DataOutputStream(sink);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long read() throws Exception {
+        for (Fragment fragment : fragments) {
+            profile.read(newRequestContext(RequestContext.RequestType.READ_BRIDGE), fragment, out);
+        }
+        out.flush();
+        return sink.getCount();
+    }
+
+    private RequestContext newRequestContext(RequestContext.RequestType requestType) {
+        return profile.createRequestContext(data, databaseEncoding, basePath, "data", requestType);
+    }
+}
@@ -0,0 +1,83 @@
+package org.greenplum.pxf.jmh;
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.hdfs.utilities.PgUtilities;
+import org.greenplum.pxf.service.serde.RecordReader;
+import org.greenplum.pxf.service.serde.RecordReaderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of deserializing the records
+ * sent by Greenplum for writes into rows of fields, with the record reader
+ * used for resolvers that do not handle the input stream themselves. A new
+ * record reader is created for every stream, as done for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RecordReaderBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"TEXT", "GPDBWritable"})
+    public OutputFormat outputFormat;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"NUMERIC", "TEXT", "MIXED"})
+    public BenchmarkData.TypeMix typeMix;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String encoding;
+
+    private RecordReaderFactory recordReaderFactory;
+    private RequestContext context;
+    private byte[] input;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkData data = new BenchmarkData(columns, typeMix, nullRatio, ROWS);
+        Charset databaseEncoding = Charset.forName(encoding);
+        recordReaderFactory = new RecordReaderFactory(new PgUtilities());
+        context = data.createRequestContext(outputFormat, databaseEncoding);
+        input = data.serialize(outputFormat, databaseEncoding);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void readRecord(Blackhole blackhole) throws Exception {
+        RecordReader recordReader = recordReaderFactory.getRecordReader(context, false);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(input));
+        List<OneField> record;
+        while ((record = recordReader.readRecord(in)) != null) {
+            blackhole.consume(record);
+        }
+    }
+}
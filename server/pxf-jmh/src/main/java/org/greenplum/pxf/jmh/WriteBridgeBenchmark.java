@@ -0,0 +1,88 @@
+package org.greenplum.pxf.jmh;
+
+import org.apache.commons.io.FileUtils;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput, in rows per second, of writing local files
+ * end-to-end: the records serialized by Greenplum are deserialized,
+ * resolved and written through the bridge selected by the bridge factory.
+ * The written files are removed after every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteBridgeBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"TEXT", "PARQUET", "PARQUET_VECTORIZED"})
+    public FileProfile profile;
+
+    @Param({"4", "16", "64"})
+    public int columns;
+
+    @Param({"NUMERIC", "TEXT", "MIXED"})
+    public BenchmarkData.TypeMix typeMix;
+
+    @Param({"0.0", "0.2"})
+    public double nullRatio;
+
+    @Param({"UTF-8"})
+    public String encoding;
+
+    private File basePath;
+    private BenchmarkData data;
+    private Charset databaseEncoding;
+    private byte[] input;
+
+    @Setup
+    public void setup() throws Exception {
+        basePath = Files.createTempDirectory("pxf-jmh-write").toFile();
+        data = new BenchmarkData(columns, typeMix, nullRatio, ROWS);
+        databaseEncoding = Charset.forName(encoding);
+        input = data.serialize(profile.getOutputFormat(), databaseEncoding);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWrittenFiles() throws Exception {
+        FileUtils.cleanDirectory(basePath);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(basePath);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void write() throws Exception {
+        RequestContext context = profile.createRequestContext(data, databaseEncoding, basePath, "data",
+                RequestContext.RequestType.WRITE_BRIDGE);
+        profile.write(context, new DataInputStream(new ByteArrayInputStream(input)));
+    }
+}
@@ -19,33 +19,38 @@ package org.greenplum.pxf.service;
  * under the License.
  */
 
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.ArrayUtils;
-import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
-import org.greenplum.pxf.api.GreenplumDateTime;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.FieldSink;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.error.BadRecordException;
+import org.greenplum.pxf.api.io.BinaryCopySerializer;
 import org.greenplum.pxf.api.io.BufferWritable;
+import org.greenplum.pxf.api.io.CsvSerializer;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.io.GPDBWritable;
+import org.greenplum.pxf.api.io.GPDBWritableSerializer;
 import org.greenplum.pxf.api.io.Text;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.GreenplumCSV;
 import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.ReadRowResolver;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.sql.Timestamp;
+import java.time.DateTimeException;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static org.greenplum.pxf.api.io.DataType.TEXT;
 
@@ -64,9 +69,14 @@ public class BridgeOutputBuilder {
     private static final byte DELIM = 10; /* (byte)'\n'; */
     public static final String PXF_ERROR_TOKEN = "PXFERRMSG> ";
     private final Charset databaseEncoding;
+    private final boolean isUtf8DatabaseEncoding;
     private final String newLine;
     private final byte[] newLineBytes;
     private Writable output = null;
+    private GPDBWritableSerializer serializer = null;
+    private CsvSerializer csvSerializer = null;
+    private BinaryCopySerializer binarySerializer = null;
+    private GPDBWritableFieldSink fieldSink = null;
     private final LinkedList<Writable> outputList;
     private Writable partialLine = null;
     private GPDBWritable errorRecord = null;
@@ -91,6 +101,7 @@ public class BridgeOutputBuilder {
         newLineBytes = newLine.getBytes(StandardCharsets.UTF_8);
         outputFormat = context.getOutputFormat();
         databaseEncoding = context.getDatabaseEncoding();
+        isUtf8DatabaseEncoding = StandardCharsets.UTF_8.equals(databaseEncoding);
         outputList = new LinkedList<>();
         makeErrorRecord();
         samplingEnabled = (context.getStatsSampleRatio() > 0);
@@ -121,7 +132,9 @@ public class BridgeOutputBuilder {
 
     /**
      * Returns the error record. If the output format is not binary, a
-     * comma-delimited row will be generated.
+     * comma-delimited row will be generated. For the binary COPY format, the
+     * record has an extra text column with the error token and the error
+     * information, all the other columns are null.
      *
      * @param ex exception to be stored in record
      * @return error record
@@ -130,6 +143,19 @@ public class BridgeOutputBuilder {
         if (outputFormat == OutputFormat.GPDBWritable) {
             errorRecord.setString(0, ex.getMessage());
             return errorRecord;
+        } else if (outputFormat == OutputFormat.BINARY) {
+            LOG.error(ex.getMessage(), ex);
+            int numColumns = columnDescriptors.size();
+            int[] errorSchema = new int[numColumns + 1];
+            Arrays.fill(errorSchema, TEXT.getOID());
+            BinaryCopySerializer binaryErrorRecord = new BinaryCopySerializer(errorSchema, getSerializerEncoding());
+            binaryErrorRecord.startRecord();
+            for (int i = 0; i < numColumns; i++) {
+                binaryErrorRecord.setNull(i);
+            }
+            binaryErrorRecord.setString(numColumns, PXF_ERROR_TOKEN + ex.getMessage());
+            binaryErrorRecord.endRecord();
+            return binaryErrorRecord;
         } else {
             // Serialize error text into CSV
             // We create a row with an extra column containing the error token (used by FDW) and error information
@@ -156,21 +182,176 @@ public class BridgeOutputBuilder {
 
         outputList.clear();
 
-        fillOutputRecord(recFields);
+        if (outputFormat == OutputFormat.GPDBWritable) {
+            serializer.reset();
+            fillGPDBWritable(recFields);
+            outputList.add(serializer);
+        } else if (outputFormat == OutputFormat.BINARY) {
+            BinaryCopySerializer binary = getBinarySerializer();
+            binary.reset();
+            fillBinary(recFields);
+            outputList.add(binary);
+        } else {
+            fillText(recFields);
+        }
 
         return outputList;
     }
 
+    /**
+     * Translates a batch of records (obtained from the Resolver) into output
+     * records. For the GPDBWritable format all records of the batch are
+     * serialized into the same reusable buffer and every output record is a
+     * view over that buffer, so the output records are only valid until the
+     * next call to this method.
+     *
+     * @param recordsBatch batch of records to be serialized
+     * @return list of Writable objects with serialized rows
+     * @throws BadRecordException if building the output record failed
+     */
     public LinkedList<Writable> makeVectorizedOutput(List<List<OneField>> recordsBatch) throws BadRecordException {
         outputList.clear();
-        if (recordsBatch != null) {
+        if (recordsBatch == null) {
+            return outputList;
+        }
+
+        if (outputFormat == OutputFormat.GPDBWritable) {
+            if (serializer == null) {
+                makeGPDBWritableOutput();
+            }
+            serializer.reset();
+            for (List<OneField> record : recordsBatch) {
+                fillGPDBWritable(record);
+            }
+            for (int i = 0; i < serializer.getRecordCount(); i++) {
+                outputList.add(serializer.getRecord(i));
+            }
+        } else if (outputFormat == OutputFormat.BINARY) {
+            // all the records of the batch are serialized into the same
+            // output record
+            BinaryCopySerializer binary = getBinarySerializer();
+            binary.reset();
+            for (List<OneField> record : recordsBatch) {
+                fillBinary(record);
+            }
+            if (binary.getRecordCount() > 0) {
+                outputList.add(binary);
+            }
+        } else {
+            // the CSV lines of consecutive records are serialized into the
+            // same output record
+            CsvSerializer csv = getCsvSerializer();
+            csv.reset();
             for (List<OneField> record : recordsBatch) {
-                if (outputFormat == OutputFormat.GPDBWritable) {
-                    makeGPDBWritableOutput();
+                if (isCsvRecord(record)) {
+                    fillCsv(record);
+                } else {
+                    if (csv.getRecordCount() > 0) {
+                        outputList.add(csv.copy());
+                        csv.reset();
+                    }
+                    fillText(record);
                 }
-                fillOutputRecord(record);
             }
+            if (csv.getRecordCount() > 0) {
+                outputList.add(csv);
+            }
+        }
+        return outputList;
+    }
+
+    /**
+     * Translates a batch of column vectors (obtained from the Resolver) into
+     * a single output record holding all the rows of the batch. The values
+     * are read directly from the column vectors, so no objects are created
+     * for the fields of primitive and text columns. The output record is
+     * reused and is only valid until the next call to this method.
+     *
+     * @param batch batch of column vectors to be serialized
+     * @return list with the Writable object with the serialized rows, or an
+     * empty list when the batch has no rows
+     * @throws BadRecordException if the batch does not match the schema
+     */
+    public LinkedList<Writable> makeColumnBatchOutput(ColumnBatch batch) throws BadRecordException {
+        outputList.clear();
+        if (batch == null || batch.getSize() == 0) {
+            return outputList;
+        }
+
+        DataType[] types = getColumnBatchTypes(batch);
+        int numColumns = types.length;
+        if (outputFormat == OutputFormat.GPDBWritable) {
+            if (serializer == null) {
+                makeGPDBWritableOutput();
+            }
+            serializer.reset();
+            for (int row = 0; row < batch.getSize(); row++) {
+                serializer.startRecord();
+                for (int column = 0; column < numColumns; column++) {
+                    fillOneGPDBWritableField(batch, types[column], column, row);
+                }
+                serializer.endRecord();
+            }
+            outputList.add(serializer);
+        } else if (outputFormat == OutputFormat.BINARY) {
+            BinaryCopySerializer binary = getBinarySerializer();
+            binary.reset();
+            for (int row = 0; row < batch.getSize(); row++) {
+                binary.startRecord();
+                for (int column = 0; column < numColumns; column++) {
+                    fillOneBinaryField(batch, column, row);
+                }
+                binary.endRecord();
+            }
+            outputList.add(binary);
+        } else {
+            CsvSerializer csv = getCsvSerializer();
+            csv.reset();
+            for (int row = 0; row < batch.getSize(); row++) {
+                csv.startRecord();
+                for (int column = 0; column < numColumns; column++) {
+                    appendCsvValue(batch, types[column], column, row);
+                }
+                csv.endRecord();
+            }
+            outputList.add(csv);
+        }
+        return outputList;
+    }
+
+    /**
+     * Translates a row into an output record, the resolver sets the fields
+     * of the row directly into the GPDBWritable serializer, so no objects
+     * are created for the fields of primitive columns. For the other output
+     * formats the fields are obtained as a list of {@link OneField} objects.
+     *
+     * @param resolver the resolver of the row
+     * @param row      the row to be serialized
+     * @return list of Writable objects with serialized row
+     * @throws Exception if the resolver failed to resolve the row
+     */
+    public LinkedList<Writable> makeRowOutput(ReadRowResolver resolver, OneRow row) throws Exception {
+        if (outputFormat != OutputFormat.GPDBWritable) {
+            return makeOutput(resolver.getFields(row));
+        }
+        if (serializer == null) {
+            makeGPDBWritableOutput();
+        }
+        if (fieldSink == null) {
+            fieldSink = new GPDBWritableFieldSink();
         }
+
+        outputList.clear();
+        serializer.reset();
+        try {
+            serializer.startRecord();
+            resolver.getFields(row, fieldSink);
+            serializer.endRecord();
+        } catch (GPDBWritable.TypeMismatchException | IllegalStateException e) {
+            // the fields set do not match the schema
+            throw new BadRecordException(e.getMessage(), e);
+        }
+        outputList.add(serializer);
         return outputList;
     }
 
@@ -184,12 +365,13 @@ public class BridgeOutputBuilder {
     }
 
     /**
-     * Creates the GPDBWritable object. The object is created one time and is
-     * refilled from recFields for each record sent
+     * Creates the GPDBWritable serializer. The serializer and the layout of
+     * the records derived from the schema are created one time and the
+     * serializer's buffer is refilled from recFields for each record sent
      *
-     * @return empty GPDBWritable object with set columns
+     * @return empty GPDBWritable serializer with set columns
      */
-    GPDBWritable makeGPDBWritableOutput() {
+    GPDBWritableSerializer makeGPDBWritableOutput() {
         int num_actual_fields = columnDescriptors.size();
         schema = new int[num_actual_fields];
         colNames = new String[num_actual_fields];
@@ -199,30 +381,18 @@ public class BridgeOutputBuilder {
             colNames[i] = columnDescriptors.get(i).columnName();
         }
 
-        output = new GPDBWritable(schema, databaseEncoding);
+        serializer = new GPDBWritableSerializer(schema, databaseEncoding);
+        output = serializer;
 
-        return (GPDBWritable) output;
-    }
-
-    /**
-     * Fills the output record based on the fields in recFields.
-     *
-     * @param recFields record fields
-     * @throws BadRecordException if building the output record failed
-     */
-    void fillOutputRecord(List<OneField> recFields) throws BadRecordException {
-        if (outputFormat == OutputFormat.GPDBWritable) {
-            fillGPDBWritable(recFields);
-        } else {
-            fillText(recFields);
-        }
+        return serializer;
     }
 
     /**
-     * Fills a GPDBWritable object based on recFields. The input record
-     * recFields must correspond to schema. If the record has more or less
-     * fields than the schema we throw an exception. We require that the type of
-     * field[i] in recFields corresponds to the type of field[i] in the schema.
+     * Serializes a record based on recFields into the GPDBWritable
+     * serializer. The input record recFields must correspond to schema. If
+     * the record has more or less fields than the schema we throw an
+     * exception. We require that the type of field[i] in recFields
+     * corresponds to the type of field[i] in the schema.
      *
      * @param recFields record fields
      * @throws BadRecordException if building the output record failed
@@ -237,6 +407,7 @@ public class BridgeOutputBuilder {
                     + " fields but the schema size is " + schema.length);
         }
 
+        serializer.startRecord();
         for (int i = 0; i < size; i++) {
             OneField current = recFields.get(i);
             if (!isTypeInSchema(current.type, schema[i])) {
@@ -249,8 +420,63 @@ public class BridgeOutputBuilder {
 
             fillOneGPDBWritableField(current, i);
         }
+        serializer.endRecord();
+    }
 
-        outputList.add(output);
+    /**
+     * Serializes a record based on recFields into the binary COPY
+     * serializer. The input record recFields must correspond to schema, the
+     * values of the fields are converted to the types of the columns.
+     *
+     * @param recFields record fields
+     * @throws BadRecordException if the record does not match the schema or
+     *                            a value cannot be converted to the type of its column
+     */
+    void fillBinary(List<OneField> recFields) throws BadRecordException {
+        int size = recFields.size();
+        if (size == 0) { // size 0 means the resolver couldn't deserialize any
+            // of the record fields
+            throw new BadRecordException("No fields in record");
+        } else if (size != columnDescriptors.size()) {
+            throw new BadRecordException("Record has " + size
+                    + " fields but the schema size is " + columnDescriptors.size());
+        }
+
+        binarySerializer.startRecord();
+        for (int i = 0; i < size; i++) {
+            OneField current = recFields.get(i);
+            ColumnDescriptor columnDescriptor = columnDescriptors.get(i);
+            if (!isTypeInSchema(current.type, columnDescriptor.columnTypeCode())) {
+                throw new BadRecordException(
+                        String.format("For field %s schema requires type %s but input record has type %s",
+                                columnDescriptor.columnName(),
+                                DataType.get(columnDescriptor.columnTypeCode()),
+                                DataType.get(current.type)));
+            }
+            try {
+                binarySerializer.setValue(i, current.val);
+            } catch (IllegalArgumentException | DateTimeException | ClassCastException | ArithmeticException e) {
+                throw new BadRecordException(String.format("Failed to serialize field %s: %s",
+                        columnDescriptor.columnName(), e.getMessage()), e);
+            }
+        }
+        binarySerializer.endRecord();
+    }
+
+    /**
+     * Returns the binary COPY serializer, creating it on first use.
+     *
+     * @return the binary COPY serializer
+     */
+    private BinaryCopySerializer getBinarySerializer() {
+        if (binarySerializer == null) {
+            int[] columnTypes = new int[columnDescriptors.size()];
+            for (int i = 0; i < columnTypes.length; i++) {
+                columnTypes[i] = columnDescriptors.get(i).columnTypeCode();
+            }
+            binarySerializer = new BinaryCopySerializer(columnTypes, getSerializerEncoding());
+        }
+        return binarySerializer;
     }
 
     /**
@@ -302,12 +528,15 @@ public class BridgeOutputBuilder {
         DataType dataType = DataType.get(field.type);
 
         if (recFields.size() == 1 && dataType == DataType.BYTEA) {
+            // a chunk of lines, either an array or a range of an array
+            ByteBuffer chunk = val instanceof ByteBuffer ? (ByteBuffer) val : ByteBuffer.wrap((byte[]) val);
+            byte[] bytes = chunk.array();
+            int offset = chunk.arrayOffset() + chunk.position();
             if (samplingEnabled) {
-                convertTextDataToLines((byte[]) val);
+                convertTextDataToLines(bytes, offset, chunk.remaining());
                 return;
             } else {
-                // TODO break output into lines
-                output = new BufferWritable((byte[]) val);
+                output = new BufferWritable(bytes, offset, chunk.remaining());
             }
         } else {
 
@@ -322,13 +551,70 @@ public class BridgeOutputBuilder {
             } else if (recFields.size() == 1 && val instanceof String) {
                 output = new Text(val + newLine);
             } else {
-                output = new Text(fieldListToCSVString(recFields));
+                CsvSerializer csv = getCsvSerializer();
+                csv.reset();
+                fillCsv(recFields);
+                output = csv;
             }
         }
 
         outputList.add(output);
     }
 
+    /**
+     * Tests if a record is serialized as a CSV line, rather than passed as
+     * is by {@link #fillText(List)}.
+     *
+     * @param recFields record fields
+     * @return whether the record is serialized as a CSV line
+     */
+    private boolean isCsvRecord(List<OneField> recFields) {
+        if (recFields.size() != 1) {
+            return recFields.size() > 1;
+        }
+        OneField field = recFields.get(0);
+        return field.type != DataType.BYTEA.getOID()
+                && !(field.val instanceof org.apache.hadoop.io.Text)
+                && !(field.val instanceof String);
+    }
+
+    /**
+     * Serializes recFields as a CSV line into the CSV serializer.
+     *
+     * @param recFields record fields
+     */
+    private void fillCsv(List<OneField> recFields) {
+        csvSerializer.startRecord();
+        for (OneField field : recFields) {
+            csvSerializer.appendField(field.type, field.val);
+        }
+        csvSerializer.endRecord();
+    }
+
+    /**
+     * Returns the encoding of the text values written by the serializers.
+     * The TEXT format was always sent in UTF-8 when the database encoding is
+     * not known, the binary format does the same.
+     *
+     * @return the database encoding, or UTF-8 if it is not known
+     */
+    private Charset getSerializerEncoding() {
+        return databaseEncoding != null ? databaseEncoding : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Returns the CSV serializer, the serializer is created the first time
+     * and its buffer is reused for all the records sent.
+     *
+     * @return the CSV serializer
+     */
+    private CsvSerializer getCsvSerializer() {
+        if (csvSerializer == null) {
+            csvSerializer = new CsvSerializer(greenplumCSV, getSerializerEncoding(), getHexPrefix());
+        }
+        return csvSerializer;
+    }
+
     /**
      * Breaks raw bytes into lines. Used only for sampling.
      * <p>
@@ -340,11 +626,13 @@ public class BridgeOutputBuilder {
      * the partial line is stored separately, and is being completed when
      * reading the next chunk of data.
      *
-     * @param val input raw data to break into lines
+     * @param val    input raw data to break into lines
+     * @param offset the offset of the data in the array
+     * @param length the length of the data
      */
-    void convertTextDataToLines(byte[] val) {
-        int len = val.length;
-        int start = 0;
+    void convertTextDataToLines(byte[] val, int offset, int length) {
+        int len = offset + length;
+        int start = offset;
         int end;
         byte[] line;
         BufferWritable writable;
@@ -352,7 +640,7 @@ public class BridgeOutputBuilder {
         while (start < len) {
             end = ArrayUtils.indexOf(val, DELIM, start);
             boolean isPartialLine;
-            if (end == ArrayUtils.INDEX_NOT_FOUND) {
+            if (end == ArrayUtils.INDEX_NOT_FOUND || end >= len) {
                 // data finished in the middle of the line
                 end = len;
                 isPartialLine = true;
@@ -381,7 +669,7 @@ public class BridgeOutputBuilder {
     }
 
     /**
-     * Fills one GPDBWritable field.
+     * Serializes one GPDBWritable field of the current record.
      *
      * @param oneField field
      * @param colIdx   column index
@@ -392,9 +680,14 @@ public class BridgeOutputBuilder {
             throws BadRecordException {
         int type = oneField.type;
         Object val = oneField.val;
-        GPDBWritable gpdbOutput = (GPDBWritable) output;
+        GPDBWritableSerializer gpdbOutput = serializer;
         try {
-            switch (DataType.get(type)) {
+            DataType dataType = DataType.get(type);
+            if (val == null && dataType != DataType.UNSUPPORTED_TYPE) {
+                gpdbOutput.setNull(colIdx);
+                return;
+            }
+            switch (dataType) {
                 case INTEGER:
                     gpdbOutput.setInt(colIdx, (Integer) val);
                     break;
@@ -414,15 +707,17 @@ public class BridgeOutputBuilder {
                     gpdbOutput.setBoolean(colIdx, (Boolean) val);
                     break;
                 case BYTEA:
-                    byte[] bts = null;
-                    if (val != null) {
+                    if (val instanceof byte[]) {
+                        byte[] bytes = (byte[]) val;
+                        gpdbOutput.setBytes(colIdx, bytes, 0, bytes.length);
+                    } else {
                         int length = Array.getLength(val);
-                        bts = new byte[length];
+                        byte[] bts = new byte[length];
                         for (int j = 0; j < length; j++) {
                             bts[j] = Array.getByte(val, j);
                         }
+                        gpdbOutput.setBytes(colIdx, bts, 0, length);
                     }
-                    gpdbOutput.setBytes(colIdx, bts);
                     break;
                 case VARCHAR:
                 case BPCHAR:
@@ -454,8 +749,7 @@ public class BridgeOutputBuilder {
                      * array external text representation.
                      * see https://www.postgresql.org/docs/9.4/arrays.html for details of this format.
                      */
-                    gpdbOutput.setString(colIdx,
-                            ObjectUtils.toString(val, null));
+                    gpdbOutput.setString(colIdx, val.toString());
                     break;
                 default:
                     LOG.debug("Data type OID is {}", type);
@@ -470,33 +764,303 @@ public class BridgeOutputBuilder {
     }
 
     /**
-     * Serialize a list of OneFields to a CSV line
+     * Verifies that the columns of the batch match the schema and returns the
+     * data types of the columns of the batch.
+     *
+     * @param batch the batch of column vectors
+     * @return the data types of the columns of the batch
+     * @throws BadRecordException if the batch does not match the schema
+     */
+    private DataType[] getColumnBatchTypes(ColumnBatch batch) throws BadRecordException {
+        int numColumns = batch.getNumColumns();
+        if (numColumns != columnDescriptors.size()) {
+            throw new BadRecordException("Record has " + numColumns
+                    + " fields but the schema size is " + columnDescriptors.size());
+        }
+
+        DataType[] types = new DataType[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            ColumnDescriptor columnDescriptor = columnDescriptors.get(i);
+            if (!isTypeInSchema(batch.getColumnType(i), columnDescriptor.columnTypeCode())) {
+                throw new BadRecordException(
+                        String.format("For field %s schema requires type %s but input record has type %s",
+                                columnDescriptor.columnName(),
+                                DataType.get(columnDescriptor.columnTypeCode()),
+                                DataType.get(batch.getColumnType(i))));
+            }
+            types[i] = DataType.get(batch.getColumnType(i));
+        }
+        return types;
+    }
+
+    /**
+     * Serializes one GPDBWritable field of the current record from the
+     * column vector of the batch.
+     *
+     * @param batch    the batch of column vectors
+     * @param dataType the data type of the column
+     * @param column   the column index
+     * @param row      the row index
+     * @throws BadRecordException if the vector type is not supported for the
+     *                            data type or doesn't match the schema
+     */
+    private void fillOneGPDBWritableField(ColumnBatch batch, DataType dataType, int column, int row)
+            throws BadRecordException {
+        if (batch.isNull(column, row)) {
+            serializer.setNull(column);
+            return;
+        }
+        try {
+            switch (batch.getVectorType(column)) {
+                case LONG:
+                    long longValue = batch.getLong(column, row);
+                    if (dataType == DataType.BOOLEAN) {
+                        serializer.setBoolean(column, longValue != 0);
+                    } else if (dataType == DataType.SMALLINT) {
+                        serializer.setShort(column, (short) longValue);
+                    } else if (dataType == DataType.INTEGER) {
+                        serializer.setInt(column, (int) longValue);
+                    } else if (dataType == DataType.BIGINT) {
+                        serializer.setLong(column, longValue);
+                    } else {
+                        throw unsupportedVectorType(batch, dataType, column);
+                    }
+                    break;
+                case DOUBLE:
+                    double doubleValue = batch.getDouble(column, row);
+                    if (dataType == DataType.REAL) {
+                        serializer.setFloat(column, (float) doubleValue);
+                    } else if (dataType == DataType.FLOAT8) {
+                        serializer.setDouble(column, doubleValue);
+                    } else {
+                        throw unsupportedVectorType(batch, dataType, column);
+                    }
+                    break;
+                case BYTES:
+                    byte[] bytes = batch.getBytes(column, row);
+                    int start = batch.getBytesStart(column, row);
+                    int length = batch.getBytesLength(column, row);
+                    if (dataType == DataType.BYTEA) {
+                        serializer.setBytes(column, bytes, start, length);
+                    } else if (isUtf8DatabaseEncoding) {
+                        serializer.setText(column, bytes, start, length);
+                    } else {
+                        serializer.setString(column, new String(bytes, start, length, StandardCharsets.UTF_8));
+                    }
+                    break;
+                case OBJECT:
+                    Object value = batch.getObject(column, row);
+                    if (dataType == DataType.BYTEA) {
+                        byte[] byteaValue = (byte[]) value;
+                        serializer.setBytes(column, byteaValue, 0, byteaValue.length);
+                    } else {
+                        serializer.setString(column, value.toString());
+                    }
+                    break;
+                default:
+                    throw unsupportedVectorType(batch, dataType, column);
+            }
+        } catch (GPDBWritable.TypeMismatchException e) {
+            throw new BadRecordException(e);
+        }
+    }
+
+    /**
+     * Serializes one binary COPY field of the current record from the column
+     * vector of the batch. The values of the vectors are converted to the
+     * type of the column in the schema.
+     *
+     * @param batch  the batch of column vectors
+     * @param column the column index
+     * @param row    the row index
+     * @throws BadRecordException if the vector type is not supported or a
+     *                            value cannot be converted to the type of the column
+     */
+    private void fillOneBinaryField(ColumnBatch batch, int column, int row) throws BadRecordException {
+        if (batch.isNull(column, row)) {
+            binarySerializer.setNull(column);
+            return;
+        }
+        DataType schemaType = DataType.get(columnDescriptors.get(column).columnTypeCode());
+        try {
+            switch (batch.getVectorType(column)) {
+                case LONG:
+                    long longValue = batch.getLong(column, row);
+                    if (schemaType == DataType.BIGINT) {
+                        binarySerializer.setLong(column, longValue);
+                    } else if (schemaType == DataType.BOOLEAN) {
+                        binarySerializer.setBoolean(column, longValue != 0);
+                    } else {
+                        binarySerializer.setValue(column, longValue);
+                    }
+                    break;
+                case DOUBLE:
+                    double doubleValue = batch.getDouble(column, row);
+                    if (schemaType == DataType.FLOAT8) {
+                        binarySerializer.setDouble(column, doubleValue);
+                    } else if (schemaType == DataType.REAL) {
+                        binarySerializer.setFloat(column, (float) doubleValue);
+                    } else {
+                        binarySerializer.setValue(column, doubleValue);
+                    }
+                    break;
+                case BYTES:
+                    byte[] bytes = batch.getBytes(column, row);
+                    int start = batch.getBytesStart(column, row);
+                    int length = batch.getBytesLength(column, row);
+                    if (schemaType == DataType.BYTEA) {
+                        binarySerializer.setBytes(column, bytes, start, length);
+                    } else if (isUtf8DatabaseEncoding && (schemaType == DataType.TEXT
+                            || schemaType == DataType.VARCHAR || schemaType == DataType.BPCHAR)) {
+                        binarySerializer.setText(column, bytes, start, length);
+                    } else {
+                        binarySerializer.setString(column, new String(bytes, start, length, StandardCharsets.UTF_8));
+                    }
+                    break;
+                case OBJECT:
+                    binarySerializer.setValue(column, batch.getObject(column, row));
+                    break;
+                default:
+                    throw unsupportedVectorType(batch, schemaType, column);
+            }
+        } catch (IllegalArgumentException | DateTimeException | ClassCastException | ArithmeticException e) {
+            throw new BadRecordException(String.format("Failed to serialize field %s: %s",
+                    columnDescriptors.get(column).columnName(), e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Appends the value of a column of the batch as a CSV field
+     *
+     * @param batch    the batch of column vectors
+     * @param dataType the data type of the column
+     * @param column   the column index
+     * @param row      the row index
+     * @throws BadRecordException if the vector type is not supported for the data type
+     */
+    private void appendCsvValue(ColumnBatch batch, DataType dataType, int column, int row)
+            throws BadRecordException {
+        if (batch.isNull(column, row)) {
+            csvSerializer.appendNull();
+            return;
+        }
+        switch (batch.getVectorType(column)) {
+            case LONG:
+                long longValue = batch.getLong(column, row);
+                if (dataType == DataType.BOOLEAN) {
+                    csvSerializer.appendBoolean(longValue != 0);
+                } else {
+                    csvSerializer.appendLong(longValue);
+                }
+                break;
+            case DOUBLE:
+                double doubleValue = batch.getDouble(column, row);
+                if (dataType == DataType.REAL) {
+                    csvSerializer.appendFloat((float) doubleValue);
+                } else {
+                    csvSerializer.appendDouble(doubleValue);
+                }
+                break;
+            case BYTES:
+                byte[] bytes = batch.getBytes(column, row);
+                int start = batch.getBytesStart(column, row);
+                int length = batch.getBytesLength(column, row);
+                if (dataType == DataType.BYTEA) {
+                    csvSerializer.appendBytea(bytes, start, length);
+                } else if (dataType == DataType.NUMERIC || !DataType.isTextForm(dataType.getOID())
+                        || dataType == DataType.TIMESTAMP || dataType == DataType.DATE) {
+                    csvSerializer.appendValue(new String(bytes, start, length, StandardCharsets.UTF_8));
+                } else {
+                    csvSerializer.appendText(bytes, start, length);
+                }
+                break;
+            case OBJECT:
+                csvSerializer.appendField(dataType.getOID(), batch.getObject(column, row));
+                break;
+            default:
+                throw unsupportedVectorType(batch, dataType, column);
+        }
+    }
+
+    private BadRecordException unsupportedVectorType(ColumnBatch batch, DataType dataType, int column) {
+        return new BadRecordException(String.format("Vector type %s is not supported for field %s of type %s",
+                batch.getVectorType(column), columnDescriptors.get(column).columnName(), dataType));
+    }
+
+    /**
+     * Returns the prefix of hex encoded BYTEA values. If the Format Type is
+     * CSV, we should escape using single \, for Text or Custom Format types,
+     * it should be \\
      *
-     * @param fields list of fields
-     * @return a serialized CSV line
+     * @return the prefix of hex encoded BYTEA values
      */
-    private String fieldListToCSVString(List<OneField> fields) {
-        return fields.stream()
-                .map(field -> {
-                    // Check first if the field.val is null then using .toString() is safe in else branches.
-                    if (field.val == null) {
-                        return greenplumCSV.getValueOfNull();
-                    } else if (field.type == DataType.BYTEA.getOID()) {
-                        // check for Format Type here. if the Format Type is CSV, we should escape using single \
-                        // for Text or Custom Format types, it should \\
-                        String hexPrepend = gpdbTableformat.equalsIgnoreCase("csv") ? "\\x" : "\\\\x";
-                        return hexPrepend + Hex.encodeHexString((byte[]) field.val);
-                    } else if (field.type == DataType.NUMERIC.getOID() || !DataType.isTextForm(field.type)) {
-                        return field.val.toString();
-                    } else if (field.type == DataType.TIMESTAMP.getOID()) {
-                        return field.val instanceof String ?
-                                (String) field.val :
-                                ((Timestamp) field.val).toLocalDateTime().format(GreenplumDateTime.DATETIME_FORMATTER);
-                    } else if (field.type == DataType.DATE.getOID()) {
-                        return field.val.toString();
-                    } else
-                        return greenplumCSV.toCsvField(field.val.toString(), true, true, true);
-                })
-                .collect(Collectors.joining(String.valueOf(greenplumCSV.getDelimiter()), "", newLine));
+    private String getHexPrefix() {
+        return gpdbTableformat.equalsIgnoreCase("csv") ? "\\x" : "\\\\x";
+    }
+
+    /**
+     * Sets the fields of a row into the GPDBWritable serializer, converting
+     * the text values to the database encoding when needed.
+     */
+    private class GPDBWritableFieldSink implements FieldSink {
+
+        @Override
+        public void setNull(int column) {
+            serializer.setNull(column);
+        }
+
+        @Override
+        public void setBoolean(int column, boolean value) throws IOException {
+            serializer.setBoolean(column, value);
+        }
+
+        @Override
+        public void setShort(int column, short value) throws IOException {
+            serializer.setShort(column, value);
+        }
+
+        @Override
+        public void setInt(int column, int value) throws IOException {
+            serializer.setInt(column, value);
+        }
+
+        @Override
+        public void setLong(int column, long value) throws IOException {
+            serializer.setLong(column, value);
+        }
+
+        @Override
+        public void setFloat(int column, float value) throws IOException {
+            serializer.setFloat(column, value);
+        }
+
+        @Override
+        public void setDouble(int column, double value) throws IOException {
+            serializer.setDouble(column, value);
+        }
+
+        @Override
+        public void setBytes(int column, byte[] value, int offset, int length) throws IOException {
+            serializer.setBytes(column, value, offset, length);
+        }
+
+        @Override
+        public void setText(int column, byte[] value, int offset, int length) throws IOException {
+            if (isUtf8DatabaseEncoding) {
+                serializer.setText(column, value, offset, length);
+            } else {
+                serializer.setString(column, new String(value, offset, length, StandardCharsets.UTF_8));
+            }
+        }
+
+        @Override
+        public void setString(int column, String value) throws IOException {
+            serializer.setString(column, value);
+        }
+
+        @Override
+        public void setObject(int column, Object value) throws IOException {
+            serializer.setString(column, value == null ? null : value.toString());
+        }
     }
 }
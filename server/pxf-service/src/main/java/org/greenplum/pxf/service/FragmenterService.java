@@ -42,7 +42,10 @@ import java.util.concurrent.ExecutionException;
  * The {@link FragmenterService} returns fragments for a given segment. It
  * performs caching of Fragment for a unique query. The first segment to
  * request the list of fragments will populate it, while the rest of the
- * segments will wait until the list of fragments is populated.
+ * segments will wait until the list of fragments is populated. When the
+ * {@link SharedFragmentCache} is enabled, the list of fragments is also
+ * shared with the other PXF servers of the cluster, so that it is computed
+ * once per query.
  */
 @Component
 public class FragmenterService {
@@ -52,13 +55,16 @@ public class FragmenterService {
     private final BasePluginFactory pluginFactory;
     private final FragmenterCacheFactory fragmenterCacheFactory;
     private final GSSFailureHandler failureHandler;
+    private final SharedFragmentCache sharedFragmentCache;
 
     public FragmenterService(FragmenterCacheFactory fragmenterCacheFactory,
                              BasePluginFactory pluginFactory,
-                             GSSFailureHandler failureHandler) {
+                             GSSFailureHandler failureHandler,
+                             SharedFragmentCache sharedFragmentCache) {
         this.fragmenterCacheFactory = fragmenterCacheFactory;
         this.pluginFactory = pluginFactory;
         this.failureHandler = failureHandler;
+        this.sharedFragmentCache = sharedFragmentCache;
     }
 
     public List<Fragment> getFragmentsForSegment(RequestContext context) throws IOException {
@@ -100,7 +106,10 @@ public class FragmenterService {
      * empty, it populates the cache with the list of fragments. When
      * concurrent requests are made to the cache with the same key, the first
      * request will populate the cache, while the other requests will wait
-     * until the cache entry is populated.
+     * until the cache entry is populated. The cache entry is populated from
+     * the {@link SharedFragmentCache}, which only computes the list of
+     * fragments when this PXF server is the coordinator for the query, or
+     * when sharing is disabled.
      *
      * @param context   the request context
      * @param startTime the start time of the request
@@ -111,7 +120,7 @@ public class FragmenterService {
         final String fragmenterCacheKey = getFragmenterCacheKey(context);
         try {
             return fragmenterCacheFactory.getCache()
-                    .get(fragmenterCacheKey, () -> {
+                    .get(fragmenterCacheKey, () -> sharedFragmentCache.get(fragmenterCacheKey, () -> {
                         LOG.debug("Caching fragments from segmentId={} with key={}",
                                 context.getSegmentId(), fragmenterCacheKey);
 
@@ -138,7 +147,7 @@ public class FragmenterService {
                                 context.hasFilter() ? "" : "un");
 
                         return fragmentList;
-                    });
+                    }));
         } catch (UncheckedExecutionException | ExecutionException e) {
             // Unwrap the error
             Exception exception = e.getCause() != null ? (Exception) e.getCause() : e;
@@ -2,10 +2,12 @@ package org.greenplum.pxf.service;
 
 import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.BinaryCopySerializer;
 import org.greenplum.pxf.api.model.GreenplumCSV;
 import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.PluginConf;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.api.utilities.CharsetUtils;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.EnumAggregationType;
@@ -112,6 +114,9 @@ public class HttpRequestParser implements RequestParser<MultiValueMap<String, St
         String wireFormat = params.removeProperty("FORMAT");
         context.setOutputFormat(OutputFormat.valueOf(wireFormat));
 
+        // compression of the read response or of the write request body
+        context.setStreamCompression(StreamCompression.fromName(params.removeOptionalProperty("STREAM-COMPRESSION")));
+
         // FDW uses user property FORMAT to indicate format of data
         String format = params.removeUserProperty("FORMAT");
         format = StringUtils.isNotBlank(format) ? format : context.inferFormatName();
@@ -183,6 +188,8 @@ public class HttpRequestParser implements RequestParser<MultiValueMap<String, St
             if (context.getTupleDescription().size() != 1 && context.getGreenplumCSV().getDelimiter() == null) {
                 throw new IllegalArgumentException(String.format("using no delimiter is only possible for a single column table. %d columns found", context.getTupleDescription().size()));
             }
+        } else if (context.getOutputFormat() == OutputFormat.BINARY) {
+            validateBinaryOutputFormat(context);
         }
 
         context.setGpSessionId(params.removeIntProperty("SESSION-ID"));
@@ -325,6 +332,27 @@ public class HttpRequestParser implements RequestParser<MultiValueMap<String, St
         }
     }
 
+    /**
+     * Verifies that the binary COPY output format can be used for the request:
+     * it is only supported for reading and all the columns must have a binary
+     * representation.
+     *
+     * @param context the request context
+     * @throws IllegalArgumentException if the binary output format cannot be used
+     */
+    private void validateBinaryOutputFormat(RequestContext context) {
+        if (context.getRequestType() != RequestContext.RequestType.READ_BRIDGE) {
+            throw new IllegalArgumentException("output format BINARY is only supported for reading");
+        }
+        for (ColumnDescriptor column : context.getTupleDescription()) {
+            if (!BinaryCopySerializer.isSupported(column.columnTypeCode())) {
+                throw new IllegalArgumentException(String.format(
+                        "output format BINARY does not support column '%s' of type %s",
+                        column.columnName(), column.columnTypeName()));
+            }
+        }
+    }
+
     /*
      * Sets the tuple description for the record
      * Attribute Projection information is optional
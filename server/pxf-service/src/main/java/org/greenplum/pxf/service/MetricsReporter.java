@@ -4,6 +4,7 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.model.RequestContext;
@@ -11,6 +12,8 @@ import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Service responsible for submitting metrics to MeterRegistry.
@@ -22,9 +25,16 @@ public class MetricsReporter {
     private static final String UNKNOWN_VALUE = "unknown";
     private static final Tags SUCCESS_TAG = Tags.of("outcome", "success");
     private static final Tags ERROR_TAG = Tags.of("outcome", "error");
+    private static final CounterHandle DISABLED_COUNTER = increment -> {
+    };
+    private static final TimerHandle DISABLED_TIMER = duration -> {
+    };
 
     private final MeterRegistry registry;
     private final Environment env;
+    // the handles hold the meters kept by the registry, so the caches are bounded by the same tag sets
+    private final ConcurrentMap<MeterKey, CounterHandle> counterHandles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MeterKey, TimerHandle> timerHandles = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance.
@@ -45,7 +55,7 @@ public class MetricsReporter {
      * @param context  request context
      */
     public void reportTimer(PxfMetric metric, Duration duration, RequestContext context) {
-        reportTimer(metric, duration, context, null);
+        getTimerHandle(metric, context, null).record(duration);
     }
 
     /**
@@ -58,62 +68,85 @@ public class MetricsReporter {
      * @param success  true if timed operation was successful, false otherwise
      */
     public void reportTimer(PxfMetric metric, Duration duration, RequestContext context, boolean success) {
-        reportTimer(metric, duration, context, success ? SUCCESS_TAG : ERROR_TAG);
+        getTimerHandle(metric, context, success).record(duration);
     }
 
     /**
-     * Reports timer metric with a given name, duration and additional tags to the registry.
-     * Applies custom tags before reporting and adds a success outcome tag.
+     * Reports counter metric with a given name and the increment to the registry.
+     * Reports with any tags given by the context.
      *
-     * @param metric
-     * @param duration
-     * @param context
-     * @param extraTags
+     * @param metric    metric to apply
+     * @param increment the amount to add to the counter
+     * @param context   request context
      */
-    private void reportTimer(PxfMetric metric, Duration duration, RequestContext context, Tags extraTags) {
-        String metricName = metric.getMetricName();
-        long durationMs = duration.toMillis();
-        if (!env.getProperty(metric.getEnabledPropertyName(), Boolean.class, Boolean.FALSE)) {
-            log.trace("Skipping reporting metric {} with duration={}ms", metricName, durationMs);
-            return;
-        }
+    public void reportCounter(PxfMetric metric, long increment, RequestContext context) {
+        getCounterHandle(metric, context).increment(increment);
+    }
 
-        Tags tags = (extraTags == null) ? getTags(context) : getTags(context).and(extraTags);
-        try {
-            Timer timer = Timer.builder(metricName).tags(tags).register(registry);
-            timer.record(duration);
-            if (log.isTraceEnabled()) {
-                log.trace("Reported timer {}{} with duration={}ms", metricName, tags, durationMs);
-            }
-        } catch (Exception e) {
-            log.warn(String.format("Unable to report timer %s%s with duration=%dms.", metricName, tags, durationMs), e);
-        }
+    /**
+     * Returns a handle on the counter metric with the tags given by the context, for an operation
+     * that increments the counter repeatedly. The handle is cached per metric and tag set, so that
+     * whether the metric is enabled is resolved and the counter is registered once for all the
+     * fragments sharing the tags. The handle ignores the increments when the metric is disabled.
+     *
+     * @param metric  metric to apply
+     * @param context request context
+     * @return the handle on the counter
+     */
+    public CounterHandle getCounterHandle(PxfMetric metric, RequestContext context) {
+        return counterHandles.computeIfAbsent(new MeterKey(metric, context, null), this::createCounterHandle);
     }
 
     /**
-     * Reports counter metric with a given name and the increment to the registry.
-     * Reports with any tags given by the context and adds a success outcome tag.
+     * Returns a handle on the timer metric with the tags given by the context and an outcome tag,
+     * for an operation that is timed repeatedly. The handle is cached per metric and tag set, so that
+     * whether the metric is enabled is resolved and the timer is registered once for all the
+     * fragments sharing the tags. The handle ignores the durations when the metric is disabled.
      *
-     * @param metric
-     * @param increment
-     * @param context
+     * @param metric  metric to apply
+     * @param context request context
+     * @param success true if timed operation was successful, false otherwise
+     * @return the handle on the timer
      */
-    public void reportCounter(PxfMetric metric, long increment, RequestContext context) {
-        String metricName = metric.getMetricName();
-        if (!env.getProperty(metric.getEnabledPropertyName(), Boolean.class, Boolean.FALSE)) {
-            log.trace("Skipping reporting metric {} with increment={}", metricName, increment);
-            return;
+    public TimerHandle getTimerHandle(PxfMetric metric, RequestContext context, boolean success) {
+        return getTimerHandle(metric, context, Boolean.valueOf(success));
+    }
+
+    private TimerHandle getTimerHandle(PxfMetric metric, RequestContext context, Boolean success) {
+        return timerHandles.computeIfAbsent(new MeterKey(metric, context, success), this::createTimerHandle);
+    }
+
+    private CounterHandle createCounterHandle(MeterKey key) {
+        String metricName = key.getMetric().getMetricName();
+        if (!isEnabled(key.getMetric())) {
+            log.trace("Skipping reporting metric {}", metricName);
+            return DISABLED_COUNTER;
         }
-        Tags tags = getTags(context);
+        Tags tags = key.getTags();
         try {
-            Double incrementCount = Long.valueOf(increment).doubleValue();
             Counter counter = Counter.builder(metricName).tags(tags).register(registry);
-            counter.increment(incrementCount);
-            if (log.isTraceEnabled()) {
-                log.trace("Reported counter {}{} with increment={}", metricName, tags, increment);
-            }
+            log.trace("Registered counter {}{}", metricName, tags);
+            return counter::increment;
+        } catch (Exception e) {
+            log.warn(String.format("Unable to register counter %s%s.", metricName, tags), e);
+            return DISABLED_COUNTER;
+        }
+    }
+
+    private TimerHandle createTimerHandle(MeterKey key) {
+        String metricName = key.getMetric().getMetricName();
+        if (!isEnabled(key.getMetric())) {
+            log.trace("Skipping reporting metric {}", metricName);
+            return DISABLED_TIMER;
+        }
+        Tags tags = key.getTags();
+        try {
+            Timer timer = Timer.builder(metricName).tags(tags).register(registry);
+            log.trace("Registered timer {}{}", metricName, tags);
+            return timer::record;
         } catch (Exception e) {
-            log.warn(String.format("Unable to report counter %s%s with increment=%d.", metricName, tags, increment), e);
+            log.warn(String.format("Unable to register timer %s%s.", metricName, tags), e);
+            return DISABLED_TIMER;
         }
     }
 
@@ -130,18 +163,75 @@ public class MetricsReporter {
         return reportFrequency;
     }
 
+    private boolean isEnabled(PxfMetric metric) {
+        return env.getProperty(metric.getEnabledPropertyName(), Boolean.class, Boolean.FALSE);
+    }
+
     /**
-     * Produces a set of custom tags with values from the provided request context.
-     *
-     * @param context request context
-     * @return collection of custom tags
+     * Counter metric bound to the tags of an operation.
+     */
+    @FunctionalInterface
+    public interface CounterHandle {
+
+        /**
+         * Increments the counter.
+         *
+         * @param increment the amount to add to the counter
+         */
+        void increment(double increment);
+    }
+
+    /**
+     * Timer metric bound to the tags of an operation.
+     */
+    @FunctionalInterface
+    public interface TimerHandle {
+
+        /**
+         * Records the duration of the timed operation.
+         *
+         * @param duration duration measured by the metric
+         */
+        void record(Duration duration);
+    }
+
+    /**
+     * Metric and the values of the custom tags it is reported with.
      */
-    private Tags getTags(RequestContext context) {
-        return Tags.empty()
-                .and("user", StringUtils.defaultIfBlank(context.getUser(), UNKNOWN_VALUE))
-                .and("segment", String.valueOf(context.getSegmentId()))
-                .and("profile", StringUtils.defaultIfBlank(context.getProfile(), UNKNOWN_VALUE))
-                .and("server", StringUtils.defaultIfBlank(context.getServerName(), "default"));
+    @Value
+    private static class MeterKey {
+        PxfMetric metric;
+        String user;
+        String segment;
+        String profile;
+        String server;
+        Boolean success;
+
+        MeterKey(PxfMetric metric, RequestContext context, Boolean success) {
+            this.metric = metric;
+            this.user = StringUtils.defaultIfBlank(context.getUser(), UNKNOWN_VALUE);
+            this.segment = String.valueOf(context.getSegmentId());
+            this.profile = StringUtils.defaultIfBlank(context.getProfile(), UNKNOWN_VALUE);
+            this.server = StringUtils.defaultIfBlank(context.getServerName(), "default");
+            this.success = success;
+        }
+
+        /**
+         * Produces a set of custom tags with values taken from the request context.
+         *
+         * @return collection of custom tags
+         */
+        Tags getTags() {
+            Tags tags = Tags.empty()
+                    .and("user", user)
+                    .and("segment", segment)
+                    .and("profile", profile)
+                    .and("server", server);
+            if (success == null) {
+                return tags;
+            }
+            return tags.and(success ? SUCCESS_TAG : ERROR_TAG);
+        }
     }
 
     /**
@@ -152,7 +242,9 @@ public class MetricsReporter {
         RECORDS_SENT("pxf.records.sent", "pxf.metrics.records.enabled"),
         RECORDS_RECEIVED("pxf.records.received", "pxf.metrics.records.enabled"),
         BYTES_SENT("pxf.bytes.sent", "pxf.metrics.bytes.enabled"),
-        BYTES_RECEIVED("pxf.bytes.received", "pxf.metrics.bytes.enabled");
+        BYTES_RECEIVED("pxf.bytes.received", "pxf.metrics.bytes.enabled"),
+        COMPRESSED_BYTES_SENT("pxf.bytes.compressed.sent", "pxf.metrics.bytes.enabled"),
+        COMPRESSED_BYTES_RECEIVED("pxf.bytes.compressed.received", "pxf.metrics.bytes.enabled");
 
         private final String metricName;
         private final String enabledPropertyName;
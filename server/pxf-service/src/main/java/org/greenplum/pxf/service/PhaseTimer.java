@@ -0,0 +1,162 @@
+package org.greenplum.pxf.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the time a thread spends in each phase of streaming fragments.
+ * A timer is confined to the thread streaming the fragments, so that timing a
+ * phase only reads the clock and adds to a local total. The totals are
+ * published to the shared accumulators at most once per second, and when a
+ * fragment completes. A disabled timer ignores the phases without reading the
+ * clock.
+ */
+public class PhaseTimer {
+
+    /**
+     * Timer that does not time the phases.
+     */
+    public static final PhaseTimer DISABLED = new PhaseTimer(null);
+
+    private static final long PUBLISH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The phases of streaming a fragment.
+     */
+    public enum Phase {
+        /**
+         * Opening the fragment with the accessor.
+         */
+        OPEN,
+        /**
+         * Reading the rows from the external system with the accessor.
+         */
+        READ,
+        /**
+         * Resolving the rows with the resolver into the records of the output format.
+         */
+        RESOLVE,
+        /**
+         * Serializing the records into the response, compression included.
+         */
+        SERIALIZE,
+        /**
+         * Writing the response to the client, waiting for it to consume the data.
+         */
+        WRITE;
+
+        private final String tagValue = name().toLowerCase();
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
+
+    private final boolean enabled;
+    private final LongAdder[] totalNanos;
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] publishedNanos = new long[Phase.values().length];
+    private long lastPublishTime;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param totalNanos the shared accumulators of the time spent in each
+     *                   phase, indexed by the phase ordinal, or null to
+     *                   disable the timer
+     */
+    PhaseTimer(LongAdder[] totalNanos) {
+        this.enabled = totalNanos != null;
+        this.totalNanos = totalNanos;
+        this.lastPublishTime = start();
+    }
+
+    /**
+     * @return true if the timer times the phases, false otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return the start time of the phase
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time elapsed since the start to the phase.
+     *
+     * @param phase the phase
+     * @param start the start time returned by {@link #start()}, or by a
+     *              previous stop to time consecutive phases
+     * @return the stop time, which is the start time of the next phase
+     */
+    public long stop(Phase phase, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - start;
+        publishPeriodically(now);
+        return now;
+    }
+
+    /**
+     * Adds the time elapsed since the start to a phase nested in another
+     * phase, the time being deducted from the enclosing phase.
+     *
+     * @param phase          the nested phase
+     * @param enclosingPhase the phase the nested phase is part of
+     * @param start          the start time returned by {@link #start()}
+     * @return the stop time
+     */
+    public long stopNested(Phase phase, Phase enclosingPhase, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - start;
+        nanos[enclosingPhase.ordinal()] -= now - start;
+        publishPeriodically(now);
+        return now;
+    }
+
+    /**
+     * Publishes the time spent in the phases since the last publication to
+     * the shared accumulators.
+     */
+    public void publish() {
+        if (enabled) {
+            publish(System.nanoTime());
+        }
+    }
+
+    private void publishPeriodically(long now) {
+        if (now - lastPublishTime >= PUBLISH_INTERVAL_NANOS) {
+            publish(now);
+        }
+    }
+
+    private void publish(long now) {
+        for (int i = 0; i < nanos.length; i++) {
+            long delta = nanos[i] - publishedNanos[i];
+            // the enclosing phase of a nested phase catches up once it is stopped
+            if (delta > 0) {
+                totalNanos[i].add(delta);
+                publishedNanos[i] = nanos[i];
+            }
+        }
+        lastPublishTime = now;
+    }
+
+    /**
+     * @return the nanoseconds spent in each phase so far, indexed by the phase ordinal
+     */
+    public long[] snapshot() {
+        return nanos.clone();
+    }
+}
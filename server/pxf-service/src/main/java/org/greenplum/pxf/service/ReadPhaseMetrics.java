@@ -0,0 +1,97 @@
+package org.greenplum.pxf.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Breaks down the time spent streaming fragments into the phases of
+ * {@link PhaseTimer.Phase}, to tell whether a read is bound by the external
+ * system, by the resolvers or by the client consuming the data.
+ * <p>
+ * Every thread streaming fragments times the phases with its own
+ * {@link PhaseTimer}, which publishes the totals to {@link LongAdder}
+ * accumulators at most once per second. The registry reads the accumulators
+ * when it publishes the metrics, as the "pxf.read.phase.time" counters in
+ * seconds. The time of every phase of a completed fragment is also recorded
+ * in the "pxf.fragment.phase.duration" histograms. Both are tagged with the
+ * phase.
+ */
+@Component
+@Slf4j
+public class ReadPhaseMetrics {
+
+    static final String PHASE_TIME_METRIC = "pxf.read.phase.time";
+    static final String FRAGMENT_PHASE_DURATION_METRIC = "pxf.fragment.phase.duration";
+
+    private static final String PHASE_TAG = "phase";
+
+    private final boolean enabled;
+    private final LongAdder[] phaseNanos;
+    private final Timer[] fragmentPhaseTimers;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param registry meter registry to submit metrics to
+     * @param enabled  true to time the phases of the fragments, false otherwise
+     */
+    public ReadPhaseMetrics(MeterRegistry registry,
+                            @Value("${pxf.metrics.phases.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+        PhaseTimer.Phase[] phases = PhaseTimer.Phase.values();
+        this.phaseNanos = new LongAdder[phases.length];
+        this.fragmentPhaseTimers = new Timer[phases.length];
+        if (!enabled) {
+            return;
+        }
+        for (PhaseTimer.Phase phase : phases) {
+            LongAdder nanos = new LongAdder();
+            phaseNanos[phase.ordinal()] = nanos;
+            FunctionCounter.builder(PHASE_TIME_METRIC, nanos, adder -> adder.sum() / 1e9)
+                    .description("Time spent streaming fragments in the phase")
+                    .baseUnit("seconds")
+                    .tag(PHASE_TAG, phase.getTagValue())
+                    .register(registry);
+            fragmentPhaseTimers[phase.ordinal()] = Timer.builder(FRAGMENT_PHASE_DURATION_METRIC)
+                    .description("Time spent streaming a fragment in the phase")
+                    .tag(PHASE_TAG, phase.getTagValue())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        log.info("Timing the phases of streaming fragments");
+    }
+
+    /**
+     * Creates a timer for a thread streaming fragments.
+     *
+     * @return a new timer, or a disabled timer when the phases are not timed
+     */
+    public PhaseTimer newTimer() {
+        return enabled ? new PhaseTimer(phaseNanos) : PhaseTimer.DISABLED;
+    }
+
+    /**
+     * Records the time spent in every phase by a completed fragment, and
+     * publishes the totals of the timer.
+     *
+     * @param timer the timer of the thread that streamed the fragment
+     * @param start the snapshot of the timer taken when the fragment started
+     */
+    public void reportFragment(PhaseTimer timer, long[] start) {
+        if (!timer.isEnabled()) {
+            return;
+        }
+        long[] end = timer.snapshot();
+        for (int i = 0; i < end.length; i++) {
+            fragmentPhaseTimers[i].record(end[i] - start[i], TimeUnit.NANOSECONDS);
+        }
+        timer.publish();
+    }
+}
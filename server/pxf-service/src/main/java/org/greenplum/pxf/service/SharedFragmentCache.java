@@ -0,0 +1,340 @@
+package org.greenplum.pxf.service;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.greenplum.pxf.api.model.Fragment;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Shares the list of fragments of a query across the PXF servers of the
+ * cluster, so that the data source is listed once per query instead of once
+ * per PXF server.
+ * <p>
+ * The fragments are published to a directory shared by all the PXF servers,
+ * configured with the "pxf.fragmenter-cache.shared.directory" property. The
+ * first PXF server to request the fragments of a query atomically creates a
+ * lock file for the query and becomes the coordinator for the query: it
+ * computes the fragments and publishes them to the directory. The other PXF
+ * servers wait for the fragments to be published and read them from the
+ * directory.
+ * <p>
+ * When the directory is not configured, when the coordinator fails to compute
+ * the fragments, or when the fragments are not published within the
+ * "pxf.fragmenter-cache.shared.timeout" duration, every PXF server computes
+ * the fragments itself. The wait happens while loading the entry of the
+ * local fragmenter cache, so the other requests of the same query on this
+ * PXF server wait as well, for up to the timeout.
+ * <p>
+ * The published files are only reused for the "pxf.fragmenter-cache.expiration"
+ * duration of the local fragmenter cache, so that a query does not see a
+ * listing older than it would without sharing. Older files are deleted and the
+ * fragments are computed again. The files of all queries older than the
+ * "pxf.fragmenter-cache.shared.expiration" duration are purged from the
+ * directory.
+ * <p>
+ * Since the published files are deserialized by every PXF server, the
+ * directory is only used when it is owned by the user running PXF and is
+ * not writable by group or others, and only the classes of {@link Fragment}
+ * and of the known fragment metadata are deserialized. Fragments with other
+ * metadata are not shared and are computed by every PXF server.
+ */
+@Component
+public class SharedFragmentCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFragmentCache.class);
+
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String FRAGMENTS_SUFFIX = ".fragments";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    /**
+     * The classes allowed in the published files, registered with fixed ids
+     * so that the ids do not depend on the plugins present on the classpath
+     */
+    private static final String[] REGISTERED_CLASSES = {
+            ArrayList.class.getName(),
+            Fragment.class.getName(),
+            "java.util.HashMap",
+            "java.util.Properties",
+            "java.sql.Date",
+            "[Ljava.sql.Date;",
+            "[Ljava.lang.Long;",
+            "[Ljava.lang.String;",
+            "[B",
+            "org.greenplum.pxf.api.examples.DemoFragmentMetadata",
+            "org.greenplum.pxf.plugins.hdfs.HcfsFragmentMetadata",
+            "org.greenplum.pxf.plugins.hive.HiveFragmentMetadata",
+            "org.greenplum.pxf.plugins.hbase.HBaseFragmentMetadata",
+            "org.greenplum.pxf.plugins.jdbc.partitioning.DatePartition",
+            "org.greenplum.pxf.plugins.jdbc.partitioning.EnumPartition",
+            "org.greenplum.pxf.plugins.jdbc.partitioning.IntPartition",
+            "org.greenplum.pxf.plugins.jdbc.partitioning.NullPartition",
+            "org.greenplum.pxf.diagnostic.FilterVerifyFragmentMetadata"
+    };
+    private static final int FIRST_REGISTRATION_ID = 100;
+
+    private final Path directory;
+    private final long timeoutMillis;
+    private final long maxAgeMillis;
+    private final long expirationMillis;
+    private volatile long lastPurgeMillis;
+
+    public SharedFragmentCache(@Value("${pxf.fragmenter-cache.shared.directory:}") String directory,
+                               @Value("${pxf.fragmenter-cache.shared.timeout:60s}") Duration timeout,
+                               @Value("${pxf.fragmenter-cache.shared.expiration:10m}") Duration expiration,
+                               @Value("${pxf.fragmenter-cache.expiration:10s}") Duration maxAge) {
+        this.directory = StringUtils.isBlank(directory) ? null : Paths.get(directory);
+        this.timeoutMillis = timeout.toMillis();
+        this.maxAgeMillis = maxAge.toMillis();
+        this.expirationMillis = expiration.toMillis();
+        if (this.directory != null) {
+            LOG.info("Sharing fragments through directory {} with timeout of {} ms", directory, timeoutMillis);
+        }
+    }
+
+    /**
+     * @return true if the fragments are shared across PXF servers, false otherwise
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Returns the fragments for the given key, computing them if this PXF
+     * server is the coordinator for the key, or if the fragments cannot be
+     * read from the shared directory.
+     *
+     * @param key    the key identifying the query
+     * @param loader computes the list of fragments
+     * @return the list of fragments
+     * @throws Exception when computing the fragments fails
+     */
+    public List<Fragment> get(String key, Callable<List<Fragment>> loader) throws Exception {
+        if (directory == null) {
+            return loader.call();
+        }
+
+        String name = DigestUtils.sha256Hex(key);
+        Path fragmentsFile = directory.resolve(name + FRAGMENTS_SUFFIX);
+        Path lockFile = directory.resolve(name + LOCK_SUFFIX);
+        Path failedFile = directory.resolve(name + FAILED_SUFFIX);
+
+        try {
+            if (Files.notExists(directory)) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+            if (!isOwnedAndNotShared(directory)) {
+                LOG.warn("Directory {} must be owned by {} and not writable by group or others, computing fragments locally",
+                        directory, System.getProperty("user.name"));
+                return loader.call();
+            }
+            purgeExpired();
+            if (isStale(lockFile)) {
+                // the fragments of an earlier query with the same key, compute them again
+                LOG.debug("Deleting fragments with key={} published more than {} ms ago", key, maxAgeMillis);
+                deleteQuietly(fragmentsFile);
+                deleteQuietly(failedFile);
+                deleteQuietly(lockFile);
+            }
+            Files.createFile(lockFile);
+        } catch (FileAlreadyExistsException e) {
+            LOG.debug("Waiting for fragments with key={} to be published to {}", key, fragmentsFile);
+            List<Fragment> fragments = waitForFragments(fragmentsFile, failedFile);
+            return fragments != null ? fragments : loader.call();
+        } catch (IOException e) {
+            LOG.warn(String.format("Unable to create lock file %s, computing fragments locally", lockFile), e);
+            return loader.call();
+        }
+
+        LOG.debug("Computing fragments with key={} to publish to {}", key, fragmentsFile);
+        List<Fragment> fragments;
+        try {
+            fragments = loader.call();
+        } catch (Exception e) {
+            // let the other PXF servers compute the fragments and report the error themselves
+            createQuietly(failedFile);
+            throw e;
+        }
+        publish(fragments, fragmentsFile, failedFile);
+        return fragments;
+    }
+
+    /**
+     * Waits for the coordinator to publish the fragments
+     *
+     * @return the published fragments, or null if the coordinator failed or timed out
+     */
+    private List<Fragment> waitForFragments(Path fragmentsFile, Path failedFile) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            if (Files.exists(fragmentsFile)) {
+                if (isStale(fragmentsFile)) {
+                    LOG.debug("Fragments in {} were published more than {} ms ago, computing fragments locally",
+                            fragmentsFile, maxAgeMillis);
+                    deleteQuietly(fragmentsFile);
+                    return null;
+                }
+                try {
+                    if (!isOwnedAndNotShared(fragmentsFile)) {
+                        LOG.warn("File {} is not owned by {}, computing fragments locally",
+                                fragmentsFile, System.getProperty("user.name"));
+                        return null;
+                    }
+                    return read(fragmentsFile);
+                } catch (Exception e) {
+                    LOG.warn(String.format("Unable to read fragments from %s, computing fragments locally", fragmentsFile), e);
+                    return null;
+                }
+            }
+            if (Files.exists(failedFile)) {
+                LOG.debug("Coordinator failed to compute fragments for {}, computing fragments locally", fragmentsFile);
+                return null;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                LOG.warn("Timed out after {} ms waiting for fragments to be published to {}, computing fragments locally",
+                        timeoutMillis, fragmentsFile);
+                return null;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Writes the fragments to a temporary file that is atomically moved to
+     * the fragments file, so that readers never see a partial list
+     */
+    private void publish(List<Fragment> fragments, Path fragmentsFile, Path failedFile) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(directory, fragmentsFile.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile); Output output = new Output(out)) {
+                // copy to an ArrayList, as the list returned by the fragmenter can be of any type
+                createKryo().writeObject(output, new ArrayList<>(fragments));
+            }
+            Files.move(tempFile, fragmentsFile, StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("Published {} fragments to {}", fragments.size(), fragmentsFile);
+        } catch (Exception e) {
+            LOG.warn(String.format("Unable to publish fragments to %s", fragmentsFile), e);
+            createQuietly(failedFile);
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Fragment> read(Path fragmentsFile) throws IOException {
+        try (InputStream in = Files.newInputStream(fragmentsFile); Input input = new Input(in)) {
+            return (List<Fragment>) createKryo().readObject(input, ArrayList.class);
+        }
+    }
+
+    /**
+     * @return true if the file exists and was last modified longer ago than
+     * the expiration of the local fragmenter cache, false otherwise
+     */
+    private boolean isStale(Path path) {
+        long lastModified = path.toFile().lastModified();
+        return lastModified != 0 && System.currentTimeMillis() - lastModified >= maxAgeMillis;
+    }
+
+    /**
+     * Deletes the files of queries older than the expiration, at most once
+     * per expiration period
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeMillis < expirationMillis) {
+            return;
+        }
+        lastPurgeMillis = now;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                File file = path.toFile();
+                if (file.isFile() && now - file.lastModified() >= expirationMillis) {
+                    deleteQuietly(path);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn(String.format("Unable to purge expired fragments from %s", directory), e);
+        }
+    }
+
+    /**
+     * @return true if the path is owned by the user running PXF and is not
+     * writable by group or others, false otherwise
+     */
+    private boolean isOwnedAndNotShared(Path path) {
+        try {
+            PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attributes.owner().getName().equals(System.getProperty("user.name")) &&
+                    !attributes.permissions().contains(PosixFilePermission.GROUP_WRITE) &&
+                    !attributes.permissions().contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.debug("Unable to read the owner and permissions of {}", path, e);
+            return false;
+        }
+    }
+
+    private Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        kryo.setClassLoader(classLoader);
+        // fragments and fragment metadata do not always have a no-arg constructor
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        // never instantiate classes named by the files, only the registered ones
+        kryo.setRegistrationRequired(true);
+        for (int i = 0; i < REGISTERED_CLASSES.length; i++) {
+            try {
+                kryo.register(Class.forName(REGISTERED_CLASSES[i], false, classLoader), FIRST_REGISTRATION_ID + i);
+            } catch (ClassNotFoundException e) {
+                LOG.trace("Class {} is not on the classpath, not registering it", REGISTERED_CLASSES[i]);
+            }
+        }
+        return kryo;
+    }
+
+    private void createQuietly(Path path) {
+        try {
+            Files.createFile(path);
+        } catch (IOException e) {
+            LOG.debug("Unable to create {}", path, e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.debug("Unable to delete {}", path, e);
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.greenplum.pxf.service.bridge;
 
 
 import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.service.PhaseTimer;
 
 import java.io.DataInputStream;
 
@@ -59,4 +60,13 @@ public interface Bridge {
      * @throws Exception when an error occurs during the operation
      */
     void endIteration() throws Exception;
+
+    /**
+     * Sets the timer of the reading and resolving phases of the records
+     * returned by {@link #getNext()}. Bridges that do not break down these
+     * phases ignore the timer.
+     * @param phaseTimer the timer of the thread calling {@link #getNext()}
+     */
+    default void setPhaseTimer(PhaseTimer phaseTimer) {
+    }
 }
@@ -0,0 +1,435 @@
+package org.greenplum.pxf.service.bridge;
+
+import org.apache.commons.lang.StringUtils;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.BadRecordException;
+import org.greenplum.pxf.api.error.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.CsvSerializer;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.InputStreamHandler;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.model.WriteVectorizedResolver;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.service.serde.RecordReaderFactory;
+import org.greenplum.pxf.service.utilities.BasePluginFactory;
+import org.greenplum.pxf.service.utilities.GSSFailureHandler;
+
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A WriteBridge that routes every record to the partition given by the
+ * values of the columns of the PARTITION_BY option, and writes the rows of
+ * each partition to a Hive-style subdirectory of the data source, for
+ * instance {@code year=2023/month=10/}. The partition columns are only
+ * stored in the names of the directories, the files contain the other
+ * columns of the table.
+ * <p>
+ * Every partition is written by its own accessor and resolver, with a copy
+ * of the request context whose data source is the directory of the
+ * partition and whose columns are the columns that are not partition
+ * columns. At most MAX_OPEN_PARTITIONS partitions are open at the same time,
+ * when a record belongs to another partition, the writer of the least
+ * recently used partition is closed. The files of a partition that is
+ * written again afterwards are added next to its existing files.
+ * <p>
+ * When the resolver of the request handles the input stream, as for the
+ * delimited text profiles, the records are deserialized anyway, and the
+ * other columns of each record are serialized back into a line with the CSV
+ * settings of the table.
+ */
+public class PartitionedWriteBridge extends WriteBridge {
+
+    public static final String PARTITION_BY_OPTION = "PARTITION_BY";
+    public static final String MAX_OPEN_PARTITIONS_OPTION = "MAX_OPEN_PARTITIONS";
+    static final int DEFAULT_MAX_OPEN_PARTITIONS = 16;
+    static final String DEFAULT_PARTITION_NAME = "__HIVE_DEFAULT_PARTITION__";
+
+    // the characters escaped in the names of partition directories, same as Hive
+    private static final BitSet ESCAPED_CHARS = new BitSet(128);
+
+    static {
+        for (char c = 1; c < ' '; c++) {
+            ESCAPED_CHARS.set(c);
+        }
+        for (char c : "\"#%'*/:=?\\\u007F{[]^".toCharArray()) {
+            ESCAPED_CHARS.set(c);
+        }
+    }
+
+    private final int[] partitionColumns;
+    private final int[] dataColumns;
+    private final List<ColumnDescriptor> dataTupleDescription;
+    private final int maxOpenPartitions;
+    private final boolean vectorized;
+    private final CsvSerializer lineSerializer;
+    // the open partitions in access order, the least recently used partition comes first
+    private final LinkedHashMap<String, PartitionWriter> openPartitions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> closedPartitions = new HashSet<>();
+    private final StringBuilder pathBuilder = new StringBuilder();
+
+    /**
+     * Creates a new instance of the bridge.
+     *
+     * @param pluginFactory       plugin factory
+     * @param recordReaderFactory factory for creating a record reader to deserialize incoming data
+     * @param context             request context
+     * @param failureHandler      failure handler
+     */
+    public PartitionedWriteBridge(BasePluginFactory pluginFactory, RecordReaderFactory recordReaderFactory,
+                                  RequestContext context, GSSFailureHandler failureHandler) {
+        super(pluginFactory, recordReaderFactory, context, failureHandler, true);
+
+        List<ColumnDescriptor> columns = context.getTupleDescription();
+        partitionColumns = getPartitionColumns(context.getOption(PARTITION_BY_OPTION), columns);
+        if (partitionColumns.length == columns.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s cannot include all the columns of the table", PARTITION_BY_OPTION));
+        }
+
+        dataColumns = new int[columns.size() - partitionColumns.length];
+        dataTupleDescription = new ArrayList<>(dataColumns.length);
+        for (int i = 0, index = 0; i < columns.size(); i++) {
+            if (!isPartitionColumn(i)) {
+                ColumnDescriptor column = columns.get(i);
+                dataColumns[index] = i;
+                dataTupleDescription.add(new ColumnDescriptor(column.columnName(), column.columnTypeCode(),
+                        index++, column.columnTypeName(), column.columnTypeModifiers(), column.isProjected()));
+            }
+        }
+
+        maxOpenPartitions = context.getOption(MAX_OPEN_PARTITIONS_OPTION, DEFAULT_MAX_OPEN_PARTITIONS, true);
+        if (maxOpenPartitions == 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value 0 : must be a positive integer", MAX_OPEN_PARTITIONS_OPTION));
+        }
+
+        vectorized = resolver instanceof WriteVectorizedResolver;
+        if (resolver.getClass().isAnnotationPresent(InputStreamHandler.class)) {
+            // the text was always sent in UTF-8 when the database encoding is not known
+            Charset encoding = databaseEncoding == null ? StandardCharsets.UTF_8 : databaseEncoding;
+            String hexPrefix = "csv".equalsIgnoreCase(context.getFormat()) ? "\\x" : "\\\\x";
+            lineSerializer = new CsvSerializer(context.getGreenplumCSV(), encoding, hexPrefix);
+        } else {
+            lineSerializer = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The writers of the partitions are opened when the first record of the
+     * partition is read.
+     */
+    @Override
+    public boolean beginIteration() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean setNext(DataInputStream inputStream) throws Exception {
+        if (vectorized) {
+            return setNextBatch(inputStream);
+        }
+
+        List<OneField> record = recordReader.readRecord(inputStream);
+        if (record == null) {
+            return false;
+        }
+
+        PartitionWriter writer = getWriter(getPartitionPath(record));
+        OneRow onerow = writer.resolver.setFields(getDataRecord(record));
+        if (onerow == null) {
+            return false;
+        }
+
+        // if accessor fails to write data it should throw an exception, if nothing was written, then there's no more data
+        return writer.accessor.writeNextObject(onerow);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The records are routed to the writers of their partitions one at a time.
+     */
+    @Override
+    public boolean isPipelineSupported() {
+        return false;
+    }
+
+    /**
+     * Closes the writers of all the open partitions.
+     *
+     * @throws Exception if closing a writer failed, the other writers are closed nevertheless
+     */
+    @Override
+    public void endIteration() throws Exception {
+        Exception failure = null;
+        for (PartitionWriter writer : openPartitions.values()) {
+            try {
+                writer.accessor.closeForWrite();
+            } catch (Exception e) {
+                LOG.error("Failed to close bridge resources of partition {}: {}",
+                        writer.context.getDataSource(), e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        openPartitions.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads a batch of records, and resolves and writes the records of each
+     * partition of the batch with the vectorized resolver and the accessor of
+     * the partition.
+     *
+     * @param inputStream input stream containing data
+     * @return true if there might be more records to read, false otherwise
+     * @throws Exception if any operation failed
+     */
+    private boolean setNextBatch(DataInputStream inputStream) throws Exception {
+        int batchSize = ((WriteVectorizedResolver) resolver).getBatchSize();
+
+        // the records of each partition keep their order
+        Map<String, List<List<OneField>>> batches = new LinkedHashMap<>();
+        int recordCount = 0;
+        while (recordCount < batchSize) {
+            List<OneField> record = recordReader.readRecord(inputStream);
+            if (record == null) {
+                break; // no more records to read
+            }
+            batches.computeIfAbsent(getPartitionPath(record), path -> new ArrayList<>())
+                    .add(getDataRecord(record));
+            recordCount++;
+        }
+
+        for (Map.Entry<String, List<List<OneField>>> batch : batches.entrySet()) {
+            PartitionWriter writer = getWriter(batch.getKey());
+            OneRow resolvedBatch = ((WriteVectorizedResolver) writer.resolver).setFieldsForBatch(batch.getValue());
+            if (resolvedBatch == null) {
+                return false;
+            }
+            if (!writer.accessor.writeNextObject(resolvedBatch)) {
+                throw new BadRecordException();
+            }
+        }
+
+        // if we read as many records as the batch size, there might be more data
+        return recordCount == batchSize;
+    }
+
+    /**
+     * Returns the writer of the partition, opening it when the partition is
+     * not open. The writer of the least recently used partition is closed
+     * first when the maximum number of partitions are open.
+     *
+     * @param path the path of the partition relative to the data source
+     * @return the writer of the partition
+     * @throws Exception if closing or opening a writer failed
+     */
+    private PartitionWriter getWriter(String path) throws Exception {
+        PartitionWriter writer = openPartitions.get(path);
+        if (writer != null) {
+            return writer;
+        }
+
+        if (openPartitions.size() >= maxOpenPartitions) {
+            Iterator<Map.Entry<String, PartitionWriter>> iterator = openPartitions.entrySet().iterator();
+            Map.Entry<String, PartitionWriter> eldest = iterator.next();
+            iterator.remove();
+            closedPartitions.add(eldest.getKey());
+            LOG.debug("Closing the writer of partition {}", eldest.getKey());
+            eldest.getValue().accessor.closeForWrite();
+        }
+
+        RequestContext partitionContext = context.copy();
+        partitionContext.setDataSource(StringUtils.removeEnd(context.getDataSource(), "/") + "/" + path);
+        partitionContext.setTupleDescription(new ArrayList<>(dataTupleDescription));
+        // the metadata of the request describes all the columns of the table
+        partitionContext.setMetadata(null);
+        // the files written before the partition was closed are kept
+        partitionContext.setSkipExistingFiles(closedPartitions.contains(path));
+
+        LOG.debug("Opening the writer of partition {}", path);
+        PartitionWriter newWriter = new PartitionWriter(partitionContext);
+        // the writer is closed with the others even when it fails to open
+        openPartitions.put(path, newWriter);
+        failureHandler.execute(partitionContext.getConfiguration(), "begin iteration",
+                () -> newWriter.accessor.openForWrite(), newWriter::recreateAccessor);
+        return newWriter;
+    }
+
+    /**
+     * Returns the path of the partition of the record relative to the data
+     * source, with a {@code column=value} directory for every partition
+     * column. Null and empty values go to the default partition.
+     *
+     * @param record the record
+     * @return the path of the partition of the record
+     */
+    String getPartitionPath(List<OneField> record) {
+        pathBuilder.setLength(0);
+        for (int column : partitionColumns) {
+            if (pathBuilder.length() > 0) {
+                pathBuilder.append('/');
+            }
+            Object value = record.get(column).val;
+            String name = value == null ? null : value.toString();
+            escapePathName(pathBuilder, context.getColumn(column).columnName());
+            pathBuilder.append('=');
+            if (StringUtils.isEmpty(name)) {
+                pathBuilder.append(DEFAULT_PARTITION_NAME);
+            } else {
+                escapePathName(pathBuilder, name);
+            }
+        }
+        return pathBuilder.toString();
+    }
+
+    /**
+     * Returns the fields of the record that are not partition columns. When
+     * the resolver handles text lines, the fields are serialized into a line.
+     *
+     * @param record the record
+     * @return the record to resolve
+     */
+    private List<OneField> getDataRecord(List<OneField> record) {
+        if (lineSerializer == null) {
+            List<OneField> dataRecord = new ArrayList<>(dataColumns.length);
+            for (int column : dataColumns) {
+                dataRecord.add(record.get(column));
+            }
+            return dataRecord;
+        }
+
+        lineSerializer.reset();
+        for (int column : dataColumns) {
+            OneField field = record.get(column);
+            if (field.val instanceof ByteBuffer) {
+                ByteBuffer buffer = (ByteBuffer) field.val;
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                lineSerializer.appendBytea(bytes, 0, bytes.length);
+            } else {
+                lineSerializer.appendField(field.type, field.val);
+            }
+        }
+        lineSerializer.endRecord();
+        return Collections.singletonList(new OneField(DataType.BYTEA.getOID(), lineSerializer.toByteArray()));
+    }
+
+    /**
+     * Escapes the characters that are not allowed in the names of partition
+     * directories with their %-encoded hex value, the same way as Hive does.
+     *
+     * @param builder the builder to append the escaped value to
+     * @param value   the value to escape
+     */
+    static void escapePathName(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (ESCAPED_CHARS.get(c)) {
+                builder.append('%').append(String.format("%02X", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    private boolean isPartitionColumn(int column) {
+        for (int partitionColumn : partitionColumns) {
+            if (partitionColumn == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indexes of the columns listed in the PARTITION_BY option
+     *
+     * @param option  the comma-separated names of the partition columns
+     * @param columns the columns of the table
+     * @return the indexes of the partition columns, in the order of the option
+     */
+    private static int[] getPartitionColumns(String option, List<ColumnDescriptor> columns) {
+        String[] names = StringUtils.split(option, ',');
+        if (names == null || names.length == 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has no value : must be a comma-separated list of columns", PARTITION_BY_OPTION));
+        }
+
+        int[] result = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim();
+            result[i] = -1;
+            for (int column = 0; column < columns.size(); column++) {
+                if (columns.get(column).columnName().equalsIgnoreCase(name)) {
+                    result[i] = column;
+                    break;
+                }
+            }
+            if (result[i] == -1) {
+                throw new IllegalArgumentException(String.format(
+                        "Property %s has incorrect value %s : column %s does not exist", PARTITION_BY_OPTION, option, name));
+            }
+            for (int j = 0; j < i; j++) {
+                if (result[j] == result[i]) {
+                    throw new IllegalArgumentException(String.format(
+                            "Property %s has incorrect value %s : column %s is listed more than once", PARTITION_BY_OPTION, option, name));
+                }
+            }
+            DataType dataType = columns.get(result[i]).getDataType();
+            if (dataType == DataType.BYTEA || dataType.isArrayType()) {
+                throw new UnsupportedTypeException(String.format(
+                        "Column %s of type %s cannot be a partition column", name, columns.get(result[i]).columnTypeName()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The accessor and resolver writing the rows of a partition
+     */
+    private class PartitionWriter {
+
+        private final RequestContext context;
+        private final Resolver resolver;
+        private Accessor accessor;
+
+        PartitionWriter(RequestContext context) {
+            this.context = context;
+            this.accessor = pluginFactory.getPlugin(context, context.getAccessor());
+            this.resolver = pluginFactory.getPlugin(context, context.getResolver());
+        }
+
+        /**
+         * Re-creates the accessor in case the accessor implementation is not
+         * idempotent, before retrying to open it after a failure
+         */
+        void recreateAccessor() {
+            accessor = pluginFactory.getPlugin(context, context.getAccessor());
+        }
+    }
+}
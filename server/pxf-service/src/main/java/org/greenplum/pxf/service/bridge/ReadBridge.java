@@ -22,8 +22,10 @@ package org.greenplum.pxf.service.bridge;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.error.BadRecordException;
 import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.ReadRowResolver;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.service.BridgeOutputBuilder;
+import org.greenplum.pxf.service.PhaseTimer;
 import org.greenplum.pxf.service.utilities.BasePluginFactory;
 import org.greenplum.pxf.service.utilities.GSSFailureHandler;
 
@@ -49,6 +51,7 @@ public class ReadBridge extends BaseBridge {
 
     protected BridgeOutputBuilder outputBuilder;
     protected Deque<Writable> outputQueue = new LinkedList<>();
+    protected PhaseTimer phaseTimer = PhaseTimer.DISABLED;
 
     public ReadBridge(BasePluginFactory pluginFactory, RequestContext context, GSSFailureHandler failureHandler) {
         super(pluginFactory, context, failureHandler);
@@ -65,6 +68,9 @@ public class ReadBridge extends BaseBridge {
     }
 
     protected Deque<Writable> makeOutput(OneRow oneRow) throws Exception {
+        if (resolver instanceof ReadRowResolver) {
+            return outputBuilder.makeRowOutput((ReadRowResolver) resolver, oneRow);
+        }
         return outputBuilder.makeOutput(resolver.getFields(oneRow));
     }
 
@@ -83,7 +89,9 @@ public class ReadBridge extends BaseBridge {
 
         try {
             while (outputQueue.isEmpty()) {
+                long start = phaseTimer.start();
                 onerow = accessor.readNextObject();
+                start = phaseTimer.stop(PhaseTimer.Phase.READ, start);
                 if (onerow == null) {
                     output = outputBuilder.getPartialLine();
                     if (output != null) {
@@ -96,6 +104,7 @@ public class ReadBridge extends BaseBridge {
 
                 // we checked before that outputQueue is empty, so we can override it.
                 outputQueue = makeOutput(onerow);
+                phaseTimer.stop(PhaseTimer.Phase.RESOLVE, start);
                 if (!outputQueue.isEmpty()) {
                     output = outputQueue.pop();
                     break;
@@ -128,6 +137,14 @@ public class ReadBridge extends BaseBridge {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPhaseTimer(PhaseTimer phaseTimer) {
+        this.phaseTimer = phaseTimer;
+    }
+
     /*
      * There are many exceptions that inherit IOException. Some of them like
      * EOFException are generated due to a data problem, and not because of an
@@ -1,5 +1,7 @@
 package org.greenplum.pxf.service.bridge;
 
+import org.apache.commons.lang.StringUtils;
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
 import org.greenplum.pxf.api.model.ReadVectorizedResolver;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.model.WriteVectorizedResolver;
@@ -30,7 +32,9 @@ public class SimpleBridgeFactory implements BridgeFactory {
 
         Bridge bridge;
         if (context.getRequestType() == RequestContext.RequestType.WRITE_BRIDGE) {
-            if (useWriteVectorization(context)) {
+            if (usePartitionedWrite(context)) {
+                bridge = new PartitionedWriteBridge(pluginFactory, recordReaderFactory, context, failureHandler);
+            } else if (useWriteVectorization(context)) {
                 bridge = new WriteVectorizedBridge(pluginFactory, recordReaderFactory, context, failureHandler);
             } else {
                 bridge = new WriteBridge(pluginFactory, recordReaderFactory, context, failureHandler);
@@ -60,6 +64,25 @@ public class SimpleBridgeFactory implements BridgeFactory {
         return Utilities.implementsInterface(resolverName, ReadVectorizedResolver.class);
     }
 
+    /**
+     * Determines whether to write the rows of each partition to a separate
+     * directory. The PARTITION_BY option is ignored by the accessors that do
+     * not write partitions, the JDBC profiles use it to partition reads.
+     *
+     * @param requestContext input protocol data
+     * @return true if a partitioned write is applicable in a current context
+     */
+    private boolean usePartitionedWrite(RequestContext requestContext) {
+        if (StringUtils.isBlank(requestContext.getOption(PartitionedWriteBridge.PARTITION_BY_OPTION))) {
+            return false;
+        }
+        try {
+            return Class.forName(requestContext.getAccessor()).isAnnotationPresent(PartitionedWriteHandler.class);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(String.format("Class %s is not found", requestContext.getAccessor()), e);
+        }
+    }
+
     /**
      * Determines whether to use vectorization when writing data to an external system
      *
@@ -32,6 +32,7 @@ import org.greenplum.pxf.service.utilities.GSSFailureHandler;
 
 import java.io.DataInputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -44,6 +45,8 @@ public class WriteBridge extends BaseBridge {
     protected final OutputFormat outputFormat;
     protected final Charset databaseEncoding;
     protected final RecordReader recordReader;
+    private final boolean pipelineSupported;
+    private boolean resolverEnded;
 
     /**
      * Creates a new instance
@@ -54,13 +57,28 @@ public class WriteBridge extends BaseBridge {
      */
     public WriteBridge(BasePluginFactory pluginFactory, RecordReaderFactory recordReaderFactory,
                        RequestContext context, GSSFailureHandler failureHandler) {
+        this(pluginFactory, recordReaderFactory, context, failureHandler, false);
+    }
+
+    /**
+     * Creates a new instance
+     * @param pluginFactory factory for creating plugins
+     * @param recordReaderFactory factory for creating a record reader to deserialize incoming data
+     * @param context request context
+     * @param failureHandler failure handler for GSS errors
+     * @param readFields true if the incoming data is always deserialized into fields, even when the resolver can handle the input stream
+     */
+    protected WriteBridge(BasePluginFactory pluginFactory, RecordReaderFactory recordReaderFactory,
+                          RequestContext context, GSSFailureHandler failureHandler, boolean readFields) {
         super(pluginFactory, context, failureHandler);
         this.outputFormat = context.getOutputFormat();
         this.databaseEncoding = context.getDatabaseEncoding();
 
         // create record reader for incoming data deserialization
-        this.recordReader = recordReaderFactory.getRecordReader(context,
-                resolver.getClass().isAnnotationPresent(InputStreamHandler.class));
+        boolean canHandleInputStream = !readFields && resolver.getClass().isAnnotationPresent(InputStreamHandler.class);
+        this.recordReader = recordReaderFactory.getRecordReader(context, canHandleInputStream);
+        // a resolver handling the input stream reads the data itself, records cannot be read ahead of it
+        this.pipelineSupported = !canHandleInputStream;
     }
 
     /**
@@ -97,6 +115,76 @@ public class WriteBridge extends BaseBridge {
         return accessor.writeNextObject(onerow);
     }
 
+    /**
+     * Returns whether the records can be read, resolved and written by
+     * different threads, with {@link #readRecord(DataInputStream)},
+     * {@link #resolveRecords(List)} and {@link #writeRow(OneRow)}, instead of
+     * with {@link #setNext(DataInputStream)}.
+     *
+     * @return true if the stages of writing a record can be pipelined
+     */
+    public boolean isPipelineSupported() {
+        return pipelineSupported;
+    }
+
+    /**
+     * Returns the number of records to pass at once to
+     * {@link #resolveRecords(List)} when the stages are pipelined.
+     *
+     * @param defaultBatchSize the batch size configured for the pipeline
+     * @return the batch size
+     */
+    public int getPipelineBatchSize(int defaultBatchSize) {
+        return defaultBatchSize;
+    }
+
+    /**
+     * Reads a record from the input stream.
+     *
+     * @param inputStream input stream containing data
+     * @return the record, or null if there are no more records
+     * @throws Exception if the record cannot be read
+     */
+    public List<OneField> readRecord(DataInputStream inputStream) throws Exception {
+        return recordReader.readRecord(inputStream);
+    }
+
+    /**
+     * Converts records into rows for the external system using the resolver.
+     * A record the resolver does not convert ends the iteration, the rows of
+     * the records before it are returned and the next call returns null.
+     *
+     * @param records the records to resolve
+     * @return the resolved rows, or null if the resolver ended the iteration
+     * @throws Exception if a record cannot be resolved
+     */
+    public List<OneRow> resolveRecords(List<List<OneField>> records) throws Exception {
+        if (resolverEnded) {
+            return null;
+        }
+        List<OneRow> rows = new ArrayList<>(records.size());
+        for (List<OneField> record : records) {
+            OneRow onerow = resolver.setFields(record);
+            if (onerow == null) {
+                resolverEnded = true;
+                return rows.isEmpty() ? null : rows;
+            }
+            rows.add(onerow);
+        }
+        return rows;
+    }
+
+    /**
+     * Stores a resolved row into the external system using the accessor.
+     *
+     * @param row the row returned by {@link #resolveRecords(List)}
+     * @return true if the row was written, false if nothing was written and the iteration ends
+     * @throws Exception if the row cannot be written
+     */
+    public boolean writeRow(OneRow row) throws Exception {
+        return accessor.writeNextObject(row);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -69,6 +69,17 @@ public class WriteVectorizedBridge extends WriteBridge {
         return recordCount == batchSize;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Vectorized resolvers reuse the batch they return between calls, so a
+     * batch cannot be resolved while the previous one is being written.
+     */
+    @Override
+    public boolean isPipelineSupported() {
+        return false;
+    }
+
     /**
      * A resolver can potentially be changed between iterations by the failureHandler, check the type and cast it
      * @return an instance of the WriteVectorizedResolver to use for processing
@@ -0,0 +1,261 @@
+package org.greenplum.pxf.service.controller;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import lombok.Getter;
+import org.greenplum.pxf.api.io.ByteBufferDataOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Merges the records serialized by the workers processing the fragments of a
+ * read request in parallel into the output stream of the request.
+ * <p>
+ * Every worker serializes its records directly into its own chunk buffer, a
+ * chunk is handed over to the request thread once it holds at least the
+ * chunk size and only at a record boundary, so that the records of different
+ * workers are never interleaved. The chunks are written in the order they
+ * are handed over, the order of the records is not preserved across
+ * fragments. The number of chunks waiting to be written is bounded, workers
+ * wait for the request thread to write the pending chunks when the bound is
+ * reached. The chunk buffers are reused once written.
+ */
+class FragmentOutputMerger {
+
+    private final BlockingQueue<Chunk> chunks;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final int chunkSize;
+    private final int bufferSize;
+    private volatile boolean cancelled;
+    @Getter
+    private String failedSourceName;
+
+    /**
+     * A chunk of records serialized by a worker, or the notification that
+     * the worker is done.
+     */
+    private static class Chunk {
+        private final ByteBuffer records;
+        private final OperationStats workerStats;
+        private final Exception error;
+        private final String sourceName;
+
+        private Chunk(ByteBuffer records, OperationStats workerStats, Exception error, String sourceName) {
+            this.records = records;
+            this.workerStats = workerStats;
+            this.error = error;
+            this.sourceName = sourceName;
+        }
+    }
+
+    /**
+     * Creates a new merger.
+     *
+     * @param workers   the number of workers
+     * @param chunkSize the size of the chunks handed over by the workers
+     */
+    FragmentOutputMerger(int workers, int chunkSize) {
+        this.chunks = new ArrayBlockingQueue<>(2 * workers);
+        // the pending chunks and the chunk of every worker
+        this.buffers = new ArrayBlockingQueue<>(3 * workers);
+        this.chunkSize = chunkSize;
+        // room for the record that crosses the chunk size
+        this.bufferSize = Math.max(2 * chunkSize, Long.BYTES);
+    }
+    /**
+     * @return a new output stream for a worker
+     */
+    WorkerOutputStream newWorkerOutputStream() {
+        return new WorkerOutputStream();
+    }
+
+    /**
+     * @return true if the request failed and the workers must stop, false otherwise
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Notifies that a worker is done, must be called exactly once by every
+     * worker that has been started.
+     *
+     * @param workerStats the statistics of the records processed by the worker
+     * @param error       the error that stopped the worker, or null if the worker succeeded
+     * @param sourceName  the data source of the fragment that failed, or null if the worker succeeded
+     */
+    void workerFinished(OperationStats workerStats, Exception error, String sourceName) {
+        // the request thread waits for all the workers, make sure it is notified
+        Uninterruptibles.putUninterruptibly(chunks, new Chunk(null, workerStats, error, sourceName));
+    }
+
+    /**
+     * Writes the chunks of the workers to the output stream until all the
+     * workers are done. When a worker fails or the output stream cannot be
+     * written to, the other workers are cancelled and the first error is
+     * thrown once all the workers are done.
+     *
+     * @param outputStream the output stream of the request
+     * @param queryStats   the statistics of the request, updated with the statistics of the workers
+     * @param workers      the number of workers that have been started
+     * @throws Exception the first error encountered by the workers or when writing to the output stream
+     */
+    void merge(OutputStream outputStream, OperationStats queryStats, int workers) throws Exception {
+        Exception error = null;
+        int finishedWorkers = 0;
+        while (finishedWorkers < workers) {
+            // keep draining the chunks until all the workers are done, so that no worker waits forever
+            Chunk chunk = Uninterruptibles.takeUninterruptibly(chunks);
+            if (chunk.records == null) {
+                finishedWorkers++;
+                queryStats.update(chunk.workerStats);
+                if (error == null && chunk.error != null) {
+                    error = chunk.error;
+                    failedSourceName = chunk.sourceName;
+                    cancelled = true;
+                }
+            } else {
+                if (error == null) {
+                    try {
+                        ByteBuffer records = chunk.records;
+                        outputStream.write(records.array(), records.arrayOffset() + records.position(), records.remaining());
+                    } catch (IOException e) {
+                        error = e;
+                        cancelled = true;
+                    }
+                }
+                release(chunk.records);
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+    }
+
+    private void release(ByteBuffer buffer) {
+        // the buffers of the records larger than a buffer are not reused
+        if (buffer.capacity() == bufferSize) {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+
+    private void put(Chunk chunk) throws InterruptedIOException {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing over records");
+        }
+    }
+
+    /**
+     * The output stream receiving the records of a worker that do not fit
+     * in a chunk buffer. The worker serializes its records into the
+     * {@link #getOutput() output} of the stream, whose buffer is handed over
+     * as the chunk, without copying the records.
+     */
+    class WorkerOutputStream extends OutputStream {
+
+        @Getter
+        private final ByteBufferDataOutput output;
+        private long handedOverCount;
+        private ByteBuffer buffer;
+        private ByteArrayOutputStream overflow;
+
+        private WorkerOutputStream() {
+            buffer = acquire();
+            output = new ByteBufferDataOutput(buffer, this);
+        }
+
+        @Override
+        public void write(int b) {
+            overflow().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            overflow().write(b, off, len);
+        }
+
+        /**
+         * Notifies that a whole record has been written to the output, hands
+         * over the chunk once it holds at least the chunk size.
+         *
+         * @throws IOException when the worker is interrupted
+         * @throws CancellationException when the request failed and the worker must stop
+         */
+        void endRecord() throws IOException {
+            if (cancelled) {
+                throw new CancellationException("Processing of the fragments has been cancelled");
+            }
+            if (overflow != null) {
+                handOverOverflow();
+            } else if (output.getCount() - handedOverCount >= chunkSize) {
+                handOverBuffer();
+            }
+        }
+
+        /**
+         * Hands over the records that have not been handed over yet, must
+         * be called by the worker once it is done with its fragments.
+         *
+         * @throws IOException when the worker is interrupted
+         */
+        void finish() throws IOException {
+            if (overflow != null) {
+                handOverOverflow();
+            } else if (output.getCount() > handedOverCount) {
+                handOverBuffer();
+            }
+        }
+
+        /**
+         * Returns the chunk buffer of the worker for reuse, must be called
+         * by the worker once it is done, whether it succeeded or not.
+         */
+        @Override
+        public void close() {
+            release(buffer);
+        }
+
+        /*
+         * Hands over the buffer of the output and serializes the next
+         * records into another buffer
+         */
+        private void handOverBuffer() throws IOException {
+            ByteBuffer records = output.swapBuffer(buffer = acquire());
+            handedOverCount = output.getCount();
+            put(new Chunk(records, null, null, null));
+        }
+
+        /*
+         * A record did not fit in the buffer, the output wrote the buffer to
+         * this stream, hands over the buffered bytes with the rest of the records
+         */
+        private void handOverOverflow() throws IOException {
+            output.flushBuffer();
+            handedOverCount = output.getCount();
+            put(new Chunk(ByteBuffer.wrap(overflow.toByteArray()), null, null, null));
+            overflow = null;
+        }
+
+        private ByteArrayOutputStream overflow() {
+            if (overflow == null) {
+                overflow = new ByteArrayOutputStream(bufferSize);
+            }
+            return overflow;
+        }
+    }
+}
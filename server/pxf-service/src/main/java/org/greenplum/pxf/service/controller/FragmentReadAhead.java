@@ -0,0 +1,346 @@
+package org.greenplum.pxf.service.controller;
+
+import lombok.Getter;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.greenplum.pxf.api.io.BatchWritable;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.service.bridge.Bridge;
+import org.greenplum.pxf.service.spring.PxfContextMdcLogEnhancerDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Opens the next fragments of a read request while the current fragment is
+ * streamed to Greenplum, so that the latency of opening a fragment (listing,
+ * opening files, reading footers, ...) and the first records of the fragment
+ * overlap with the streaming of the previous fragments.
+ * <p>
+ * Up to "pxf.read-ahead.depth" fragments are read ahead of the current
+ * fragment, each on a thread of a pool bounded by
+ * "pxf.read-ahead.pool.max-size" threads. A fragment read ahead serializes its
+ * first records to memory, the memory used by the fragments of a request is
+ * bounded by "pxf.read-ahead.buffer-size". The buffered records are written
+ * to the output stream once the fragment becomes the current fragment, the
+ * remaining records are then read from the bridge as usual, so the records
+ * are always streamed in the order of the fragments.
+ * <p>
+ * When there is no thread available to read a fragment ahead, the fragment
+ * is opened when it becomes the current fragment. Setting the depth to 0
+ * disables read-ahead.
+ */
+@Component
+public class FragmentReadAhead implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FragmentReadAhead.class);
+
+    private static final String DEPTH_PROPERTY = "pxf.read-ahead.depth";
+    private static final String BUFFER_SIZE_PROPERTY = "pxf.read-ahead.buffer-size";
+    private static final String POOL_MAX_SIZE_PROPERTY = "pxf.read-ahead.pool.max-size";
+
+    private final int depth;
+    private final long bufferSize;
+    private final TaskDecorator taskDecorator;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public FragmentReadAhead(@Value("${" + DEPTH_PROPERTY + ":0}") int depth,
+                             @Value("${" + BUFFER_SIZE_PROPERTY + ":64MB}") DataSize bufferSize,
+                             @Value("${" + POOL_MAX_SIZE_PROPERTY + ":32}") int poolMaxSize,
+                             PxfContextMdcLogEnhancerDecorator taskDecorator) {
+        this(depth, bufferSize, poolMaxSize, (TaskDecorator) taskDecorator);
+    }
+
+    FragmentReadAhead(int depth, DataSize bufferSize, int poolMaxSize, TaskDecorator taskDecorator) {
+        this.depth = Math.max(depth, 0);
+        this.bufferSize = bufferSize.toBytes();
+        this.taskDecorator = taskDecorator;
+        if (this.depth > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pxf-read-ahead-");
+            threadFactory.setDaemon(true);
+            // no queue, fragments are opened by the request thread when all the threads are busy
+            this.executor = new ThreadPoolExecutor(0, poolMaxSize, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory);
+            LOG.info("Reading ahead {} fragments with a buffer of {} bytes per request and at most {} threads",
+                    this.depth, this.bufferSize, poolMaxSize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return true if fragments are read ahead, false otherwise
+     */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Opens a read-ahead window over the fragments of a request. The window
+     * must be used by the thread executing the request, with the identity of
+     * the request, and must be closed once the request is done.
+     *
+     * @param fragments      the fragments of the request
+     * @param contextFactory creates the request context of a fragment
+     * @param bridgeFactory  creates the bridge for the request context of a fragment
+     * @return the read-ahead window
+     * @throws IOException when the identity of the request cannot be determined
+     */
+    public Window open(List<Fragment> fragments,
+                       Function<Fragment, RequestContext> contextFactory,
+                       Function<RequestContext, Bridge> bridgeFactory) throws IOException {
+        return new Window(fragments, contextFactory, bridgeFactory, UserGroupInformation.getCurrentUser());
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The fragments of a request that are read ahead of the current fragment.
+     */
+    public class Window implements AutoCloseable {
+
+        private final List<Fragment> fragments;
+        private final Function<Fragment, RequestContext> contextFactory;
+        private final Function<RequestContext, Bridge> bridgeFactory;
+        private final UserGroupInformation ugi;
+        private final AtomicLong availableBufferSize = new AtomicLong(bufferSize);
+        private final Deque<Prefetch> prefetches = new ArrayDeque<>();
+        private int nextFragment;
+
+        private Window(List<Fragment> fragments,
+                       Function<Fragment, RequestContext> contextFactory,
+                       Function<RequestContext, Bridge> bridgeFactory,
+                       UserGroupInformation ugi) {
+            this.fragments = fragments;
+            this.contextFactory = contextFactory;
+            this.bridgeFactory = bridgeFactory;
+            this.ugi = ugi;
+        }
+
+        /**
+         * @return true if there are fragments left to process, false otherwise
+         */
+        public boolean hasNext() {
+            return !prefetches.isEmpty() || nextFragment < fragments.size();
+        }
+
+        /**
+         * Returns the next fragment to process, and starts reading ahead the
+         * fragments that follow it.
+         *
+         * @return the next fragment to process
+         */
+        public Prefetch next() {
+            while (prefetches.size() <= depth && nextFragment < fragments.size()) {
+                Fragment fragment = fragments.get(nextFragment);
+                // release the fragment reference as soon as possible, there can be hundreds of thousands of fragments
+                fragments.set(nextFragment++, null);
+                Prefetch prefetch = new Prefetch(contextFactory.apply(fragment));
+                prefetches.add(prefetch);
+                // the next fragment is about to be processed, there is no point in reading it ahead
+                if (prefetches.size() > 1) {
+                    prefetch.submit();
+                }
+            }
+            return prefetches.remove();
+        }
+
+        /**
+         * Cancels reading ahead the fragments that have not been processed,
+         * and releases their resources.
+         */
+        @Override
+        public void close() {
+            for (Prefetch prefetch : prefetches) {
+                prefetch.cancelled = true;
+            }
+            for (Prefetch prefetch : prefetches) {
+                prefetch.discard();
+            }
+            prefetches.clear();
+        }
+
+        /**
+         * A fragment of the request, opened and partially read ahead of the
+         * current fragment.
+         */
+        public class Prefetch {
+
+            @Getter
+            private final RequestContext context;
+            private FutureTask<Void> task;
+            private volatile boolean cancelled;
+            @Getter
+            private Bridge bridge;
+            private boolean hasRecords;
+            private boolean exhausted;
+            private ByteArrayOutputStream buffer;
+            private int bufferedRecords;
+            private Exception failure;
+
+            private Prefetch(RequestContext context) {
+                this.context = context;
+            }
+
+            /**
+             * Opens the bridge of the fragment, unless the fragment has been
+             * opened ahead, and waits for the fragment to be read ahead.
+             *
+             * @return true if the fragment has records, false otherwise
+             * @throws Exception when opening or reading ahead the fragment fails
+             */
+            public boolean open() throws Exception {
+                if (task == null) {
+                    bridge = bridgeFactory.apply(context);
+                    return bridge.beginIteration();
+                }
+                task.get();
+                if (failure != null) {
+                    throw failure;
+                }
+                return hasRecords;
+            }
+
+            /**
+             * @return true if all the records of the fragment have been read ahead, false otherwise
+             */
+            public boolean isExhausted() {
+                return exhausted;
+            }
+
+            /**
+             * Writes the records of the fragment that have been read ahead to
+             * the output stream, and releases the memory they used.
+             *
+             * @param outputStream the output stream
+             * @return the number of records written
+             * @throws IOException when writing to the output stream fails
+             */
+            public int writeBufferTo(OutputStream outputStream) throws IOException {
+                if (buffer == null) {
+                    return 0;
+                }
+                int records = bufferedRecords;
+                buffer.writeTo(outputStream);
+                releaseBuffer();
+                return records;
+            }
+
+            private void submit() {
+                task = new FutureTask<>(() -> ugi.doAs((PrivilegedAction<Void>) () -> {
+                    try {
+                        readAhead();
+                    } catch (Exception e) {
+                        // reported once the fragment is current
+                        failure = e;
+                    }
+                    return null;
+                }));
+                try {
+                    executor.execute(taskDecorator.decorate(task));
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("No thread available to read ahead fragment {} of resource {}",
+                            context.getFragmentIndex(), context.getDataSource());
+                    task = null;
+                }
+            }
+
+            private void readAhead() throws Exception {
+                if (cancelled) {
+                    return;
+                }
+                LOG.debug("Reading ahead fragment {} of resource {}", context.getFragmentIndex(), context.getDataSource());
+                bridge = bridgeFactory.apply(context);
+                hasRecords = bridge.beginIteration();
+                if (!hasRecords) {
+                    return;
+                }
+                buffer = new ByteArrayOutputStream();
+                DataOutputStream dos = new DataOutputStream(buffer);
+                while (!cancelled && availableBufferSize.get() > 0) {
+                    Writable record = bridge.getNext();
+                    if (record == null) {
+                        exhausted = true;
+                        break;
+                    }
+                    int size = buffer.size();
+                    record.write(dos);
+                    availableBufferSize.addAndGet(size - buffer.size());
+                    // a batch record serializes several records at once
+                    bufferedRecords += record instanceof BatchWritable ? ((BatchWritable) record).getRecordCount() : 1;
+                }
+                LOG.debug("Read ahead {} records and {} bytes of fragment {} of resource {}",
+                        bufferedRecords, buffer.size(), context.getFragmentIndex(), context.getDataSource());
+            }
+
+            private void releaseBuffer() {
+                availableBufferSize.addAndGet(buffer.size());
+                buffer = null;
+                bufferedRecords = 0;
+            }
+
+            /**
+             * Waits for a fragment that is being read ahead, and ends the
+             * iteration of its bridge
+             */
+            private void discard() {
+                if (task == null || task.cancel(false)) {
+                    return;
+                }
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | CancellationException e) {
+                    LOG.debug("Ignoring error encountered while reading ahead fragment {} of resource {}",
+                            context.getFragmentIndex(), context.getDataSource(), e);
+                }
+                if (failure != null) {
+                    LOG.debug("Ignoring error encountered while reading ahead fragment {} of resource {}",
+                            context.getFragmentIndex(), context.getDataSource(), failure);
+                }
+                if (buffer != null) {
+                    releaseBuffer();
+                }
+                if (bridge != null) {
+                    try {
+                        bridge.endIteration();
+                    } catch (Exception e) {
+                        LOG.warn("Ignoring error encountered during bridge.endIteration()", e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.greenplum.pxf.service.controller;
+
+import org.greenplum.pxf.service.spring.PxfContextMdcLogEnhancerDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The pool of threads processing the fragments of read requests in parallel.
+ * The pool is shared by all the requests and bounded by the
+ * "pxf.fragment-workers.pool.max-size" property, tasks are not queued: when
+ * all the threads are busy, the fragments are processed by the threads that
+ * are already processing the request.
+ */
+@Component
+public class FragmentWorkerPool implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FragmentWorkerPool.class);
+
+    private static final String POOL_MAX_SIZE_PROPERTY = "pxf.fragment-workers.pool.max-size";
+
+    private final TaskDecorator taskDecorator;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public FragmentWorkerPool(@Value("${" + POOL_MAX_SIZE_PROPERTY + ":64}") int poolMaxSize,
+                              PxfContextMdcLogEnhancerDecorator taskDecorator) {
+        this(poolMaxSize, (TaskDecorator) taskDecorator);
+    }
+
+    FragmentWorkerPool(int poolMaxSize, TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pxf-fragment-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(0, poolMaxSize, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+        LOG.info("Processing fragments in parallel with at most {} threads", poolMaxSize);
+    }
+
+    /**
+     * Executes the task on a thread of the pool.
+     *
+     * @param task the task to execute
+     * @return true if the task is executed, false if all the threads of the pool are busy
+     */
+    public boolean execute(Runnable task) {
+        try {
+            executor.execute(taskDecorator.decorate(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,224 @@
+package org.greenplum.pxf.service.controller;
+
+import org.greenplum.pxf.api.model.RequestContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read or write operation in progress, as reported by the operations
+ * endpoint. The operation is updated by the threads performing it when they
+ * start and finish streaming a fragment, the records and bytes of the
+ * fragments being streamed are read from their statistics when the operation
+ * is reported.
+ */
+public class InFlightOperation {
+
+    /**
+     * The lifecycle phases of streaming a fragment.
+     */
+    enum Phase {
+        OPEN,
+        STREAM,
+        CLOSE
+    }
+
+    private final long id;
+    private final OperationStats.Operation operation;
+    private final RequestContext context;
+    private final String thread;
+    private final Instant startTime;
+    private final long startNanos;
+    private final AtomicLong completedFragments = new AtomicLong();
+    private final AtomicLong completedRecords = new AtomicLong();
+    private final AtomicLong completedBytes = new AtomicLong();
+    private final Collection<ActiveFragment> activeFragments = ConcurrentHashMap.newKeySet();
+
+    InFlightOperation(long id, OperationStats.Operation operation, RequestContext context) {
+        this.id = id;
+        this.operation = operation;
+        this.context = context;
+        this.thread = Thread.currentThread().getName();
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Notifies that the current thread starts streaming a fragment.
+     *
+     * @param fragmentContext the request context of the fragment
+     * @param fragmentStats   the statistics of the fragment
+     * @return the fragment being streamed
+     */
+    ActiveFragment fragmentStarted(RequestContext fragmentContext, OperationStats fragmentStats) {
+        ActiveFragment fragment = new ActiveFragment(fragmentContext, fragmentStats);
+        activeFragments.add(fragment);
+        return fragment;
+    }
+
+    /**
+     * Notifies that the current thread is done streaming a fragment.
+     *
+     * @param fragment the fragment returned by {@link #fragmentStarted(RequestContext, OperationStats)}
+     */
+    void fragmentFinished(ActiveFragment fragment) {
+        completedRecords.addAndGet(fragment.stats.getRecordCount());
+        completedBytes.addAndGet(fragment.stats.getByteCount());
+        completedFragments.incrementAndGet();
+        activeFragments.remove(fragment);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getOperation() {
+        return operation.name().toLowerCase();
+    }
+
+    public String getTransactionId() {
+        return context.getTransactionId();
+    }
+
+    public int getSegmentId() {
+        return context.getSegmentId();
+    }
+
+    public String getUser() {
+        return context.getUser();
+    }
+
+    public String getProfile() {
+        return context.getProfile();
+    }
+
+    public String getServer() {
+        return context.getServerName();
+    }
+
+    public String getResource() {
+        return context.getDataSource();
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getStartTime() {
+        return startTime.toString();
+    }
+
+    public long getDurationMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public long getCompletedFragments() {
+        return completedFragments.get();
+    }
+
+    /**
+     * @return the records of the completed fragments and of the fragments being streamed
+     */
+    public long getRecords() {
+        long records = completedRecords.get();
+        for (ActiveFragment fragment : activeFragments) {
+            records += fragment.getRecords();
+        }
+        return records;
+    }
+
+    /**
+     * @return the bytes of the completed fragments and of the fragments being streamed
+     */
+    public long getBytes() {
+        long bytes = completedBytes.get();
+        for (ActiveFragment fragment : activeFragments) {
+            bytes += fragment.getBytes();
+        }
+        return bytes;
+    }
+
+    public double getRecordsPerSecond() {
+        return rate(getRecords(), System.nanoTime() - startNanos);
+    }
+
+    public double getBytesPerSecond() {
+        return rate(getBytes(), System.nanoTime() - startNanos);
+    }
+
+    public List<ActiveFragment> getFragments() {
+        return new ArrayList<>(activeFragments);
+    }
+
+    private static double rate(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    /**
+     * A fragment being streamed by a thread of the operation.
+     */
+    public static class ActiveFragment {
+
+        private final RequestContext context;
+        private final OperationStats stats;
+        private final String thread;
+        private final long startNanos;
+        private volatile Phase phase = Phase.OPEN;
+        private volatile long phaseStartNanos;
+
+        private ActiveFragment(RequestContext context, OperationStats stats) {
+            this.context = context;
+            this.stats = stats;
+            this.thread = Thread.currentThread().getName();
+            this.startNanos = System.nanoTime();
+            this.phaseStartNanos = startNanos;
+        }
+
+        /**
+         * Notifies that the fragment enters a phase.
+         *
+         * @param phase the phase
+         */
+        void setPhase(Phase phase) {
+            this.phaseStartNanos = System.nanoTime();
+            this.phase = phase;
+        }
+
+        public int getIndex() {
+            return context.getFragmentIndex();
+        }
+
+        public String getSource() {
+            return context.getDataSource();
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getPhase() {
+            return phase.name().toLowerCase();
+        }
+
+        public long getPhaseDurationMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStartNanos);
+        }
+
+        public long getRecords() {
+            return stats.getRecordCount();
+        }
+
+        public long getBytes() {
+            return stats.getByteCount();
+        }
+
+        public double getRecordsPerSecond() {
+            return rate(getRecords(), System.nanoTime() - startNanos);
+        }
+    }
+}
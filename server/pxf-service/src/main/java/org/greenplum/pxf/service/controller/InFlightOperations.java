@@ -0,0 +1,55 @@
+package org.greenplum.pxf.service.controller;
+
+import org.greenplum.pxf.api.model.RequestContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the read and write operations in progress. An operation is
+ * registered when it starts and removed when it ends, the fragments it
+ * streams are tracked by the operation itself, so that the registry is only
+ * updated once per operation.
+ */
+@Component
+public class InFlightOperations {
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final ConcurrentMap<Long, InFlightOperation> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Registers an operation started by the current thread.
+     *
+     * @param operation the type of the operation
+     * @param context   the request context
+     * @return the operation, to be passed to {@link #finish(InFlightOperation)} when it ends
+     */
+    InFlightOperation start(OperationStats.Operation operation, RequestContext context) {
+        InFlightOperation inFlightOperation = new InFlightOperation(nextId.incrementAndGet(), operation, context);
+        operations.put(inFlightOperation.getId(), inFlightOperation);
+        return inFlightOperation;
+    }
+
+    /**
+     * Removes an operation that ended.
+     *
+     * @param inFlightOperation the operation returned by {@link #start(OperationStats.Operation, RequestContext)}
+     */
+    void finish(InFlightOperation inFlightOperation) {
+        operations.remove(inFlightOperation.getId());
+    }
+
+    /**
+     * @return the operations in progress, the oldest first
+     */
+    public List<InFlightOperation> getOperations() {
+        List<InFlightOperation> result = new ArrayList<>(operations.values());
+        result.sort(Comparator.comparingLong(InFlightOperation::getId));
+        return result;
+    }
+}
@@ -1,26 +1,39 @@
 package org.greenplum.pxf.service.controller;
 
 import lombok.Getter;
-import lombok.Setter;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.service.MetricsReporter;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * Holds statistics about performed operation.
  */
 public class OperationStats {
+    private static final AtomicLongFieldUpdater<OperationStats> RECORD_COUNT =
+            AtomicLongFieldUpdater.newUpdater(OperationStats.class, "recordCount");
+    private static final AtomicLongFieldUpdater<OperationStats> BYTE_COUNT =
+            AtomicLongFieldUpdater.newUpdater(OperationStats.class, "byteCount");
+
     @Getter
     private final Operation operation;
     private final RequestContext context;
     private final MetricsReporter metricsReporter;
     private final long reportFrequency;
+    // the counts are read by the operations endpoint from other threads. Recording records and
+    // setting the byte count is a read-modify-write published with an ordered write, which is only
+    // safe with a single writer: it must be confined to the thread performing the operation.
+    // Adding the stats of another operation is atomic, so that it may run on another thread
+    // (e.g. the thread merging the output of the fragment workers)
     @Getter
-    private long recordCount = 0;
+    private volatile long recordCount = 0;
     @Getter
-    @Setter
-    private long byteCount = 0;
+    private volatile long byteCount = 0;
     private long lastReportedRecordCount = 0;
     private long lastReportedByteCount = 0;
+    // the counters are looked up once per operation, when first reported
+    private MetricsReporter.CounterHandle recordCounter;
+    private MetricsReporter.CounterHandle byteCounter;
 
     enum Operation {
         READ(MetricsReporter.PxfMetric.RECORDS_SENT, MetricsReporter.PxfMetric.BYTES_SENT),
@@ -47,11 +60,22 @@ public class OperationStats {
      * Note: we do not check to see if the operation matches because the operation stats
      * only live within the context of processing data, which is confined to a single
      * operation type.
+     * The values are added atomically, so this method may be called by another thread than
+     * the one reporting the completed records of this operation.
      * @param operationStats statistics to add to the existing object
      */
     public void update(OperationStats operationStats) {
-        this.recordCount += operationStats.getRecordCount();
-        this.byteCount += operationStats.getByteCount();
+        RECORD_COUNT.addAndGet(this, operationStats.getRecordCount());
+        BYTE_COUNT.addAndGet(this, operationStats.getByteCount());
+    }
+
+    /**
+     * Sets the total number of bytes of the operation. Must only be called by the thread performing the operation.
+     *
+     * @param byteCount the total number of bytes written to date for the entire operation
+     */
+    public void setByteCount(long byteCount) {
+        BYTE_COUNT.lazySet(this, byteCount);
     }
 
     /**
@@ -60,10 +84,21 @@ public class OperationStats {
      * @param byteCount the total number of bytes written to date for the entire operation
      */
     public void reportCompletedRecord(long byteCount) {
-        recordCount++;
-        this.byteCount = byteCount;
+        reportCompletedRecords(1, byteCount);
+    }
+
+    /**
+     * Add a number of completed records to the operation's stats. Report the stats when necessary.
+     * Must only be called by the thread performing the operation.
+     *
+     * @param count     the number of completed records
+     * @param byteCount the total number of bytes written to date for the entire operation
+     */
+    public void reportCompletedRecords(long count, long byteCount) {
+        RECORD_COUNT.lazySet(this, recordCount + count);
+        BYTE_COUNT.lazySet(this, byteCount);
 
-        if ((reportFrequency != 0) && (recordCount % reportFrequency == 0)) {
+        if ((reportFrequency != 0) && (recordCount - lastReportedRecordCount >= reportFrequency)) {
             flushStats();
         }
     }
@@ -78,13 +113,19 @@ public class OperationStats {
 
         long recordsProcessed = recordCount - lastReportedRecordCount;
         if (recordsProcessed != 0) {
-            metricsReporter.reportCounter(operation.recordMetric, recordsProcessed, context);
+            if (recordCounter == null) {
+                recordCounter = metricsReporter.getCounterHandle(operation.recordMetric, context);
+            }
+            recordCounter.increment(recordsProcessed);
             lastReportedRecordCount = recordCount;
         }
 
         long bytesProcessed = byteCount - lastReportedByteCount;
         if (bytesProcessed != 0) {
-            metricsReporter.reportCounter(operation.byteMetric, bytesProcessed, context);
+            if (byteCounter == null) {
+                byteCounter = metricsReporter.getCounterHandle(operation.byteMetric, context);
+            }
+            byteCounter.increment(bytesProcessed);
             lastReportedByteCount = byteCount;
         }
     }
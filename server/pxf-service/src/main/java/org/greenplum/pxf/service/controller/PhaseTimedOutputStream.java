@@ -0,0 +1,42 @@
+package org.greenplum.pxf.service.controller;
+
+import org.greenplum.pxf.service.PhaseTimer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream timing the writes to the underlying stream as the write
+ * phase, nested in the serialization of the records that triggered them.
+ */
+class PhaseTimedOutputStream extends FilterOutputStream {
+
+    private final PhaseTimer phaseTimer;
+
+    PhaseTimedOutputStream(OutputStream out, PhaseTimer phaseTimer) {
+        super(out);
+        this.phaseTimer = phaseTimer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = phaseTimer.start();
+        out.write(b);
+        phaseTimer.stopNested(PhaseTimer.Phase.WRITE, PhaseTimer.Phase.SERIALIZE, start);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = phaseTimer.start();
+        out.write(b, off, len);
+        phaseTimer.stopNested(PhaseTimer.Phase.WRITE, PhaseTimer.Phase.SERIALIZE, start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = phaseTimer.start();
+        out.flush();
+        phaseTimer.stopNested(PhaseTimer.Phase.WRITE, PhaseTimer.Phase.SERIALIZE, start);
+    }
+}
@@ -3,25 +3,37 @@ package org.greenplum.pxf.service.controller;
 import com.google.common.io.CountingOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.BatchWritable;
+import org.greenplum.pxf.api.io.BinaryCopySerializer;
+import org.greenplum.pxf.api.io.ByteBufferDataOutput;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.PluginConf;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.service.FragmenterService;
 import org.greenplum.pxf.service.MetricsReporter;
+import org.greenplum.pxf.service.PhaseTimer;
+import org.greenplum.pxf.service.ReadPhaseMetrics;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
 import org.greenplum.pxf.service.security.SecurityService;
 import org.springframework.stereotype.Service;
 
-import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.PrivilegedAction;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of the ReadService.
@@ -30,7 +42,23 @@ import java.util.Map;
 @Slf4j
 public class ReadServiceImpl extends BaseServiceImpl<OperationStats> implements ReadService {
 
+    /**
+     * Number of threads processing the fragments of a segment in parallel,
+     * table option taking precedence over the server configuration property
+     */
+    static final String FRAGMENT_THREADS_OPTION = "FRAGMENT_THREADS";
+    static final String FRAGMENT_THREADS_PROPERTY = "pxf.read.fragment-threads";
+
+    // size of the chunks of records the fragment workers hand over to the request thread
+    private static final int WORKER_CHUNK_SIZE = 64 * 1024;
+
     private final FragmenterService fragmenterService;
+    private final FragmentReadAhead fragmentReadAhead;
+    private final FragmentWorkerPool fragmentWorkerPool;
+    private final ResponseBufferPool responseBufferPool;
+    private final StreamCompressor streamCompressor;
+    private final ReadPhaseMetrics readPhaseMetrics;
+    private final InFlightOperations inFlightOperations;
 
     /**
      * Creates a new instance.
@@ -40,14 +68,32 @@ public class ReadServiceImpl extends BaseServiceImpl<OperationStats> implements
      * @param securityService      security service
      * @param fragmenterService    fragmenter service
      * @param metricsReporter      metrics reporter service
+     * @param fragmentReadAhead    reads the next fragments ahead of the current fragment
+     * @param fragmentWorkerPool   pool of threads processing fragments in parallel
+     * @param responseBufferPool   pool of buffers the records are serialized into
+     * @param streamCompressor     compressor of the responses
+     * @param readPhaseMetrics     times the phases of streaming the fragments
+     * @param inFlightOperations   registry of the operations in progress
      */
     public ReadServiceImpl(ConfigurationFactory configurationFactory,
                            BridgeFactory bridgeFactory,
                            SecurityService securityService,
                            FragmenterService fragmenterService,
-                           MetricsReporter metricsReporter) {
+                           MetricsReporter metricsReporter,
+                           FragmentReadAhead fragmentReadAhead,
+                           FragmentWorkerPool fragmentWorkerPool,
+                           ResponseBufferPool responseBufferPool,
+                           StreamCompressor streamCompressor,
+                           ReadPhaseMetrics readPhaseMetrics,
+                           InFlightOperations inFlightOperations) {
         super("Read", configurationFactory, bridgeFactory, securityService, metricsReporter);
         this.fragmenterService = fragmenterService;
+        this.fragmentReadAhead = fragmentReadAhead;
+        this.fragmentWorkerPool = fragmentWorkerPool;
+        this.responseBufferPool = responseBufferPool;
+        this.streamCompressor = streamCompressor;
+        this.readPhaseMetrics = readPhaseMetrics;
+        this.inFlightOperations = inFlightOperations;
     }
 
     @Override
@@ -78,91 +124,272 @@ public class ReadServiceImpl extends BaseServiceImpl<OperationStats> implements
         OperationStats queryStats = new OperationStats(OperationStats.Operation.READ, metricsReporter, context);
         OperationResult queryResult = new OperationResult();
 
-        // dataStream (and outputStream as the result) will close automatically at the end of the try block
-        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        // the records are serialized into a buffer, written to the output stream once full
+        ByteBuffer buffer = responseBufferPool.acquire();
+        StreamCompression compression = context.getStreamCompression();
+        CountingOutputStream compressedStream = null;
         String sourceName = null;
+        boolean binaryCopy = context.getOutputFormat() == OutputFormat.BINARY;
+        PhaseTimer phaseTimer = readPhaseMetrics.newTimer();
+        InFlightOperation inFlightOperation = inFlightOperations.start(OperationStats.Operation.READ, context);
         try {
+            OutputStream responseStream = phaseTimer.isEnabled()
+                    ? new PhaseTimedOutputStream(outputStream, phaseTimer)
+                    : outputStream;
+            if (compression != StreamCompression.NONE) {
+                compressedStream = new CountingOutputStream(responseStream);
+                responseStream = streamCompressor.compress(compressedStream, compression);
+            }
+            ByteBufferDataOutput output = new ByteBufferDataOutput(buffer, responseStream);
             List<Fragment> fragments = fragmenterService.getFragmentsForSegment(context);
-            for (int i = 0; i < fragments.size(); i++) {
-                Fragment fragment = fragments.get(i);
-                sourceName = fragment.getSourceName();
-                String profile = fragment.getProfile();
-                restoreOriginalValues = false;
-                if (StringUtils.isNotBlank(profile) &&
-                        !StringUtils.equalsIgnoreCase(profile, context.getProfile())) {
-                    restoreOriginalValues = true;
-                    log.debug("Fragment {} of resource {} will be using profile: {}",
-                            fragment.getIndex(), fragment.getSourceName(), profile);
-                    updateProfile(context, profile);
+            if (binaryCopy) {
+                // the records of all the fragments form a single binary COPY stream
+                BinaryCopySerializer.writeHeader(output);
+            }
+            FragmentOutputMerger merger = null;
+            int workers = 0;
+            if (fragments.size() > 1) {
+                int fragmentThreads = Math.min(getFragmentThreads(context), fragments.size());
+                if (fragmentThreads > 1) {
+                    merger = new FragmentOutputMerger(fragmentThreads, WORKER_CHUNK_SIZE);
+                    workers = startFragmentWorkers(fragments, fragmentThreads, context, merger, inFlightOperation);
+                }
+            }
+            if (workers > 0) {
+                log.debug("Processing {} fragments with {} threads", fragments.size(), workers);
+                long start = phaseTimer.start();
+                try {
+                    merger.merge(output, queryStats, workers);
+                } finally {
+                    phaseTimer.stop(PhaseTimer.Phase.SERIALIZE, start);
+                    sourceName = merger.getFailedSourceName();
                 }
-                context.setDataSource(fragment.getSourceName());
-                context.setFragmentIndex(fragment.getIndex());
-                context.setFragmentMetadata(fragment.getMetadata());
-                processFragment(countingOutputStream, context, queryStats);
-
-                // In cases where we have hundreds of thousands of fragments,
-                // we want to release the fragment reference as soon as we are
-                // done processing the fragment. This allows the GC to reclaim
-                // any memory, under memory stress situations, if needed.
-                fragments.set(i, null);
-
-                if (restoreOriginalValues) {
-                    // Restore the original values so that the next
-                    // fragment will use the default profile settings
-                    context.setProfile(originalProfile);
-                    context.setAccessor(originalAccessor);
-                    context.setResolver(originalResolver);
-                    context.setProfileScheme(originalProfileScheme);
+            } else if (fragmentReadAhead.isEnabled() && fragments.size() > 1) {
+                // every fragment read ahead is processed with its own copy of the request context
+                try (FragmentReadAhead.Window window = fragmentReadAhead.open(fragments,
+                        fragment -> createFragmentContext(context, fragment), this::getBridge)) {
+                    while (window.hasNext()) {
+                        FragmentReadAhead.Window.Prefetch prefetch = window.next();
+                        sourceName = prefetch.getContext().getDataSource();
+                        processFragment(output, prefetch.getContext(), queryStats, prefetch, null, phaseTimer, inFlightOperation);
+                    }
                 }
+            } else {
+                for (int i = 0; i < fragments.size(); i++) {
+                    Fragment fragment = fragments.get(i);
+                    sourceName = fragment.getSourceName();
+                    String profile = fragment.getProfile();
+                    restoreOriginalValues = false;
+                    if (StringUtils.isNotBlank(profile) &&
+                            !StringUtils.equalsIgnoreCase(profile, context.getProfile())) {
+                        restoreOriginalValues = true;
+                        log.debug("Fragment {} of resource {} will be using profile: {}",
+                                fragment.getIndex(), fragment.getSourceName(), profile);
+                        updateProfile(context, profile);
+                    }
+                    context.setDataSource(fragment.getSourceName());
+                    context.setFragmentIndex(fragment.getIndex());
+                    context.setFragmentMetadata(fragment.getMetadata());
+                    processFragment(output, context, queryStats, null, null, phaseTimer, inFlightOperation);
+
+                    // In cases where we have hundreds of thousands of fragments,
+                    // we want to release the fragment reference as soon as we are
+                    // done processing the fragment. This allows the GC to reclaim
+                    // any memory, under memory stress situations, if needed.
+                    fragments.set(i, null);
+
+                    if (restoreOriginalValues) {
+                        // Restore the original values so that the next
+                        // fragment will use the default profile settings
+                        context.setProfile(originalProfile);
+                        context.setAccessor(originalAccessor);
+                        context.setResolver(originalResolver);
+                        context.setProfileScheme(originalProfileScheme);
+                    }
+                }
+            }
+            long start = phaseTimer.start();
+            if (binaryCopy) {
+                BinaryCopySerializer.writeTrailer(output);
             }
+            output.flushBuffer();
+            if (compressedStream != null) {
+                streamCompressor.finish(responseStream);
+            }
+            phaseTimer.stop(PhaseTimer.Phase.SERIALIZE, start);
         } catch (Exception e) {
             // the exception is not re-thrown but passed to the caller in the queryResult so that
             // the caller has a chance to inspect / report query stats before re-throwing the exception
             queryResult.setException(e);
             queryResult.setSourceName(sourceName);
         } finally {
+            responseBufferPool.release(buffer);
+            phaseTimer.publish();
+            inFlightOperations.finish(inFlightOperation);
+            if (compressedStream != null) {
+                metricsReporter.reportCounter(MetricsReporter.PxfMetric.COMPRESSED_BYTES_SENT,
+                        compressedStream.getCount(), context);
+            }
             queryResult.setStats(queryStats);
         }
 
         return queryResult;
     }
 
+    /**
+     * Returns the number of threads processing the fragments of the segment
+     * in parallel, given by the FRAGMENT_THREADS option, or by the
+     * pxf.read.fragment-threads property of the server configuration when the
+     * option is not provided. With 1 thread, the default, the fragments are
+     * processed in order by the request thread.
+     *
+     * @param context request context
+     * @return the number of threads processing the fragments
+     */
+    private int getFragmentThreads(RequestContext context) {
+        int fragmentThreads = context.getOption(FRAGMENT_THREADS_OPTION,
+                context.getConfiguration().getInt(FRAGMENT_THREADS_PROPERTY, 1), true);
+        if (fragmentThreads == 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value 0 : must be a positive integer", FRAGMENT_THREADS_OPTION));
+        }
+        return fragmentThreads;
+    }
+
+    /**
+     * Starts the workers processing the fragments in parallel, as many as
+     * there are threads available in the pool, up to the given number.
+     *
+     * @param fragments       the fragments to process
+     * @param fragmentThreads the number of workers to start
+     * @param context         request context
+     * @param merger          merges the records of the workers into the response
+     * @param inFlightOperation the operation in progress
+     * @return the number of workers started
+     * @throws IOException when the identity of the request cannot be determined
+     */
+    private int startFragmentWorkers(List<Fragment> fragments,
+                                     int fragmentThreads,
+                                     RequestContext context,
+                                     FragmentOutputMerger merger,
+                                     InFlightOperation inFlightOperation) throws IOException {
+        UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+        AtomicInteger nextFragment = new AtomicInteger();
+        int workers = 0;
+        while (workers < fragmentThreads &&
+                fragmentWorkerPool.execute(new FragmentWorker(fragments, nextFragment, context, merger, ugi, inFlightOperation))) {
+            workers++;
+        }
+        if (workers < fragmentThreads) {
+            log.debug("Started {} of {} fragment threads, no more threads available", workers, fragmentThreads);
+        }
+        return workers;
+    }
+
+    /**
+     * Creates a copy of the request context for the given fragment, so that
+     * the fragment can be read ahead while another fragment is processed.
+     *
+     * @param context  request context
+     * @param fragment the fragment
+     * @return the request context of the fragment
+     */
+    private RequestContext createFragmentContext(RequestContext context, Fragment fragment) {
+        RequestContext fragmentContext = context.copy();
+        String profile = fragment.getProfile();
+        if (StringUtils.isNotBlank(profile) &&
+                !StringUtils.equalsIgnoreCase(profile, context.getProfile())) {
+            log.debug("Fragment {} of resource {} will be using profile: {}",
+                    fragment.getIndex(), fragment.getSourceName(), profile);
+            updateProfile(fragmentContext, profile);
+        }
+        fragmentContext.setDataSource(fragment.getSourceName());
+        fragmentContext.setFragmentIndex(fragment.getIndex());
+        fragmentContext.setFragmentMetadata(fragment.getMetadata());
+        return fragmentContext;
+    }
+
     /**
      * Processes a single fragment identified in the RequestContext and updates query statistics.
      *
-     * @param countingOutputStream output stream to write data to
-     * @param context              request context
-     * @param queryStats           query statistics
+     * @param output             output to serialize the records to
+     * @param context            request context
+     * @param queryStats         query statistics
+     * @param prefetch           the fragment read ahead, or null if the fragment has not been read ahead
+     * @param workerOutputStream the output stream of the fragment worker, or null if not processed by a worker
+     * @param phaseTimer         the timer of the phases of the thread processing the fragment
+     * @param inFlightOperation  the operation in progress
      * @throws Exception if operation fails
      */
-    private void processFragment(CountingOutputStream countingOutputStream,
+    private void processFragment(ByteBufferDataOutput output,
                                  RequestContext context,
-                                 OperationStats queryStats) throws Exception {
+                                 OperationStats queryStats,
+                                 FragmentReadAhead.Window.Prefetch prefetch,
+                                 FragmentOutputMerger.WorkerOutputStream workerOutputStream,
+                                 PhaseTimer phaseTimer,
+                                 InFlightOperation inFlightOperation) throws Exception {
         Writable record;
-        DataOutputStream dos = new DataOutputStream(countingOutputStream);
 
         OperationStats fragmentStats = new OperationStats(OperationStats.Operation.READ, metricsReporter, context);
-        long previousStreamByteCount = countingOutputStream.getCount();
+        InFlightOperation.ActiveFragment activeFragment = inFlightOperation.fragmentStarted(context, fragmentStats);
+        long previousStreamByteCount = output.getCount();
         boolean success = false;
         Instant startTime = Instant.now();
+        long[] phaseStart = phaseTimer.snapshot();
         Bridge bridge = null;
         try {
-            bridge = getBridge(context);
-            if (!bridge.beginIteration()) {
+            boolean hasRecords;
+            long start = phaseTimer.start();
+            if (prefetch == null) {
+                bridge = getBridge(context);
+                hasRecords = bridge.beginIteration();
+            } else {
+                try {
+                    hasRecords = prefetch.open();
+                } finally {
+                    bridge = prefetch.getBridge();
+                }
+            }
+            phaseTimer.stop(PhaseTimer.Phase.OPEN, start);
+            activeFragment.setPhase(InFlightOperation.Phase.STREAM);
+            if (phaseTimer.isEnabled()) {
+                // a fragment read ahead is no longer read by another thread once opened
+                bridge.setPhaseTimer(phaseTimer);
+            }
+            if (!hasRecords) {
                 log.debug("Skipping streaming fragment {} of resource {}",
                         context.getFragmentIndex(), context.getDataSource());
             } else {
                 log.debug("Starting streaming fragment {} of resource {}",
                         context.getFragmentIndex(), context.getDataSource());
-                while ((record = bridge.getNext()) != null) {
-                    record.write(dos);
+                if (prefetch != null) {
+                    start = phaseTimer.start();
+                    int recordCount = prefetch.writeBufferTo(output);
+                    phaseTimer.stop(PhaseTimer.Phase.SERIALIZE, start);
+                    if (recordCount > 0) {
+                        fragmentStats.reportCompletedRecords(recordCount, output.getCount() - previousStreamByteCount);
+                    }
+                }
+                while ((prefetch == null || !prefetch.isExhausted()) && (record = bridge.getNext()) != null) {
+                    start = phaseTimer.start();
+                    record.write(output);
+                    if (workerOutputStream != null) {
+                        // the time the worker waits for the merger to take its chunks is the time spent writing
+                        long handOverStart = phaseTimer.start();
+                        workerOutputStream.endRecord();
+                        phaseTimer.stopNested(PhaseTimer.Phase.WRITE, PhaseTimer.Phase.SERIALIZE, handOverStart);
+                    }
+                    phaseTimer.stop(PhaseTimer.Phase.SERIALIZE, start);
+                    // a batch record serializes several records at once
+                    int recordCount = record instanceof BatchWritable ? ((BatchWritable) record).getRecordCount() : 1;
                     // fragment's current byte count is relative to the previous stream's byte count
-                    fragmentStats.reportCompletedRecord(countingOutputStream.getCount() - previousStreamByteCount);
+                    fragmentStats.reportCompletedRecords(recordCount, output.getCount() - previousStreamByteCount);
                 }
             }
             success = true;
         } finally {
             if (bridge != null) {
+                activeFragment.setPhase(InFlightOperation.Phase.CLOSE);
                 try {
                     bridge.endIteration();
                 } catch (Exception e) {
@@ -174,16 +401,18 @@ public class ReadServiceImpl extends BaseServiceImpl<OperationStats> implements
             // fragment's current byte count is relative to the previous stream's byte count
             // in the case where we fail to report a record due to an exception,
             // report the number of bytes that we were able to write before failure
-            fragmentStats.setByteCount(countingOutputStream.getCount() - previousStreamByteCount);
+            fragmentStats.setByteCount(output.getCount() - previousStreamByteCount);
             fragmentStats.flushStats();
 
             // update query stats even if there was an exception so that they can be properly reported by the
             // error reporter
             queryStats.update(fragmentStats);
+            inFlightOperation.fragmentFinished(activeFragment);
 
             log.debug("Finished processing fragment {} of resource {} in {} ms, wrote {} records and {} bytes.",
                     context.getFragmentIndex(), context.getDataSource(), duration.toMillis(), fragmentStats.getRecordCount(), fragmentStats.getByteCount());
             metricsReporter.reportTimer(MetricsReporter.PxfMetric.FRAGMENTS_SENT, duration, context, success);
+            readPhaseMetrics.reportFragment(phaseTimer, phaseStart);
         }
     }
 
@@ -208,4 +437,75 @@ public class ReadServiceImpl extends BaseServiceImpl<OperationStats> implements
         }
     }
 
+    /**
+     * Processes fragments of the segment until there are no fragments left,
+     * concurrently with the other workers of the request.
+     */
+    private class FragmentWorker implements Runnable {
+
+        private final List<Fragment> fragments;
+        private final AtomicInteger nextFragment;
+        private final RequestContext context;
+        private final FragmentOutputMerger merger;
+        private final UserGroupInformation ugi;
+        private final InFlightOperation inFlightOperation;
+        private String sourceName;
+        private Exception error;
+
+        private FragmentWorker(List<Fragment> fragments,
+                               AtomicInteger nextFragment,
+                               RequestContext context,
+                               FragmentOutputMerger merger,
+                               UserGroupInformation ugi,
+                               InFlightOperation inFlightOperation) {
+            this.fragments = fragments;
+            this.nextFragment = nextFragment;
+            this.context = context;
+            this.merger = merger;
+            this.ugi = ugi;
+            this.inFlightOperation = inFlightOperation;
+        }
+
+        @Override
+        public void run() {
+            OperationStats workerStats = new OperationStats(OperationStats.Operation.READ, metricsReporter, context);
+            try {
+                ugi.doAs((PrivilegedAction<Void>) () -> {
+                    processFragments(workerStats);
+                    return null;
+                });
+            } catch (Throwable t) {
+                error = t instanceof Exception ? (Exception) t : new PxfRuntimeException(t);
+            } finally {
+                merger.workerFinished(workerStats, error, sourceName);
+            }
+        }
+
+        private void processFragments(OperationStats workerStats) {
+            FragmentOutputMerger.WorkerOutputStream workerOutputStream = merger.newWorkerOutputStream();
+            // the records are serialized directly into the chunks handed over to the merger
+            ByteBufferDataOutput output = workerOutputStream.getOutput();
+            PhaseTimer phaseTimer = readPhaseMetrics.newTimer();
+            try {
+                int index;
+                while (!merger.isCancelled() && (index = nextFragment.getAndIncrement()) < fragments.size()) {
+                    Fragment fragment = fragments.get(index);
+                    // release the fragment reference as soon as we are done with it
+                    fragments.set(index, null);
+                    RequestContext fragmentContext = createFragmentContext(context, fragment);
+                    sourceName = fragmentContext.getDataSource();
+                    processFragment(output, fragmentContext, workerStats, null, workerOutputStream, phaseTimer,
+                            inFlightOperation);
+                }
+                long start = phaseTimer.start();
+                workerOutputStream.finish();
+                phaseTimer.stop(PhaseTimer.Phase.WRITE, start);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                workerOutputStream.close();
+                phaseTimer.publish();
+            }
+        }
+    }
 }
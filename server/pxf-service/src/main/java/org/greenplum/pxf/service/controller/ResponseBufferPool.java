@@ -0,0 +1,69 @@
+package org.greenplum.pxf.service.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The pool of buffers the records of read requests are serialized into
+ * before they are written to the response. Every buffer holds
+ * "pxf.response.buffer-size" bytes, the buffers are written to the response
+ * once they are full, so that the response is written in large chunks rather
+ * than record by record, or even field by field.
+ * <p>
+ * The buffers are reused across requests, at most
+ * "pxf.response.buffer-pool.max-size" buffers are kept for reuse, buffers
+ * released when the pool is full are left to the garbage collector.
+ */
+@Component
+public class ResponseBufferPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseBufferPool.class);
+
+    private static final String BUFFER_SIZE_PROPERTY = "pxf.response.buffer-size";
+    private static final String POOL_MAX_SIZE_PROPERTY = "pxf.response.buffer-pool.max-size";
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    public ResponseBufferPool(@Value("${" + BUFFER_SIZE_PROPERTY + ":64KB}") DataSize bufferSize,
+                              @Value("${" + POOL_MAX_SIZE_PROPERTY + ":64}") int poolMaxSize) {
+        long size = bufferSize.toBytes();
+        if (size < Long.BYTES || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %s : must be between %d bytes and 2GB",
+                    BUFFER_SIZE_PROPERTY, bufferSize, Long.BYTES));
+        }
+        this.bufferSize = (int) size;
+        this.buffers = new ArrayBlockingQueue<>(Math.max(poolMaxSize, 1));
+        LOG.info("Writing responses with buffers of {} bytes, keeping at most {} buffers for reuse",
+                this.bufferSize, poolMaxSize);
+    }
+
+    /**
+     * Returns a buffer from the pool, or a new buffer if the pool is empty.
+     * The buffer must be released once the request is done with it.
+     *
+     * @return an empty buffer
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Returns the buffer to the pool.
+     *
+     * @param buffer the buffer, must not be used after it is released
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+}
@@ -0,0 +1,111 @@
+package org.greenplum.pxf.service.controller;
+
+import io.airlift.compress.lz4.Lz4Codec;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.greenplum.pxf.api.model.StreamCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses the read responses and decompresses the write request bodies
+ * with the stream compression negotiated by the request.
+ * <p>
+ * LZ4 streams use the Hadoop LZ4 block format: every block of at most
+ * "pxf.stream-compression.lz4.block-size" uncompressed bytes is prefixed
+ * with its uncompressed length and is made of compressed chunks, each
+ * prefixed with its compressed length, the lengths being 4-byte big-endian
+ * integers. The blocks are compressed as soon as they are full, so the
+ * block size bounds both the memory used by a request and the latency of the
+ * stream.
+ */
+@Component
+public class StreamCompressor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamCompressor.class);
+
+    private static final String LZ4_BLOCK_SIZE_PROPERTY = "pxf.stream-compression.lz4.block-size";
+    private static final String LZ4_BUFFER_SIZE_KEY = "io.compression.codec.lz4.buffersize";
+
+    private final CompressionCodec lz4Codec;
+
+    public StreamCompressor(@Value("${" + LZ4_BLOCK_SIZE_PROPERTY + ":256KB}") DataSize lz4BlockSize) {
+        long size = lz4BlockSize.toBytes();
+        if (size < 1024 || size > 32 * 1024 * 1024) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %s : must be between 1KB and 32MB",
+                    LZ4_BLOCK_SIZE_PROPERTY, lz4BlockSize));
+        }
+        Configuration configuration = new Configuration(false);
+        configuration.setInt(LZ4_BUFFER_SIZE_KEY, (int) size);
+        Lz4Codec codec = new Lz4Codec();
+        codec.setConf(configuration);
+        this.lz4Codec = codec;
+        LOG.info("Compressing LZ4 streams in blocks of {} bytes", size);
+    }
+
+    /**
+     * Wraps the output stream to compress the data written to it. The
+     * compressed stream must be completed with {@link #finish(OutputStream)}
+     * once all the data has been written.
+     *
+     * @param out         the output stream receiving the compressed data
+     * @param compression the stream compression
+     * @return the stream compressing the data into the output stream, or the
+     * output stream itself when the data is not compressed
+     * @throws IOException if I/O error occurs
+     */
+    public OutputStream compress(OutputStream out, StreamCompression compression) throws IOException {
+        switch (compression) {
+            case NONE:
+                return out;
+            case LZ4:
+                return lz4Codec.createOutputStream(out);
+            default:
+                throw new UnsupportedOperationException("Unsupported stream compression " + compression);
+        }
+    }
+
+    /**
+     * Compresses the data remaining in the stream returned by
+     * {@link #compress(OutputStream, StreamCompression)} and flushes it to
+     * the underlying output stream, which is not closed.
+     *
+     * @param out the stream returned by {@link #compress(OutputStream, StreamCompression)}
+     * @throws IOException if I/O error occurs
+     */
+    public void finish(OutputStream out) throws IOException {
+        if (out instanceof CompressionOutputStream) {
+            ((CompressionOutputStream) out).finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Wraps the input stream to decompress the data read from it.
+     *
+     * @param in          the input stream providing the compressed data
+     * @param compression the stream compression
+     * @return the stream decompressing the data of the input stream, or the
+     * input stream itself when the data is not compressed
+     * @throws IOException if I/O error occurs
+     */
+    public InputStream decompress(InputStream in, StreamCompression compression) throws IOException {
+        switch (compression) {
+            case NONE:
+                return in;
+            case LZ4:
+                return lz4Codec.createInputStream(in);
+            default:
+                throw new UnsupportedOperationException("Unsupported stream compression " + compression);
+        }
+    }
+}
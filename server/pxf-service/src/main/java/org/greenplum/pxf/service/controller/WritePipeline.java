@@ -0,0 +1,350 @@
+package org.greenplum.pxf.service.controller;
+
+import com.google.common.io.CountingInputStream;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.service.bridge.WriteBridge;
+import org.greenplum.pxf.service.spring.PxfContextMdcLogEnhancerDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the records of a write request in three stages running on separate
+ * threads, so that reading the records sent by Greenplum, resolving them and
+ * writing them to the external system overlap instead of running one after
+ * the other on the request thread.
+ * <p>
+ * The records are decoded in batches by a thread of the pool, the batches are
+ * resolved by another thread of the pool and the resolved rows are written by
+ * the request thread, which opened the accessor and closes it. The stages are
+ * connected by queues bounded by the "pxf.write-pipeline.queue-capacity"
+ * property, a stage waits for the next one when its output queue is full.
+ * The first failure of any stage stops all the stages and is thrown to the
+ * request thread. The input stream is closed when the stages stop before the
+ * end of the records, on failure or because the rows are no longer written,
+ * so that the decode stage does not keep reading the request, and the
+ * request thread waits at most {@value #STOP_TIMEOUT_SECONDS} seconds for the
+ * other stages to stop.
+ * <p>
+ * The pool is shared by all the requests and bounded by the
+ * "pxf.write-pipeline.pool.max-size" property, a request for which the pool
+ * has no threads left writes its records without pipelining.
+ */
+@Component
+public class WritePipeline implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WritePipeline.class);
+
+    private static final String ENABLED_PROPERTY = "pxf.write-pipeline.enabled";
+    private static final String BATCH_SIZE_PROPERTY = "pxf.write-pipeline.batch-size";
+    private static final String QUEUE_CAPACITY_PROPERTY = "pxf.write-pipeline.queue-capacity";
+    private static final String POOL_MAX_SIZE_PROPERTY = "pxf.write-pipeline.pool.max-size";
+
+    private static final long POLL_MILLIS = 100;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Marks the end of the batches of a queue.
+     */
+    private static final Batch END = new Batch(0);
+
+    private final int batchSize;
+    private final int queueCapacity;
+    private final TaskDecorator taskDecorator;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public WritePipeline(@Value("${" + ENABLED_PROPERTY + ":false}") boolean enabled,
+                         @Value("${" + BATCH_SIZE_PROPERTY + ":1024}") int batchSize,
+                         @Value("${" + QUEUE_CAPACITY_PROPERTY + ":4}") int queueCapacity,
+                         @Value("${" + POOL_MAX_SIZE_PROPERTY + ":64}") int poolMaxSize,
+                         PxfContextMdcLogEnhancerDecorator taskDecorator) {
+        this(enabled, batchSize, queueCapacity, poolMaxSize, (TaskDecorator) taskDecorator);
+    }
+
+    WritePipeline(boolean enabled, int batchSize, int queueCapacity, int poolMaxSize, TaskDecorator taskDecorator) {
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.taskDecorator = taskDecorator;
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pxf-write-");
+            threadFactory.setDaemon(true);
+            this.executor = new ThreadPoolExecutor(0, poolMaxSize, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory);
+            LOG.info("Pipelining writes in batches of {} records with at most {} threads", batchSize, poolMaxSize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return true if writes are pipelined
+     */
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * Writes the records of the input stream to the external system in
+     * stages, if the pool has threads left for the stages.
+     *
+     * @param bridge      the bridge of the request, its iteration has begun
+     * @param inputStream the input stream of the records
+     * @param byteCounter the counter of the bytes of the input stream
+     * @param stats       the statistics of the request
+     * @return true if the records were written, false if the pool has no
+     * threads left and the records must be written by the caller
+     * @throws Exception if any stage fails
+     */
+    boolean write(WriteBridge bridge, DataInputStream inputStream, CountingInputStream byteCounter,
+                  OperationStats stats) throws Exception {
+        Pipeline pipeline = new Pipeline(bridge, inputStream, byteCounter, UserGroupInformation.getCurrentUser());
+        if (!execute(pipeline, pipeline::resolve)) {
+            return false;
+        }
+        if (!execute(pipeline, pipeline::decode)) {
+            // the resolve stage has not received anything, it ends as soon as it is stopped
+            pipeline.stopped = true;
+            pipeline.stages.countDown();
+            pipeline.stages.await();
+            return false;
+        }
+        try {
+            pipeline.write(stats);
+        } catch (Throwable t) {
+            pipeline.fail(t);
+        } finally {
+            pipeline.stop();
+        }
+        pipeline.throwFailure();
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean execute(Pipeline pipeline, StageTask stage) {
+        Runnable task = () -> {
+            try {
+                pipeline.ugi.doAs((PrivilegedAction<Void>) () -> {
+                    try {
+                        stage.run();
+                    } catch (Throwable t) {
+                        pipeline.fail(t);
+                    }
+                    return null;
+                });
+            } finally {
+                pipeline.stages.countDown();
+            }
+        };
+        try {
+            executor.execute(taskDecorator.decorate(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOG.debug("No thread left to pipeline the write, writing records on the request thread");
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * A batch of records, along with the rows they are resolved into.
+     */
+    private static class Batch {
+        private List<List<OneField>> records;
+        private List<OneRow> rows;
+        private int recordCount;
+        private long byteCount;
+
+        private Batch(int size) {
+            records = new ArrayList<>(size);
+        }
+    }
+
+    /**
+     * The stages of writing the records of a request.
+     */
+    private class Pipeline {
+
+        private final WriteBridge bridge;
+        private final DataInputStream inputStream;
+        private final CountingInputStream byteCounter;
+        private final UserGroupInformation ugi;
+        private final BlockingQueue<Batch> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Batch> resolved = new ArrayBlockingQueue<>(queueCapacity);
+        private final CountDownLatch stages = new CountDownLatch(2);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // set when the stages must stop, because of a failure or because the rows are no longer written
+        private volatile boolean stopped;
+        // set when the resolver ended the iteration and no more records must be read
+        private volatile boolean inputEnded;
+        // set when the decode stage read the end of the input stream
+        private volatile boolean inputRead;
+
+        private Pipeline(WriteBridge bridge, DataInputStream inputStream, CountingInputStream byteCounter,
+                         UserGroupInformation ugi) {
+            this.bridge = bridge;
+            this.inputStream = inputStream;
+            this.byteCounter = byteCounter;
+            this.ugi = ugi;
+        }
+
+        /**
+         * Reads the records in batches until the end of the input stream.
+         */
+        private void decode() throws Exception {
+            int size = bridge.getPipelineBatchSize(batchSize);
+            while (!stopped && !inputEnded) {
+                Batch batch = new Batch(size);
+                List<OneField> record = null;
+                while (batch.records.size() < size && !stopped && !inputEnded
+                        && (record = bridge.readRecord(inputStream)) != null) {
+                    batch.records.add(record);
+                }
+                batch.recordCount = batch.records.size();
+                batch.byteCount = byteCounter.getCount();
+                if (batch.recordCount > 0 && !put(decoded, batch, true)) {
+                    return;
+                }
+                if (record == null) {
+                    inputRead = true;
+                    put(decoded, END, true);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Resolves the batches until the end of the records.
+         */
+        private void resolve() throws Exception {
+            Batch batch;
+            while ((batch = take(decoded)) != END) {
+                batch.rows = bridge.resolveRecords(batch.records);
+                batch.records = null;
+                if (batch.rows == null) {
+                    inputEnded = true;
+                    break;
+                }
+                if (!put(resolved, batch, false)) {
+                    return;
+                }
+            }
+            put(resolved, END, false);
+        }
+
+        /**
+         * Writes the resolved rows until the end of the batches.
+         */
+        private void write(OperationStats stats) throws Exception {
+            Batch batch;
+            while ((batch = take(resolved)) != END) {
+                int written = 0;
+                for (OneRow row : batch.rows) {
+                    if (!bridge.writeRow(row)) {
+                        break;
+                    }
+                    written++;
+                }
+                // a row holds all the records of the batch when they are resolved together
+                boolean completed = written == batch.rows.size();
+                stats.reportCompletedRecords(completed ? batch.recordCount : written, batch.byteCount);
+                if (!completed) {
+                    return;
+                }
+            }
+        }
+
+        private boolean put(BlockingQueue<Batch> queue, Batch batch, boolean isInput) throws InterruptedException {
+            while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (stopped || (isInput && inputEnded)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Takes the next batch of the queue, or the end of the batches when
+         * the stages are stopped.
+         */
+        private Batch take(BlockingQueue<Batch> queue) throws InterruptedException {
+            Batch batch;
+            while ((batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (stopped) {
+                    return END;
+                }
+            }
+            return batch;
+        }
+
+        /**
+         * Stops the stages and waits for them to end. When the end of the
+         * input stream was not read, the input stream is closed first, as the
+         * decode stage can be blocked reading records that Greenplum may never
+         * send, or keep reading the request after it completed.
+         */
+        private void stop() throws InterruptedException {
+            stopped = true;
+            if (!inputRead) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    LOG.debug("Unable to close the input stream of the stopped write", e);
+                }
+            }
+            if (!stages.await(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("Stages of the write did not stop within {} seconds, no longer waiting for them",
+                        STOP_TIMEOUT_SECONDS);
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (stopped && failure.get() == null) {
+                // the stages were stopped without failure, closing the input stream fails the blocked decode stage
+                LOG.debug("Ignoring failure of a stage of the stopped write", t);
+                return;
+            }
+            failure.compareAndSet(null, t);
+            stopped = true;
+        }
+
+        private void throwFailure() throws Exception {
+            Throwable t = failure.get();
+            if (t != null) {
+                throw t instanceof Exception ? (Exception) t : new PxfRuntimeException(t);
+            }
+        }
+    }
+}
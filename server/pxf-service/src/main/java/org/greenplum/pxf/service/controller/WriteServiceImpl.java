@@ -4,10 +4,12 @@ import com.google.common.io.CountingInputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.service.MetricsReporter;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
+import org.greenplum.pxf.service.bridge.WriteBridge;
 import org.greenplum.pxf.service.security.SecurityService;
 import org.springframework.stereotype.Service;
 
@@ -21,18 +23,32 @@ import java.io.InputStream;
 @Slf4j
 public class WriteServiceImpl extends BaseServiceImpl<OperationStats> implements WriteService {
 
+    private final StreamCompressor streamCompressor;
+    private final InFlightOperations inFlightOperations;
+    private final WritePipeline writePipeline;
+
     /**
      * Creates a new instance.
      *
      * @param configurationFactory configuration factory
      * @param bridgeFactory        bridge factory
      * @param securityService      security service
+     * @param metricsReporter      metrics reporter service
+     * @param streamCompressor     decompressor of the request bodies
+     * @param inFlightOperations   registry of the operations in progress
+     * @param writePipeline        pipeline of the stages of writing the records
      */
     public WriteServiceImpl(ConfigurationFactory configurationFactory,
                             BridgeFactory bridgeFactory,
                             SecurityService securityService,
-                            MetricsReporter metricsReporter) {
+                            MetricsReporter metricsReporter,
+                            StreamCompressor streamCompressor,
+                            InFlightOperations inFlightOperations,
+                            WritePipeline writePipeline) {
         super("Write", configurationFactory, bridgeFactory, securityService, metricsReporter);
+        this.streamCompressor = streamCompressor;
+        this.inFlightOperations = inFlightOperations;
+        this.writePipeline = writePipeline;
     }
 
     @Override
@@ -58,18 +74,35 @@ public class WriteServiceImpl extends BaseServiceImpl<OperationStats> implements
 
         OperationStats operationStats = new OperationStats(OperationStats.Operation.WRITE, metricsReporter, context);
         OperationResult operationResult = new OperationResult();
+        InFlightOperation inFlightOperation = inFlightOperations.start(OperationStats.Operation.WRITE, context);
+        InFlightOperation.ActiveFragment activeFragment = inFlightOperation.fragmentStarted(context, operationStats);
 
-        // dataStream (and inputStream as the result) will close automatically at the end of the try block
+        // the bytes received are counted both as sent by Greenplum and after decompression
+        StreamCompression compression = context.getStreamCompression();
+        CountingInputStream compressedStream = null;
         CountingInputStream countingInputStream = new CountingInputStream(inputStream);
-        try (DataInputStream dataStream = new DataInputStream(countingInputStream)) {
-            // open the output file, returns true or throws an error
-            bridge.beginIteration();
-            while (bridge.setNext(dataStream)) {
-                operationStats.reportCompletedRecord(countingInputStream.getCount());
+        try {
+            if (compression != StreamCompression.NONE) {
+                compressedStream = new CountingInputStream(inputStream);
+                countingInputStream = new CountingInputStream(streamCompressor.decompress(compressedStream, compression));
+            }
+
+            // dataStream (and inputStream as the result) will close automatically at the end of the try block
+            try (DataInputStream dataStream = new DataInputStream(countingInputStream)) {
+                // open the output file, returns true or throws an error
+                bridge.beginIteration();
+                activeFragment.setPhase(InFlightOperation.Phase.STREAM);
+                if (!canPipeline(bridge)
+                        || !writePipeline.write((WriteBridge) bridge, dataStream, countingInputStream, operationStats)) {
+                    while (bridge.setNext(dataStream)) {
+                        operationStats.reportCompletedRecord(countingInputStream.getCount());
+                    }
+                }
             }
         } catch (Exception e) {
             operationResult.setException(e);
         } finally {
+            activeFragment.setPhase(InFlightOperation.Phase.CLOSE);
             try {
                 bridge.endIteration();
             } catch (Exception e) {
@@ -82,9 +115,28 @@ public class WriteServiceImpl extends BaseServiceImpl<OperationStats> implements
             // report the number of bytes that we were able to read before failure
             operationStats.setByteCount(countingInputStream.getCount());
             operationStats.flushStats();
+            if (compressedStream != null) {
+                metricsReporter.reportCounter(MetricsReporter.PxfMetric.COMPRESSED_BYTES_RECEIVED,
+                        compressedStream.getCount(), context);
+            }
             operationResult.setStats(operationStats);
+            inFlightOperation.fragmentFinished(activeFragment);
+            inFlightOperations.finish(inFlightOperation);
         }
 
         return operationResult;
     }
+
+    /**
+     * Returns whether the records can be read, resolved and written in stages
+     * running on separate threads.
+     *
+     * @param bridge the bridge of the request
+     * @return true if the stages can be pipelined
+     */
+    private boolean canPipeline(Bridge bridge) {
+        return writePipeline.isEnabled()
+                && bridge instanceof WriteBridge
+                && ((WriteBridge) bridge).isPipelineSupported();
+    }
 }
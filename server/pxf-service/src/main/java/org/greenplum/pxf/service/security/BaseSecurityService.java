@@ -15,6 +15,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.HADOOP_SECURITY_SASL_PROPS_RESOLVER_CLASS;
 
@@ -28,15 +30,15 @@ public class BaseSecurityService implements SecurityService {
     private static final String EXPAND_PRINCIPAL_PROPERTY = "pxf.features.kerberos.expand-user-principal";
 
     private final SecureLogin secureLogin;
-    private final UGIProvider ugiProvider;
+    private final UGICache ugiCache;
 
     /* feature flag to expand Kerberos User Principal name when impersonating */
     private boolean isExpandUserPrincipal;
 
-    public BaseSecurityService(SecureLogin secureLogin, UGIProvider ugiProvider,
+    public BaseSecurityService(SecureLogin secureLogin, UGICache ugiCache,
                                @Value("${" + EXPAND_PRINCIPAL_PROPERTY + "}") boolean isExpandUserPrincipal) {
         this.secureLogin = secureLogin;
-        this.ugiProvider = ugiProvider;
+        this.ugiCache = ugiCache;
         this.isExpandUserPrincipal = isExpandUserPrincipal;
     }
 
@@ -66,7 +68,7 @@ public class BaseSecurityService implements SecurityService {
 
         // Establish the UGI for the login user or the Kerberos principal for the given server, if applicable
         boolean exceptionDetected = false;
-        UserGroupInformation userGroupInformation = null;
+        UGICache.Entry ugiEntry = null;
         try {
             /*
                get a login user that is either of:
@@ -106,14 +108,12 @@ public class BaseSecurityService implements SecurityService {
             // validate and set properties required for enabling Kerberos constrained delegation, if necessary
             processConstrainedDelegation(configuration, isSecurityEnabled, isConstrainedDelegationEnabled, remoteUser, loginUser.getUserName());
 
-            // Retrieve proxy user UGI from the UGI of the logged in user
-            if (isUserImpersonationEnabled || isConstrainedDelegationEnabled) {
-                LOG.debug("Creating proxy user = {}", remoteUser);
-                userGroupInformation = ugiProvider.createProxyUser(remoteUser, loginUser);
-            } else {
-                LOG.debug("Creating remote user = {}", remoteUser);
-                userGroupInformation = ugiProvider.createRemoteUser(remoteUser, loginUser, isSecurityEnabled);
-            }
+            // Retrieve the cached proxy user UGI from the UGI of the logged in user
+            UGICache.SessionId sessionId = new UGICache.SessionId(serverName, configDirectory, remoteUser, loginUser,
+                    isUserImpersonationEnabled || isConstrainedDelegationEnabled, isSecurityEnabled,
+                    context.getAdditionalConfigProps() == null ? Collections.emptyMap() : new HashMap<>(context.getAdditionalConfigProps()));
+            ugiEntry = ugiCache.acquire(sessionId);
+            UserGroupInformation userGroupInformation = ugiEntry.getUgi();
 
             LOG.debug("Retrieved proxy user {} for server {}", userGroupInformation, serverName);
             LOG.debug("Performing request for gpdb_user = {} as [remote_user={}, service_user={}, login_user={}] with{} impersonation",
@@ -125,12 +125,8 @@ public class BaseSecurityService implements SecurityService {
             throw e;
         } finally {
             LOG.debug("Releasing UGI resources. {}", exceptionDetected ? " Exception while processing." : "");
-            try {
-                if (userGroupInformation != null) {
-                    ugiProvider.destroy(userGroupInformation);
-                }
-            } catch (Throwable t) {
-                LOG.warn("Error releasing UGI resources, ignored.", t);
+            if (ugiEntry != null) {
+                ugiCache.release(ugiEntry);
             }
         }
     }
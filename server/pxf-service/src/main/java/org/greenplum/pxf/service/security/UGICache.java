@@ -0,0 +1,247 @@
+package org.greenplum.pxf.service.security;
+
+import com.google.common.base.Ticker;
+import lombok.Data;
+import lombok.Getter;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the {@link UserGroupInformation} of the remote users, so that the
+ * {@link FileSystem} instances Hadoop caches for every UGI are reused across
+ * requests instead of connecting to the backend and setting up the clients
+ * again for every request.
+ * <p>
+ * Entries are reference counted, a request acquires an entry before
+ * accessing the backend and releases it when it is done. An entry is handed
+ * out to new requests until it expires, the resources of expired entries are
+ * released with {@link UGIProvider#destroy(UserGroupInformation)} once they
+ * are no longer used by any request, so that in-flight requests never have
+ * their file systems closed under them. The number of cached entries is
+ * bounded, the least recently used entries that are not in use are evicted
+ * first.
+ * <p>
+ * Cache expiration is managed by the "pxf.ugi-cache.expiration" property,
+ * setting it to 0 releases the resources of the UGI at the end of every
+ * request.
+ */
+@Component
+class UGICache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UGICache.class);
+
+    private static final String CACHE_EXPIRATION_PROPERTY = "pxf.ugi-cache.expiration";
+    private static final String CACHE_MAX_SIZE_PROPERTY = "pxf.ugi-cache.max-size";
+
+    private final UGIProvider ugiProvider;
+    private final long expirationNanos;
+    private final int maxSize;
+    private final Ticker ticker;
+    private final Map<SessionId, Entry> cache = new HashMap<>();
+    // guards the cache, a virtual thread waiting for a lock does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The identity of the UGI, entries for the same server and remote user
+     * are not shared when they have been created from a different login
+     * user, or for requests with different additional configuration
+     * properties, as Hadoop creates the file systems with the configuration
+     * of the first request that uses them.
+     */
+    @Data
+    static class SessionId {
+        private final String serverName;
+        private final String configDirectory;
+        private final String remoteUser;
+        private final UserGroupInformation loginUser;
+        private final boolean proxyUser;
+        private final boolean securityEnabled;
+        private final Map<String, String> additionalProperties;
+    }
+
+    /**
+     * A cached UGI, along with the number of requests using it.
+     */
+    static class Entry {
+        @Getter
+        private final UserGroupInformation ugi;
+        private final SessionId sessionId;
+        private final long createdNanos;
+        private long lastAccessNanos;
+        private int references;
+        private boolean evicted;
+
+        private Entry(SessionId sessionId, UserGroupInformation ugi, long createdNanos) {
+            this.sessionId = sessionId;
+            this.ugi = ugi;
+            this.createdNanos = createdNanos;
+            this.lastAccessNanos = createdNanos;
+        }
+    }
+
+    @Autowired
+    UGICache(UGIProvider ugiProvider,
+             @Value("${" + CACHE_EXPIRATION_PROPERTY + ":1m}") Duration expiration,
+             @Value("${" + CACHE_MAX_SIZE_PROPERTY + ":1000}") int maxSize) {
+        this(ugiProvider, expiration, maxSize, Ticker.systemTicker());
+    }
+
+    UGICache(UGIProvider ugiProvider, Duration expiration, int maxSize, Ticker ticker) {
+        this.ugiProvider = ugiProvider;
+        this.expirationNanos = expiration.toNanos();
+        this.maxSize = maxSize;
+        this.ticker = ticker;
+        LOG.info("Creating UGI cache with expiration of {}ms and maximum size of {}", expiration.toMillis(), maxSize);
+    }
+
+    /**
+     * Returns the cached UGI for the session, creating it if there is no
+     * cached UGI or the cached one has expired. The entry must be released
+     * with {@link #release(Entry)} once the request is done with it.
+     *
+     * @param sessionId the identity of the UGI
+     * @return the entry of the UGI
+     */
+    Entry acquire(SessionId sessionId) {
+        List<Entry> evictedEntries = new ArrayList<>();
+        Entry entry;
+        lock.lock();
+        try {
+            long now = ticker.read();
+            entry = cache.get(sessionId);
+            if (entry == null || isExpired(entry, now)) {
+                if (entry != null) {
+                    evict(entry, evictedEntries);
+                }
+                entry = new Entry(sessionId, createUGI(sessionId), now);
+                entry.references++;
+                cache.put(sessionId, entry);
+                evictLeastRecentlyUsed(evictedEntries);
+            } else {
+                LOG.debug("Reusing cached UGI {} for server {}", entry.ugi, sessionId.getServerName());
+                entry.references++;
+                entry.lastAccessNanos = now;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(evictedEntries);
+        return entry;
+    }
+
+    /**
+     * Releases an entry acquired by a request. The resources of the UGI are
+     * released when no other request is using the entry and the entry has
+     * expired or has been evicted.
+     *
+     * @param entry the entry acquired by the request
+     */
+    void release(Entry entry) {
+        List<Entry> evictedEntries = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = ticker.read();
+            entry.references--;
+            entry.lastAccessNanos = now;
+            if (entry.references == 0 && (entry.evicted || isExpired(entry, now))) {
+                evict(entry, evictedEntries);
+            }
+            evictExpired(now, evictedEntries);
+        } finally {
+            lock.unlock();
+        }
+        destroy(evictedEntries);
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserGroupInformation createUGI(SessionId sessionId) {
+        if (sessionId.isProxyUser()) {
+            LOG.debug("Creating proxy user = {}", sessionId.getRemoteUser());
+            return ugiProvider.createProxyUser(sessionId.getRemoteUser(), sessionId.getLoginUser());
+        }
+        LOG.debug("Creating remote user = {}", sessionId.getRemoteUser());
+        return ugiProvider.createRemoteUser(sessionId.getRemoteUser(), sessionId.getLoginUser(), sessionId.isSecurityEnabled());
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdNanos >= expirationNanos;
+    }
+
+    /**
+     * Removes the entry from the cache, the entry is added to the list of
+     * entries to destroy when no request is using it
+     */
+    private void evict(Entry entry, List<Entry> evictedEntries) {
+        entry.evicted = true;
+        cache.remove(entry.sessionId, entry);
+        if (entry.references == 0) {
+            evictedEntries.add(entry);
+        }
+    }
+
+    private void evictExpired(long now, List<Entry> evictedEntries) {
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0 && isExpired(entry, now)) {
+                entry.evicted = true;
+                iterator.remove();
+                evictedEntries.add(entry);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed(List<Entry> evictedEntries) {
+        if (cache.size() <= maxSize) {
+            return;
+        }
+        List<Entry> idleEntries = new ArrayList<>();
+        for (Entry entry : cache.values()) {
+            if (entry.references == 0) {
+                idleEntries.add(entry);
+            }
+        }
+        idleEntries.sort(Comparator.comparingLong(e -> e.lastAccessNanos));
+        // entries used by in-flight requests are never evicted, so the cache can grow over its maximum size
+        Iterator<Entry> iterator = idleEntries.iterator();
+        while (cache.size() > maxSize && iterator.hasNext()) {
+            evict(iterator.next(), evictedEntries);
+        }
+    }
+
+    private void destroy(List<Entry> evictedEntries) {
+        for (Entry entry : evictedEntries) {
+            LOG.debug("Releasing resources of UGI {} for server {}", entry.ugi, entry.sessionId.getServerName());
+            try {
+                ugiProvider.destroy(entry.ugi);
+            } catch (Throwable t) {
+                LOG.warn("Error releasing UGI resources, ignored.", t);
+            }
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package org.greenplum.pxf.service.serde;
 
 import org.greenplum.pxf.api.OneField;
-import org.greenplum.pxf.api.io.GPDBWritable;
+import org.greenplum.pxf.api.io.GPDBWritableDeserializer;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 
 import java.io.DataInput;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Record reader that reads data from an input stream and deserializes database tuples encoded in GPDBWritable format.
+ * The deserializer is bound to the columns of the table once and reuses its buffer for every tuple.
  */
 public class GPDBWritableRecordReader extends BaseRecordReader {
 
+    private final GPDBWritableDeserializer deserializer;
+
     /**
      * Creates a new instance
      * @param context request context
      */
     public GPDBWritableRecordReader(RequestContext context) {
         super(context);
+        int[] columnTypes = columnDescriptors.stream().mapToInt(ColumnDescriptor::columnTypeCode).toArray();
+        deserializer = new GPDBWritableDeserializer(columnTypes, databaseEncoding);
     }
 
     /**
@@ -26,21 +31,9 @@ public class GPDBWritableRecordReader extends BaseRecordReader {
      */
     @Override
     public List<OneField> readRecord(DataInput input) throws Exception {
-        GPDBWritable gpdbWritable = new GPDBWritable(databaseEncoding);
-        gpdbWritable.readFields(input);
-
-        if (gpdbWritable.isEmpty()) {
+        List<OneField> record = deserializer.readRecord(input);
+        if (record == null) {
             LOG.debug("Reached end of stream");
-            return null;
-        }
-
-        // TODO: can mapper be initialized once the first time on initially (based on columnDescriptors) ?
-        GPDBWritableMapper mapper = new GPDBWritableMapper(gpdbWritable);
-        int[] colTypes = gpdbWritable.getColType();
-        List<OneField> record = new ArrayList<>(colTypes.length);
-        for (int i = 0; i < colTypes.length; i++) {
-            mapper.setDataType(colTypes[i]);
-            record.add(new OneField(colTypes[i], mapper.getData(i)));
         }
         return record;
     }
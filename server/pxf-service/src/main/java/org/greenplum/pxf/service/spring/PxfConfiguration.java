@@ -1,5 +1,7 @@
 package org.greenplum.pxf.service.spring;
 
+import org.apache.tomcat.util.compat.JreCompat;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
 import org.greenplum.pxf.api.configuration.PxfServerProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,8 +16,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.TaskDecorator;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -57,17 +61,49 @@ public class PxfConfiguration implements WebMvcConfigurer {
     }
 
     /**
-     * Configures and builds the {@link ThreadPoolTaskExecutor}
+     * Configures and builds the {@link AsyncTaskExecutor}, a
+     * {@link ThreadPoolTaskExecutor} unless virtual threads are enabled and
+     * supported by the JVM, in which case every task runs on a new virtual
+     * thread.
      *
-     * @return the {@link ThreadPoolTaskExecutor}
+     * @return the {@link AsyncTaskExecutor}
      */
     @Bean(name = {PXF_RESPONSE_STREAM_TASK_EXECUTOR,
             AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
-    public ThreadPoolTaskExecutor pxfApplicationTaskExecutor(PxfServerProperties pxfServerProperties,
-                                                             ObjectProvider<TaskExecutorCustomizer> taskExecutorCustomizers,
-                                                             ObjectProvider<TaskDecorator> taskDecorator) {
+    public AsyncTaskExecutor pxfApplicationTaskExecutor(PxfServerProperties pxfServerProperties,
+                                                        ObjectProvider<TaskExecutorCustomizer> taskExecutorCustomizers,
+                                                        ObjectProvider<TaskDecorator> taskDecorator) {
 
         TaskExecutionProperties properties = pxfServerProperties.getTask();
+        if (pxfServerProperties.isVirtualThreads()) {
+            if (JreCompat.isJre21Available()) {
+                return buildVirtualThreadTaskExecutor(properties, taskDecorator.getIfUnique());
+            }
+            LOG.warn("Virtual threads are not supported by Java {}, PXF will stream responses on a thread pool",
+                    System.getProperty("java.version"));
+        }
+        return buildThreadPoolTaskExecutor(properties, taskExecutorCustomizers, taskDecorator);
+    }
+
+    /**
+     * Builds a {@link TaskExecutor} that runs every task on a new virtual
+     * thread. Tasks are never rejected, the number of concurrent responses
+     * is bounded by the number of requests Tomcat accepts.
+     */
+    private AsyncTaskExecutor buildVirtualThreadTaskExecutor(TaskExecutionProperties properties, TaskDecorator taskDecorator) {
+        String threadName = StringUtils.trimTrailingCharacter(properties.getThreadNamePrefix(), '-');
+        LOG.info("Initializing PXF virtual thread TaskExecutor with thread name={}", threadName);
+
+        TaskExecutorAdapter executor = new TaskExecutorAdapter(new VirtualThreadExecutor(threadName));
+        if (taskDecorator != null) {
+            executor.setTaskDecorator(taskDecorator);
+        }
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor buildThreadPoolTaskExecutor(TaskExecutionProperties properties,
+                                                               ObjectProvider<TaskExecutorCustomizer> taskExecutorCustomizers,
+                                                               ObjectProvider<TaskDecorator> taskDecorator) {
         TaskExecutionProperties.Pool pool = properties.getPool();
         TaskExecutorBuilder builder = new TaskExecutorBuilder();
         builder = builder.queueCapacity(pool.getQueueCapacity());
@@ -0,0 +1,29 @@
+package org.greenplum.pxf.service.spring;
+
+import org.greenplum.pxf.service.controller.InFlightOperation;
+import org.greenplum.pxf.service.controller.InFlightOperations;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint listing the read and write operations in progress, with
+ * the fragments they are streaming, to diagnose stuck or slow queries.
+ */
+@Component
+@Endpoint(id = "operations")
+public class PxfOperationsEndpoint {
+
+    private final InFlightOperations inFlightOperations;
+
+    public PxfOperationsEndpoint(InFlightOperations inFlightOperations) {
+        this.inFlightOperations = inFlightOperations;
+    }
+
+    @ReadOperation
+    public List<InFlightOperation> operations() {
+        return inFlightOperations.getOperations();
+    }
+}
@@ -1,7 +1,9 @@
 package org.greenplum.pxf.service.spring;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.ProtocolHandler;
 import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.apache.tomcat.util.compat.JreCompat;
 import org.greenplum.pxf.api.configuration.PxfServerProperties;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
@@ -12,6 +14,7 @@ import org.springframework.stereotype.Component;
  * properties that are not exposed through the application.properties file.
  * For example, setting the max header count or the http header size.
  */
+@Slf4j
 @Component
 public class PxfTomcatCustomizer implements
         WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
@@ -37,6 +40,15 @@ public class PxfTomcatCustomizer implements
                 protocolHandler.setDisableUploadTimeout(serverProperties.getTomcat().isDisableUploadTimeout());
                 protocolHandler.setConnectionUploadTimeout((int) serverProperties.getTomcat().getConnectionUploadTimeout().toMillis());
             }
+            if (serverProperties.getTomcat().isVirtualThreads()) {
+                if (JreCompat.isJre21Available()) {
+                    // not exposed by the protocol handlers of Tomcat 9, it is set on their endpoint
+                    connector.setProperty("useVirtualThreads", "true");
+                } else {
+                    log.warn("Virtual threads are not supported by Java {}, Tomcat will process requests on a thread pool",
+                            System.getProperty("java.version"));
+                }
+            }
         });
     }
 }
@@ -20,28 +20,43 @@ package org.greenplum.pxf.service;
  */
 
 import org.apache.commons.lang.StringUtils;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.FieldSink;
 import org.greenplum.pxf.api.error.BadRecordException;
 import org.greenplum.pxf.api.GreenplumDateTime;
 import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.examples.DemoFragmentMetadata;
+import org.greenplum.pxf.api.io.BatchWritable;
+import org.greenplum.pxf.api.io.BinaryCopySerializer;
 import org.greenplum.pxf.api.io.BufferWritable;
+import org.greenplum.pxf.api.io.CsvSerializer;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.io.GPDBWritable;
+import org.greenplum.pxf.api.io.GPDBWritableSerializer;
 import org.greenplum.pxf.api.io.Text;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.ReadRowResolver;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringJoiner;
@@ -171,34 +186,39 @@ public class BridgeOutputBuilderTest {
                         + ",PXFERRMSG> test message\n";
     }
 
-    private void assertPrimitiveTypesInGPDBWritable(List<Writable> outputQueue) throws GPDBWritable.TypeMismatchException {
+    private void assertPrimitiveTypesInGPDBWritable(List<Writable> outputQueue) throws IOException {
         assertNotNull(outputQueue);
         assertEquals(1, outputQueue.size());
-        assertTrue(outputQueue.get(0) instanceof GPDBWritable);
-        output = (GPDBWritable) outputQueue.get(0);
+        assertTrue(outputQueue.get(0) instanceof GPDBWritableSerializer);
+        output = toGPDBWritable(outputQueue.get(0));
 
         assertTrue(output.getBoolean(0));
         assertArrayEquals(new byte[]{0, 1}, output.getBytes(1));
         assertEquals(1L, output.getLong(2));
         assertEquals((short) 2, output.getShort(3));
         assertEquals(3, output.getInt(4));
-        assertEquals("text-value\0", output.getString(5));
+        assertEquals("text-value", output.getString(5));
         assertEquals(4.5f, output.getFloat(6));
         assertEquals(6.7d, output.getDouble(7));
-        assertEquals("char-value\0", output.getString(8));
-        assertEquals("varchar-value\0", output.getString(9));
-        assertEquals("1994-08-03\0", output.getString(10));
-        assertEquals("10:11:12\0", output.getString(11));
-        assertEquals("2022-06-10 11:44:33.123456\0", output.getString(12));
-        assertEquals("2022-06-10 11:44:55.123456\0", output.getString(13));
-        assertEquals("9876.54321\0", output.getString(14));
-        assertEquals("667b97ba-38d0-4b91-9c7d-1f8b30a75c6e\0", output.getString(15));
+        assertEquals("char-value", output.getString(8));
+        assertEquals("varchar-value", output.getString(9));
+        assertEquals("1994-08-03", output.getString(10));
+        assertEquals("10:11:12", output.getString(11));
+        assertEquals("2022-06-10 11:44:33.123456", output.getString(12));
+        assertEquals("2022-06-10 11:44:55.123456", output.getString(13));
+        assertEquals("9876.54321", output.getString(14));
+        assertEquals("667b97ba-38d0-4b91-9c7d-1f8b30a75c6e", output.getString(15));
+    }
+
+    private GPDBWritable toGPDBWritable(Writable writable) throws IOException {
+        writable.write(dos);
+        return new GPDBWritable(dos.getOutput(), StandardCharsets.UTF_8);
     }
 
     private void assertPrimitiveTypesInText(List<Writable> outputQueue) throws IOException {
         assertNotNull(outputQueue);
         assertEquals(1, outputQueue.size());
-        assertTrue(outputQueue.get(0) instanceof Text);
+        assertTrue(outputQueue.get(0) instanceof CsvSerializer);
         outputQueue.get(0).write(dos);
         assertEquals(getExpectedSerializedString(), new String(dos.getOutput(), StandardCharsets.UTF_8));
     }
@@ -301,6 +321,421 @@ public class BridgeOutputBuilderTest {
                 new String(dos.getOutput(), StandardCharsets.UTF_8));
     }
 
+    @Test
+    public void testMakeVectorizedOutputGPDBWritable() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.TEXT, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        List<List<OneField>> batch = Arrays.asList(
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 1), new OneField(DataType.TEXT.getOID(), "one")),
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), null), new OneField(DataType.TEXT.getOID(), "two")),
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 3), new OneField(DataType.TEXT.getOID(), null)));
+
+        List<Writable> outputQueue = builder.makeVectorizedOutput(batch);
+        assertEquals(3, outputQueue.size());
+
+        output = toGPDBWritable(outputQueue.get(0));
+        assertEquals(1, output.getInt(0));
+        assertEquals("one", output.getString(1));
+        output = toGPDBWritable(outputQueue.get(1));
+        assertNull(output.getInt(0));
+        assertEquals("two", output.getString(1));
+        output = toGPDBWritable(outputQueue.get(2));
+        assertEquals(3, output.getInt(0));
+        assertNull(output.getString(1));
+
+        // the next batch reuses the serializer
+        outputQueue = builder.makeVectorizedOutput(batch.subList(0, 1));
+        assertEquals(1, outputQueue.size());
+        output = toGPDBWritable(outputQueue.get(0));
+        assertEquals(1, output.getInt(0));
+    }
+
+    @Test
+    public void testMakeVectorizedOutputText() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setFormat("CSV");
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.TEXT, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        List<List<OneField>> batch = Arrays.asList(
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 1), new OneField(DataType.TEXT.getOID(), "one")),
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), null), new OneField(DataType.TEXT.getOID(), "t,wo")),
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 3), new OneField(DataType.TEXT.getOID(), null)));
+
+        // the lines of the batch are serialized into a single output record
+        List<Writable> outputQueue = builder.makeVectorizedOutput(batch);
+        assertEquals(1, outputQueue.size());
+        assertEquals(3, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+        assertEquals("1,one\n,\"t,wo\"\n3,\n", new String(dos.getOutput(), StandardCharsets.UTF_8));
+
+        // the next batch reuses the serializer
+        outputQueue = builder.makeVectorizedOutput(batch.subList(0, 1));
+        assertEquals(1, outputQueue.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        outputQueue.get(0).write(new DataOutputStream(out));
+        assertEquals("1,one\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMakeVectorizedOutputTextWithLines() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setFormat("CSV");
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.TEXT, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        List<List<OneField>> batch = Arrays.asList(
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 1), new OneField(DataType.TEXT.getOID(), "one")),
+                Collections.singletonList(new OneField(DataType.TEXT.getOID(), "2,two")),
+                Arrays.asList(new OneField(DataType.INTEGER.getOID(), 3), new OneField(DataType.TEXT.getOID(), "three")));
+
+        // the lines passed as is keep their order among the serialized lines
+        List<Writable> outputQueue = builder.makeVectorizedOutput(batch);
+        assertEquals(3, outputQueue.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Writable writable : outputQueue) {
+            writable.write(new DataOutputStream(out));
+        }
+        assertEquals("1,one\n2,two\n3,three\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMakeOutputTextNonUtf8DatabaseEncoding() throws Exception {
+        Charset encoding = Charset.forName("windows-1251");
+        RequestContext context = new RequestContext();
+        context.setFormat("CSV");
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.TEXT, "col1");
+        makeBuilder(context);
+        context.setDatabaseEncoding(encoding);
+        BridgeOutputBuilder builder = new BridgeOutputBuilder(context);
+
+        List<Writable> outputQueue = builder.makeOutput(Arrays.asList(
+                new OneField(DataType.INTEGER.getOID(), 1), new OneField(DataType.TEXT.getOID(), "Привет, мир")));
+        outputQueue.get(0).write(dos);
+        assertArrayEquals("1,\"Привет, мир\"\n".getBytes(encoding), dos.getOutput());
+    }
+
+    @Test
+    public void testMakeRowOutputGPDBWritable() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.GPDBWritable);
+        ReadRowResolver resolver = new FieldListRowResolver(createPrimitiveTypes_NativeValuesFields());
+
+        List<Writable> outputQueue = builder.makeRowOutput(resolver, new OneRow());
+        assertEquals(1, outputQueue.size());
+        outputQueue.get(0).write(dos);
+        byte[] actual = dos.getOutput();
+
+        // the row is serialized the same way as the list of fields
+        List<Writable> expectedQueue = getBridgeOutputBuilder(OutputFormat.GPDBWritable)
+                .makeOutput(createPrimitiveTypes_NativeValuesFields());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expectedQueue.get(0).write(new DataOutputStream(expected));
+        assertArrayEquals(expected.toByteArray(), actual);
+    }
+
+    @Test
+    public void testMakeRowOutputSchemaMismatch() {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        BridgeOutputBuilder builder = makeBuilder(context);
+        ReadRowResolver resolver = new FieldListRowResolver(
+                Collections.singletonList(new OneField(DataType.BIGINT.getOID(), 1L)));
+
+        assertThrows(BadRecordException.class, () -> builder.makeRowOutput(resolver, new OneRow()));
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputGPDBWritable() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.GPDBWritable);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(createPrimitiveTypesColumnBatch());
+        assertEquals(1, outputQueue.size());
+        assertTrue(outputQueue.get(0) instanceof BatchWritable);
+        assertEquals(2, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+        byte[] actual = dos.getOutput();
+
+        // the batch is serialized the same way as the list of records
+        List<OneField> nullFields = createPrimitiveTypes_NativeValuesFields().stream()
+                .map(field -> new OneField(field.type, null))
+                .collect(Collectors.toList());
+        BridgeOutputBuilder expectedBuilder = getBridgeOutputBuilder(OutputFormat.GPDBWritable);
+        List<Writable> expectedQueue = expectedBuilder.makeVectorizedOutput(
+                Arrays.asList(createPrimitiveTypes_NativeValuesFields(), nullFields));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (Writable writable : expectedQueue) {
+            writable.write(new DataOutputStream(expected));
+        }
+        assertArrayEquals(expected.toByteArray(), actual);
+
+        output = new GPDBWritable(actual, StandardCharsets.UTF_8);
+        assertTrue(output.getBoolean(0));
+        assertArrayEquals(new byte[]{0, 1}, output.getBytes(1));
+        assertEquals("text-value", output.getString(5));
+        assertEquals(4.5f, output.getFloat(6));
+        assertEquals("1994-08-03", output.getString(10));
+        assertEquals("9876.54321", output.getString(14));
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputText() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.TEXT);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(createPrimitiveTypesColumnBatch());
+        assertEquals(1, outputQueue.size());
+        assertEquals(2, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+
+        String expectedNullLine = StringUtils.repeat(",", 15) + "\n";
+        assertEquals(getExpectedSerializedString() + expectedNullLine,
+                new String(dos.getOutput(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputTextEscaping() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setFormat("TEXT");
+        addColumn(context, 0, DataType.TEXT, "col0");
+        addColumn(context, 1, DataType.BYTEA, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        byte[][] text = {"a,\"b\"".getBytes(StandardCharsets.UTF_8)};
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.TEXT.getOID(), DataType.BYTEA.getOID()});
+        batch.setBytesVector(0, text, new int[]{0}, new int[]{text[0].length}, null, true, true);
+        batch.setBytesVector(1, new byte[][]{{(byte) 0xAB, 0x0F}}, new int[]{0}, new int[]{2}, null, true, true);
+        batch.setSize(2);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(batch);
+        outputQueue.get(0).write(dos);
+        String expectedLine = "\"a,\"\"b\"\"\",\\\\xab0f\n";
+        assertEquals(expectedLine + expectedLine, new String(dos.getOutput(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputRepeatingAndNullMask() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        addColumn(context, 1, DataType.FLOAT8, "col1");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.INTEGER.getOID(), DataType.FLOAT8.getOID()});
+        batch.setLongVector(0, new long[]{7, 8, 9}, null, true, true);
+        batch.setDoubleVector(1, new double[]{1.5, 2.5, 3.5}, new boolean[]{false, true, false}, false, false);
+        batch.setSize(3);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(batch);
+        assertEquals(3, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+        byte[] bytes = dos.getOutput();
+
+        // every record starts with its length
+        int offset = 0;
+        Object[][] expected = {{7, 1.5}, {7, null}, {7, 3.5}};
+        for (Object[] row : expected) {
+            int length = ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                    | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+            output = new GPDBWritable(Arrays.copyOfRange(bytes, offset, offset + length), StandardCharsets.UTF_8);
+            assertEquals(row[0], output.getInt(0));
+            assertEquals(row[1], output.getDouble(1));
+            offset += length;
+        }
+        assertEquals(bytes.length, offset);
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputNonUtf8DatabaseEncoding() throws Exception {
+        Charset encoding = Charset.forName("windows-1251");
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        addColumn(context, 0, DataType.TEXT, "col0");
+        makeBuilder(context);
+        context.setDatabaseEncoding(encoding);
+        BridgeOutputBuilder builder = new BridgeOutputBuilder(context);
+
+        byte[] value = "Привет".getBytes(StandardCharsets.UTF_8);
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.TEXT.getOID()});
+        batch.setBytesVector(0, new byte[][]{value}, new int[]{0}, new int[]{value.length}, null, true, false);
+        batch.setSize(1);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(batch);
+        outputQueue.get(0).write(dos);
+        output = new GPDBWritable(dos.getOutput(), encoding);
+        assertEquals("Привет", output.getString(0));
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputEmptyBatch() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.GPDBWritable);
+        assertTrue(builder.makeColumnBatchOutput(null).isEmpty());
+
+        ColumnBatch batch = createPrimitiveTypesColumnBatch();
+        batch.setSize(0);
+        assertTrue(builder.makeColumnBatchOutput(batch).isEmpty());
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputSchemaMismatch() {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        addColumn(context, 0, DataType.INTEGER, "col0");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.INTEGER.getOID(), DataType.INTEGER.getOID()});
+        batch.setSize(1);
+        Exception e = assertThrows(BadRecordException.class, () -> builder.makeColumnBatchOutput(batch));
+        assertEquals("Record has 2 fields but the schema size is 1", e.getMessage());
+
+        ColumnBatch textBatch = new ColumnBatch(new int[]{DataType.TEXT.getOID()});
+        textBatch.setSize(1);
+        e = assertThrows(BadRecordException.class, () -> builder.makeColumnBatchOutput(textBatch));
+        assertEquals("For field col0 schema requires type INTEGER but input record has type TEXT", e.getMessage());
+
+        ColumnBatch doubleBatch = new ColumnBatch(new int[]{DataType.INTEGER.getOID()});
+        doubleBatch.setDoubleVector(0, new double[]{1}, null, true, false);
+        doubleBatch.setSize(1);
+        e = assertThrows(BadRecordException.class, () -> builder.makeColumnBatchOutput(doubleBatch));
+        assertEquals("Vector type DOUBLE is not supported for field col0 of type INTEGER", e.getMessage());
+    }
+
+    @Test
+    public void testMakeOutputBinary() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.BINARY);
+
+        List<Writable> outputQueue = builder.makeOutput(createPrimitiveTypes_NativeValuesFields());
+        assertEquals(1, outputQueue.size());
+        assertTrue(outputQueue.get(0) instanceof BinaryCopySerializer);
+        assertEquals(1, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(dos.getOutput()));
+        assertEquals(16, in.readShort());
+        assertArrayEquals(new byte[]{1}, readBinaryValue(in));
+        assertArrayEquals(new byte[]{0, 1}, readBinaryValue(in));
+        assertEquals(8, in.readInt());
+        assertEquals(1L, in.readLong());
+        assertEquals(2, in.readInt());
+        assertEquals(2, in.readShort());
+        assertEquals(4, in.readInt());
+        assertEquals(3, in.readInt());
+        assertEquals("text-value", new String(readBinaryValue(in), StandardCharsets.UTF_8));
+        assertEquals(4, in.readInt());
+        assertEquals(4.5f, in.readFloat());
+        assertEquals(8, in.readInt());
+        assertEquals(6.7d, in.readDouble());
+        assertEquals("char-value", new String(readBinaryValue(in), StandardCharsets.UTF_8));
+        assertEquals("varchar-value", new String(readBinaryValue(in), StandardCharsets.UTF_8));
+        assertEquals(4, in.readInt());
+        assertEquals(LocalDate.of(1994, 8, 3).toEpochDay() - LocalDate.of(2000, 1, 1).toEpochDay(), in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(36_672_000_000L, in.readLong());
+        assertEquals(8, in.readInt());
+        assertEquals(708_176_673_123_456L, in.readLong());
+        assertEquals(8, readBinaryValue(in).length);
+        // 9876.54321 as the base 10000 digits 9876, 5432 and 1000
+        assertArrayEquals(new byte[]{0, 3, 0, 0, 0, 0, 0, 5, 0x26, (byte) 0x94, 0x15, 0x38, 0x03, (byte) 0xE8},
+                readBinaryValue(in));
+        assertEquals(16, readBinaryValue(in).length);
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testMakeVectorizedOutputBinary() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.BINARY);
+
+        List<Writable> outputQueue = builder.makeVectorizedOutput(Arrays.asList(
+                createPrimitiveTypes_NativeValuesFields(), createPrimitiveTypes_NativeValuesFields()));
+        assertEquals(1, outputQueue.size());
+        assertEquals(2, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+        byte[] actual = dos.getOutput();
+
+        getBridgeOutputBuilder(OutputFormat.BINARY).makeOutput(createPrimitiveTypes_NativeValuesFields()).get(0).write(dos);
+        byte[] record = dos.getOutput();
+        assertEquals(2 * record.length, actual.length);
+        assertArrayEquals(record, Arrays.copyOfRange(actual, record.length, actual.length));
+
+        assertTrue(builder.makeVectorizedOutput(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testMakeColumnBatchOutputBinary() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.BINARY);
+
+        List<Writable> outputQueue = builder.makeColumnBatchOutput(createPrimitiveTypesColumnBatch());
+        assertEquals(1, outputQueue.size());
+        assertEquals(2, ((BatchWritable) outputQueue.get(0)).getRecordCount());
+        outputQueue.get(0).write(dos);
+        byte[] actual = dos.getOutput();
+
+        // the batch is serialized the same way as the list of records
+        List<OneField> nullFields = createPrimitiveTypes_NativeValuesFields().stream()
+                .map(field -> new OneField(field.type, null))
+                .collect(Collectors.toList());
+        getBridgeOutputBuilder(OutputFormat.BINARY).makeVectorizedOutput(
+                Arrays.asList(createPrimitiveTypes_NativeValuesFields(), nullFields)).get(0).write(dos);
+        assertArrayEquals(dos.getOutput(), actual);
+    }
+
+    @Test
+    public void testMakeOutputBinaryInvalidValue() {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.BINARY);
+        addColumn(context, 0, DataType.NUMERIC, "col0");
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        Exception e = assertThrows(BadRecordException.class,
+                () -> builder.makeOutput(Collections.singletonList(new OneField(DataType.TEXT.getOID(), "abc"))));
+        assertTrue(e.getMessage().startsWith("Failed to serialize field col0"));
+
+        e = assertThrows(BadRecordException.class, () -> builder.makeOutput(Arrays.asList(
+                new OneField(DataType.NUMERIC.getOID(), "1"), new OneField(DataType.NUMERIC.getOID(), "2"))));
+        assertEquals("Record has 2 fields but the schema size is 1", e.getMessage());
+    }
+
+    @Test
+    public void testGetErrorOutputForBinary() throws Exception {
+        BridgeOutputBuilder builder = getBridgeOutputBuilder(OutputFormat.BINARY);
+
+        builder.getErrorOutput(new Exception("test message")).write(dos);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(dos.getOutput()));
+        // a null value for every column and the error in an extra column
+        assertEquals(17, in.readShort());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(-1, in.readInt());
+        }
+        assertEquals(BridgeOutputBuilder.PXF_ERROR_TOKEN + "test message",
+                new String(readBinaryValue(in), StandardCharsets.UTF_8));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testGetErrorOutputForBinaryWithoutDatabaseEncoding() throws Exception {
+        RequestContext context = new RequestContext();
+        context.setOutputFormat(OutputFormat.BINARY);
+        addColumn(context, 0, DataType.TEXT, "col0");
+        makeBuilder(context);
+        context.setDatabaseEncoding(null);
+        BridgeOutputBuilder builder = new BridgeOutputBuilder(context);
+
+        builder.getErrorOutput(new Exception("test message")).write(dos);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(dos.getOutput()));
+        // the error is sent in UTF-8 when the database encoding is not known
+        assertEquals(2, in.readShort());
+        assertEquals(-1, in.readInt());
+        assertEquals(BridgeOutputBuilder.PXF_ERROR_TOKEN + "test message",
+                new String(readBinaryValue(in), StandardCharsets.UTF_8));
+        assertEquals(0, in.available());
+    }
+
     @Test
     public void testGetErrorOutputForText() throws Exception {
         Exception e = new Exception("test message");
@@ -312,7 +747,7 @@ public class BridgeOutputBuilderTest {
         RequestContext context = new RequestContext();
         addColumn(context, 0, DataType.INTEGER, "col0");
         BridgeOutputBuilder builder = makeBuilder(context);
-        output = builder.makeGPDBWritableOutput();
+        builder.makeGPDBWritableOutput();
 
         OneField unSupportedField = new OneField(UN_SUPPORTED_TYPE, (byte) 0);
 
@@ -332,7 +767,7 @@ public class BridgeOutputBuilderTest {
         addColumn(context, 3, DataType.INTEGER, "col3");
 
         BridgeOutputBuilder builder = makeBuilder(context);
-        output = builder.makeGPDBWritableOutput();
+        GPDBWritableSerializer serializer = builder.makeGPDBWritableOutput();
 
         /* all four fields */
         List<OneField> complete = Arrays.asList(
@@ -341,6 +776,7 @@ public class BridgeOutputBuilderTest {
                         DataType.INTEGER.getOID(), 30), new OneField(
                         DataType.INTEGER.getOID(), 40));
         builder.fillGPDBWritable(complete);
+        output = toGPDBWritable(serializer);
         assertEquals(output.getColType().length, 4);
         assertEquals(output.getInt(0), Integer.valueOf(10));
         assertEquals(output.getInt(1), Integer.valueOf(20));
@@ -367,7 +803,7 @@ public class BridgeOutputBuilderTest {
         addColumn(context, 3, DataType.INTEGER, "col3");
 
         BridgeOutputBuilder builder = makeBuilder(context);
-        output = builder.makeGPDBWritableOutput();
+        builder.makeGPDBWritableOutput();
 
         /* five fields instead of four */
         List<OneField> complete = Arrays.asList(
@@ -447,7 +883,7 @@ public class BridgeOutputBuilderTest {
         addColumn(context, 3, DataType.INTEGER, "col3");
 
         BridgeOutputBuilder builder = makeBuilder(context);
-        output = builder.makeGPDBWritableOutput();
+        builder.makeGPDBWritableOutput();
 
         /* last field is REAL while schema requires INT */
         List<OneField> complete = Arrays.asList(
@@ -496,6 +932,32 @@ public class BridgeOutputBuilderTest {
         assertNull(builder.getPartialLine());
     }
 
+    @Test
+    public void testTextChunkIsPassedWithoutCopy() throws Exception {
+        byte[] buffer = "xxline1\nline2\nyy".getBytes(StandardCharsets.UTF_8);
+        List<OneField> fields = Collections.singletonList(
+                new OneField(DataType.BYTEA.getOID(), ByteBuffer.wrap(buffer, 2, 12)));
+
+        RequestContext context = new RequestContext();
+        addColumn(context, 0, DataType.TEXT, "col0");
+        BridgeOutputBuilder builder = makeBuilder(context);
+        LinkedList<Writable> outputQueue = builder.makeOutput(fields);
+
+        assertEquals(1, outputQueue.size());
+        compareBufferWritable(outputQueue.get(0), "line1\nline2\n");
+
+        // when sampling, the chunk is broken into lines
+        context.setStatsMaxFragments(100);
+        context.setStatsSampleRatio(1f);
+        builder = makeBuilder(context);
+        outputQueue = builder.makeOutput(fields);
+
+        assertEquals(2, outputQueue.size());
+        compareBufferWritable(outputQueue.get(0), "line1\n");
+        compareBufferWritable(outputQueue.get(1), "line2\n");
+        assertNull(builder.getPartialLine());
+    }
+
     @Test
     public void convertTextDataToLinesPartial() throws Exception {
         String data = "oh well\n" + "what the hell";
@@ -594,6 +1056,45 @@ public class BridgeOutputBuilderTest {
 
     }
 
+    /**
+     * Creates a batch for the primitive types schema with two rows, the
+     * first row has the native values and the second row has only nulls
+     */
+    private ColumnBatch createPrimitiveTypesColumnBatch() {
+        int[] columnTypes = createPrimitiveTypes_NativeValuesFields().stream().mapToInt(field -> field.type).toArray();
+        ColumnBatch batch = new ColumnBatch(columnTypes);
+        boolean[] isNull = {false, true};
+        batch.setLongVector(0, new long[]{1, 0}, isNull, false, false);
+        batch.setBytesVector(1, new byte[][]{{9, 0, 1, 9}, null}, new int[]{1, 0}, new int[]{2, 0}, isNull, false, false);
+        batch.setLongVector(2, new long[]{1, 0}, isNull, false, false);
+        batch.setLongVector(3, new long[]{2, 0}, isNull, false, false);
+        batch.setLongVector(4, new long[]{3, 0}, isNull, false, false);
+        setTextVector(batch, 5, "text-value", isNull);
+        batch.setDoubleVector(6, new double[]{4.5f, 0}, isNull, false, false);
+        batch.setDoubleVector(7, new double[]{6.7d, 0}, isNull, false, false);
+        setTextVector(batch, 8, "char-value", isNull);
+        setTextVector(batch, 9, "varchar-value", isNull);
+        batch.setObjectVector(10, new Object[]{Date.valueOf("1994-08-03"), null}, null, true, false);
+        batch.setObjectVector(11, new Object[]{"10:11:12", null}, null, true, false);
+        batch.setObjectVector(12, new Object[]{Timestamp.valueOf("2022-06-10 11:44:33.123456"), null}, null, true, false);
+        batch.setObjectVector(13, new Object[]{Timestamp.valueOf("2022-06-10 11:44:55.123456"), null}, null, true, false);
+        setTextVector(batch, 14, "9876.54321", isNull);
+        batch.setObjectVector(15, new Object[]{"667b97ba-38d0-4b91-9c7d-1f8b30a75c6e", "not-used"}, isNull, false, false);
+        batch.setSize(2);
+        return batch;
+    }
+
+    private byte[] readBinaryValue(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private void setTextVector(ColumnBatch batch, int column, String value, boolean[] isNull) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        batch.setBytesVector(column, new byte[][]{bytes, null}, new int[]{0, 0}, new int[]{bytes.length, 0}, isNull, false, false);
+    }
+
     private void compareBufferWritable(Writable line, String expected)
             throws IOException {
         assertTrue(line instanceof BufferWritable);
@@ -622,6 +1123,7 @@ public class BridgeOutputBuilderTest {
 
         context.setSegmentId(-44);
         context.setTotalSegments(2);
+        context.setDatabaseEncoding(StandardCharsets.UTF_8);
         if (context.getOutputFormat() == null) {
             context.setOutputFormat(OutputFormat.TEXT);
         }
@@ -637,6 +1139,66 @@ public class BridgeOutputBuilderTest {
         return new BridgeOutputBuilder(context);
     }
 
+    /**
+     * Test resolver that sets a fixed list of fields into the sink.
+     */
+    private static class FieldListRowResolver implements ReadRowResolver {
+
+        private final List<OneField> fields;
+
+        FieldListRowResolver(List<OneField> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public List<OneField> getFields(OneRow row) {
+            return fields;
+        }
+
+        @Override
+        public void getFields(OneRow row, FieldSink sink) throws IOException {
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = fields.get(i).val;
+                if (value == null) {
+                    sink.setNull(i);
+                } else if (value instanceof Boolean) {
+                    sink.setBoolean(i, (Boolean) value);
+                } else if (value instanceof Short) {
+                    sink.setShort(i, (Short) value);
+                } else if (value instanceof Integer) {
+                    sink.setInt(i, (Integer) value);
+                } else if (value instanceof Long) {
+                    sink.setLong(i, (Long) value);
+                } else if (value instanceof Float) {
+                    sink.setFloat(i, (Float) value);
+                } else if (value instanceof Double) {
+                    sink.setDouble(i, (Double) value);
+                } else if (value instanceof byte[]) {
+                    byte[] bytes = (byte[]) value;
+                    sink.setBytes(i, bytes, 0, bytes.length);
+                } else if (value instanceof String) {
+                    byte[] text = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    sink.setText(i, text, 0, text.length);
+                } else {
+                    sink.setObject(i, value);
+                }
+            }
+        }
+
+        @Override
+        public OneRow setFields(List<OneField> record) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRequestContext(RequestContext context) {
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+        }
+    }
+
     /**
      * Test class to check the data inside BufferWritable.
      */
@@ -660,7 +1222,7 @@ public class BridgeOutputBuilderTest {
 
         @Override
         public void write(byte[] b, int off, int len) {
-            output = Arrays.copyOfRange(b, off, len);
+            output = Arrays.copyOfRange(b, off, off + len);
         }
 
         @Override
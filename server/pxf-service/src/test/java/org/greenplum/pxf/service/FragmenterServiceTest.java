@@ -19,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
@@ -89,7 +90,8 @@ class FragmenterServiceTest {
 
         // use a real handler to ensure pass-through calls on default configuration
         fragmenterService = new FragmenterService(fragmenterCacheFactory,
-                mockPluginFactory, new GSSFailureHandler());
+                mockPluginFactory, new GSSFailureHandler(),
+                new SharedFragmentCache("", Duration.ofSeconds(60), Duration.ofMinutes(10), Duration.ofSeconds(10)));
     }
 
     @Test
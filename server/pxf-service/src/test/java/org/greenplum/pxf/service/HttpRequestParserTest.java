@@ -27,6 +27,7 @@ import org.greenplum.pxf.api.model.PluginConf;
 import org.greenplum.pxf.api.model.ProtocolHandler;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.model.RequestContext.RequestType;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.api.utilities.CharsetUtils;
 import org.greenplum.pxf.api.utilities.FragmentMetadata;
 import org.junit.jupiter.api.AfterEach;
@@ -540,6 +541,64 @@ public class HttpRequestParserTest {
         assertEquals("foobar", context.getFormat());
     }
 
+    @Test
+    public void testWireFormatIsBinary() {
+        parameters.set("X-GP-FORMAT", "BINARY");
+        parameters.set("X-GP-ATTRS", "2");
+        parameters.set("X-GP-ATTR-NAME0", "id");
+        parameters.set("X-GP-ATTR-TYPECODE0", "20");
+        parameters.set("X-GP-ATTR-TYPENAME0", "int8");
+        parameters.set("X-GP-ATTR-NAME1", "amounts");
+        parameters.set("X-GP-ATTR-TYPECODE1", "1231");
+        parameters.set("X-GP-ATTR-TYPENAME1", "numeric[]");
+
+        RequestContext context = parser.parseRequest(parameters, RequestType.READ_BRIDGE);
+        assertEquals(OutputFormat.BINARY, context.getOutputFormat());
+    }
+
+    @Test
+    public void testWireFormatIsBinaryForWriteFails() {
+        parameters.set("X-GP-FORMAT", "BINARY");
+
+        Exception e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseRequest(parameters, RequestType.WRITE_BRIDGE));
+        assertEquals("output format BINARY is only supported for reading", e.getMessage());
+    }
+
+    @Test
+    public void testWireFormatIsBinaryWithUnsupportedColumnFails() {
+        parameters.set("X-GP-FORMAT", "BINARY");
+        parameters.set("X-GP-ATTRS", "1");
+        parameters.set("X-GP-ATTR-NAME0", "duration");
+        parameters.set("X-GP-ATTR-TYPECODE0", "1186");
+        parameters.set("X-GP-ATTR-TYPENAME0", "interval");
+
+        Exception e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseRequest(parameters, RequestType.READ_BRIDGE));
+        assertEquals("output format BINARY does not support column 'duration' of type interval", e.getMessage());
+    }
+
+    @Test
+    public void testStreamCompressionIsAbsent() {
+        RequestContext context = parser.parseRequest(parameters, RequestType.READ_BRIDGE);
+        assertEquals(StreamCompression.NONE, context.getStreamCompression());
+    }
+
+    @Test
+    public void testStreamCompressionIsLz4() {
+        parameters.add("X-GP-STREAM-COMPRESSION", "lz4");
+        RequestContext context = parser.parseRequest(parameters, RequestType.WRITE_BRIDGE);
+        assertEquals(StreamCompression.LZ4, context.getStreamCompression());
+    }
+
+    @Test
+    public void testStreamCompressionIsNotSupported() {
+        parameters.add("X-GP-STREAM-COMPRESSION", "zstd");
+        Exception e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parseRequest(parameters, RequestType.READ_BRIDGE));
+        assertEquals("stream compression zstd is not supported, supported values are none, lz4", e.getMessage());
+    }
+
     @Test
     public void testHandlerIsCalled() {
         when(mockPluginConf.getHandler("test-profile")).thenReturn(TestHandler.class.getName());
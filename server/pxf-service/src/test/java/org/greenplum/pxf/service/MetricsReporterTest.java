@@ -18,7 +18,11 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -199,6 +203,78 @@ public class MetricsReporterTest {
         assertEquals(1051, counter.count());
     }
 
+    @Test
+    public void testCounterHandleMetricDisabled() {
+        disableRecordsMetrics();
+
+        MetricsReporter.CounterHandle handle = reporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext);
+        handle.increment(100);
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    public void testCounterHandleMetricEnabled() {
+        enableBytesMetrics();
+        setContext();
+
+        MetricsReporter.CounterHandle handle = reporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext);
+        handle.increment(1000);
+        handle.increment(51);
+        Counter counter = registry.get("pxf.bytes.sent").tags(expectedTags).counter();
+        assertEquals(1051, counter.count());
+
+        // the handle shares the counter with the metrics reported for the same tags
+        reporter.reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 9, mockContext);
+        assertEquals(1060, counter.count());
+        handle.increment(40);
+        assertEquals(1100, registry.get("pxf.bytes.sent").tags(expectedTags).counter().count());
+    }
+
+    @Test
+    public void testCounterHandleCachedPerTagSet() {
+        enableBytesMetrics();
+        setContext();
+
+        MetricsReporter.CounterHandle handle = reporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext);
+        assertSame(handle, reporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext));
+        reporter.reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 10, mockContext);
+
+        // the property is resolved once for the tag set
+        verify(mockEnvironment, times(1)).getProperty("pxf.metrics.bytes.enabled", Boolean.class, Boolean.FALSE);
+
+        // another tag set gets its own handle
+        when(mockContext.getSegmentId()).thenReturn(6);
+        assertNotSame(handle, reporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext));
+    }
+
+    @Test
+    public void testTimerHandleMetricDisabled() {
+        disableFragmentMetrics();
+
+        MetricsReporter.TimerHandle handle = reporter.getTimerHandle(MetricsReporter.PxfMetric.FRAGMENTS_SENT, mockContext, true);
+        handle.record(Duration.ofMillis(100));
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    public void testTimerHandleCachedPerTagSet() {
+        enableFragmentMetrics();
+        setContext();
+
+        MetricsReporter.TimerHandle handle = reporter.getTimerHandle(MetricsReporter.PxfMetric.FRAGMENTS_SENT, mockContext, true);
+        assertSame(handle, reporter.getTimerHandle(MetricsReporter.PxfMetric.FRAGMENTS_SENT, mockContext, true));
+        assertNotSame(handle, reporter.getTimerHandle(MetricsReporter.PxfMetric.FRAGMENTS_SENT, mockContext, false));
+
+        handle.record(Duration.ofMillis(100));
+        reporter.reportTimer(MetricsReporter.PxfMetric.FRAGMENTS_SENT, Duration.ofMillis(51), mockContext, true);
+        Timer timer = registry.get("pxf.fragments.sent").tags(expectedTags.and("outcome", "success")).timer();
+        assertEquals(2, timer.count());
+        assertEquals(151, timer.totalTime(TimeUnit.MILLISECONDS));
+
+        // the property is resolved once for each of the success and error tag sets
+        verify(mockEnvironment, times(2)).getProperty("pxf.metrics.fragments.enabled", Boolean.class, Boolean.FALSE);
+    }
+
     @Test
     public void testGetReportFrequency() {
         when(mockEnvironment.getProperty("pxf.metrics.report-frequency", Long.class, 1000L)).thenReturn(5L);
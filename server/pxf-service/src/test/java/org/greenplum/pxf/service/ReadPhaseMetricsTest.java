@@ -0,0 +1,99 @@
+package org.greenplum.pxf.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadPhaseMetricsTest {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testDisabled() {
+        ReadPhaseMetrics metrics = new ReadPhaseMetrics(registry, false);
+        PhaseTimer timer = metrics.newTimer();
+
+        assertSame(PhaseTimer.DISABLED, timer);
+        assertFalse(timer.isEnabled());
+        assertEquals(0, timer.start());
+        assertEquals(0, timer.stop(PhaseTimer.Phase.READ, 0));
+        metrics.reportFragment(timer, timer.snapshot());
+        assertEquals(0, timer.snapshot()[PhaseTimer.Phase.READ.ordinal()]);
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    public void testReportFragment() {
+        ReadPhaseMetrics metrics = new ReadPhaseMetrics(registry, true);
+        PhaseTimer timer = metrics.newTimer();
+        assertTrue(timer.isEnabled());
+
+        // the first fragment is not recorded in the histograms of the second one
+        long now = timer.start();
+        timer.stop(PhaseTimer.Phase.OPEN, now - 1_000_000);
+        long[] start = timer.snapshot();
+        now = timer.start();
+        timer.stop(PhaseTimer.Phase.READ, now - 3_000_000);
+        now = timer.start();
+        timer.stop(PhaseTimer.Phase.SERIALIZE, now - 2_000_000);
+        metrics.reportFragment(timer, start);
+
+        assertEquals(3, recordedMillis(PhaseTimer.Phase.READ), 0.1);
+        assertEquals(0, recordedMillis(PhaseTimer.Phase.OPEN), 0.1);
+        assertEquals(1, fragmentTimer(PhaseTimer.Phase.OPEN).count());
+        assertTrue(fragmentTimer(PhaseTimer.Phase.SERIALIZE).totalTime(TimeUnit.MILLISECONDS) >= 2);
+
+        // the totals are published once the fragment is reported
+        assertTrue(phaseSeconds(PhaseTimer.Phase.OPEN) >= 0.001);
+        assertTrue(phaseSeconds(PhaseTimer.Phase.READ) >= 0.003);
+        assertEquals(0, phaseSeconds(PhaseTimer.Phase.WRITE));
+    }
+
+    @Test
+    public void testNestedPhase() {
+        ReadPhaseMetrics metrics = new ReadPhaseMetrics(registry, true);
+        PhaseTimer timer = metrics.newTimer();
+        long[] start = timer.snapshot();
+
+        long serializeStart = timer.start() - 5_000_000;
+        long now = timer.start();
+        timer.stopNested(PhaseTimer.Phase.WRITE, PhaseTimer.Phase.SERIALIZE, now - 4_000_000);
+        timer.stop(PhaseTimer.Phase.SERIALIZE, serializeStart);
+        metrics.reportFragment(timer, start);
+
+        double write = recordedMillis(PhaseTimer.Phase.WRITE);
+        double serialize = recordedMillis(PhaseTimer.Phase.SERIALIZE);
+        assertTrue(write >= 4);
+        assertTrue(serialize >= 1 && serialize < 5, "serialize time " + serialize);
+        assertEquals(write + serialize, (phaseSeconds(PhaseTimer.Phase.WRITE)
+                + phaseSeconds(PhaseTimer.Phase.SERIALIZE)) * 1000, 0.001);
+    }
+
+    private Timer fragmentTimer(PhaseTimer.Phase phase) {
+        return registry.get("pxf.fragment.phase.duration").tag("phase", phase.getTagValue()).timer();
+    }
+
+    private double recordedMillis(PhaseTimer.Phase phase) {
+        return fragmentTimer(phase).totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    private double phaseSeconds(PhaseTimer.Phase phase) {
+        FunctionCounter counter = registry.get("pxf.read.phase.time").tag("phase", phase.getTagValue()).functionCounter();
+        return counter.count();
+    }
+}
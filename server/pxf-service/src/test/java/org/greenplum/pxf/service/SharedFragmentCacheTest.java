@@ -0,0 +1,224 @@
+package org.greenplum.pxf.service;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.greenplum.pxf.api.examples.DemoFragmentMetadata;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.utilities.FragmentMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SharedFragmentCacheTest {
+
+    @TempDir
+    File directory;
+
+    private SharedFragmentCache host1;
+    private SharedFragmentCache host2;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        // two PXF servers sharing the same directory
+        host1 = new SharedFragmentCache(directory.getAbsolutePath(), Duration.ofSeconds(5), Duration.ofMinutes(10), Duration.ofSeconds(10));
+        host2 = new SharedFragmentCache(directory.getAbsolutePath(), Duration.ofSeconds(5), Duration.ofMinutes(10), Duration.ofSeconds(10));
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testDisabledCacheComputesFragments() throws Exception {
+        SharedFragmentCache cache = new SharedFragmentCache("", Duration.ofSeconds(5), Duration.ofMinutes(10), Duration.ofSeconds(10));
+        List<Fragment> fragments = fragments();
+
+        assertFalse(cache.isEnabled());
+        assertSame(fragments, cache.get("key", () -> load(fragments)));
+        assertSame(fragments, cache.get("key", () -> load(fragments)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFragmentsAreComputedOnce() throws Exception {
+        List<Fragment> fragments = fragments();
+
+        assertTrue(host1.isEnabled());
+        assertSame(fragments, host1.get("key", () -> load(fragments)));
+        List<Fragment> sharedFragments = host2.get("key", () -> load(fragments));
+
+        assertEquals(1, loads.get());
+        assertFragments(fragments, sharedFragments);
+    }
+
+    @Test
+    public void testFragmentsAreComputedPerKey() throws Exception {
+        host1.get("key1", () -> load(fragments()));
+        host2.get("key2", () -> load(fragments()));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testWaitsForCoordinatorToPublishFragments() throws Exception {
+        List<Fragment> fragments = fragments();
+        CountDownLatch coordinatorStarted = new CountDownLatch(1);
+        CountDownLatch waiterStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Fragment>> coordinator = executor.submit(() -> host1.get("key", () -> {
+                coordinatorStarted.countDown();
+                waiterStarted.await();
+                Thread.sleep(200);
+                return load(fragments);
+            }));
+            coordinatorStarted.await();
+            waiterStarted.countDown();
+            List<Fragment> sharedFragments = host2.get("key", () -> load(fragments));
+
+            assertSame(fragments, coordinator.get());
+            assertEquals(1, loads.get());
+            assertFragments(fragments, sharedFragments);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFragmentsAreComputedLocallyWhenCoordinatorFails() {
+        IOException e = assertThrows(IOException.class, () -> host1.get("key", () -> {
+            throw new IOException("listing failed");
+        }));
+        assertEquals("listing failed", e.getMessage());
+
+        assertThrows(IOException.class, () -> host2.get("key", () -> {
+            throw new IOException("listing failed again");
+        }));
+    }
+
+    @Test
+    public void testFragmentsAreComputedLocallyWhenCoordinatorTimesOut() throws Exception {
+        host2 = new SharedFragmentCache(directory.getAbsolutePath(), Duration.ofMillis(100), Duration.ofMinutes(10), Duration.ofSeconds(10));
+        List<Fragment> fragments = fragments();
+        // a coordinator that never publishes the fragments
+        Files.createFile(directory.toPath().resolve(DigestUtils.sha256Hex("key") + ".lock"));
+
+        assertSame(fragments, host2.get("key", () -> load(fragments)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFragmentsAreNotSharedThroughWritableDirectory() throws Exception {
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        host1.get("key", () -> load(fragments()));
+        host2.get("key", () -> load(fragments()));
+
+        assertEquals(2, loads.get());
+        assertFalse(Files.exists(directory.toPath().resolve(DigestUtils.sha256Hex("key") + ".lock")));
+    }
+
+    @Test
+    public void testFragmentsWithUnknownMetadataAreNotShared() throws Exception {
+        List<Fragment> fragments = new ArrayList<>();
+        fragments.add(new Fragment("a", new UnknownFragmentMetadata()));
+
+        assertSame(fragments, host1.get("key", () -> load(fragments)));
+        assertSame(fragments, host2.get("key", () -> load(fragments)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testUnreadableFragmentsAreComputedLocally() throws Exception {
+        List<Fragment> fragments = fragments();
+        String name = DigestUtils.sha256Hex("key");
+        Files.createFile(directory.toPath().resolve(name + ".lock"));
+        // a file naming a class that is not registered
+        Files.write(directory.toPath().resolve(name + ".fragments"), "\u0001java.lang.ProcessBuilder".getBytes());
+
+        assertSame(fragments, host2.get("key", () -> load(fragments)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testStaleFragmentsAreComputedAgain() throws Exception {
+        List<Fragment> fragments = fragments();
+        String name = DigestUtils.sha256Hex("key");
+        host1.get("key", () -> load(fragments));
+        // the fragments were published by an earlier query, before the local fragmenter cache expiration
+        FileTime published = FileTime.fromMillis(System.currentTimeMillis() - 20000);
+        Files.setLastModifiedTime(directory.toPath().resolve(name + ".lock"), published);
+        Files.setLastModifiedTime(directory.toPath().resolve(name + ".fragments"), published);
+
+        assertSame(fragments, host2.get("key", () -> load(fragments)));
+        assertEquals(2, loads.get());
+
+        // the fragments computed again are shared
+        assertFragments(fragments, host1.get("key", () -> load(fragments)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testExpiredFilesArePurgedWhenReading() throws Exception {
+        File expired = new File(directory, DigestUtils.sha256Hex("other") + ".fragments");
+        assertTrue(expired.createNewFile());
+        assertTrue(expired.setLastModified(System.currentTimeMillis() - Duration.ofMinutes(20).toMillis()));
+        // a coordinator publishing the fragments of the query
+        Files.createFile(directory.toPath().resolve(DigestUtils.sha256Hex("key") + ".lock"));
+        Files.createFile(directory.toPath().resolve(DigestUtils.sha256Hex("key") + ".failed"));
+
+        host2.get("key", () -> load(fragments()));
+
+        assertFalse(expired.exists());
+    }
+
+    private List<Fragment> load(List<Fragment> fragments) {
+        loads.incrementAndGet();
+        return fragments;
+    }
+
+    private List<Fragment> fragments() {
+        List<Fragment> fragments = new ArrayList<>();
+        fragments.add(new Fragment("a", new DemoFragmentMetadata("path/a"), "profile"));
+        fragments.add(new Fragment("b", new DemoFragmentMetadata("path/b")));
+        fragments.add(new Fragment("c"));
+        fragments.get(1).setIndex(1);
+        return fragments;
+    }
+
+    private void assertFragments(List<Fragment> expected, List<Fragment> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSourceName(), actual.get(i).getSourceName());
+            assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+            assertEquals(expected.get(i).getProfile(), actual.get(i).getProfile());
+            if (expected.get(i).getMetadata() == null) {
+                assertNull(actual.get(i).getMetadata());
+            } else {
+                assertEquals(((DemoFragmentMetadata) expected.get(i).getMetadata()).getPath(),
+                        ((DemoFragmentMetadata) actual.get(i).getMetadata()).getPath());
+            }
+        }
+    }
+
+    private static class UnknownFragmentMetadata implements FragmentMetadata {
+    }
+}
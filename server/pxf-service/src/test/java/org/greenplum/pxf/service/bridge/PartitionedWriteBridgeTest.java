@@ -0,0 +1,344 @@
+package org.greenplum.pxf.service.bridge;
+
+import org.apache.hadoop.conf.Configuration;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.error.UnsupportedTypeException;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.model.WriteVectorizedResolver;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.StringPassResolver;
+import org.greenplum.pxf.service.serde.RecordReader;
+import org.greenplum.pxf.service.serde.RecordReaderFactory;
+import org.greenplum.pxf.service.utilities.BasePluginFactory;
+import org.greenplum.pxf.service.utilities.GSSFailureHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionedWriteBridgeTest {
+
+    private static final String ACCESSOR = "org.greenplum.pxf.service.bridge.TestPartitionedAccessor";
+    private static final String RESOLVER = "org.greenplum.pxf.service.bridge.TestResolver";
+
+    private PartitionedWriteBridge bridge;
+    private RequestContext context;
+    private List<RequestContext> partitionContexts;
+    private List<Accessor> partitionAccessors;
+    private List<RecordingResolver> partitionResolvers;
+
+    @Mock
+    private BasePluginFactory mockPluginFactory;
+    @Mock
+    private RecordReaderFactory mockRecordReaderFactory;
+    @Mock
+    private RecordReader mockRecordReader;
+    @Mock
+    private DataInputStream mockInputStream;
+
+    @BeforeEach
+    public void setup() {
+        context = new RequestContext();
+        context.setConfiguration(new Configuration());
+        context.setDataSource("/data/table/");
+        context.setAccessor(ACCESSOR);
+        context.setResolver(RESOLVER);
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("year", DataType.INTEGER.getOID(), 1, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 2, "text", null)));
+        context.addOption("PARTITION_BY", "year");
+
+        partitionContexts = new ArrayList<>();
+        partitionAccessors = new ArrayList<>();
+        partitionResolvers = new ArrayList<>();
+    }
+
+    @Test
+    public void testRecordsAreRoutedToPartitions() throws Exception {
+        bridge = createBridge(new TestResolver(), RecordingResolver::new);
+        mockRecords(record(1, 2023, "a"), record(2, 2024, "b"), record(3, 2023, "c"));
+
+        assertTrue(bridge.beginIteration());
+        assertFalse(bridge.isPipelineSupported());
+        while (bridge.setNext(mockInputStream)) {
+        }
+        bridge.endIteration();
+
+        assertEquals(2, partitionContexts.size());
+        RequestContext partitionContext = partitionContexts.get(0);
+        assertEquals("/data/table/year=2023", partitionContext.getDataSource());
+        assertFalse(partitionContext.isSkipExistingFiles());
+        assertEquals(2, partitionContext.getColumns());
+        assertEquals("id", partitionContext.getColumn(0).columnName());
+        assertEquals(0, partitionContext.getColumn(0).columnIndex());
+        assertEquals("name", partitionContext.getColumn(1).columnName());
+        assertEquals(1, partitionContext.getColumn(1).columnIndex());
+        assertEquals("/data/table/year=2024", partitionContexts.get(1).getDataSource());
+        // the request itself is not changed
+        assertEquals("/data/table/", context.getDataSource());
+        assertEquals(3, context.getColumns());
+
+        assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(3, "c")), partitionResolvers.get(0).records);
+        assertEquals(Collections.singletonList(Arrays.asList(2, "b")), partitionResolvers.get(1).records);
+        for (Accessor accessor : partitionAccessors) {
+            InOrder inOrder = inOrder(accessor);
+            inOrder.verify(accessor).openForWrite();
+            inOrder.verify(accessor, atLeastOnce()).writeNextObject(any());
+            inOrder.verify(accessor).closeForWrite();
+        }
+        verify(partitionAccessors.get(0), times(2)).writeNextObject(any());
+        verify(partitionAccessors.get(1), times(1)).writeNextObject(any());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPartitionIsClosed() throws Exception {
+        context.addOption("MAX_OPEN_PARTITIONS", "2");
+        bridge = createBridge(new TestResolver(), RecordingResolver::new);
+        mockRecords(record(1, 2021, "a"), record(2, 2022, "b"), record(3, 2021, "c"),
+                record(4, 2023, "d"), record(5, 2022, "e"));
+
+        while (bridge.setNext(mockInputStream)) {
+        }
+
+        // 2022 is closed to open 2023, then 2021 is closed to open 2022 again
+        assertEquals(4, partitionContexts.size());
+        assertEquals("/data/table/year=2021", partitionContexts.get(0).getDataSource());
+        assertEquals("/data/table/year=2022", partitionContexts.get(1).getDataSource());
+        assertEquals("/data/table/year=2023", partitionContexts.get(2).getDataSource());
+        assertEquals("/data/table/year=2022", partitionContexts.get(3).getDataSource());
+        assertFalse(partitionContexts.get(2).isSkipExistingFiles());
+        // the files written by the first writer of 2022 are kept
+        assertTrue(partitionContexts.get(3).isSkipExistingFiles());
+        verify(partitionAccessors.get(0)).closeForWrite();
+        verify(partitionAccessors.get(1)).closeForWrite();
+        verify(partitionAccessors.get(2), never()).closeForWrite();
+        verify(partitionAccessors.get(3), never()).closeForWrite();
+
+        bridge.endIteration();
+        verify(partitionAccessors.get(2)).closeForWrite();
+        verify(partitionAccessors.get(3)).closeForWrite();
+    }
+
+    @Test
+    public void testEndIterationClosesAllPartitionsOnFailure() throws Exception {
+        bridge = createBridge(new TestResolver(), RecordingResolver::new);
+        mockRecords(record(1, 2023, "a"), record(2, 2024, "b"));
+        while (bridge.setNext(mockInputStream)) {
+        }
+        doThrow(new IOException("close failed")).when(partitionAccessors.get(0)).closeForWrite();
+
+        Exception e = assertThrows(IOException.class, () -> bridge.endIteration());
+        assertEquals("close failed", e.getMessage());
+        verify(partitionAccessors.get(1)).closeForWrite();
+    }
+
+    @Test
+    public void testPartitionPath() {
+        context.addOption("PARTITION_BY", "name, year");
+        bridge = createBridge(new TestResolver(), RecordingResolver::new);
+
+        assertEquals("name=a/year=2023", bridge.getPartitionPath(record(1, 2023, "a")));
+        assertEquals("name=a%2Fb%3Dc%3A%25/year=2023", bridge.getPartitionPath(record(1, 2023, "a/b=c:%")));
+        assertEquals("name=__HIVE_DEFAULT_PARTITION__/year=__HIVE_DEFAULT_PARTITION__",
+                bridge.getPartitionPath(record(1, null, null)));
+        assertEquals("name=__HIVE_DEFAULT_PARTITION__/year=1", bridge.getPartitionPath(record(1, 1, "")));
+    }
+
+    @Test
+    public void testTextRecordsAreSerializedIntoLines() throws Exception {
+        context.setFormat("csv");
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("year", DataType.INTEGER.getOID(), 1, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 2, "text", null),
+                new ColumnDescriptor("data", DataType.BYTEA.getOID(), 3, "bytea", null)));
+        // the resolver handles the input stream, the records are parsed nevertheless
+        bridge = createBridge(new StringPassResolver(), RecordingResolver::new);
+
+        mockRecords(Arrays.asList(
+                new OneField(DataType.INTEGER.getOID(), 1),
+                new OneField(DataType.INTEGER.getOID(), 2023),
+                new OneField(DataType.TEXT.getOID(), "a,b"),
+                new OneField(DataType.BYTEA.getOID(), ByteBuffer.wrap(new byte[]{1, 2}))));
+        while (bridge.setNext(mockInputStream)) {
+        }
+
+        assertEquals("/data/table/year=2023", partitionContexts.get(0).getDataSource());
+        List<Object> line = partitionResolvers.get(0).records.get(0);
+        assertEquals(1, line.size());
+        assertArrayEquals("1,\"a,b\",\\x0102\n".getBytes(StandardCharsets.UTF_8), (byte[]) line.get(0));
+    }
+
+    @Test
+    public void testVectorizedRecordsAreResolvedByPartition() throws Exception {
+        bridge = createBridge(new RecordingVectorizedResolver(), RecordingVectorizedResolver::new);
+        mockRecords(record(1, 2023, "a"), record(2, 2024, "b"), record(3, 2023, "c"), record(4, 2024, "d"));
+
+        // the first batch is full, the second one is not
+        assertTrue(bridge.setNext(mockInputStream));
+        assertFalse(bridge.setNext(mockInputStream));
+
+        assertEquals(2, partitionContexts.size());
+        assertEquals(Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(3, "c")), partitionResolvers.get(0).records);
+        assertEquals(1, ((RecordingVectorizedResolver) partitionResolvers.get(0)).batchCount);
+        assertEquals(Arrays.asList(Arrays.asList(2, "b"), Arrays.asList(4, "d")), partitionResolvers.get(1).records);
+        assertEquals(2, ((RecordingVectorizedResolver) partitionResolvers.get(1)).batchCount);
+        verify(partitionAccessors.get(0), times(1)).writeNextObject(any());
+        verify(partitionAccessors.get(1), times(2)).writeNextObject(any());
+    }
+
+    @Test
+    public void testUnknownPartitionColumn() {
+        context.addOption("PARTITION_BY", "year,month");
+        Exception e = assertThrows(IllegalArgumentException.class, () -> createBridge(new TestResolver(), RecordingResolver::new));
+        assertEquals("Property PARTITION_BY has incorrect value year,month : column month does not exist", e.getMessage());
+    }
+
+    @Test
+    public void testDuplicatePartitionColumn() {
+        context.addOption("PARTITION_BY", "year,YEAR");
+        Exception e = assertThrows(IllegalArgumentException.class, () -> createBridge(new TestResolver(), RecordingResolver::new));
+        assertEquals("Property PARTITION_BY has incorrect value year,YEAR : column YEAR is listed more than once", e.getMessage());
+    }
+
+    @Test
+    public void testAllColumnsArePartitionColumns() {
+        context.addOption("PARTITION_BY", "id,year,name");
+        Exception e = assertThrows(IllegalArgumentException.class, () -> createBridge(new TestResolver(), RecordingResolver::new));
+        assertEquals("Property PARTITION_BY cannot include all the columns of the table", e.getMessage());
+    }
+
+    @Test
+    public void testUnsupportedPartitionColumnType() {
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("data", DataType.BYTEA.getOID(), 1, "bytea", null)));
+        context.addOption("PARTITION_BY", "data");
+        Exception e = assertThrows(UnsupportedTypeException.class, () -> createBridge(new TestResolver(), RecordingResolver::new));
+        assertEquals("Column data of type bytea cannot be a partition column", e.getMessage());
+    }
+
+    @Test
+    public void testInvalidMaxOpenPartitions() {
+        context.addOption("MAX_OPEN_PARTITIONS", "0");
+        Exception e = assertThrows(IllegalArgumentException.class, () -> createBridge(new TestResolver(), RecordingResolver::new));
+        assertEquals("Property MAX_OPEN_PARTITIONS has incorrect value 0 : must be a positive integer", e.getMessage());
+    }
+
+    /*
+     * Creates the bridge, the plugins of the request are created by the
+     * bridge with the request context, the plugins of the partitions with
+     * the contexts of the partitions.
+     */
+    private PartitionedWriteBridge createBridge(Resolver requestResolver, Supplier<RecordingResolver> partitionResolver) {
+        lenient().when(mockRecordReaderFactory.getRecordReader(context, false)).thenReturn(mockRecordReader);
+        when(mockPluginFactory.getPlugin(any(), eq(ACCESSOR))).thenAnswer(invocation -> {
+            RequestContext pluginContext = invocation.getArgument(0);
+            if (pluginContext == context) {
+                return null; // the accessor of the request is not used
+            }
+            partitionContexts.add(pluginContext);
+            Accessor accessor = mock(Accessor.class);
+            lenient().when(accessor.writeNextObject(any())).thenReturn(true);
+            partitionAccessors.add(accessor);
+            return accessor;
+        });
+        when(mockPluginFactory.getPlugin(any(), eq(RESOLVER))).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == context) {
+                // the resolver will be inspected for annotation, so we need to have a real object here
+                return requestResolver;
+            }
+            RecordingResolver resolver = partitionResolver.get();
+            partitionResolvers.add(resolver);
+            return resolver;
+        });
+        return new PartitionedWriteBridge(mockPluginFactory, mockRecordReaderFactory, context, new GSSFailureHandler());
+    }
+
+    @SafeVarargs
+    private final void mockRecords(List<OneField>... records) throws Exception {
+        OngoingStubbing<List<OneField>> stubbing = when(mockRecordReader.readRecord(mockInputStream));
+        for (List<OneField> record : records) {
+            stubbing = stubbing.thenReturn(record);
+        }
+        stubbing.thenReturn(null);
+    }
+
+    private static List<OneField> record(Integer id, Integer year, String name) {
+        return Arrays.asList(
+                new OneField(DataType.INTEGER.getOID(), id),
+                new OneField(DataType.INTEGER.getOID(), year),
+                new OneField(DataType.TEXT.getOID(), name));
+    }
+
+    /**
+     * Keeps the values of the records it resolves
+     */
+    private static class RecordingResolver extends TestResolver {
+
+        final List<List<Object>> records = new ArrayList<>();
+
+        @Override
+        public OneRow setFields(List<OneField> record) {
+            records.add(record.stream().map(field -> field.val).collect(Collectors.toList()));
+            return new OneRow();
+        }
+    }
+
+    /**
+     * Keeps the values of the records of the batches it resolves
+     */
+    private static class RecordingVectorizedResolver extends RecordingResolver implements WriteVectorizedResolver {
+
+        int batchCount;
+
+        @Override
+        public int getBatchSize() {
+            return 3;
+        }
+
+        @Override
+        public OneRow setFieldsForBatch(List<List<OneField>> records) {
+            batchCount++;
+            records.forEach(this::setFields);
+            return new OneRow();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.greenplum.pxf.service.bridge;
 
 import org.greenplum.pxf.api.model.GreenplumCSV;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.EnumAggregationType;
 import org.greenplum.pxf.service.serde.RecordReaderFactory;
 import org.greenplum.pxf.service.utilities.BasePluginFactory;
@@ -12,6 +13,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -64,6 +67,39 @@ public class SimpleBridgeFactoryTest {
         assertFalse(bridge instanceof WriteVectorizedBridge);
     }
 
+    @Test
+    public void testPartitionedWrite() {
+        when(mockRequestContext.getRequestType()).thenReturn(RequestContext.RequestType.WRITE_BRIDGE);
+        when(mockRequestContext.getOption("PARTITION_BY")).thenReturn("b");
+        when(mockRequestContext.getOption("MAX_OPEN_PARTITIONS", 16, true)).thenReturn(16);
+        when(mockRequestContext.getTupleDescription()).thenReturn(Arrays.asList(
+                new ColumnDescriptor("a", 23, 0, "int4", null),
+                new ColumnDescriptor("b", 25, 1, "text", null)));
+        when(mockRequestContext.getAccessor()).thenReturn("org.greenplum.pxf.service.bridge.TestPartitionedAccessor");
+        when(mockRequestContext.getResolver()).thenReturn("org.greenplum.pxf.service.bridge.TestResolver");
+        when(mockPluginFactory.getPlugin(mockRequestContext, "org.greenplum.pxf.service.bridge.TestPartitionedAccessor")).thenReturn(null); // accessor
+        // resolver will be inspected for annotation, so we need to have a real object here
+        when(mockPluginFactory.getPlugin(mockRequestContext, "org.greenplum.pxf.service.bridge.TestResolver"))
+                .thenReturn(new TestResolver());
+        bridge = factory.getBridge(mockRequestContext);
+        assertTrue(bridge instanceof PartitionedWriteBridge);
+    }
+
+    @Test
+    public void testWritePartitionByIgnoredByAccessor() {
+        when(mockRequestContext.getRequestType()).thenReturn(RequestContext.RequestType.WRITE_BRIDGE);
+        when(mockRequestContext.getOption("PARTITION_BY")).thenReturn("b:int");
+        when(mockRequestContext.getAccessor()).thenReturn("org.greenplum.pxf.service.bridge.TestAccessor");
+        when(mockRequestContext.getResolver()).thenReturn("org.greenplum.pxf.service.bridge.TestResolver");
+        when(mockPluginFactory.getPlugin(mockRequestContext, "org.greenplum.pxf.service.bridge.TestAccessor")).thenReturn(null); // accessor
+        // resolver will be inspected for annotation, so we need to have a real object here
+        when(mockPluginFactory.getPlugin(mockRequestContext, "org.greenplum.pxf.service.bridge.TestResolver"))
+                .thenReturn(new TestResolver());
+        bridge = factory.getBridge(mockRequestContext);
+        assertTrue(bridge instanceof WriteBridge);
+        assertFalse(bridge instanceof PartitionedWriteBridge);
+    }
+
     @Test
     public void testReadVectorized() {
         mockForRead();
@@ -0,0 +1,7 @@
+package org.greenplum.pxf.service.bridge;
+
+import org.greenplum.pxf.api.model.PartitionedWriteHandler;
+
+@PartitionedWriteHandler
+public class TestPartitionedAccessor extends TestAccessor {
+}
@@ -14,8 +14,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.inOrder;
@@ -152,6 +154,18 @@ public class WriteBridgeTest {
         assertEquals("Current operation is not supported", e.getMessage());
     }
 
+    @Test
+    public void testResolveRecordsEndsIteration() throws Exception {
+        when(mockPluginFactory.getPlugin(context, context.getAccessor())).thenReturn(mockAccessor1);
+        bridge = createWriteBridge();
+
+        // the test resolver does not convert any record
+        assertTrue(bridge.isPipelineSupported());
+        assertEquals(16, bridge.getPipelineBatchSize(16));
+        assertNull(bridge.resolveRecords(Collections.singletonList(Collections.emptyList())));
+        assertNull(bridge.resolveRecords(Collections.singletonList(Collections.emptyList())));
+    }
+
     private WriteBridge createWriteBridge() {
         // resolver will be inspected for annotation, so we need to have a real object here
         when(mockPluginFactory.getPlugin(context, "org.greenplum.pxf.service.bridge.TestResolver"))
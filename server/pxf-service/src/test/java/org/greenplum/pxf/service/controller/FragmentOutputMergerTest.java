@@ -0,0 +1,335 @@
+package org.greenplum.pxf.service.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.conf.Configuration;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.ByteBufferDataOutput;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.service.FragmenterService;
+import org.greenplum.pxf.service.MetricsReporter;
+import org.greenplum.pxf.service.ReadPhaseMetrics;
+import org.greenplum.pxf.service.bridge.Bridge;
+import org.greenplum.pxf.service.bridge.BridgeFactory;
+import org.greenplum.pxf.service.security.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivilegedAction;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FragmentOutputMergerTest {
+
+    private ConfigurationFactory mockConfigurationFactory;
+    private BridgeFactory mockBridgeFactory;
+    private SecurityService mockSecurityService;
+    private FragmenterService mockFragmenterService;
+    private MetricsReporter mockMetricReporter;
+    private Configuration configuration;
+    private RequestContext context;
+    private Map<String, Bridge> bridges;
+    private Set<String> threadNames;
+    private FragmentWorkerPool fragmentWorkerPool;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        mockConfigurationFactory = mock(ConfigurationFactory.class);
+        mockBridgeFactory = mock(BridgeFactory.class);
+        mockSecurityService = mock(SecurityService.class);
+        mockFragmenterService = mock(FragmenterService.class);
+        mockMetricReporter = mock(MetricsReporter.class);
+        configuration = new Configuration(false);
+        context = new RequestContext();
+        bridges = new HashMap<>();
+        threadNames = ConcurrentHashMap.newKeySet();
+        fragmentWorkerPool = new FragmentWorkerPool(8, runnable -> runnable);
+
+        when(mockConfigurationFactory.initConfiguration(any(), any(), any(), any())).thenReturn(configuration);
+        when(mockSecurityService.doAs(any(), any())).thenAnswer(invocation -> {
+            PrivilegedAction<OperationResult> action = invocation.getArgument(1);
+            return action.run();
+        });
+        when(mockBridgeFactory.getBridge(any())).thenAnswer(invocation -> {
+            RequestContext fragmentContext = invocation.getArgument(0);
+            threadNames.add(Thread.currentThread().getName());
+            return bridges.get(fragmentContext.getDataSource());
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fragmentWorkerPool.destroy();
+    }
+
+    @Test
+    public void testWorkerChunksHoldWholeRecords() throws Exception {
+        // room for all the chunks, the worker and the merge run on the same thread
+        FragmentOutputMerger merger = new FragmentOutputMerger(2, 4);
+        FragmentOutputMerger.WorkerOutputStream workerOutputStream = merger.newWorkerOutputStream();
+        ByteBufferDataOutput output = workerOutputStream.getOutput();
+        RecordingOutputStream outputStream = new RecordingOutputStream();
+
+        output.writeBytes("abc");
+        workerOutputStream.endRecord();
+        output.writeBytes("de");
+        workerOutputStream.endRecord();
+        output.writeBytes("f");
+        workerOutputStream.endRecord();
+        workerOutputStream.finish();
+        workerOutputStream.close();
+        merger.workerFinished(new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), null, null);
+
+        merger.merge(outputStream, new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), 1);
+        assertEquals("abcdef", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("abcde", "f"), outputStream.writes);
+    }
+
+    @Test
+    public void testWorkerRecordsLargerThanChunkBuffer() throws Exception {
+        FragmentOutputMerger merger = new FragmentOutputMerger(2, 4);
+        FragmentOutputMerger.WorkerOutputStream workerOutputStream = merger.newWorkerOutputStream();
+        ByteBufferDataOutput output = workerOutputStream.getOutput();
+        RecordingOutputStream outputStream = new RecordingOutputStream();
+
+        output.writeBytes("ab");
+        workerOutputStream.endRecord();
+        // does not fit in the buffer of 8 bytes
+        output.writeBytes("0123456789");
+        workerOutputStream.endRecord();
+        output.writeBytes("cd");
+        workerOutputStream.endRecord();
+        workerOutputStream.finish();
+        workerOutputStream.close();
+        merger.workerFinished(new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), null, null);
+
+        merger.merge(outputStream, new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), 1);
+        assertEquals(Arrays.asList("ab0123456789", "cd"), outputStream.writes);
+    }
+
+    @Test
+    public void testChunkBuffersAreReused() throws Exception {
+        // room for all the chunks, the worker and the merge run on the same thread
+        FragmentOutputMerger merger = new FragmentOutputMerger(2, 4);
+        FragmentOutputMerger.WorkerOutputStream workerOutputStream = merger.newWorkerOutputStream();
+        ByteBufferDataOutput output = workerOutputStream.getOutput();
+        RecordingOutputStream outputStream = new RecordingOutputStream();
+
+        output.writeBytes("abcd");
+        workerOutputStream.endRecord();
+        output.writeBytes("efgh");
+        workerOutputStream.endRecord();
+        workerOutputStream.close();
+        merger.workerFinished(new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), null, null);
+        merger.merge(outputStream, new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), 1);
+
+        assertEquals(Arrays.asList("abcd", "efgh"), outputStream.writes);
+        // the three buffers used by the worker are back in the pool
+        Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 3; i++) {
+            arrays.add(merger.newWorkerOutputStream().getOutput().swapBuffer(ByteBuffer.allocate(8)).array());
+        }
+        assertTrue(arrays.containsAll(outputStream.arrays));
+    }
+
+    @Test
+    public void testFirstWorkerErrorCancelsWorkers() throws Exception {
+        FragmentOutputMerger merger = new FragmentOutputMerger(2, 4);
+        FragmentOutputMerger.WorkerOutputStream workerOutputStream = merger.newWorkerOutputStream();
+        merger.workerFinished(new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context),
+                new IOException("oops"), "/path/a");
+        merger.workerFinished(new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), null, null);
+
+        IOException e = assertThrows(IOException.class, () -> merger.merge(new ByteArrayOutputStream(),
+                new OperationStats(OperationStats.Operation.READ, mockMetricReporter, context), 2));
+        assertEquals("oops", e.getMessage());
+        assertEquals("/path/a", merger.getFailedSourceName());
+        assertTrue(merger.isCancelled());
+        assertThrows(CancellationException.class, workerOutputStream::endRecord);
+    }
+
+    @Test
+    public void testFragmentsAreProcessedInParallel() throws Exception {
+        context.addOption(ReadServiceImpl.FRAGMENT_THREADS_OPTION, "3");
+        List<Fragment> fragments = fragments(6, 100);
+
+        String output = read(fragments);
+
+        assertRecords(output, 6, 100);
+        assertTrue(threadNames.stream().allMatch(name -> name.startsWith("pxf-fragment-")));
+        for (Bridge bridge : bridges.values()) {
+            verify(bridge).endIteration();
+        }
+        verify(mockMetricReporter, times(6)).reportTimer(eq(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), any(), eq(true));
+    }
+
+    @Test
+    public void testFragmentThreadsFromServerConfiguration() throws Exception {
+        configuration.setInt(ReadServiceImpl.FRAGMENT_THREADS_PROPERTY, 2);
+        List<Fragment> fragments = fragments(4, 10);
+
+        String output = read(fragments);
+
+        assertRecords(output, 4, 10);
+        assertTrue(threadNames.stream().allMatch(name -> name.startsWith("pxf-fragment-")));
+    }
+
+    @Test
+    public void testFragmentsAreProcessedByRequestThreadWhenNoThreadIsAvailable() throws Exception {
+        fragmentWorkerPool.destroy();
+        fragmentWorkerPool = new FragmentWorkerPool(1, runnable -> runnable);
+        // the only thread of the pool is busy
+        CountDownLatch busy = new CountDownLatch(1);
+        assertTrue(fragmentWorkerPool.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        context.addOption(ReadServiceImpl.FRAGMENT_THREADS_OPTION, "2");
+        List<Fragment> fragments = fragments(2, 10);
+
+        String output = read(fragments);
+        busy.countDown();
+
+        assertRecords(output, 2, 10);
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threadNames);
+    }
+
+    @Test
+    public void testWorkerErrorFailsRequest() throws Exception {
+        context.addOption(ReadServiceImpl.FRAGMENT_THREADS_OPTION, "2");
+        List<Fragment> fragments = fragments(4, 10);
+        when(bridges.get("/path/2").getNext()).thenThrow(new IOException("oops"));
+
+        PxfRuntimeException e = assertThrows(PxfRuntimeException.class, () -> read(fragments));
+        assertEquals("oops", e.getCause().getMessage());
+        verify(bridges.get("/path/2")).endIteration();
+    }
+
+    @Test
+    public void testZeroFragmentThreadsFails() {
+        context.addOption(ReadServiceImpl.FRAGMENT_THREADS_OPTION, "0");
+        List<Fragment> fragments = fragments(2, 1);
+
+        PxfRuntimeException e = assertThrows(PxfRuntimeException.class, () -> read(fragments));
+        assertEquals("Property FRAGMENT_THREADS has incorrect value 0 : must be a positive integer", e.getCause().getMessage());
+    }
+
+    private String read(List<Fragment> fragments) throws Exception {
+        when(mockFragmenterService.getFragmentsForSegment(context)).thenReturn(fragments);
+        ReadServiceImpl readService = new ReadServiceImpl(mockConfigurationFactory, mockBridgeFactory,
+                mockSecurityService, mockFragmenterService, mockMetricReporter,
+                new FragmentReadAhead(0, DataSize.ofMegabytes(1), 1, runnable -> runnable), fragmentWorkerPool,
+                new ResponseBufferPool(DataSize.ofBytes(16), 8), new StreamCompressor(DataSize.ofKilobytes(64)),
+                new ReadPhaseMetrics(new SimpleMeterRegistry(), false), new InFlightOperations());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        readService.readData(context, outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Asserts that every record of every fragment is in the output once, and
+     * that the records of a fragment are in order
+     */
+    private void assertRecords(String output, int fragmentCount, int recordCount) {
+        List<String> records = Arrays.asList(output.split(";"));
+        assertEquals(fragmentCount * recordCount, records.size());
+        for (int f = 0; f < fragmentCount; f++) {
+            int previous = -1;
+            for (int r = 0; r < recordCount; r++) {
+                int position = records.indexOf(f + ":" + r);
+                assertTrue(position > previous, "record " + f + ":" + r + " is out of order");
+                previous = position;
+            }
+        }
+    }
+
+    private List<Fragment> fragments(int fragmentCount, int recordCount) {
+        List<Fragment> fragments = new ArrayList<>();
+        for (int f = 0; f < fragmentCount; f++) {
+            String sourceName = "/path/" + f;
+            fragments.add(new Fragment(sourceName));
+            bridges.put(sourceName, bridge(f, recordCount));
+        }
+        return fragments;
+    }
+
+    private Bridge bridge(int fragment, int recordCount) {
+        Bridge bridge = mock(Bridge.class);
+        try {
+            when(bridge.beginIteration()).thenReturn(true);
+            Writable[] next = new Writable[recordCount];
+            for (int r = 1; r < recordCount; r++) {
+                next[r - 1] = new TestWritable(fragment + ":" + r + ";");
+            }
+            when(bridge.getNext()).thenReturn(new TestWritable(fragment + ":0;"), next);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return bridge;
+    }
+
+    private static class TestWritable implements Writable {
+        private final byte[] data;
+
+        TestWritable(String data) {
+            this.data = data.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.write(data);
+        }
+
+        @Override
+        public void readFields(DataInput in) {
+        }
+    }
+
+    /**
+     * Records the arrays and the content of every write
+     */
+    private static class RecordingOutputStream extends ByteArrayOutputStream {
+        private final List<String> writes = new ArrayList<>();
+        private final List<byte[]> arrays = new ArrayList<>();
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes.add(new String(b, off, len, StandardCharsets.UTF_8));
+            arrays.add(b);
+            super.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.greenplum.pxf.service.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.conf.Configuration;
+import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.PluginConf;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.service.FragmenterService;
+import org.greenplum.pxf.service.MetricsReporter;
+import org.greenplum.pxf.service.ReadPhaseMetrics;
+import org.greenplum.pxf.service.bridge.Bridge;
+import org.greenplum.pxf.service.bridge.BridgeFactory;
+import org.greenplum.pxf.service.security.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivilegedAction;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FragmentReadAheadTest {
+
+    private ConfigurationFactory mockConfigurationFactory;
+    private BridgeFactory mockBridgeFactory;
+    private SecurityService mockSecurityService;
+    private FragmenterService mockFragmenterService;
+    private MetricsReporter mockMetricReporter;
+    private RequestContext context;
+    private Map<String, Bridge> bridges;
+    private List<RequestContext> fragmentContexts;
+    private FragmentReadAhead fragmentReadAhead;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        mockConfigurationFactory = mock(ConfigurationFactory.class);
+        mockBridgeFactory = mock(BridgeFactory.class);
+        mockSecurityService = mock(SecurityService.class);
+        mockFragmenterService = mock(FragmenterService.class);
+        mockMetricReporter = mock(MetricsReporter.class);
+        context = new RequestContext();
+        context.setProfile("profile");
+        bridges = new HashMap<>();
+        fragmentContexts = new ArrayList<>();
+
+        when(mockConfigurationFactory.initConfiguration(any(), any(), any(), any())).thenReturn(new Configuration(false));
+        when(mockSecurityService.doAs(any(), any())).thenAnswer(invocation -> {
+            PrivilegedAction<OperationResult> action = invocation.getArgument(1);
+            return action.run();
+        });
+        when(mockBridgeFactory.getBridge(any())).thenAnswer(invocation -> {
+            RequestContext fragmentContext = invocation.getArgument(0);
+            synchronized (fragmentContexts) {
+                fragmentContexts.add(fragmentContext);
+            }
+            return bridges.get(fragmentContext.getDataSource());
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (fragmentReadAhead != null) {
+            fragmentReadAhead.destroy();
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(new FragmentReadAhead(0, DataSize.ofMegabytes(64), 4, runnable -> runnable).isEnabled());
+        assertTrue(new FragmentReadAhead(1, DataSize.ofMegabytes(64), 4, runnable -> runnable).isEnabled());
+    }
+
+    @Test
+    public void testFragmentsAreStreamedInOrder() throws Exception {
+        Bridge bridge1 = bridge("hello", "world!");
+        Bridge bridge2 = bridge();
+        Bridge bridge3 = bridge("Boo!");
+        ByteArrayOutputStream outputStream = read(2, DataSize.ofMegabytes(1),
+                fragments("a", "b", "c"), bridge1, bridge2, bridge3);
+
+        assertEquals("helloworld!Boo!", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        verify(bridge1).endIteration();
+        verify(bridge2).endIteration();
+        verify(bridge3).endIteration();
+        verify(mockMetricReporter, times(3)).reportTimer(eq(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), any(), eq(true));
+
+        // every fragment is read with its own context and configuration
+        assertEquals(3, fragmentContexts.size());
+        for (RequestContext fragmentContext : fragmentContexts) {
+            assertNotSame(context, fragmentContext);
+            assertNotSame(context.getConfiguration(), fragmentContext.getConfiguration());
+        }
+    }
+
+    @Test
+    public void testFragmentProfileIsUsedForFragmentOnly() throws Exception {
+        context.setPluginConf(mock(PluginConf.class));
+        List<Fragment> fragments = new ArrayList<>(Arrays.asList(new Fragment("a"), new Fragment("b", null, "other")));
+        read(1, DataSize.ofMegabytes(1), fragments, bridge("hello"), bridge("world!"));
+
+        assertEquals("profile", context.getProfile());
+        for (RequestContext fragmentContext : fragmentContexts) {
+            assertEquals("a".equals(fragmentContext.getDataSource()) ? "profile" : "other", fragmentContext.getProfile());
+        }
+    }
+
+    @Test
+    public void testReadAheadIsBoundedByBufferSize() throws Exception {
+        Bridge bridge1 = bridge("hello");
+        Bridge bridge2 = bridge("world!", "Boo!", "Foo");
+        // the fragment read ahead stops buffering after its first record
+        ByteArrayOutputStream outputStream = read(1, DataSize.ofBytes(1), fragments("a", "b"), bridge1, bridge2);
+
+        assertEquals("helloworld!Boo!Foo", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        // the remaining records are read once the fragment is current, the bridge is not read after its last record
+        verify(bridge2, times(4)).getNext();
+        verify(bridge2).endIteration();
+    }
+
+    @Test
+    public void testReadAheadErrorIsReportedWhenFragmentIsCurrent() throws Exception {
+        Bridge bridge1 = bridge("hello");
+        Bridge bridge2 = bridge("world!");
+        when(bridge2.beginIteration()).thenThrow(new RuntimeException("oops"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertThrows(PxfRuntimeException.class,
+                () -> readInto(outputStream, 1, DataSize.ofMegabytes(1), fragments("a", "b"), bridge1, bridge2));
+
+        // the records still buffered when the request fails are not sent
+        assertEquals("", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+        verify(bridge1).endIteration();
+        verify(bridge2).endIteration();
+        verify(mockMetricReporter).reportTimer(eq(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), any(), eq(true));
+        verify(mockMetricReporter).reportTimer(eq(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), any(), eq(false));
+    }
+
+    private ByteArrayOutputStream read(int depth, DataSize bufferSize, List<Fragment> fragments, Bridge... fragmentBridges) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        readInto(outputStream, depth, bufferSize, fragments, fragmentBridges);
+        return outputStream;
+    }
+
+    private void readInto(ByteArrayOutputStream outputStream, int depth, DataSize bufferSize,
+                          List<Fragment> fragments, Bridge... fragmentBridges) throws Exception {
+        for (int i = 0; i < fragments.size(); i++) {
+            bridges.put(fragments.get(i).getSourceName(), fragmentBridges[i]);
+        }
+        when(mockFragmenterService.getFragmentsForSegment(context)).thenReturn(fragments);
+        fragmentReadAhead = new FragmentReadAhead(depth, bufferSize, 4, runnable -> runnable);
+        ReadServiceImpl readService = new ReadServiceImpl(mockConfigurationFactory, mockBridgeFactory,
+                mockSecurityService, mockFragmenterService, mockMetricReporter, fragmentReadAhead,
+                new FragmentWorkerPool(1, runnable -> runnable), new ResponseBufferPool(DataSize.ofBytes(8), 1),
+                new StreamCompressor(DataSize.ofKilobytes(64)), new ReadPhaseMetrics(new SimpleMeterRegistry(), false),
+                new InFlightOperations());
+        readService.readData(context, outputStream);
+    }
+
+    private List<Fragment> fragments(String... sourceNames) {
+        List<Fragment> fragments = new ArrayList<>();
+        for (String sourceName : sourceNames) {
+            fragments.add(new Fragment(sourceName));
+        }
+        return fragments;
+    }
+
+    private Bridge bridge(String... records) throws Exception {
+        Bridge bridge = mock(Bridge.class);
+        when(bridge.beginIteration()).thenReturn(records.length > 0);
+        Writable[] writables = new Writable[records.length];
+        for (int i = 0; i < records.length; i++) {
+            writables[i] = new TestWritable(records[i]);
+        }
+        if (records.length > 0) {
+            // the last record is followed by null
+            Writable[] next = Arrays.copyOfRange(writables, 1, writables.length + 1);
+            when(bridge.getNext()).thenReturn(writables[0], next);
+        }
+        return bridge;
+    }
+
+    private static class TestWritable implements Writable {
+        private final byte[] data;
+
+        TestWritable(String data) {
+            this.data = data.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            out.write(data);
+        }
+
+        @Override
+        public void readFields(DataInput in) {
+        }
+    }
+}
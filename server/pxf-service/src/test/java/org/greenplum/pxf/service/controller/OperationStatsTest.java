@@ -17,6 +17,8 @@ public class OperationStatsTest {
     @Mock
     private MetricsReporter mockMetricReporter;
     @Mock
+    private MetricsReporter.CounterHandle mockRecordCounter, mockByteCounter;
+    @Mock
     private RequestContext mockContext;
 
     @Test
@@ -54,28 +56,32 @@ public class OperationStatsTest {
     @Test
     public void testReportCurrentStatsReport() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(1L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.reportCompletedRecord(15L);
 
         assertEquals(1L, stats.getRecordCount());
         assertEquals(15L, stats.getByteCount());
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 15, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockRecordCounter).increment(1);
+        verify(mockByteCounter).increment(15);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
     }
 
     @Test
     public void testReportCurrentStatsMultiRecordReport() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.reportCompletedRecord(15L);
         stats.reportCompletedRecord(25L);
 
         assertEquals(2L, stats.getRecordCount());
         assertEquals(25L, stats.getByteCount());
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 25, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockRecordCounter).increment(2);
+        verify(mockByteCounter).increment(25);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
     }
 
     @Test
@@ -90,22 +96,45 @@ public class OperationStatsTest {
         verifyNoMoreInteractions(mockMetricReporter);
     }
 
+    @Test
+    public void testReportCurrentStatsBatchOfRecordsReport() {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(1000L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
+        OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
+        stats.reportCompletedRecords(600, 15L);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
+
+        // the report is sent once the frequency is reached, even when it is not a multiple of the frequency
+        stats.reportCompletedRecords(600, 25L);
+        assertEquals(1200L, stats.getRecordCount());
+        assertEquals(25L, stats.getByteCount());
+        verify(mockRecordCounter).increment(1200);
+        verify(mockByteCounter).increment(25);
+
+        stats.reportCompletedRecords(600, 35L);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
+    }
+
     @Test
     public void testFlushStatsReport() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(1L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.setByteCount(15l);
         stats.flushStats();
 
         assertEquals(0L, stats.getRecordCount());
         assertEquals(15L, stats.getByteCount());
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 15, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockByteCounter).increment(15);
+        verifyNoMoreInteractions(mockMetricReporter, mockByteCounter);
     }
 
     @Test
     public void testFlushStatsReportAfterBatch() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.reportCompletedRecord(5L);
         stats.reportCompletedRecord(15L);
@@ -115,16 +144,18 @@ public class OperationStatsTest {
         assertEquals(2L, stats.getRecordCount());
         assertEquals(35L, stats.getByteCount());
         // report from reportCompletedRecord
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 15, mockContext);
+        verify(mockRecordCounter).increment(2);
+        verify(mockByteCounter).increment(15);
         // report from flushStats
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 20, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockByteCounter).increment(20);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
     }
 
     @Test
     public void testFlushStatsReportAfterBatchWithRecord() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.reportCompletedRecord(5L);
         stats.reportCompletedRecord(15L);
@@ -134,17 +165,19 @@ public class OperationStatsTest {
         assertEquals(3L, stats.getRecordCount());
         assertEquals(35L, stats.getByteCount());
         // report from reportCompletedRecord
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 15, mockContext);
+        verify(mockRecordCounter).increment(2);
+        verify(mockByteCounter).increment(15);
         // report from flushStats
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 20, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockRecordCounter).increment(1);
+        verify(mockByteCounter).increment(20);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
     }
 
     @Test
     public void testFlushStatsReportAfterBatchWithRecordNoBytes() {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         OperationStats stats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
         stats.reportCompletedRecord(5L);
         stats.reportCompletedRecord(15L);
@@ -154,11 +187,11 @@ public class OperationStatsTest {
         assertEquals(3L, stats.getRecordCount());
         assertEquals(15L, stats.getByteCount());
         // report from reportCompletedRecord
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 15, mockContext);
+        verify(mockRecordCounter).increment(2);
+        verify(mockByteCounter).increment(15);
         // report from flushStats
-        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        verifyNoMoreInteractions(mockMetricReporter);
+        verify(mockRecordCounter).increment(1);
+        verifyNoMoreInteractions(mockMetricReporter, mockRecordCounter, mockByteCounter);
     }
 
     @Test
@@ -185,4 +218,28 @@ public class OperationStatsTest {
 
         verifyNoMoreInteractions(mockMetricReporter);
     }
+
+    @Test
+    public void testConcurrentUpdate() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(0L);
+        OperationStats startingStats = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
+        OperationStats addMe = new OperationStats(OperationStats.Operation.READ, mockMetricReporter, mockContext);
+        addMe.reportCompletedRecord(15L);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    startingStats.update(addMe);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000L, startingStats.getRecordCount());
+        assertEquals(600000L, startingStats.getByteCount());
+    }
 }
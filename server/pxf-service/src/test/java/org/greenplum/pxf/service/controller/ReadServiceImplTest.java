@@ -1,13 +1,21 @@
 package org.greenplum.pxf.service.controller;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.greenplum.pxf.api.error.PxfRuntimeException;
+import org.greenplum.pxf.api.io.BinaryCopySerializer;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.service.FragmenterService;
 import org.greenplum.pxf.service.MetricsReporter;
+import org.greenplum.pxf.service.PhaseTimer;
+import org.greenplum.pxf.service.ReadPhaseMetrics;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
 import org.greenplum.pxf.service.security.SecurityService;
@@ -18,20 +26,33 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedAction;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -49,6 +70,8 @@ public class ReadServiceImplTest {
     @Mock
     private MetricsReporter mockMetricReporter;
     @Mock
+    private MetricsReporter.CounterHandle mockRecordCounter, mockByteCounter;
+    @Mock
     private OutputStream mockOutputStream;
     @Mock
     private Configuration mockConfiguration;
@@ -64,125 +87,133 @@ public class ReadServiceImplTest {
     private RequestContext mockContext;
 
     private ReadServiceImpl readService;
+    private final InFlightOperations inFlightOperations = new InFlightOperations();
 
     @BeforeEach
     public void setup() throws Exception {
         when(mockConfigurationFactory.initConfiguration(any(), any(), any(), any())).thenReturn(mockConfiguration);
         when(mockFragmenterService.getFragmentsForSegment(mockContext)).thenReturn(mockFragmentList);
+        when(mockContext.getStreamCompression()).thenReturn(StreamCompression.NONE);
         when(mockSecurityService.doAs(same(mockContext), any())).thenAnswer(invocation -> {
             PrivilegedAction<OperationResult> action = invocation.getArgument(1);
             OperationResult result = action.run();
             return result;
         });
 
-        readService = new ReadServiceImpl(mockConfigurationFactory, mockBridgeFactory, mockSecurityService, mockFragmenterService, mockMetricReporter);
+        readService = newReadService(new ReadPhaseMetrics(new SimpleMeterRegistry(), false));
     }
 
     @Test
     public void testReadDataOneFragOneRecord() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(1L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(1);
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 5, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(5);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "hello");
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testReadDataOneFragMultiRecordsReportBatch() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(1);
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1, mockRecord2, null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
-        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockOutputStream).write("world!".getBytes(StandardCharsets.UTF_8), 0, 6);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 11, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(11);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "helloworld!");
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testReadDataOneFragMultiRecordsRemainder() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(5L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(1);
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1, mockRecord2, null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
-        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockOutputStream).write("world!".getBytes(StandardCharsets.UTF_8), 0, 6);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 11, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(11);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "helloworld!");
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testReadDataOneFragMultiRecordsRemainderAfterBatch() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(1);
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1, mockRecord2, mockRecord3, null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
-        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutputStream.class));
-        doAnswer(writeTestData("Boo!")).when(mockRecord3).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutput.class));
+        doAnswer(writeTestData("Boo!")).when(mockRecord3).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockOutputStream).write("world!".getBytes(StandardCharsets.UTF_8), 0, 6);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 11, mockContext);
-        inOrder.verify(mockOutputStream).write("Boo!".getBytes(StandardCharsets.UTF_8), 0, 4);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 4, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(11);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(4);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "helloworld!Boo!");
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testReadDataOneFragRecordsException() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(5L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(1);
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1).thenThrow(new Exception());
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
 
         assertThrows(PxfRuntimeException.class, () -> readService.readData(mockContext, mockOutputStream));
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 5, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        // the records buffered when the request fails are not sent
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(5);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(false));
         inOrder.verifyNoMoreInteractions();
     }
@@ -190,34 +221,36 @@ public class ReadServiceImplTest {
     @Test
     public void testReadDataMultiFragmentMultiRecord() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
         when(mockFragmentList.size()).thenReturn(2);
+        when(mockContext.getConfiguration()).thenReturn(mockConfiguration);
+        when(mockContext.getOption(ReadServiceImpl.FRAGMENT_THREADS_OPTION, 0, true)).thenReturn(1);
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1, mockBridge2);
 
         // 1st frag
         when(mockFragmentList.get(0)).thenReturn(mockFragment1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
 
         // 2nd frag
         when(mockFragmentList.get(1)).thenReturn(mockFragment2);
         when(mockBridge2.beginIteration()).thenReturn(true);
         when(mockBridge2.getNext()).thenReturn(mockRecord2, mockRecord3, null);
-        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutputStream.class));
-        doAnswer(writeTestData("Boo!")).when(mockRecord3).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("world!")).when(mockRecord2).write(any(DataOutput.class));
+        doAnswer(writeTestData("Boo!")).when(mockRecord3).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
-        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 5, mockContext);
+        InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(5);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
-        inOrder.verify(mockOutputStream).write("world!".getBytes(StandardCharsets.UTF_8), 0, 6);
-        inOrder.verify(mockOutputStream).write("Boo!".getBytes(StandardCharsets.UTF_8), 0, 4);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_SENT, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_SENT, 10, mockContext);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(10);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "helloworld!Boo!");
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -229,13 +262,13 @@ public class ReadServiceImplTest {
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
         when(mockBridge1.beginIteration()).thenReturn(true);
         when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(null);
-        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutputStream.class));
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
 
         readService.readData(mockContext, mockOutputStream);
 
         InOrder inOrder = inOrder(mockOutputStream, mockMetricReporter);
-        inOrder.verify(mockOutputStream).write("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
         inOrder.verify(mockMetricReporter).reportTimer(same(MetricsReporter.PxfMetric.FRAGMENTS_SENT), any(Duration.class), same(mockContext), eq(true));
+        verifyWritten(inOrder, "hello");
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -255,15 +288,148 @@ public class ReadServiceImplTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testReadDataBinaryFormatWritesHeaderAndTrailer() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(0L);
+        when(mockContext.getOutputFormat()).thenReturn(OutputFormat.BINARY);
+        when(mockFragmentList.size()).thenReturn(1);
+        when(mockFragmentList.get(0)).thenReturn(mockFragment1);
+        when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
+        when(mockBridge1.beginIteration()).thenReturn(true);
+        when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(null);
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+
+        readService.readData(mockContext, mockOutputStream);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream expectedOut = new DataOutputStream(expected);
+        BinaryCopySerializer.writeHeader(expectedOut);
+        expectedOut.write("hello".getBytes(StandardCharsets.UTF_8));
+        BinaryCopySerializer.writeTrailer(expectedOut);
+        byte[] expectedBytes = expected.toByteArray();
+        verify(mockOutputStream).write(
+                argThat(bytes -> Arrays.equals(Arrays.copyOf(bytes, expectedBytes.length), expectedBytes)),
+                eq(0), eq(expectedBytes.length));
+    }
+
+    @Test
+    public void testReadDataLz4Compressed() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(1L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_SENT, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_SENT, mockContext)).thenReturn(mockByteCounter);
+        when(mockContext.getStreamCompression()).thenReturn(StreamCompression.LZ4);
+        when(mockFragmentList.size()).thenReturn(1);
+        when(mockFragmentList.get(0)).thenReturn(mockFragment1);
+        when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
+        when(mockBridge1.beginIteration()).thenReturn(true);
+        when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(mockRecord2).thenReturn(null);
+        doAnswer(writeTestData("hello hello hello ")).when(mockRecord1).write(any(DataOutput.class));
+        doAnswer(writeTestData("world world world")).when(mockRecord2).write(any(DataOutput.class));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        readService.readData(mockContext, outputStream);
+
+        byte[] compressed = outputStream.toByteArray();
+        InputStream in = new StreamCompressor(DataSize.ofKilobytes(64))
+                .decompress(new ByteArrayInputStream(compressed), StreamCompression.LZ4);
+        assertEquals("hello hello hello world world world", new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+        verify(mockByteCounter).increment(17);
+        verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.COMPRESSED_BYTES_SENT,
+                compressed.length, mockContext);
+    }
+
+    @Test
+    public void testReadDataPhasesTimed() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        readService = newReadService(new ReadPhaseMetrics(registry, true));
+        when(mockMetricReporter.getReportFrequency()).thenReturn(0L);
+        when(mockFragmentList.size()).thenReturn(1);
+        when(mockFragmentList.get(0)).thenReturn(mockFragment1);
+        when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
+        when(mockBridge1.beginIteration()).thenReturn(true);
+        when(mockBridge1.getNext()).thenReturn(mockRecord1).thenReturn(null);
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+
+        readService.readData(mockContext, mockOutputStream);
+
+        verifyWritten(inOrder(mockOutputStream), "hello");
+        verify(mockBridge1).setPhaseTimer(any(PhaseTimer.class));
+        for (PhaseTimer.Phase phase : PhaseTimer.Phase.values()) {
+            Timer timer = registry.get("pxf.fragment.phase.duration").tag("phase", phase.getTagValue()).timer();
+            assertEquals(1, timer.count());
+            assertNotNull(registry.get("pxf.read.phase.time").tag("phase", phase.getTagValue()).functionCounter());
+        }
+    }
+
+    @Test
+    public void testReadDataReportsInFlightOperation() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(0L);
+        when(mockContext.getTransactionId()).thenReturn("XID-1");
+        when(mockContext.getSegmentId()).thenReturn(3);
+        when(mockContext.getProfile()).thenReturn("test:text");
+        when(mockContext.getDataSource()).thenReturn("/tmp/file");
+        when(mockFragmentList.size()).thenReturn(1);
+        when(mockFragmentList.get(0)).thenReturn(mockFragment1);
+        when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge1);
+        when(mockBridge1.beginIteration()).thenReturn(true);
+        List<InFlightOperation> operations = new ArrayList<>();
+        List<InFlightOperation.ActiveFragment> fragments = new ArrayList<>();
+        List<String> phases = new ArrayList<>();
+        when(mockBridge1.getNext()).thenReturn(mockRecord1).thenAnswer(invocation -> {
+            operations.addAll(inFlightOperations.getOperations());
+            fragments.addAll(operations.get(0).getFragments());
+            phases.add(fragments.get(0).getPhase());
+            return null;
+        });
+        doAnswer(writeTestData("hello")).when(mockRecord1).write(any(DataOutput.class));
+
+        readService.readData(mockContext, mockOutputStream);
+
+        assertEquals(1, operations.size());
+        InFlightOperation operation = operations.get(0);
+        assertEquals("read", operation.getOperation());
+        assertEquals("XID-1", operation.getTransactionId());
+        assertEquals(3, operation.getSegmentId());
+        assertEquals("test:text", operation.getProfile());
+        assertEquals(1, fragments.size());
+        assertEquals("/tmp/file", fragments.get(0).getSource());
+        assertEquals(Thread.currentThread().getName(), fragments.get(0).getThread());
+        assertEquals(1, fragments.get(0).getRecords());
+        assertEquals(5, fragments.get(0).getBytes());
+        assertEquals(Collections.singletonList("stream"), phases);
+        // once the operation is done, its fragments are accounted as completed
+        assertEquals(1, operation.getCompletedFragments());
+        assertEquals(1, operation.getRecords());
+        assertEquals(5, operation.getBytes());
+        assertTrue(operation.getFragments().isEmpty());
+        assertTrue(inFlightOperations.getOperations().isEmpty());
+    }
+
+    private ReadServiceImpl newReadService(ReadPhaseMetrics readPhaseMetrics) {
+        return new ReadServiceImpl(mockConfigurationFactory, mockBridgeFactory, mockSecurityService, mockFragmenterService, mockMetricReporter,
+                new FragmentReadAhead(0, DataSize.ofMegabytes(64), 1, runnable -> runnable),
+                new FragmentWorkerPool(1, runnable -> runnable),
+                new ResponseBufferPool(DataSize.ofKilobytes(64), 1), new StreamCompressor(DataSize.ofKilobytes(64)),
+                readPhaseMetrics, inFlightOperations);
+    }
+
     // helper for writing mock record to a mock output stream
-    // mockOutputStream -> CountingOutputStream -> DataOutputStream
-    // in order for the us to see the side-effect of CountingOutputStream,
-    // we need to actually call the `write` method of DataOutputStream.
+    // mockOutputStream -> ByteBufferDataOutput
+    // in order for the us to see the side-effect of ByteBufferDataOutput,
+    // we need to actually call the `write` method of the DataOutput.
     private Answer writeTestData(String testData) {
         return invocation -> {
-            DataOutputStream dos = invocation.getArgument(0);
-            dos.write(testData.getBytes(StandardCharsets.UTF_8));
+            DataOutput out = invocation.getArgument(0);
+            out.write(testData.getBytes(StandardCharsets.UTF_8));
             return null;
         };
     }
+
+    // the records are buffered and written to the output stream at once
+    private void verifyWritten(InOrder inOrder, String testData) throws Exception {
+        byte[] expected = testData.getBytes(StandardCharsets.UTF_8);
+        inOrder.verify(mockOutputStream).write(
+                argThat(bytes -> new String(bytes, 0, expected.length, StandardCharsets.UTF_8).equals(testData)),
+                eq(0), eq(expected.length));
+    }
 }
@@ -0,0 +1,71 @@
+package org.greenplum.pxf.service.controller;
+
+import org.apache.commons.io.IOUtils;
+import org.greenplum.pxf.api.model.StreamCompression;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamCompressorTest {
+
+    private final StreamCompressor streamCompressor = new StreamCompressor(DataSize.ofKilobytes(4));
+
+    @Test
+    public void testNoCompression() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+
+        assertSame(out, streamCompressor.compress(out, StreamCompression.NONE));
+        assertSame(in, streamCompressor.decompress(in, StreamCompression.NONE));
+    }
+
+    @Test
+    public void testLz4RoundTripAcrossBlocks() throws Exception {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 100 * 1024; i++) {
+            data.append("record ").append(i).append(",some repeated text\n");
+        }
+        byte[] expected = data.toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = streamCompressor.compress(compressed, StreamCompression.LZ4);
+        // written in chunks that don't match the block size
+        for (int offset = 0; offset < expected.length; offset += 1000) {
+            out.write(expected, offset, Math.min(1000, expected.length - offset));
+        }
+        streamCompressor.finish(out);
+
+        assertTrue(compressed.size() < expected.length / 2);
+        InputStream in = streamCompressor.decompress(
+                new ByteArrayInputStream(compressed.toByteArray()), StreamCompression.LZ4);
+        assertArrayEquals(expected, IOUtils.toByteArray(in));
+    }
+
+    @Test
+    public void testLz4EmptyStream() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        streamCompressor.finish(streamCompressor.compress(compressed, StreamCompression.LZ4));
+
+        InputStream in = streamCompressor.decompress(
+                new ByteArrayInputStream(compressed.toByteArray()), StreamCompression.LZ4);
+        assertEquals(0, IOUtils.toByteArray(in).length);
+    }
+
+    @Test
+    public void testInvalidBlockSize() {
+        Exception e = assertThrows(IllegalArgumentException.class, () -> new StreamCompressor(DataSize.ofBytes(10)));
+        assertEquals("Property pxf.stream-compression.lz4.block-size has incorrect value 10B : must be between 1KB and 32MB",
+                e.getMessage());
+    }
+}
@@ -0,0 +1,290 @@
+package org.greenplum.pxf.service.controller;
+
+import com.google.common.io.CountingInputStream;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.service.MetricsReporter;
+import org.greenplum.pxf.service.bridge.WriteBridge;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WritePipelineTest {
+
+    @Mock
+    private WriteBridge mockBridge;
+    @Mock
+    private MetricsReporter mockMetricsReporter;
+
+    private WritePipeline writePipeline;
+    private DataInputStream inputStream;
+    private CountingInputStream byteCounter;
+    private OperationStats stats;
+    private List<String> threads;
+
+    @BeforeEach
+    public void setup() {
+        writePipeline = new WritePipeline(true, 2, 1, 2, runnable -> runnable);
+        byteCounter = new CountingInputStream(new ByteArrayInputStream(new byte[0]));
+        inputStream = new DataInputStream(byteCounter);
+        stats = new OperationStats(OperationStats.Operation.WRITE, mockMetricsReporter, new RequestContext());
+        threads = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writePipeline.destroy();
+    }
+
+    @Test
+    public void testDisabled() {
+        WritePipeline disabled = new WritePipeline(false, 2, 1, 2, runnable -> runnable);
+        assertFalse(disabled.isEnabled());
+        assertTrue(writePipeline.isEnabled());
+    }
+
+    @Test
+    public void testWriteInStages() throws Exception {
+        readRecords(5);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        List<String> written = new ArrayList<>();
+        when(mockBridge.writeRow(any())).thenAnswer(invocation -> {
+            written.add((String) ((OneRow) invocation.getArgument(0)).getData());
+            threads.add("write:" + Thread.currentThread().getName());
+            return true;
+        });
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+
+        assertEquals(5, stats.getRecordCount());
+        assertEquals(5, written.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("row" + i, written.get(i));
+        }
+        // the records are read and resolved by the threads of the pool, the rows written by the request thread
+        assertTrue(threads.stream().filter(t -> t.startsWith("read:")).allMatch(t -> t.startsWith("read:pxf-write-")));
+        assertTrue(threads.stream().filter(t -> t.startsWith("resolve:")).allMatch(t -> t.startsWith("resolve:pxf-write-")));
+        assertTrue(threads.stream().filter(t -> t.startsWith("write:"))
+                .allMatch(t -> t.equals("write:" + Thread.currentThread().getName())));
+    }
+
+    @Test
+    public void testWriteBatchResolvedIntoOneRow() throws Exception {
+        readRecords(4, 3);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation ->
+                Collections.singletonList(new OneRow(((List<?>) invocation.getArgument(0)).size())));
+        List<Integer> batches = new ArrayList<>();
+        when(mockBridge.writeRow(any())).thenAnswer(invocation -> {
+            batches.add((Integer) ((OneRow) invocation.getArgument(0)).getData());
+            return true;
+        });
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+
+        assertEquals(4, stats.getRecordCount());
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0));
+        assertEquals(1, batches.get(1));
+    }
+
+    @Test
+    public void testResolverEndsIteration() throws Exception {
+        readRecords(100);
+        when(mockBridge.resolveRecords(any()))
+                .thenAnswer(invocation -> resolve(invocation.getArgument(0)))
+                .thenReturn(null);
+        when(mockBridge.writeRow(any())).thenReturn(true);
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+
+        assertEquals(2, stats.getRecordCount());
+    }
+
+    @Test
+    public void testAccessorEndsIteration() throws Exception {
+        readRecords(100);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        when(mockBridge.writeRow(any())).thenReturn(true, true, true, false);
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+
+        assertEquals(3, stats.getRecordCount());
+    }
+
+    @Test
+    public void testReadFailure() throws Exception {
+        IOException failure = new IOException("read failed");
+        when(mockBridge.getPipelineBatchSize(2)).thenReturn(2);
+        when(mockBridge.readRecord(inputStream))
+                .thenReturn(record(0))
+                .thenReturn(record(1))
+                .thenReturn(record(2))
+                .thenThrow(failure);
+        lenient().when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        lenient().when(mockBridge.writeRow(any())).thenReturn(true);
+
+        // the records read before the failure may or may not have been written
+        Exception e = assertThrows(IOException.class,
+                () -> writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertSame(failure, e);
+    }
+
+    @Test
+    public void testResolveFailure() throws Exception {
+        readRecords(100);
+        when(mockBridge.resolveRecords(any())).thenThrow(new IllegalArgumentException("bad record"));
+
+        Exception e = assertThrows(IllegalArgumentException.class,
+                () -> writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertEquals("bad record", e.getMessage());
+        verify(mockBridge, never()).writeRow(any());
+    }
+
+    @Test
+    public void testWriteFailureStopsStages() throws Exception {
+        readRecords(10_000);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        when(mockBridge.writeRow(any())).thenReturn(true).thenThrow(new IOException("write failed"));
+
+        Exception e = assertThrows(IOException.class,
+                () -> writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertEquals("write failed", e.getMessage());
+        // the stages stopped instead of reading all the records
+        assertTrue(threads.size() < 10_000);
+    }
+
+    @Test
+    public void testWriteFailureClosesInputOfBlockedDecodeStage() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        readRecordsUntilClosed(closed);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        when(mockBridge.writeRow(any())).thenThrow(new IOException("write failed"));
+
+        Exception e = assertThrows(IOException.class,
+                () -> writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertEquals("write failed", e.getMessage());
+        assertEquals(0, closed.getCount());
+    }
+
+    @Test
+    public void testAccessorEndsIterationClosesInputOfBlockedDecodeStage() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        readRecordsUntilClosed(closed);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        when(mockBridge.writeRow(any())).thenReturn(false);
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertEquals(0, closed.getCount());
+    }
+
+    @Test
+    public void testWriteDoesNotCloseReadInput() throws Exception {
+        boolean[] closed = {false};
+        inputStream = new DataInputStream(new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        });
+        readRecords(3);
+        when(mockBridge.resolveRecords(any())).thenAnswer(invocation -> resolve(invocation.getArgument(0)));
+        when(mockBridge.writeRow(any())).thenReturn(true);
+
+        assertTrue(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        assertEquals(3, stats.getRecordCount());
+        assertFalse(closed[0]);
+    }
+
+    @Test
+    public void testNoThreadsLeft() throws Exception {
+        writePipeline.destroy();
+        writePipeline = new WritePipeline(true, 2, 1, 1, runnable -> runnable);
+
+        assertFalse(writePipeline.write(mockBridge, inputStream, byteCounter, stats));
+        verify(mockBridge, never()).readRecord(any());
+        verify(mockBridge, never()).writeRow(any());
+    }
+
+    /**
+     * Reads two records, then blocks reading a request whose next records
+     * never arrive, until the input stream is closed.
+     */
+    private void readRecordsUntilClosed(CountDownLatch closed) throws Exception {
+        inputStream = new DataInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                throw new IOException("stream closed");
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+        when(mockBridge.getPipelineBatchSize(2)).thenReturn(2);
+        when(mockBridge.readRecord(inputStream))
+                .thenReturn(record(0))
+                .thenReturn(record(1))
+                .thenAnswer(invocation -> {
+                    ((DataInputStream) invocation.getArgument(0)).readInt();
+                    return null;
+                });
+    }
+
+    private void readRecords(int count) throws Exception {
+        readRecords(count, 2);
+    }
+
+    private void readRecords(int count, int batchSize) throws Exception {
+        when(mockBridge.getPipelineBatchSize(2)).thenReturn(batchSize);
+        int[] next = {0};
+        when(mockBridge.readRecord(inputStream)).thenAnswer(invocation -> {
+            threads.add("read:" + Thread.currentThread().getName());
+            return next[0] < count ? record(next[0]++) : null;
+        });
+    }
+
+    private List<OneField> record(int index) {
+        return Collections.singletonList(new OneField(DataType.INTEGER.getOID(), index));
+    }
+
+    private List<OneRow> resolve(List<List<OneField>> records) {
+        threads.add("resolve:" + Thread.currentThread().getName());
+        return records.stream()
+                .map(record -> new OneRow("row" + record.get(0).val))
+                .collect(Collectors.toList());
+    }
+}
@@ -3,6 +3,7 @@ package org.greenplum.pxf.service.controller;
 import org.apache.hadoop.conf.Configuration;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.StreamCompression;
 import org.greenplum.pxf.service.MetricsReporter;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
@@ -14,12 +15,23 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
@@ -41,6 +53,8 @@ public class WriteServiceImplTest {
     @Mock
     private MetricsReporter mockMetricReporter;
     @Mock
+    private MetricsReporter.CounterHandle mockRecordCounter, mockByteCounter;
+    @Mock
     private InputStream mockInputStream;
     @Mock
     private Configuration mockConfiguration;
@@ -50,6 +64,7 @@ public class WriteServiceImplTest {
     private RequestContext mockContext;
 
     private WriteServiceImpl writeService;
+    private final InFlightOperations inFlightOperations = new InFlightOperations();
 
     @BeforeEach
     public void setup() throws Exception {
@@ -61,12 +76,18 @@ public class WriteServiceImplTest {
         });
         when(mockBridgeFactory.getBridge(mockContext)).thenReturn(mockBridge);
 
-        writeService = new WriteServiceImpl(mockConfigurationFactory, mockBridgeFactory, mockSecurityService, mockMetricReporter);
+        when(mockContext.getStreamCompression()).thenReturn(StreamCompression.NONE);
+
+        writeService = new WriteServiceImpl(mockConfigurationFactory, mockBridgeFactory, mockSecurityService,
+                mockMetricReporter, new StreamCompressor(DataSize.ofKilobytes(64)), inFlightOperations,
+                new WritePipeline(false, 1024, 4, 2, runnable -> runnable));
     }
 
     @Test
     public void testWriteDataOneRecord() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(1L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
         when(mockBridge.beginIteration()).thenReturn(true);
         when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4);
         doAnswer(readTestData(10))
@@ -75,15 +96,17 @@ public class WriteServiceImplTest {
 
         writeService.writeData(mockContext, mockInputStream);
 
-        InOrder inOrder = inOrder(mockMetricReporter);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 4, mockContext);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(4);
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testWriteDataMultiRecordsReportBatch() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
         when(mockBridge.beginIteration()).thenReturn(true);
         when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4, 6);
         doAnswer(readTestData(10))
@@ -93,15 +116,17 @@ public class WriteServiceImplTest {
 
         writeService.writeData(mockContext, mockInputStream);
 
-        InOrder inOrder = inOrder(mockMetricReporter);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 10, mockContext);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(10);
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testWriteDataMultiRecordsRemainder() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(5L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
         when(mockBridge.beginIteration()).thenReturn(true);
         when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4, 6);
         doAnswer(readTestData(10))
@@ -111,15 +136,17 @@ public class WriteServiceImplTest {
 
         writeService.writeData(mockContext, mockInputStream);
 
-        InOrder inOrder = inOrder(mockMetricReporter);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 10, mockContext);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(10);
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testWriteDataMultiRecordsRemainderAfterBatch() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(2L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
         when(mockBridge.beginIteration()).thenReturn(true);
         when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4, 6, 5);
         doAnswer(readTestData(10))
@@ -130,17 +157,19 @@ public class WriteServiceImplTest {
 
         writeService.writeData(mockContext, mockInputStream);
 
-        InOrder inOrder = inOrder(mockMetricReporter);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 2, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 10, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 5, mockContext);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(10);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(5);
         inOrder.verifyNoMoreInteractions();
     }
 
     @Test
     public void testWriteDataRecordsException() throws Exception {
         when(mockMetricReporter.getReportFrequency()).thenReturn(5L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
         when(mockBridge.beginIteration()).thenReturn(true);
         when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4);
         doAnswer(readTestData(10))
@@ -148,9 +177,9 @@ public class WriteServiceImplTest {
                 .when(mockBridge).setNext(any(DataInputStream.class));
 
         assertThrows(Exception.class, () -> writeService.writeData(mockContext, mockInputStream));
-        InOrder inOrder = inOrder(mockMetricReporter);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.RECORDS_RECEIVED, 1, mockContext);
-        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.BYTES_RECEIVED, 4, mockContext);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(1);
+        inOrder.verify(mockByteCounter).increment(4);
         inOrder.verifyNoMoreInteractions();
     }
 
@@ -191,6 +220,74 @@ public class WriteServiceImplTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testWriteDataLz4Compressed() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(5L);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.RECORDS_RECEIVED, mockContext)).thenReturn(mockRecordCounter);
+        when(mockMetricReporter.getCounterHandle(MetricsReporter.PxfMetric.BYTES_RECEIVED, mockContext)).thenReturn(mockByteCounter);
+        when(mockContext.getStreamCompression()).thenReturn(StreamCompression.LZ4);
+        when(mockBridge.beginIteration()).thenReturn(true);
+        StreamCompressor streamCompressor = new StreamCompressor(DataSize.ofKilobytes(64));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = streamCompressor.compress(compressed, StreamCompression.LZ4);
+        out.write("first-record-second-record".getBytes(StandardCharsets.UTF_8));
+        streamCompressor.finish(out);
+        List<String> records = new ArrayList<>();
+        doAnswer(readRecord(13, records))
+                .doAnswer(readRecord(13, records))
+                .doAnswer(invocation -> false)
+                .when(mockBridge).setNext(any(DataInputStream.class));
+
+        writeService.writeData(mockContext, new ByteArrayInputStream(compressed.toByteArray()));
+
+        assertEquals(Arrays.asList("first-record-", "second-record"), records);
+        InOrder inOrder = inOrder(mockMetricReporter, mockRecordCounter, mockByteCounter);
+        inOrder.verify(mockRecordCounter).increment(2);
+        inOrder.verify(mockByteCounter).increment(26);
+        inOrder.verify(mockMetricReporter).reportCounter(MetricsReporter.PxfMetric.COMPRESSED_BYTES_RECEIVED,
+                compressed.size(), mockContext);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testWriteDataReportsInFlightOperation() throws Exception {
+        when(mockMetricReporter.getReportFrequency()).thenReturn(0L);
+        when(mockContext.getDataSource()).thenReturn("/tmp/dir");
+        when(mockBridge.beginIteration()).thenReturn(true);
+        when(mockInputStream.read(any(), eq(0), eq(10))).thenReturn(4);
+        List<InFlightOperation> operations = new ArrayList<>();
+        List<String> phases = new ArrayList<>();
+        doAnswer(readTestData(10))
+                .doAnswer(invocation -> {
+                    operations.addAll(inFlightOperations.getOperations());
+                    InFlightOperation.ActiveFragment fragment = operations.get(0).getFragments().get(0);
+                    phases.add(fragment.getPhase());
+                    assertEquals(1, fragment.getRecords());
+                    assertEquals(4, fragment.getBytes());
+                    return false;
+                })
+                .when(mockBridge).setNext(any(DataInputStream.class));
+
+        writeService.writeData(mockContext, mockInputStream);
+
+        assertEquals(1, operations.size());
+        assertEquals("write", operations.get(0).getOperation());
+        assertEquals("/tmp/dir", operations.get(0).getResource());
+        assertEquals(Collections.singletonList("stream"), phases);
+        assertEquals(1, operations.get(0).getRecords());
+        assertTrue(inFlightOperations.getOperations().isEmpty());
+    }
+
+    private Answer<Boolean> readRecord(int length, List<String> records) {
+        return invocation -> {
+            DataInputStream in = invocation.getArgument(0);
+            byte[] record = new byte[length];
+            in.readFully(record);
+            records.add(new String(record, StandardCharsets.UTF_8));
+            return true;
+        };
+    }
+
     // helper for reading mock stream to a mock input stream
     // mockInputStream -> CountingInputStream ->
     // in order for the us to see the side-effect of CountingInputStream,
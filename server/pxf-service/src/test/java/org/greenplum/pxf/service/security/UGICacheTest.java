@@ -0,0 +1,176 @@
+package org.greenplum.pxf.service.security;
+
+import com.google.common.base.Ticker;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UGICacheTest {
+
+    private UGIProvider mockUGIProvider;
+    private UserGroupInformation loginUser;
+    private FakeTicker ticker;
+    private UGICache cache;
+
+    @BeforeEach
+    public void setup() {
+        mockUGIProvider = mock(UGIProvider.class);
+        loginUser = mock(UserGroupInformation.class);
+        ticker = new FakeTicker();
+        when(mockUGIProvider.createRemoteUser(anyString(), any(UserGroupInformation.class), anyBoolean()))
+                .thenAnswer(invocation -> mock(UserGroupInformation.class));
+        when(mockUGIProvider.createProxyUser(anyString(), any(UserGroupInformation.class)))
+                .thenAnswer(invocation -> mock(UserGroupInformation.class));
+        cache = new UGICache(mockUGIProvider, Duration.ofMinutes(1), 2, ticker);
+    }
+
+    @Test
+    public void testSameSessionReusesUGI() throws IOException {
+        UGICache.Entry entry1 = cache.acquire(session("alice"));
+        UGICache.Entry entry2 = cache.acquire(session("alice"));
+
+        assertSame(entry1, entry2);
+        verify(mockUGIProvider).createRemoteUser("alice", loginUser, false);
+
+        cache.release(entry1);
+        cache.release(entry2);
+        UGICache.Entry entry3 = cache.acquire(session("alice"));
+
+        assertSame(entry1, entry3);
+        verify(mockUGIProvider, never()).destroy(any(UserGroupInformation.class));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDifferentSessionsDoNotShareUGI() {
+        UGICache.Entry alice = cache.acquire(session("alice"));
+        UGICache.Entry bob = cache.acquire(session("bob"));
+        UGICache.Entry proxyAlice = cache.acquire(new UGICache.SessionId("server", "config", "alice", loginUser,
+                true, false, Collections.emptyMap()));
+        UGICache.Entry otherLoginAlice = cache.acquire(new UGICache.SessionId("server", "config", "alice",
+                mock(UserGroupInformation.class), false, false, Collections.emptyMap()));
+
+        assertNotSame(alice.getUgi(), bob.getUgi());
+        assertNotSame(alice.getUgi(), proxyAlice.getUgi());
+        assertNotSame(alice.getUgi(), otherLoginAlice.getUgi());
+        verify(mockUGIProvider).createProxyUser("alice", loginUser);
+    }
+
+    @Test
+    public void testExpiredEntryInUseIsDestroyedWhenReleased() throws IOException {
+        UGICache.Entry entry1 = cache.acquire(session("alice"));
+        ticker.advance(2, TimeUnit.MINUTES);
+
+        // the expired entry is not handed out, but it is still in use
+        UGICache.Entry entry2 = cache.acquire(session("alice"));
+        assertNotSame(entry1, entry2);
+        verify(mockUGIProvider, never()).destroy(any(UserGroupInformation.class));
+
+        cache.release(entry1);
+        verify(mockUGIProvider).destroy(entry1.getUgi());
+
+        cache.release(entry2);
+        verify(mockUGIProvider, never()).destroy(entry2.getUgi());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testIdleExpiredEntriesAreDestroyed() throws IOException {
+        UGICache.Entry alice = cache.acquire(session("alice"));
+        cache.release(alice);
+        ticker.advance(2, TimeUnit.MINUTES);
+
+        UGICache.Entry bob = cache.acquire(session("bob"));
+        cache.release(bob);
+
+        verify(mockUGIProvider).destroy(alice.getUgi());
+        verify(mockUGIProvider, never()).destroy(bob.getUgi());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIdleEntryIsEvictedWhenFull() throws IOException {
+        UGICache.Entry alice = cache.acquire(session("alice"));
+        UGICache.Entry bob = cache.acquire(session("bob"));
+        cache.release(bob);
+        ticker.advance(1, TimeUnit.SECONDS);
+
+        // alice is in use, so bob is evicted
+        UGICache.Entry carol = cache.acquire(session("carol"));
+
+        verify(mockUGIProvider).destroy(bob.getUgi());
+        verify(mockUGIProvider, never()).destroy(alice.getUgi());
+        assertEquals(2, cache.size());
+
+        // all the entries are in use, the cache grows over its maximum size
+        UGICache.Entry dave = cache.acquire(session("dave"));
+        assertEquals(3, cache.size());
+
+        cache.release(alice);
+        cache.release(carol);
+        cache.release(dave);
+        verify(mockUGIProvider, times(1)).destroy(any(UserGroupInformation.class));
+    }
+
+    @Test
+    public void testZeroExpirationDestroysUGIWhenReleased() throws IOException {
+        cache = new UGICache(mockUGIProvider, Duration.ZERO, 2, ticker);
+
+        UGICache.Entry entry1 = cache.acquire(session("alice"));
+        cache.release(entry1);
+        verify(mockUGIProvider).destroy(entry1.getUgi());
+
+        UGICache.Entry entry2 = cache.acquire(session("alice"));
+        assertNotSame(entry1.getUgi(), entry2.getUgi());
+        cache.release(entry2);
+        verify(mockUGIProvider).destroy(entry2.getUgi());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testErrorDestroyingUGIIsIgnored() throws IOException {
+        cache = new UGICache(mockUGIProvider, Duration.ZERO, 2, ticker);
+        doThrow(new IOException("oops")).when(mockUGIProvider).destroy(any(UserGroupInformation.class));
+
+        UGICache.Entry entry = cache.acquire(session("alice"));
+        cache.release(entry);
+
+        verify(mockUGIProvider).destroy(entry.getUgi());
+        assertEquals(0, cache.size());
+    }
+
+    private UGICache.SessionId session(String remoteUser) {
+        return new UGICache.SessionId("server", "config", remoteUser, loginUser, false, false, Collections.emptyMap());
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long time, TimeUnit unit) {
+            nanos += unit.toNanos(time);
+        }
+    }
+}
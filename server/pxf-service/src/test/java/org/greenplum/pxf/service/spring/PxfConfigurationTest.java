@@ -1,17 +1,69 @@
 package org.greenplum.pxf.service.spring;
 
+import org.apache.tomcat.util.compat.JreCompat;
+import org.greenplum.pxf.api.configuration.PxfServerProperties;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.task.TaskExecutorCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.mock.web.MockHttpServletRequest;
 
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 class PxfConfigurationTest {
 
     private PxfConfiguration configuration;
 
     private MockHttpServletRequest mockRequest;
 
+    private PxfServerProperties serverProperties;
+    private ObjectProvider<TaskExecutorCustomizer> mockCustomizers;
+    private ObjectProvider<TaskDecorator> mockTaskDecorator;
+
     @BeforeEach
+    @SuppressWarnings("unchecked")
     public void setup() {
         configuration = new PxfConfiguration(null);
         mockRequest = new MockHttpServletRequest();
+
+        serverProperties = new PxfServerProperties();
+        serverProperties.getTask().setThreadNamePrefix("pxf-response-");
+        mockCustomizers = mock(ObjectProvider.class);
+        mockTaskDecorator = mock(ObjectProvider.class);
+        when(mockCustomizers.orderedStream()).thenReturn(Stream.empty());
+        when(mockTaskDecorator.getIfUnique()).thenReturn(runnable -> runnable);
+    }
+
+    @Test
+    public void testTaskExecutorThreadPool() {
+        AsyncTaskExecutor executor = configuration.pxfApplicationTaskExecutor(serverProperties, mockCustomizers, mockTaskDecorator);
+
+        assertTrue(executor instanceof PxfThreadPoolTaskExecutor);
+    }
+
+    @Test
+    public void testTaskExecutorVirtualThreads() throws Exception {
+        serverProperties.setVirtualThreads(true);
+        AsyncTaskExecutor executor = configuration.pxfApplicationTaskExecutor(serverProperties, mockCustomizers, mockTaskDecorator);
+
+        if (JreCompat.isJre21Available()) {
+            assertTrue(executor instanceof TaskExecutorAdapter);
+            Future<String> threadName = executor.submit(() -> Thread.currentThread().getName());
+            assertTrue(threadName.get(10, TimeUnit.SECONDS).startsWith("pxf-response-"));
+        } else {
+            // falls back to the thread pool when the JVM does not support virtual threads
+            assertTrue(executor instanceof PxfThreadPoolTaskExecutor);
+            assertEquals("pxf-response-", ((PxfThreadPoolTaskExecutor) executor).getThreadNamePrefix());
+        }
     }
 }